@@ -0,0 +1,112 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Runtime support of the code compiled with -profile. Each instrumented class registers its counters when it is
+ * loaded, and the counters of every class are added to their profile file when the program exits, so that several
+ * runs accumulate in the same file.
+ * <p>
+ * Each line of the file holds the name of a counter, ClassName.method:b3 for the entries into the fourth block of a
+ * method and ClassName.method:c0 for its first call site, followed by its value.
+ */
+public class JmmProfile {
+
+    private static class Registration {
+        final String path;
+        final String className;
+        final String[] names;
+        final int[] counters;
+
+        Registration(String path, String className, String[] names, int[] counters) {
+            this.path = path;
+            this.className = className;
+            this.names = names;
+            this.counters = counters;
+        }
+    }
+
+    private static final List<Registration> registrations = new ArrayList<>();
+    private static Thread shutdownHook;
+
+    /**
+     * @param path      the profile file
+     * @param className the class whose code is counted
+     * @param names     the names of its counters, separated by spaces
+     * @return the counters, which the class increments
+     */
+    public static synchronized int[] register(String path, String className, String names) {
+        if (shutdownHook == null) {
+            shutdownHook = new Thread(JmmProfile::write);
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+
+        var counterNames = names.isEmpty() ? new String[0] : names.split(" ");
+        var counters = new int[counterNames.length];
+        registrations.add(new Registration(path, className, counterNames, counters));
+
+        return counters;
+    }
+
+    /**
+     * Writes the counters now rather than when the JVM exits, for programs that run inside another program.
+     */
+    public static synchronized void flush() {
+        if (shutdownHook == null) {
+            return;
+        }
+
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        shutdownHook = null;
+        write();
+        registrations.clear();
+    }
+
+    private static synchronized void write() {
+        var paths = new LinkedHashSet<String>();
+        registrations.forEach(registration -> paths.add(registration.path));
+
+        for (var path : paths) {
+            var counts = read(Paths.get(path));
+            for (var registration : registrations) {
+                if (!registration.path.equals(path)) {
+                    continue;
+                }
+                for (int i = 0; i < registration.names.length; i++) {
+                    counts.merge(registration.className + "." + registration.names[i],
+                            Integer.toUnsignedLong(registration.counters[i]), Long::sum);
+                }
+            }
+
+            var lines = new ArrayList<String>();
+            counts.forEach((name, count) -> lines.add(name + " " + count));
+            try {
+                Files.write(Paths.get(path), lines, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                System.err.println("Could not write profile '" + path + "': " + e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, Long> read(Path path) {
+        var counts = new LinkedHashMap<String, Long>();
+        if (!Files.isRegularFile(path)) {
+            return counts;
+        }
+
+        try {
+            for (var line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                var parts = line.trim().split(" ");
+                if (parts.length == 2) {
+                    counts.put(parts[0], Long.parseLong(parts[1]));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Ignoring unreadable profile '" + path + "': " + e.getMessage());
+            counts.clear();
+        }
+
+        return counts;
+    }
+}
@@ -1,15 +1,37 @@
 package pt.up.fe.comp2024;
 
+import pt.up.fe.comp2024.backend.PeepholeOptimizer;
+import pt.up.fe.comp2024.utils.Diagnostics;
+import pt.up.fe.comp2024.utils.Dump;
+
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 
 public class CompilerConfig {
 
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String INLINE_SIZE = "inlineSize";
+    private static final String INLINE_RECURSION = "inlineRecursion";
+    private static final String UNROLL_FACTOR = "unrollFactor";
+    private static final String UNROLL_SIZE = "unrollSize";
+    private static final String PEEPHOLE = "peephole";
+    private static final String PROFILE = "profile";
+    private static final String PROFILE_USE = "profileUse";
+    private static final String MAX_ERRORS = "maxErrors";
+    private static final String MAX_REPORTS = "maxReports";
+    private static final String MAX_STAGE_REPORTS = "maxStageReports";
+    private static final String REPORTS = "reports";
+    private static final String BATCH = "batch";
+    private static final String PIPELINE_DEPTH = "pipelineDepth";
+    private static final String DUMP = "dump";
+    private static final String DUMP_DIR = "dumpDir";
+    private static final String SYMBOLS = "symbols";
+    private static final String CLASSPATH = "classpath";
+    private static final String CLASSPATH_CACHE = "classpathCache";
+
+    private static final String DEFAULT_PROFILE = "jmm.profile";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -20,6 +42,14 @@ public class CompilerConfig {
         shortToLong.put("r", CompilerConfig.REGISTER);
     }
 
+    /**
+     * Options given by their full name, e.g. -profileUse=jmm.profile
+     */
+    static Set<String> longOptions = Set.of(INLINE_SIZE, INLINE_RECURSION, UNROLL_FACTOR, UNROLL_SIZE, PEEPHOLE, PROFILE,
+            PROFILE_USE, MAX_ERRORS, MAX_REPORTS, MAX_STAGE_REPORTS, REPORTS, BATCH,
+            PIPELINE_DEPTH, DUMP, DUMP_DIR, SYMBOLS, CLASSPATH,
+            CLASSPATH_CACHE);
+
 
     public static Optional<File> getInputFile(Map<String, String> config) {
         var inputFile = config.get(INPUT_FILE);
@@ -40,6 +70,176 @@ public class CompilerConfig {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * @return the maximum number of instructions of a method that is inlined into its callers
+     */
+    public static int getInlineSize(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(INLINE_SIZE, "20"));
+    }
+
+    /**
+     * @return how many times a method may be inlined into a copy of itself
+     */
+    public static int getInlineRecursion(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(INLINE_RECURSION, "0"));
+    }
+
+    /**
+     * @return how many iterations a loop body runs after partial unrolling
+     */
+    public static int getUnrollFactor(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(UNROLL_FACTOR, "4"));
+    }
+
+    /**
+     * @return the maximum number of instructions of an unrolled loop
+     */
+    public static int getUnrollSize(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(UNROLL_SIZE, "128"));
+    }
+
+
+    /**
+     * @return the names of the peephole rules run over the Jasmin code, in order; "all" selects every rule and "none"
+     * disables the peephole optimizer, which by default only runs when optimizing
+     */
+    public static List<String> getPeepholeRules(Map<String, String> config) {
+        var rules = config.getOrDefault(PEEPHOLE, getOptimize(config) ? "all" : "none").trim();
+        if (rules.equals("all")) {
+            return PeepholeOptimizer.getRuleNames();
+        }
+        if (rules.equals("none") || rules.isEmpty()) {
+            return List.of();
+        }
+
+        return Arrays.stream(rules.split(",")).map(String::trim).toList();
+    }
+
+    /**
+     * @return the file that instrumented code adds its counters to when it exits, if compiling with -profile; without
+     * a value, the counters go to jmm.profile in the current folder
+     */
+    public static Optional<File> getProfileOutput(Map<String, String> config) {
+        var profile = config.get(PROFILE);
+        if (profile == null || profile.equals("false")) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(profile.equals("true") ? DEFAULT_PROFILE : profile).getAbsoluteFile());
+    }
+
+    /**
+     * @return the profile written by a run of instrumented code, which guides the optimizations
+     */
+    public static Optional<File> getProfileInput(Map<String, String> config) {
+        return Optional.ofNullable(config.get(PROFILE_USE)).map(File::new);
+    }
+
+    /**
+     * @return the number of errors after which the compilation stops, by default none
+     */
+    public static int getMaxErrors(Map<String, String> config) {
+        return getLimit(config, MAX_ERRORS, Diagnostics.UNLIMITED);
+    }
+
+    /**
+     * @return the maximum number of reports kept for a compilation
+     */
+    public static int getMaxReports(Map<String, String> config) {
+        return getLimit(config, MAX_REPORTS, 1000);
+    }
+
+    /**
+     * @return the maximum number of reports kept for each stage of a compilation
+     */
+    public static int getMaxStageReports(Map<String, String> config) {
+        return getLimit(config, MAX_STAGE_REPORTS, 500);
+    }
+
+    /**
+     * @return the file the reports are written to, as JSON lines
+     */
+    public static Optional<File> getReportsOutput(Map<String, String> config) {
+        return Optional.ofNullable(config.get(REPORTS)).map(File::new);
+    }
+
+    /**
+     * @return the folder whose .jmm files are compiled, instead of a single input file
+     */
+    public static Optional<File> getBatchFolder(Map<String, String> config) {
+        return Optional.ofNullable(config.get(BATCH)).map(File::new);
+    }
+
+    /**
+     * @return how many files can wait for each stage when compiling a folder
+     */
+    public static int getPipelineDepth(Map<String, String> config) {
+        return getLimit(config, PIPELINE_DEPTH, 2);
+    }
+
+    /**
+     * @return what the stages write for inspection, none by default
+     */
+    public static Set<Dump.Kind> getDumps(Map<String, String> config) {
+        var dumps = config.getOrDefault(DUMP, "").trim();
+        if (dumps.isEmpty()) {
+            return Set.of();
+        }
+
+        var kinds = EnumSet.noneOf(Dump.Kind.class);
+        for (var name : dumps.split(",")) {
+            kinds.add(Dump.Kind.fromName(name.trim()));
+        }
+        return kinds;
+    }
+
+    /**
+     * @return the folder the dumps are written to, instead of stdout
+     */
+    public static Optional<File> getDumpFolder(Map<String, String> config) {
+        return Optional.ofNullable(config.get(DUMP_DIR)).map(File::new);
+    }
+
+    /**
+     * @return the folder the symbol table of the compiled class is written to, in binary form
+     */
+    public static Optional<File> getSymbolsFolder(Map<String, String> config) {
+        return Optional.ofNullable(config.get(SYMBOLS)).map(File::new);
+    }
+
+    /**
+     * @return the jars and folders with the classes that can be imported, separated by the path separator of the
+     * system, e.g. -classpath=libs-jmm/compiled
+     */
+    public static List<File> getClasspath(Map<String, String> config) {
+        var classpath = config.getOrDefault(CLASSPATH, "").trim();
+        if (classpath.isEmpty()) {
+            return List.of();
+        }
+
+        return Arrays.stream(classpath.split(File.pathSeparator)).map(File::new).toList();
+    }
+
+    /**
+     * @return the file the classes of the classpath are indexed in, by default one in the temporary folder
+     */
+    public static Optional<File> getClasspathCache(Map<String, String> config) {
+        return Optional.ofNullable(config.get(CLASSPATH_CACHE)).map(File::new);
+    }
+
+    private static int getLimit(Map<String, String> config, String option, int defaultValue) {
+        var value = config.get(option);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        int limit = Integer.parseInt(value);
+        if (limit < 1) {
+            throw new RuntimeException("Option '-" + option + "' expects a positive number, got '" + value + "'");
+        }
+        return limit;
+    }
+
 
     public static Map<String, String> getDefault() {
 
@@ -72,6 +272,13 @@ public class CompilerConfig {
                 throw new RuntimeException("Arguments should start with '-'");
             }
 
+            int assignment = arg.indexOf('=');
+            String name = assignment < 0 ? arg.substring(1) : arg.substring(1, assignment);
+            if (longOptions.contains(name)) {
+                config.put(name, assignment < 0 ? "true" : arg.substring(assignment + 1));
+                continue;
+            }
+
             String shortOption = arg.substring(1, 2);
             if (!isShortOpt(shortOption)) {
                 throw new RuntimeException("Unrecognized option '-" + shortOption + "'");
@@ -89,23 +296,49 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
-        if (!config.containsKey(INPUT_FILE)) {
+        if (config.containsKey(BATCH)) {
+            var folder = new File(config.get(BATCH));
+            if (!folder.isDirectory()) {
+                throw new RuntimeException("Could not find folder '" + folder + "'");
+            }
+        } else {
+            if (!config.containsKey(INPUT_FILE)) {
 
-            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
-        }
+                throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
+            }
 
-        // make sure we save the absolute path of the input file
-        var inputFile = new File(config.get(INPUT_FILE));
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Could not find input file '" + inputFile + "'");
-        }
+            // make sure we save the absolute path of the input file
+            var inputFile = new File(config.get(INPUT_FILE));
+            if (!inputFile.isFile()) {
+                throw new RuntimeException("Could not find input file '" + inputFile + "'");
+            }
 
-        var absolutePath = inputFile.getAbsolutePath();
-        config.put(INPUT_FILE, absolutePath);
+            var absolutePath = inputFile.getAbsolutePath();
+            config.put(INPUT_FILE, absolutePath);
+        }
 
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getInlineSize(config);
+        getInlineRecursion(config);
+        getUnrollFactor(config);
+        getUnrollSize(config);
+        getMaxErrors(config);
+        getMaxReports(config);
+        getMaxStageReports(config);
+        getPipelineDepth(config);
+        getDumps(config);
+        getDumpFolder(config).filter(folder -> !folder.isDirectory()).ifPresent(folder -> {
+            throw new RuntimeException("Could not find folder '" + folder + "'");
+        });
+        getSymbolsFolder(config).filter(folder -> !folder.isDirectory()).ifPresent(folder -> {
+            throw new RuntimeException("Could not find folder '" + folder + "'");
+        });
+        new PeepholeOptimizer(getPeepholeRules(config));
+        getProfileInput(config).filter(file -> !file.isFile()).ifPresent(file -> {
+            throw new RuntimeException("Could not find profile '" + file + "'");
+        });
 
         return config;
     }
@@ -1,18 +1,26 @@
 package pt.up.fe.comp2024;
 
-import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
 import pt.up.fe.comp2024.backend.JasminBackendImpl;
 import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
 import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.pipeline.CompilationPipeline;
+import pt.up.fe.comp2024.utils.Diagnostics;
+import pt.up.fe.comp2024.utils.Dump;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class Launcher {
 
@@ -21,41 +29,115 @@ public class Launcher {
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
 
+        var batchFolder = CompilerConfig.getBatchFolder(config);
+        if (batchFolder.isPresent()) {
+            compileFolder(batchFolder.get(), config);
+            return;
+        }
+
         var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
+
+        // The reports of every stage go to the same sink, so that its limits hold for the whole compilation
+        var diagnostics = Diagnostics.fromConfig(config);
+        var dump = Dump.fromConfig(config);
 
         // Parsing stage
         JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        TestUtils.noErrors(parserResult.getReports());
+        JmmParserResult parserResult = parser.parse(inputFile, config);
+        check(parserResult.getReports(), diagnostics, config);
 
-        // Print AST
-        System.out.println(parserResult.getRootNode().toTree());
+        // Dump AST, only with '-dump=ast'
+        dump.ast(parserResult.getRootNode());
 
         // Semantic Analysis stage
         JmmAnalysisImpl sema = new JmmAnalysisImpl();
         JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        TestUtils.noErrors(semanticsResult.getReports());
+        check(semanticsResult.getReports(), diagnostics, config);
 
 
         // Optimization stage
         JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
         OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
+        check(ollirResult.getReports(), diagnostics, config);
 
-        // Print OLLIR code
-        //System.out.println(ollirResult.getOllirCode());
+        // OLLIR-based optimizations, only performed with '-o'
+        ollirResult = ollirGen.optimize(ollirResult);
+        check(ollirResult.getReports(), diagnostics, config);
+
+        // Dump OLLIR code, only with '-dump=ollir'
+        dump.ollir(ollirResult.getOllirCode());
 
         // Code generation stage
         JasminBackendImpl jasminGen = new JasminBackendImpl();
         JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
+        check(jasminResult.getReports(), diagnostics, config);
+
+        // Dump Jasmin code, only with '-dump=jasmin'
+        dump.jasmin(jasminResult.getJasminCode());
+
+        writeReports(diagnostics, config);
+    }
+
+    /**
+     * Adds the reports of the result of a stage to the ones of the compilation, which ends if there is any error.
+     */
+    private static void check(List<Report> resultReports, Diagnostics diagnostics, Map<String, String> config) {
+        diagnostics.addResultReports(resultReports);
+        if (!diagnostics.hasErrors()) {
+            return;
+        }
+
+        for (var report : diagnostics.getReports()) {
+            System.err.println(report);
+        }
+
+        writeReports(diagnostics, config);
+        System.exit(1);
+    }
+
+    /**
+     * Compiles every .jmm file in the folder, with the stages of the compiler running at the same time on different
+     * files, and prints which files failed and what each stage did. With -reports, the reports of every file are
+     * written, each file bounded as a single compilation would be.
+     */
+    private static void compileFolder(File folder, Map<String, String> config) {
+        var files = Arrays.stream(folder.listFiles((dir, name) -> name.endsWith(".jmm")))
+                .sorted(Comparator.comparing(File::getName))
+                .toList();
+
+        var pipeline = new CompilationPipeline(CompilerConfig.getPipelineDepth(config));
+        var compilations = pipeline.run(files, config);
+
+        int failed = 0;
+        for (var compilation : compilations) {
+            if (!compilation.hasErrors()) {
+                continue;
+            }
+
+            failed++;
+            System.err.println("Failed to compile " + compilation.getFile());
+            for (var report : compilation.getReports()) {
+                System.err.println("  " + report);
+            }
+        }
+
+        CompilerConfig.getReportsOutput(config).ifPresent(file -> SpecsIo.write(file, compilations.stream()
+                .map(compilation -> compilation.getDiagnostics().toJsonLines())
+                .collect(Collectors.joining())));
+
+        System.out.println(pipeline.formatStats());
+        System.out.println("Compiled " + (files.size() - failed) + " of " + files.size() + " files");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
 
-        // Print Jasmin code
-        //System.out.println(jasminResult.getJasminCode());
+    private static void writeReports(Diagnostics diagnostics, Map<String, String> config) {
+        CompilerConfig.getReportsOutput(config)
+                .ifPresent(file -> SpecsIo.write(file, diagnostics.toJsonLines()));
     }
 
 }
@@ -3,6 +3,7 @@ package pt.up.fe.comp2024.analysis;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.utils.Diagnostics;
 
 import java.util.List;
 
@@ -20,4 +21,15 @@ public interface AnalysisPass {
      */
     List<Report> analyze(JmmNode root, SymbolTable table);
 
+    /**
+     * Analyses the given node, adding the reports to the diagnostics.
+     *
+     * @param root        the root node that will be visited for analysis
+     * @param table       the symbol table
+     * @param diagnostics receives the reports with the results of the analysis
+     */
+    default void analyze(JmmNode root, SymbolTable table, Diagnostics diagnostics) {
+        diagnostics.addAll(analyze(root, table));
+    }
+
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.utils.Diagnostics;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,13 +17,22 @@ AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements Analysi
 
     private List<Report> reports;
 
+    /**
+     * Receives the reports instead of the list, while analysing with {@link #analyze(JmmNode, SymbolTable, Diagnostics)}
+     */
+    private Diagnostics diagnostics;
+
     public AnalysisVisitor() {
         reports = new ArrayList<>();
         setDefaultValue(() -> null);
     }
 
     protected void addReport(Report report) {
-        reports.add(report);
+        if (diagnostics != null) {
+            diagnostics.add(report);
+        } else {
+            reports.add(report);
+        }
     }
 
     protected List<Report> getReports() {
@@ -38,4 +48,26 @@ AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements Analysi
         // Return reports
         return getReports();
     }
+
+    @Override
+    public void analyze(JmmNode root, SymbolTable table, Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        try {
+            visit(root, table);
+        } finally {
+            this.diagnostics = null;
+        }
+    }
+
+    /**
+     * Stops visiting once the diagnostics have as many errors as allowed.
+     */
+    @Override
+    public Void visit(JmmNode jmmNode, SymbolTable table) {
+        if (diagnostics != null && diagnostics.shouldStop()) {
+            return null;
+        }
+
+        return super.visit(jmmNode, table);
+    }
 }
@@ -2,7 +2,6 @@ package pt.up.fe.comp2024.analysis;
 
 import pt.up.fe.comp.jmm.analysis.JmmAnalysis;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
@@ -10,7 +9,11 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.passes.TypeAnalysis;
 import pt.up.fe.comp2024.analysis.passes.UndeclaredVariable;
 import pt.up.fe.comp2024.analysis.passes.VarDeclarations;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.classpath.ClasspathIndex;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.symboltable.SymbolTableFormat;
+import pt.up.fe.comp2024.utils.Diagnostics;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,19 +36,18 @@ public class JmmAnalysisImpl implements JmmAnalysis {
     public JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult) {
 
         JmmNode rootNode = parserResult.getRootNode();
-        System.out.println(parserResult.getRootNode().toTree());
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
+        var table = JmmSymbolTableBuilder.build(rootNode);
+        table.setClasspath(ClasspathIndex.fromConfig(parserResult.getConfig()));
 
-        List<Report> reports = new ArrayList<>();
+        var diagnostics = Diagnostics.fromConfig(parserResult.getConfig());
 
         // Visit all nodes in the AST
         for (var analysisPass : analysisPasses) {
             try {
-                var passReports = analysisPass.analyze(rootNode, table);
-                reports.addAll(passReports);
+                analysisPass.analyze(rootNode, table, diagnostics);
             } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
+                diagnostics.add(Report.newError(Stage.SEMANTIC,
                         -1,
                         -1,
                         "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
@@ -53,8 +55,18 @@ public class JmmAnalysisImpl implements JmmAnalysis {
                 );
             }
 
+            // With -maxErrors, the passes left are not run once that many errors were reported
+            if (diagnostics.shouldStop()) {
+                break;
+            }
+        }
+
+        // The interface of the class, for compilations that import it
+        if (!diagnostics.hasErrors()) {
+            CompilerConfig.getSymbolsFolder(parserResult.getConfig())
+                    .ifPresent(folder -> SymbolTableFormat.save(table, folder));
         }
 
-        return new JmmSemanticsResult(parserResult, table, reports);
+        return new JmmSemanticsResult(parserResult, table, diagnostics.getReportsWithDropped(Stage.SEMANTIC));
     }
 }
@@ -14,8 +14,6 @@ import pt.up.fe.comp2024.ast.TypeUtils;
 import java.util.ArrayList;
 import java.util.List;
 
-import static pt.up.fe.comp2024.analysis.passes.VarDeclarations.allVars;
-
 import static pt.up.fe.comp2024.ast.TypeUtils.*;
 
 public class TypeAnalysis extends AnalysisVisitor {
@@ -51,6 +49,8 @@ public class TypeAnalysis extends AnalysisVisitor {
         return null;
     }
     private Void visitObjectFunctionCall(JmmNode node, SymbolTable table) {
+        if (hasUndeclaredVariable(node, table)) return null;
+
         JmmNode caller = node.getChild(0);
         String called_func_name = node.get("name");
         Type caller_type = getExprType(caller, table, currentMethod);
@@ -130,6 +130,8 @@ public class TypeAnalysis extends AnalysisVisitor {
         return parameters_ok;
     }
     private Void visitIfElseStmt(JmmNode ifStmt, SymbolTable table) {
+        if (hasUndeclaredVariable(ifStmt.getChild(0), table)) return null;
+
         var type = TypeUtils.getExprType(ifStmt.getChild(0), table, currentMethod);
 
         // If the condition is not evaluated to a bool
@@ -145,6 +147,8 @@ public class TypeAnalysis extends AnalysisVisitor {
         return null;
     }
     private Void visitWhileStmt(JmmNode whileStmt, SymbolTable table) {
+        if (hasUndeclaredVariable(whileStmt.getChild(0), table)) return null;
+
         var type = TypeUtils.getExprType(whileStmt.getChild(0), table, currentMethod);
 
         // If the condition is not evaluated to a bool
@@ -169,6 +173,8 @@ public class TypeAnalysis extends AnalysisVisitor {
     }
 
     private Void visitAssignment(JmmNode node, SymbolTable table) {
+        if (hasUndeclaredVariable(node, table)) return null;
+
         var left_var = node.getChild(0);
         var right_side = node.getChild(1);
 
@@ -177,7 +183,7 @@ public class TypeAnalysis extends AnalysisVisitor {
 
         // Verify that a field is not being assigned in a static method
         String left_variable_name = left_var.isInstance(Kind.ARRAY_ACCESS) ? left_var.getChild(0).get("name") : left_var.get("name");
-        if (TypeUtils.isVariableField(left_variable_name, currentMethod) && currentMethodNode.get("isStatic").equals("true")) {
+        if (TypeUtils.isVariableField(left_variable_name, table, currentMethod) && currentMethodNode.get("isStatic").equals("true")) {
             addReport(Report.newError(
                     Stage.SEMANTIC,
                     NodeUtils.getLine(node),
@@ -201,6 +207,8 @@ public class TypeAnalysis extends AnalysisVisitor {
     }
 
     private Void visitReturns(JmmNode node, SymbolTable table) {
+        if (hasUndeclaredVariable(node.getChild(0), table)) return null;
+
         Type expectedReturnType = table.getReturnType(currentMethod);
         Type evaluatedReturnType = TypeUtils.getExprType(node.getChild(0), table, currentMethod);
 
@@ -224,4 +232,11 @@ public class TypeAnalysis extends AnalysisVisitor {
 
         return null;
     }
+
+    // An expression with an undeclared variable has no type to check, and UndeclaredVariable already reports it
+    private boolean hasUndeclaredVariable(JmmNode node, SymbolTable table) {
+        return node.getDescendantsAndSelfStream()
+                .filter(descendant -> descendant.isInstance(Kind.IDENTIFIER))
+                .anyMatch(identifier -> getExprType(identifier, table, currentMethod).getName().equals(ERROR_TYPE_NAME));
+    }
 }
\ No newline at end of file
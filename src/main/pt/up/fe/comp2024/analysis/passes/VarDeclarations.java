@@ -1,7 +1,6 @@
 package pt.up.fe.comp2024.analysis.passes;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
-import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
@@ -9,70 +8,14 @@ import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class VarDeclarations extends AnalysisVisitor {
     private String currentMethod;
-    public static List<VarTypeScope> allVars = new ArrayList<>();
-
-    public static class VarTypeScope {
-        public String var;
-        public String scope;
-        public String method_name;
-        public Type type;
-        public boolean isVarArg = false;
-
-
-        public VarTypeScope(String var, String scope, String method_name, Type type) {
-            this.var = var;
-            this.scope = scope;
-            this.type = type;
-            this.method_name = method_name;
-        }
-        public VarTypeScope(String var, String scope, String method_name, Type type, boolean isVarArg) {
-            this.var = var;
-            this.scope = scope;
-            this.type = type;
-            this.method_name = method_name;
-            this.isVarArg = isVarArg;
-        }
-
-        @Override
-        public String toString() {
-            return "Variable: " + var + ", Scope: " + scope + ", Method: " + method_name + ", Type: " + type.getName() + ", IsArray: " + type.isArray();
-        }
-
-        public String getName() {
-            return this.var;
-        }
-        public String getScope() {
-            return this.scope;
-        }
-    }
 
     @Override
     protected void buildVisitor() {
         addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
-        // Fill the VarTypeScope with each declared variable
+        // Verify that no local variable or field is declared as a VarArg
         addVisit(Kind.VAR_DECL, this::visitVarDeclaration);
-        addVisit(Kind.PARAMETER, this::visitParameters);
-    }
-
-    private Void visitParameters(JmmNode node, SymbolTable table) {
-        var varRefName = node.get("name");
-        boolean isVarArg = node.getChildren().get(0).get("isVarArg").equals("true");
-
-        if (currentMethod != null) {
-            // Var is a parameter
-            for (var param : table.getParameters(currentMethod)) {
-                if (param.getName().equals(varRefName)) {
-                    allVars.add(new VarTypeScope(param.getName(), "parameter", currentMethod, param.getType(), isVarArg));
-                }
-            }
-        }
-
-        return null;
     }
 
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
@@ -128,7 +71,6 @@ public class VarDeclarations extends AnalysisVisitor {
                         );
                         return null;
                     }
-                    allVars.add(new VarTypeScope(varDecl.getName(), "local", currentMethod, varDecl.getType()));
                 }
             }
         }
@@ -146,8 +88,6 @@ public class VarDeclarations extends AnalysisVisitor {
                     );
                     return null;
                 }
-
-                allVars.add(new VarTypeScope(param.getName(), "field", "", param.getType()));
             }
         }
 
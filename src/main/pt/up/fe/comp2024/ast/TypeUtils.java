@@ -4,13 +4,14 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.classpath.ClasspathIndex;
+import pt.up.fe.comp2024.classpath.MethodSignature;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import static pt.up.fe.comp2024.analysis.passes.VarDeclarations.allVars;
-
 public class TypeUtils {
     private static final String INT_TYPE_NAME = "int";
     private static final String BOOL_TYPE_NAME = "boolean";
@@ -85,6 +86,11 @@ public class TypeUtils {
         var this_class = table.getClassName();
         String function_name = expr.get("name");
 
+        // A method of an imported class returns what it declares, if the class is on the classpath
+        var declared = findImportedMethod(expr, table, currentMethod)
+                .flatMap(method -> fromDescriptor(method.getReturnDescriptor()));
+        if (declared.isPresent()) return declared.get();
+
         // If caller object is an imported type then just assume that it returns the correct type for the current method
         if (isImported(object_type, table)) return table.getReturnType(currentMethod);
         if (isImportedPackage(expr.getChild(0).get("name"), table)) return new Type(VOID_TYPE_NAME, false);
@@ -106,7 +112,7 @@ public class TypeUtils {
         // TODO
         Type type_of_variable = getExprType(expr.getChild(0), table, currentMethod);
         Type inner_part_type = getExprType(expr.getChild(1), table, currentMethod);
-        boolean isVariableVarArg = isIdentifierVarArg(expr.getChild(0), currentMethod);
+        boolean isVariableVarArg = isIdentifierVarArg(expr.getChild(0), table, currentMethod);
 
         // Array access must be possible if it is an array or a VarArg and the inner part is evaluated to an int
         if ((type_of_variable.isArray() || isVariableVarArg) && inner_part_type.equals(new Type(INT_TYPE_NAME, false))) {
@@ -131,54 +137,58 @@ public class TypeUtils {
     }
 
     private static Type getIdentifierType(JmmNode identifier, SymbolTable table, String currentMethod) {
-        // To make sure that is getting the variable from the correct scope with the right precedence (local > parameter > field)
-        Type currentType = new Type(ERROR_TYPE_NAME, false);
-        boolean isLocalOrParameter = false;
-        for (var elem: allVars) {
-            if (elem.var.equals(identifier.get("name"))) {
-                String method = elem.method_name;
-                // It is a field
-                if (!isLocalOrParameter && method.isEmpty()) currentType = elem.type;
-                // It is either a local or a parameter
-                else if (method.equals(currentMethod)) {
-                    currentType = elem.type;
-                    isLocalOrParameter = true;
-                }
-            }
-        }
         if (isImportedPackage(identifier.get("name"), table)) return new Type("Imported", false);
 
-        return currentType;
+        return findVariable(identifier.get("name"), table, currentMethod)
+                .map(Symbol::getType)
+                .orElse(new Type(ERROR_TYPE_NAME, false));
     }
-    public static boolean isIdentifierVarArg(JmmNode identifier, String currentMethod) {
-        for (var elem: allVars) {
-            if (elem.var.equals(identifier.get("name"))) {
-                if (elem.method_name.equals(currentMethod)) {
-                    return elem.isVarArg;
-                }
-            }
+
+    /**
+     * Looks the variable up in the symbol table, with the precedence of its scopes (local > parameter > field).
+     */
+    private static Optional<Symbol> findVariable(String variable, SymbolTable table, String currentMethod) {
+        var local = findLocalOrParameter(variable, table, currentMethod);
+        if (local.isPresent()) return local;
+
+        return findSymbol(variable, table.getFields());
+    }
+
+    private static Optional<Symbol> findLocalOrParameter(String variable, SymbolTable table, String currentMethod) {
+        if (currentMethod == null || !table.getMethods().contains(currentMethod)) return Optional.empty();
+
+        var local = findSymbol(variable, table.getLocalVariables(currentMethod));
+        if (local.isPresent()) return local;
+
+        return findSymbol(variable, table.getParameters(currentMethod));
+    }
+
+    // The last declaration wins, as duplicated names are reported elsewhere
+    private static Optional<Symbol> findSymbol(String variable, List<Symbol> symbols) {
+        Symbol found = null;
+        for (var symbol : symbols) {
+            if (symbol.getName().equals(variable)) found = symbol;
         }
-        return false;
+        return Optional.ofNullable(found);
+    }
+
+    public static boolean isIdentifierVarArg(JmmNode identifier, SymbolTable table, String currentMethod) {
+        return isVariableVarArg(identifier.get("name"), table, currentMethod);
     }
     public static boolean isVariableVarArg(String variable, SymbolTable table, String currentMethod) {
-        for (var elem: allVars) {
-            if (elem.var.equals(variable)) {
-                if (elem.method_name.equals(currentMethod)) {
-                    return elem.isVarArg;
-                }
-            }
-        }
-        return false;
-    }
-    public static boolean isVariableField(String variable, String currentMethod) {
-        boolean result = false;
-        for (var elem: allVars) {
-            if (elem.var.equals(variable)) {
-                if (elem.method_name.equals(currentMethod)) return false;
-                result = elem.scope.equals("field");
-            }
-        }
-        return result;
+        // Only parameters can be VarArgs, declaring any other variable as one is an error
+        if (currentMethod == null || !table.getMethods().contains(currentMethod)) return false;
+        if (findSymbol(variable, table.getLocalVariables(currentMethod)).isPresent()) return false;
+
+        return findSymbol(variable, table.getParameters(currentMethod))
+                .map(param -> param.getType().getAttributes().contains("isVarArg")
+                        && Boolean.TRUE.equals(param.getType().getObject("isVarArg")))
+                .orElse(false);
+    }
+    public static boolean isVariableField(String variable, SymbolTable table, String currentMethod) {
+        if (findLocalOrParameter(variable, table, currentMethod).isPresent()) return false;
+
+        return findSymbol(variable, table.getFields()).isPresent();
     }
 
     private static Type getBinExprType(JmmNode binaryExpr, SymbolTable table, String currentMethod) {
@@ -240,4 +250,87 @@ public class TypeUtils {
         return imports.contains(caller);
     }
 
+    /**
+     * @return the classes that can be imported, or none if the table was not built by the analysis
+     */
+    public static ClasspathIndex getClasspath(SymbolTable table) {
+        return table instanceof JmmSymbolTable jmmTable ? jmmTable.getClasspath() : ClasspathIndex.empty();
+    }
+
+    /**
+     * Looks the method up in the classpath, if it is called on an imported class or on an object of one.
+     */
+    public static Optional<MethodSignature> findImportedMethod(JmmNode call, SymbolTable table, String currentMethod) {
+        String className;
+        if (isImportedPackage(call.getChild(0).get("name"), table)) {
+            className = call.getChild(0).get("name");
+        }
+        else {
+            className = getExprType(call.getChild(0), table, currentMethod).getName();
+            if (!table.getImports().contains(className)) {
+                return Optional.empty();
+            }
+        }
+
+        var func_param = call.getDescendants(Kind.FUNC_PARAMETER);
+        var arguments = new ArrayList<String>();
+        if (!func_param.isEmpty()) {
+            for (var argument : func_param.get(0).getChildren()) {
+                arguments.add(toDescriptor(getExprType(argument, table, currentMethod), table));
+            }
+        }
+
+        return getClasspath(table).findMethod(toInternalName(className, table), call.get("name"), arguments);
+    }
+
+    /**
+     * @return the name of the class with the package it was imported from, e.g. foo/bar/A
+     */
+    public static String toInternalName(String className, SymbolTable table) {
+        return table.getImports().stream()
+                .filter(imported -> imported.equals(className) || imported.endsWith("." + className))
+                .findFirst()
+                .orElse(className)
+                .replace('.', '/');
+    }
+
+    /**
+     * @return the descriptor of the type, or null for a type that is not known, such as that of an imported call
+     */
+    private static String toDescriptor(Type type, SymbolTable table) {
+        var element = switch (type.getName()) {
+            case INT_TYPE_NAME -> "I";
+            case BOOL_TYPE_NAME -> "Z";
+            case STRING_TYPE_NAME -> "Ljava/lang/String;";
+            default -> table.getImports().contains(type.getName()) || type.getName().equals(table.getClassName())
+                    ? "L" + toInternalName(type.getName(), table) + ";"
+                    : null;
+        };
+
+        return element != null && type.isArray() ? "[" + element : element;
+    }
+
+    /**
+     * @return the type of a descriptor, if Java-- has it
+     */
+    public static Optional<Type> fromDescriptor(String descriptor) {
+        boolean isArray = descriptor.startsWith("[");
+        var element = isArray ? descriptor.substring(1) : descriptor;
+
+        var typeName = switch (element) {
+            case "I" -> INT_TYPE_NAME;
+            case "Z" -> BOOL_TYPE_NAME;
+            case "V" -> isArray ? null : VOID_TYPE_NAME;
+            case "Ljava/lang/String;" -> STRING_TYPE_NAME;
+            default -> element.startsWith("L") && element.endsWith(";")
+                    ? element.substring(element.lastIndexOf('/') + 1, element.length() - 1)
+                    : null;
+        };
+        if (typeName == null || element.startsWith("[")) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new Type(typeName, isArray));
+    }
+
 }
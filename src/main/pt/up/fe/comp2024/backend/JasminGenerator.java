@@ -4,14 +4,18 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.profile.ProfileSites;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.StringLines;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Generates Jasmin code from an OllirResult.
@@ -31,11 +35,80 @@ public class JasminGenerator {
 
     Method currentMethod;
 
+    /**
+     * Arrays of literals with at least this many elements are built once, when the class is loaded, and copied
+     */
+    private static final int CONSTANT_ARRAY_MIN_SIZE = 16;
+
+    /**
+     * Keeps each string constant well below the 65535 bytes allowed, at up to 6 bytes per int
+     */
+    private static final int PACKED_INTS_PER_STRING = 8192;
+
+    /**
+     * Keeps each string constant with the names of the profile counters below the 65535 bytes allowed
+     */
+    private static final int PROFILE_NAMES_PER_STRING = 32768;
+
+    private static final String UNPACK_INTS_METHOD = """
+
+            .method private static $unpackInts(Ljava/lang/String;)[I
+               .limit stack 6
+               .limit locals 3
+               aload_0
+               invokevirtual java/lang/String/length()I
+               iconst_1
+               ishr
+               newarray int
+               astore_1
+               iconst_0
+               istore_2
+            unpack_loop:
+               iload_2
+               aload_1
+               arraylength
+               if_icmpge unpack_end
+               aload_1
+               iload_2
+               aload_0
+               iload_2
+               iconst_1
+               ishl
+               invokevirtual java/lang/String/charAt(I)C
+               bipush 16
+               ishl
+               aload_0
+               iload_2
+               iconst_1
+               ishl
+               iconst_1
+               iadd
+               invokevirtual java/lang/String/charAt(I)C
+               ior
+               iastore
+               iinc 2 1
+               goto unpack_loop
+            unpack_end:
+               aload_1
+               areturn
+            .end method
+            """;
+
     private final List<Integer> maxStackSizes = new ArrayList<>(List.of(0, 0));
+    private final List<int[]> constantArrays = new ArrayList<>();
+    private final PeepholeOptimizer peepholeOptimizer;
+    /**
+     * The file the counters are written to when the program exits, or null unless compiling with -profile
+     */
+    private final File profileFile;
+    private final List<String> profileCounters = new ArrayList<>();
+    private int comparisonLabelCount = 0;
     private final FunctionClassMap<TreeNode, String> generators;
 
     public JasminGenerator(OllirResult ollirResult) {
         this.ollirResult = ollirResult;
+        this.peepholeOptimizer = new PeepholeOptimizer(CompilerConfig.getPeepholeRules(ollirResult.getConfig()));
+        this.profileFile = CompilerConfig.getProfileOutput(ollirResult.getConfig()).orElse(null);
 
         reports = new ArrayList<>();
         code = null;
@@ -103,46 +176,73 @@ public class JasminGenerator {
     private String generateOpCond(OpCondInstruction opCondInstruction) {
         StringBuilder code = new StringBuilder();
         var label = opCondInstruction.getLabel();
-        code.append(generators.apply(opCondInstruction.getCondition()));
+        // A negated condition jumps when its operand is false
+        if (opCondInstruction.getCondition() instanceof UnaryOpInstruction negation) {
+            code.append(generators.apply(negation.getOperand()));
+            code.append("ifeq ").append(label).append(NL);
+            changeStackSize(-1);
+            return code.toString();
+        }
+
+        var operands = opCondInstruction.getCondition().getOperands();
         String opType = opCondInstruction.getCondition().getOperation().getOpType().name();
 
-        switch (opType) {
-            case "LTH" -> {
-                code.append("isub").append(NL);
-                changeStackSize(-1);
-                code.append("iflt ").append(label).append(NL);
-                changeStackSize(-1);
-            }
-            case "GTH" -> {
-                code.append("isub").append(NL);
-                changeStackSize(-1);
-                code.append("ifgt ").append(label).append(NL);
-                changeStackSize(-1);
-            }
-            case "LTE" -> {
-                code.append("if_icmple ").append(label).append(NL);
-                changeStackSize(-1);
-            }
-            case "GTE" -> {
-                code.append("isub").append(NL);
-                changeStackSize(-1);
-                code.append("ifge ").append(label).append(NL);
-                changeStackSize(-1);
-            }
-            case "EQ" -> {
-                code.append("if_icmpeq ").append(label).append(NL);
-                changeStackSize(-1);
-            }
-            case "NE" -> {
-                code.append("if_icmpne ").append(label).append(NL);
-                changeStackSize(-1);
-            }
+        if (opType.equals("ANDB") || opType.equals("ORB")) {
+            code.append(generators.apply(operands.get(0)));
+            code.append(generators.apply(operands.get(1)));
+            code.append(opType.equals("ANDB") ? "iand" : "ior").append(NL);
+            changeStackSize(-1);
+            code.append("ifne ").append(label).append(NL);
+            changeStackSize(-1);
+            return code.toString();
+        }
+
+        var comparison = switch (opType) {
+            case "LTH" -> "lt";
+            case "GTH" -> "gt";
+            case "LTE" -> "le";
+            case "GTE" -> "ge";
+            case "EQ" -> "eq";
+            case "NE", "NEQ" -> "ne";
             default -> throw new NotImplementedException(opType);
+        };
+
+        // Only the operands are loaded, the comparison is done by the conditional jump. Comparing with zero needs only
+        // the other operand, while subtracting the operands to compare with zero would overflow
+        if (isZero(operands.get(1))) {
+            code.append(generators.apply(operands.get(0)));
+            code.append("if").append(comparison).append(" ").append(label).append(NL);
+        } else if (isZero(operands.get(0))) {
+            code.append(generators.apply(operands.get(1)));
+            code.append("if").append(swapOperands(comparison)).append(" ").append(label).append(NL);
+        } else {
+            code.append(generators.apply(operands.get(0)));
+            code.append(generators.apply(operands.get(1)));
+            code.append("if_icmp").append(comparison).append(" ").append(label).append(NL);
+            changeStackSize(-1);
         }
+        changeStackSize(-1);
 
         return code.toString();
     }
 
+    private static boolean isZero(Element element) {
+        return element instanceof LiteralElement literal && literal.getLiteral().equals("0");
+    }
+
+    /**
+     * @return the comparison that gives the same result with the operands swapped, e.g. "gt" for "lt"
+     */
+    private static String swapOperands(String comparison) {
+        return switch (comparison) {
+            case "lt" -> "gt";
+            case "gt" -> "lt";
+            case "le" -> "ge";
+            case "ge" -> "le";
+            default -> comparison;
+        };
+    }
+
     public List<Report> getReports() {
         return reports;
     }
@@ -152,6 +252,14 @@ public class JasminGenerator {
         // This way, build is idempotent
         if (code == null) {
             code = generators.apply(ollirResult.getOllirClass());
+
+            // Only the rules that fired are reported, so that a file does not get a report for every rule
+            peepholeOptimizer.getFireCounts().forEach((rule, count) -> {
+                if (count > 0) {
+                    reports.add(Report.newLog(Stage.GENERATION, -1, -1,
+                            "Peephole rule '" + rule + "' fired " + count + " times", null));
+                }
+            });
         }
 
         return code;
@@ -199,7 +307,7 @@ public class JasminGenerator {
                 }
 
                 code.append(String.format("invokevirtual %s/%s(%s)%s%s", ((ClassType) caller.getType()).getName(), methodName, parameters, returnType, NL));
-                changeStackSize(-1 - parameters.length());
+                changeStackSize(-1 - callInstruction.getArguments().size());
             }
             case invokespecial -> {
                 var reg = currentMethod.getVarTable().get(caller.getName()).getVirtualReg();
@@ -216,8 +324,8 @@ public class JasminGenerator {
                     parameters.append(toTypeLetter(callInstruction.getArguments().get(i).getType()));
                     code.append(generators.apply(callInstruction.getArguments().get(i)));
                 }
-                code.append("invokestatic ").append(callerName).append("/").append(methodName).append("(").append(parameters).append(")").append(toTypeLetter(callInstruction.getReturnType()));
-                changeStackSize(-parameters.length());
+                code.append("invokestatic ").append(getClassPath(callerName)).append("/").append(methodName).append("(").append(parameters).append(")").append(toTypeLetter(callInstruction.getReturnType())).append(NL);
+                changeStackSize(-callInstruction.getArguments().size());
             }
             case NEW -> {
                 // Array
@@ -246,6 +354,19 @@ public class JasminGenerator {
 
         var code = new StringBuilder();
 
+        // generate code for all methods first, which collects the constant arrays they use
+        var methodsCode = new StringBuilder();
+        for (var method : ollirResult.getOllirClass().getMethods()) {
+
+            // Ignore constructor, since there is always one constructor
+            // that receives no arguments, and is added below
+            if (method.isConstructMethod()) {
+                continue;
+            }
+
+            methodsCode.append(generators.apply(method));
+        }
+
         // generate class name
         var className = ollirResult.getOllirClass().getClassName();
         var classAcessModifiers = classUnit.getClassAccessModifier().equals(AccessModifier.DEFAULT) ? "public" : classUnit.getClassAccessModifier();
@@ -258,6 +379,12 @@ public class JasminGenerator {
             String f = String.format(".field %s %s%s", field.getFieldName(), toTypeLetter(field.getFieldType()), NL);
             code.append(f);
         }
+        for (int i = 0; i < constantArrays.size(); i++) {
+            code.append(".field private static final $array").append(i).append(" [I").append(NL);
+        }
+        if (profileFile != null) {
+            code.append(".field private static $profile [I").append(NL);
+        }
 
         // generate a single constructor method
         var defaultConstructor = """
@@ -270,18 +397,8 @@ public class JasminGenerator {
                 """;
         code.append(defaultConstructor);
 
-        // generate code for all other methods
-        for (var method : ollirResult.getOllirClass().getMethods()) {
-
-            // Ignore constructor, since there is always one constructor
-            // that receives no arguments, and has been already added
-            // previously
-            if (method.isConstructMethod()) {
-                continue;
-            }
-
-            code.append(generators.apply(method));
-        }
+        code.append(generateStaticInitializer());
+        code.append(methodsCode);
 
         return code.toString();
     }
@@ -321,15 +438,61 @@ public class JasminGenerator {
 
         StringBuilder withoutLimits = new StringBuilder();
 
-        for (var inst : method.getInstructions()) {
-            var label = method.getLabels(inst);
-            if (!label.isEmpty()) {
-                withoutLimits.append(method.getLabels(inst).get(0)).append(":").append(NL);
+        // With -profile, the entries into each block and the calls are counted
+        var blockLeaders = new IdentityHashMap<Instruction, Integer>();
+        var callSites = new IdentityHashMap<Instruction, Integer>();
+        if (profileFile != null) {
+            var leaders = ProfileSites.getBlockLeaders(method);
+            for (int i = 0; i < leaders.size(); i++) {
+                blockLeaders.put(leaders.get(i), i);
+            }
+            var calls = ProfileSites.getCallSites(method);
+            for (int i = 0; i < calls.size(); i++) {
+                callSites.put(calls.get(i), i);
             }
-            var instCode = StringLines.getLines(generators.apply(inst)).stream()
-                    .collect(Collectors.joining(NL + TAB, TAB, NL));
+        }
+
+        var methodCode = new ArrayList<JasminInstruction>();
+        var instructions = method.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+            // An instruction can end several blocks at once, e.g. a loop that is the last statement of an if
+            for (var label : method.getLabels(inst)) {
+                methodCode.add(JasminInstruction.label(label));
+            }
+
+            var counters = new StringBuilder();
+            if (blockLeaders.containsKey(inst)) {
+                counters.append(generateCounter(ProfileSites.blockKey(methodName, blockLeaders.get(inst))));
+            }
+            var called = inst instanceof AssignInstruction assign ? assign.getRhs() : inst;
+            if (callSites.containsKey(called)) {
+                counters.append(generateCounter(ProfileSites.callKey(methodName, callSites.get(called))));
+            }
+
+            String instGenerated;
+            var initialization = getArrayInitialization(instructions, i);
+            if (!initialization.isEmpty()) {
+                instGenerated = generateArrayInitialization((AssignInstruction) inst, initialization);
+                i += initialization.size();
+            } else {
+                instGenerated = generators.apply(inst);
+            }
+            // A call used as a statement leaves its result on the stack
+            if (inst instanceof CallInstruction call && isDiscardedResult(call)) {
+                instGenerated += "pop" + NL;
+            }
+            instGenerated = counters + instGenerated;
+            StringLines.getLines(instGenerated).stream()
+                    .filter(line -> !line.isBlank())
+                    .map(JasminInstruction::parse)
+                    .forEach(methodCode::add);
+        }
 
-            withoutLimits.append(instCode);
+        // The rules never need more stack than the code they replace, so the limit computed above still holds
+        peepholeOptimizer.optimize(methodCode);
+        for (var instr : methodCode) {
+            withoutLimits.append(instr.isLabel() ? "" : TAB).append(instr).append(NL);
         }
 
         withoutLimits.append(".end method\n");
@@ -360,18 +523,204 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    /**
+     * @return the stores into the array created by the instruction at the given index that follow it right away, with
+     * a literal index and a value that does not read the array
+     */
+    private List<AssignInstruction> getArrayInitialization(List<Instruction> instructions, int index) {
+        if (!(instructions.get(index) instanceof AssignInstruction assign)
+                || !(assign.getRhs() instanceof CallInstruction call) || call.getInvocationType() != CallType.NEW
+                || !(assign.getDest() instanceof Operand array) || !(call.getReturnType() instanceof ArrayType)) {
+            return List.of();
+        }
+
+        var stores = new ArrayList<AssignInstruction>();
+        for (var inst : instructions.subList(index + 1, instructions.size())) {
+            if (!currentMethod.getLabels(inst).isEmpty() || !(inst instanceof AssignInstruction store)
+                    || !(store.getDest() instanceof ArrayOperand element) || !element.getName().equals(array.getName())
+                    || !(element.getIndexOperands().get(0) instanceof LiteralElement)
+                    || !(store.getRhs() instanceof SingleOpInstruction value)
+                    || (value.getSingleOperand() instanceof Operand operand && operand.getName().equals(array.getName()))) {
+                break;
+            }
+            stores.add(store);
+        }
+
+        return stores;
+    }
+
+    /**
+     * Fills a new array while its reference is on the stack, duplicating it for each store instead of loading it
+     * again. Large arrays of literals are copied from a constant array built when the class is loaded, so that the
+     * size of the method does not grow with the number of elements.
+     */
+    private String generateArrayInitialization(AssignInstruction newArray, List<AssignInstruction> stores) {
+        var code = new StringBuilder();
+        var array = (Operand) newArray.getDest();
+        var size = ((CallInstruction) newArray.getRhs()).getArguments().get(0);
+
+        var constants = getConstantArray(size, stores);
+        if (constants != null && constants.length >= CONSTANT_ARRAY_MIN_SIZE) {
+            var field = "$array" + constantArrays.size();
+            constantArrays.add(constants);
+            code.append("getstatic ").append(ollirResult.getOllirClass().getClassName()).append("/").append(field)
+                    .append(" [I").append(NL);
+            code.append("invokevirtual [I/clone()Ljava/lang/Object;").append(NL);
+            code.append("checkcast [I").append(NL);
+            changeStackSize(1);
+        } else {
+            code.append(generators.apply(newArray.getRhs()));
+            for (var store : stores) {
+                code.append("dup").append(NL);
+                changeStackSize(1);
+                code.append(generators.apply(((ArrayOperand) store.getDest()).getIndexOperands().get(0)));
+                code.append(generators.apply(store.getRhs()));
+                code.append("iastore").append(NL);
+                changeStackSize(-3);
+            }
+        }
+
+        var reg = currentMethod.getVarTable().get(array.getName()).getVirtualReg();
+        code.append("astore").append(reg < 4 ? "_" : " ").append(reg).append(NL);
+        changeStackSize(-1);
+
+        return code.toString();
+    }
+
+    /**
+     * @return the contents of the array if its size and all the stores are literals, null otherwise
+     */
+    private int[] getConstantArray(Element size, List<AssignInstruction> stores) {
+        if (!(size instanceof LiteralElement sizeLiteral)) {
+            return null;
+        }
+
+        var constants = new int[Integer.parseInt(sizeLiteral.getLiteral())];
+        for (var store : stores) {
+            int index = Integer.parseInt(((LiteralElement) ((ArrayOperand) store.getDest()).getIndexOperands().get(0)).getLiteral());
+            var value = ((SingleOpInstruction) store.getRhs()).getSingleOperand();
+            if (index < 0 || index >= constants.length || !(value instanceof LiteralElement literal)) {
+                return null;
+            }
+            constants[index] = Integer.parseInt(literal.getLiteral());
+        }
+
+        return constants;
+    }
+
+    /**
+     * Builds the constant arrays used by the methods when the class is loaded. The elements are packed in string
+     * constants, two chars per int, and unpacked by a helper, so the code does not depend on their number.
+     */
+    private String generateStaticInitializer() {
+        if (constantArrays.isEmpty() && profileFile == null) {
+            return "";
+        }
+
+        var className = ollirResult.getOllirClass().getClassName();
+        var code = new StringBuilder();
+        code.append(NL).append(".method static <clinit>()V").append(NL);
+        code.append(TAB).append(".limit stack ").append(profileFile != null ? 4 : 2).append(NL);
+        code.append(TAB).append(".limit locals 0").append(NL);
+
+        // The counters are created by the runtime support, which writes them to the profile when the program exits
+        if (profileFile != null) {
+            var path = profileFile.getPath().replace("\\", "\\\\").replace("\"", "\\\"");
+            code.append(TAB).append("ldc \"").append(path).append("\"").append(NL);
+            code.append(TAB).append("ldc \"").append(className).append("\"").append(NL);
+            var names = String.join(" ", profileCounters);
+            for (int start = 0; start == 0 || start < names.length(); start += PROFILE_NAMES_PER_STRING) {
+                code.append(TAB).append("ldc \"")
+                        .append(names, start, Math.min(names.length(), start + PROFILE_NAMES_PER_STRING))
+                        .append("\"").append(NL);
+                if (start > 0) {
+                    code.append(TAB).append("invokevirtual java/lang/String/concat(Ljava/lang/String;)Ljava/lang/String;").append(NL);
+                }
+            }
+            code.append(TAB).append("invokestatic JmmProfile/register(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)[I").append(NL);
+            code.append(TAB).append("putstatic ").append(className).append("/$profile [I").append(NL);
+        }
+
+        for (int i = 0; i < constantArrays.size(); i++) {
+            var constants = constantArrays.get(i);
+            for (int start = 0; start < constants.length; start += PACKED_INTS_PER_STRING) {
+                code.append(TAB).append("ldc \"");
+                for (int j = start; j < Math.min(constants.length, start + PACKED_INTS_PER_STRING); j++) {
+                    code.append(String.format("\\u%04x\\u%04x", constants[j] >>> 16, constants[j] & 0xFFFF));
+                }
+                code.append("\"").append(NL);
+                if (start > 0) {
+                    code.append(TAB).append("invokevirtual java/lang/String/concat(Ljava/lang/String;)Ljava/lang/String;").append(NL);
+                }
+            }
+            code.append(TAB).append("invokestatic ").append(className).append("/$unpackInts(Ljava/lang/String;)[I").append(NL);
+            code.append(TAB).append("putstatic ").append(className).append("/$array").append(i).append(" [I").append(NL);
+        }
+        code.append(TAB).append("return").append(NL);
+        code.append(".end method").append(NL);
+
+        if (!constantArrays.isEmpty()) {
+            code.append(UNPACK_INTS_METHOD);
+        }
+
+        return code.toString();
+    }
+
+    /**
+     * @return the code that adds one to the counter with the given name
+     */
+    private String generateCounter(String name) {
+        var className = ollirResult.getOllirClass().getClassName();
+        var code = new StringBuilder();
+
+        code.append("getstatic ").append(className).append("/$profile [I").append(NL);
+        changeStackSize(1);
+        code.append(generateIntConstant(profileCounters.size()));
+        code.append("dup2").append(NL);
+        changeStackSize(2);
+        code.append("iaload").append(NL);
+        changeStackSize(-1);
+        code.append("iconst_1").append(NL);
+        changeStackSize(1);
+        code.append("iadd").append(NL);
+        changeStackSize(-1);
+        code.append("iastore").append(NL);
+        changeStackSize(-3);
+
+        profileCounters.add(name);
+        return code.toString();
+    }
+
+    private boolean isDiscardedResult(CallInstruction call) {
+        var invocationType = call.getInvocationType();
+        return (invocationType == CallType.invokevirtual || invocationType == CallType.invokestatic)
+                && call.getReturnType().getTypeOfElement() != ElementType.VOID;
+    }
+
     private String toTypeLetter(Type type) {
         ElementType elementType = type.getTypeOfElement();
         return switch (elementType) {
             case INT32 -> "I";
             case BOOLEAN -> "Z";
             case ARRAYREF -> "[" + toTypeLetter(((ArrayType)type).getElementType());
-            case OBJECTREF, CLASS, THIS -> null;
+            case OBJECTREF, CLASS -> "L" + getClassPath(((ClassType) type).getName()) + ";";
+            case THIS -> "L" + ollirResult.getOllirClass().getClassName() + ";";
             case STRING -> "Ljava/lang/String;";
             case VOID -> "V";
         };
     }
 
+    /**
+     * @return the internal name of the class, using the package it was imported from
+     */
+    private String getClassPath(String className) {
+        return ollirResult.getOllirClass().getImports().stream()
+                .filter(imported -> imported.equals(className) || imported.endsWith("." + className))
+                .findFirst()
+                .orElse(className)
+                .replace('.', '/');
+    }
+
     private String generateAssign(AssignInstruction assign) {
         var code = new StringBuilder();
 
@@ -405,11 +754,12 @@ public class JasminGenerator {
             boolean isLeftLiteralAndRightNameMatches = left_operand.isLiteral() && right_operand instanceof Operand && ((Operand) right_operand).getName().equals(assign_var_name) && left_operand.getType().getTypeOfElement().equals(ElementType.INT32);
             boolean isRightLiteralAndLeftNameMatches = right_operand.isLiteral() && left_operand instanceof Operand && ((Operand) left_operand).getName().equals(assign_var_name) && left_operand.getType().getTypeOfElement().equals(ElementType.INT32);
 
-            if (isLeftLiteralAndRightNameMatches) {
+            if (isLeftLiteralAndRightNameMatches && binaryOp.getOperation().getOpType() == OperationType.ADD
+                    && isIincConstant(binaryOp, (LiteralElement) left_operand)) {
                 code.append(generateOperationCode(binaryOp, reg, (LiteralElement) left_operand));
                 return code.toString();
             }
-            else if (isRightLiteralAndLeftNameMatches) {
+            else if (isRightLiteralAndLeftNameMatches && isIincConstant(binaryOp, (LiteralElement) right_operand)) {
                 code.append(generateOperationCode(binaryOp, reg, (LiteralElement) right_operand));
                 return code.toString();
             }
@@ -434,13 +784,30 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    /**
+     * iinc only encodes additions and subtractions of a signed byte
+     */
+    private boolean isIincConstant(BinaryOpInstruction binaryOp, LiteralElement operand) {
+        var opType = binaryOp.getOperation().getOpType();
+        if (opType != OperationType.ADD && opType != OperationType.SUB) {
+            return false;
+        }
+
+        long increment = Long.parseLong(operand.getLiteral());
+        if (opType == OperationType.SUB) {
+            increment = -increment;
+        }
+
+        return increment >= -128 && increment <= 127;
+    }
+
     private String generateOperationCode(BinaryOpInstruction binaryOp, int reg, LiteralElement operand) {
         StringBuilder code = new StringBuilder();
-        if (binaryOp.getOperation().getOpType() == OperationType.ADD) {
-            code.append("iinc").append(" ").append(reg).append(" ").append(operand.getLiteral()).append(NL);
-        } else if (binaryOp.getOperation().getOpType() == OperationType.SUB) {
-            code.append("iinc").append(" ").append(reg).append(" -").append(operand.getLiteral()).append(NL);
+        int increment = Integer.parseInt(operand.getLiteral());
+        if (binaryOp.getOperation().getOpType() == OperationType.SUB) {
+            increment = -increment;
         }
+        code.append("iinc").append(" ").append(reg).append(" ").append(increment).append(NL);
         return code.toString();
     }
 
@@ -467,23 +834,26 @@ public class JasminGenerator {
             return literal.getLiteral().equals("1") ? "iconst_1" + NL : "iconst_0" + NL;
         }
         if (literal.getType().getTypeOfElement().equals(ElementType.INT32)){
-            if (Integer.parseInt(literal.getLiteral()) >= -1 && Integer.parseInt(literal.getLiteral()) <= 5) {
-                changeStackSize(1);
-                return "iconst_" + literal.getLiteral() + NL;
-            }
-            else if (Integer.parseInt(literal.getLiteral()) >= -128 && Integer.parseInt(literal.getLiteral()) <= 127) {
-                changeStackSize(1);
-                return "bipush " + literal.getLiteral() + NL;
-            }
-            else if (Integer.parseInt(literal.getLiteral()) >= -32768 && Integer.parseInt(literal.getLiteral()) <= 32767) {
-                changeStackSize(1);
-                return "sipush " + literal.getLiteral() + NL;
-            }
+            return generateIntConstant(Integer.parseInt(literal.getLiteral()));
         }
         changeStackSize(1);
         return "ldc " + literal.getLiteral() + NL;
     }
 
+    private String generateIntConstant(int value) {
+        changeStackSize(1);
+        if (value >= -1 && value <= 5) {
+            return value == -1 ? "iconst_m1" + NL : "iconst_" + value + NL;
+        }
+        else if (value >= -128 && value <= 127) {
+            return "bipush " + value + NL;
+        }
+        else if (value >= -32768 && value <= 32767) {
+            return "sipush " + value + NL;
+        }
+        return "ldc " + value + NL;
+    }
+
     private String generateOperand(Operand operand) {
         // get register
         var reg = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
@@ -500,9 +870,64 @@ public class JasminGenerator {
 
     }
 
+    /**
+     * Multiplications by a power of two, as left shifts.
+     * <p>
+     * Divisions keep idiv: a shift rounds towards negative infinity, and the code that corrects it for negative
+     * dividends runs slower than idiv in the interpreter.
+     *
+     * @return the code of the operation, or null if no operand is a suitable power of two
+     */
+    private String generatePowerOfTwoOp(BinaryOpInstruction binaryOp) {
+        if (binaryOp.getOperation().getOpType() != OperationType.MUL) {
+            return null;
+        }
+
+        var left = binaryOp.getLeftOperand();
+        var right = binaryOp.getRightOperand();
+
+        Element operand;
+        int shift;
+        if (log2(right) >= 0) {
+            operand = left;
+            shift = log2(right);
+        } else if (log2(left) >= 0) {
+            operand = right;
+            shift = log2(left);
+        } else {
+            return null;
+        }
+
+        var code = new StringBuilder();
+        code.append(generators.apply(operand));
+        if (shift > 0) {
+            code.append(generateIntConstant(shift)).append("ishl").append(NL);
+            changeStackSize(-1);
+        }
+
+        return code.toString();
+    }
+
+    /**
+     * @return k if the element is the integer literal 2^k, with k between 0 and 30, or -1 otherwise
+     */
+    private int log2(Element element) {
+        if (!(element instanceof LiteralElement literal) || !literal.getType().getTypeOfElement().equals(ElementType.INT32)) {
+            return -1;
+        }
+
+        int value = Integer.parseInt(literal.getLiteral());
+        return value > 0 && Integer.bitCount(value) == 1 ? Integer.numberOfTrailingZeros(value) : -1;
+    }
+
     private String generateBinaryOp(BinaryOpInstruction binaryOp) {
         var code = new StringBuilder();
 
+        var powerOfTwoCode = generatePowerOfTwoOp(binaryOp);
+        if (powerOfTwoCode != null) {
+            return powerOfTwoCode;
+        }
+
         // load values on the left and on the right
         code.append(generators.apply(binaryOp.getLeftOperand()));
         code.append(generators.apply(binaryOp.getRightOperand()));
@@ -525,7 +950,27 @@ public class JasminGenerator {
                 changeStackSize(-1);
                 code.append("idiv\n");
             }
-            case LTH, GTE -> {
+            case ANDB -> {
+                changeStackSize(-1);
+                code.append("iand\n");
+            }
+            case ORB -> {
+                changeStackSize(-1);
+                code.append("ior\n");
+            }
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> {
+                // Comparisons produce 0 or 1 through a conditional jump
+                var trueLabel = "cmp_true_" + comparisonLabelCount;
+                var endLabel = "cmp_end_" + comparisonLabelCount;
+                comparisonLabelCount++;
+
+                code.append(toCompareInstruction(binaryOp.getOperation().getOpType())).append(" ").append(trueLabel).append(NL);
+                code.append("iconst_0").append(NL);
+                code.append("goto ").append(endLabel).append(NL);
+                code.append(trueLabel).append(":").append(NL);
+                code.append("iconst_1").append(NL);
+                code.append(endLabel).append(":").append(NL);
+                changeStackSize(-1);
             }
             default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
         }
@@ -534,6 +979,18 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    private String toCompareInstruction(OperationType opType) {
+        return switch (opType) {
+            case LTH -> "if_icmplt";
+            case GTH -> "if_icmpgt";
+            case LTE -> "if_icmple";
+            case GTE -> "if_icmpge";
+            case EQ -> "if_icmpeq";
+            case NEQ -> "if_icmpne";
+            default -> throw new NotImplementedException(opType);
+        };
+    }
+
     private String generateReturn(ReturnInstruction returnInst) {
         var code = new StringBuilder();
 
@@ -0,0 +1,156 @@
+package pt.up.fe.comp2024.backend;
+
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * A line of the code of a Jasmin method: either a label, or an instruction with its operands as they are printed.
+ */
+public class JasminInstruction {
+
+    private static final Map<String, String> NEGATED_BRANCHES = Map.ofEntries(
+            Map.entry("ifeq", "ifne"), Map.entry("ifne", "ifeq"),
+            Map.entry("iflt", "ifge"), Map.entry("ifge", "iflt"),
+            Map.entry("ifgt", "ifle"), Map.entry("ifle", "ifgt"),
+            Map.entry("if_icmpeq", "if_icmpne"), Map.entry("if_icmpne", "if_icmpeq"),
+            Map.entry("if_icmplt", "if_icmpge"), Map.entry("if_icmpge", "if_icmplt"),
+            Map.entry("if_icmpgt", "if_icmple"), Map.entry("if_icmple", "if_icmpgt"),
+            Map.entry("if_acmpeq", "if_acmpne"), Map.entry("if_acmpne", "if_acmpeq"),
+            Map.entry("ifnull", "ifnonnull"), Map.entry("ifnonnull", "ifnull")
+    );
+
+    private final String label;
+    private final String opcode;
+    private final String operands;
+
+    private JasminInstruction(String label, String opcode, String operands) {
+        this.label = label;
+        this.opcode = opcode;
+        this.operands = operands;
+    }
+
+    public static JasminInstruction label(String label) {
+        return new JasminInstruction(label, null, null);
+    }
+
+    public static JasminInstruction of(String opcode, String operands) {
+        return new JasminInstruction(null, opcode, operands);
+    }
+
+    public static JasminInstruction of(String opcode) {
+        return of(opcode, "");
+    }
+
+    /**
+     * @param line a label followed by a colon, or an instruction followed by its operands
+     */
+    public static JasminInstruction parse(String line) {
+        var trimmed = line.trim();
+        if (trimmed.endsWith(":")) {
+            return label(trimmed.substring(0, trimmed.length() - 1));
+        }
+
+        int space = trimmed.indexOf(' ');
+        return space < 0 ? of(trimmed) : of(trimmed.substring(0, space), trimmed.substring(space + 1).trim());
+    }
+
+    public boolean isLabel() {
+        return label != null;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getOpcode() {
+        return opcode;
+    }
+
+    public String getOperands() {
+        return operands;
+    }
+
+    public boolean is(String opcode) {
+        return opcode.equals(this.opcode);
+    }
+
+    public boolean isGoto() {
+        return is("goto");
+    }
+
+    /**
+     * @return true if the instruction jumps to its operand only when a condition holds
+     */
+    public boolean isConditionalBranch() {
+        return !isLabel() && NEGATED_BRANCHES.containsKey(opcode);
+    }
+
+    /**
+     * @return the conditional branch that jumps to the given label exactly when this one does not jump
+     */
+    public JasminInstruction negate(String target) {
+        return of(NEGATED_BRANCHES.get(opcode), target);
+    }
+
+    /**
+     * @return the label the instruction may jump to, or null if it does not jump
+     */
+    public String getTarget() {
+        return isGoto() || isConditionalBranch() ? operands : null;
+    }
+
+    /**
+     * @return true if the next instruction never runs right after this one
+     */
+    public boolean endsFlow() {
+        return isGoto() || is("return") || is("ireturn") || is("areturn") || is("athrow");
+    }
+
+    /**
+     * @return true if the instruction pushes a value without reading the stack or having any other effect
+     */
+    public boolean isPush() {
+        return isLoad() || is("iconst_m1") || (opcode != null && opcode.startsWith("iconst_")) || is("bipush")
+                || is("sipush") || is("ldc") || is("dup");
+    }
+
+    public boolean isLoad() {
+        return is("iload") || is("aload") || (opcode != null && (opcode.startsWith("iload_") || opcode.startsWith("aload_")));
+    }
+
+    public boolean isStore() {
+        return is("istore") || is("astore") || (opcode != null && (opcode.startsWith("istore_") || opcode.startsWith("astore_")));
+    }
+
+    /**
+     * @return the local variable read or written by a load, a store or an iinc
+     */
+    public OptionalInt getLocal() {
+        if (!isLoad() && !isStore() && !is("iinc")) {
+            return OptionalInt.empty();
+        }
+
+        int underscore = opcode.indexOf('_');
+        if (underscore >= 0) {
+            return OptionalInt.of(Integer.parseInt(opcode.substring(underscore + 1)));
+        }
+
+        return OptionalInt.of(Integer.parseInt(operands.split(" ")[0]));
+    }
+
+    /**
+     * @return 'i' or 'a', the kind of value moved by a load or a store
+     */
+    public char getValueKind() {
+        return opcode.charAt(0);
+    }
+
+    @Override
+    public String toString() {
+        if (isLabel()) {
+            return label + ":";
+        }
+
+        return operands.isEmpty() ? opcode : opcode + " " + operands;
+    }
+}
@@ -0,0 +1,80 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp2024.backend.peephole.*;
+
+import java.util.*;
+
+/**
+ * Runs a list of peephole rules over the code of each method until none of them fires, and counts how often each one
+ * fired across all the methods.
+ */
+public class PeepholeOptimizer {
+
+    private static final int MAX_ROUNDS = 16;
+
+    private static final List<PeepholeRule> ALL_RULES = List.of(
+            new UnusedLabelRule(),
+            new UnreachableCodeRule(),
+            new GotoNextRule(),
+            new BranchOverGotoRule(),
+            new CompareBranchRule(),
+            new DoubleNegationRule(),
+            new DiscardedPushRule(),
+            new StoreLoadRule()
+    );
+
+    private final List<PeepholeRule> rules;
+    private final Map<String, Integer> fireCounts;
+
+    /**
+     * @param ruleNames the names of the rules to run, in order
+     */
+    public PeepholeOptimizer(List<String> ruleNames) {
+        this.rules = new ArrayList<>();
+        for (var name : ruleNames) {
+            var rule = ALL_RULES.stream()
+                    .filter(candidate -> candidate.getName().equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("Unknown peephole rule '" + name + "'"));
+            rules.add(rule);
+        }
+
+        this.fireCounts = new LinkedHashMap<>();
+        rules.forEach(rule -> fireCounts.put(rule.getName(), 0));
+    }
+
+    /**
+     * @return the names of every rule, in the order they run by default
+     */
+    public static List<String> getRuleNames() {
+        return ALL_RULES.stream().map(PeepholeRule::getName).toList();
+    }
+
+    /**
+     * Optimizes the code of a method in place.
+     */
+    public void optimize(List<JasminInstruction> code) {
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            boolean changed = false;
+
+            for (var rule : rules) {
+                int fired = rule.apply(code);
+                if (fired > 0) {
+                    fireCounts.merge(rule.getName(), fired, Integer::sum);
+                    changed = true;
+                }
+            }
+
+            if (!changed) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return how many times each rule fired so far, in the order the rules run
+     */
+    public Map<String, Integer> getFireCounts() {
+        return Collections.unmodifiableMap(fireCounts);
+    }
+}
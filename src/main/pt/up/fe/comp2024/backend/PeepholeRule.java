@@ -0,0 +1,26 @@
+package pt.up.fe.comp2024.backend;
+
+import java.util.List;
+
+/**
+ * Represents a rewrite of short sequences of Jasmin instructions into cheaper equivalent ones.
+ * <p>
+ * Rules may only lower the number of values on the stack at any point, so that the stack limit computed while
+ * generating the code stays valid.
+ */
+public interface PeepholeRule {
+
+    /**
+     * @return the name used to select the rule and to report how often it fired
+     */
+    String getName();
+
+    /**
+     * Rewrites every occurrence of the sequence in the code of a method, in place.
+     *
+     * @param code the code of the method
+     * @return how many times the rule fired
+     */
+    int apply(List<JasminInstruction> code);
+
+}
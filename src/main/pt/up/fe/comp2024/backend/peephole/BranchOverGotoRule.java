@@ -0,0 +1,40 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.PeepholeRule;
+
+import java.util.List;
+
+/**
+ * Turns a conditional branch over a goto into the opposite branch, the shape generated for the first test of a while
+ * loop and for if statements.
+ * <p>
+ * ifeq L1; goto L2; L1: becomes ifne L2; L1:
+ */
+public class BranchOverGotoRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "branch-over-goto";
+    }
+
+    @Override
+    public int apply(List<JasminInstruction> code) {
+        int fired = 0;
+
+        for (int i = 0; i + 2 < code.size(); i++) {
+            var branch = code.get(i);
+            var jump = code.get(i + 1);
+            var next = code.get(i + 2);
+
+            if (branch.isConditionalBranch() && jump.isGoto() && next.isLabel()
+                    && next.getLabel().equals(branch.getTarget())) {
+                code.set(i, branch.negate(jump.getTarget()));
+                code.remove(i + 1);
+                fired++;
+            }
+        }
+
+        return fired;
+    }
+}
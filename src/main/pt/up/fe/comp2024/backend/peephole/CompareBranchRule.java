@@ -0,0 +1,56 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.PeepholeRule;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Branches on a comparison directly, instead of turning it into 0 or 1 and testing that value, the shape generated for
+ * a condition stored in a boolean temporary.
+ * <p>
+ * if_icmplt T; iconst_0; goto E; T: iconst_1; E: ifne L becomes if_icmplt L, and the same sequence ending in ifeq L
+ * becomes if_icmpge L, when nothing else jumps to T or E.
+ */
+public class CompareBranchRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "compare-branch";
+    }
+
+    @Override
+    public int apply(List<JasminInstruction> code) {
+        int fired = 0;
+
+        for (int i = 0; i + 6 < code.size(); i++) {
+            var compare = code.get(i);
+            var trueLabel = code.get(i + 3);
+            var endLabel = code.get(i + 5);
+            var branch = code.get(i + 6);
+
+            if (!compare.isConditionalBranch() || !code.get(i + 1).is("iconst_0") || !code.get(i + 2).isGoto()
+                    || !trueLabel.isLabel() || !trueLabel.getLabel().equals(compare.getTarget())
+                    || !code.get(i + 4).is("iconst_1")
+                    || !endLabel.isLabel() || !endLabel.getLabel().equals(code.get(i + 2).getTarget())
+                    || !(branch.is("ifne") || branch.is("ifeq"))
+                    || countJumpsTo(code, trueLabel.getLabel()) != 1 || countJumpsTo(code, endLabel.getLabel()) != 1) {
+                continue;
+            }
+
+            var replacement = branch.is("ifne")
+                    ? JasminInstruction.of(compare.getOpcode(), branch.getTarget())
+                    : compare.negate(branch.getTarget());
+            code.subList(i, i + 7).clear();
+            code.add(i, replacement);
+            fired++;
+        }
+
+        return fired;
+    }
+
+    private long countJumpsTo(List<JasminInstruction> code, String label) {
+        return code.stream().filter(instr -> Objects.equals(instr.getTarget(), label)).count();
+    }
+}
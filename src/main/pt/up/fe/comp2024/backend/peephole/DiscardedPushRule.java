@@ -0,0 +1,32 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.PeepholeRule;
+
+import java.util.List;
+
+/**
+ * Removes loads and constants that are popped right away, such as the value of a discarded call that was inlined.
+ */
+public class DiscardedPushRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "discarded-push";
+    }
+
+    @Override
+    public int apply(List<JasminInstruction> code) {
+        int fired = 0;
+
+        for (int i = 0; i + 1 < code.size(); i++) {
+            if (code.get(i).isPush() && code.get(i + 1).is("pop")) {
+                code.subList(i, i + 2).clear();
+                i = Math.max(i - 2, -1);
+                fired++;
+            }
+        }
+
+        return fired;
+    }
+}
@@ -0,0 +1,47 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.PeepholeRule;
+
+import java.util.List;
+
+/**
+ * Simplifies the negations of booleans, which are generated as iconst_1; ixor.
+ * <p>
+ * Two negations in a row cancel out, and a negation followed by ifeq or ifne becomes the opposite branch.
+ */
+public class DoubleNegationRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "double-negation";
+    }
+
+    @Override
+    public int apply(List<JasminInstruction> code) {
+        int fired = 0;
+
+        for (int i = 0; i + 2 < code.size(); i++) {
+            if (!isNegation(code, i)) {
+                continue;
+            }
+
+            if (isNegation(code, i + 2)) {
+                code.subList(i, i + 4).clear();
+                i--;
+                fired++;
+            } else if (code.get(i + 2).is("ifeq") || code.get(i + 2).is("ifne")) {
+                var branch = code.get(i + 2);
+                code.subList(i, i + 3).clear();
+                code.add(i, branch.negate(branch.getTarget()));
+                fired++;
+            }
+        }
+
+        return fired;
+    }
+
+    private boolean isNegation(List<JasminInstruction> code, int index) {
+        return index + 1 < code.size() && code.get(index).is("iconst_1") && code.get(index + 1).is("ixor");
+    }
+}
@@ -0,0 +1,41 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.PeepholeRule;
+
+import java.util.List;
+
+/**
+ * Removes jumps to the code that follows them, which runs anyway.
+ * <p>
+ * goto L; L: becomes L:, also when other labels stand between the goto and L.
+ */
+public class GotoNextRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "goto-next";
+    }
+
+    @Override
+    public int apply(List<JasminInstruction> code) {
+        int fired = 0;
+
+        for (int i = 0; i < code.size(); i++) {
+            var instr = code.get(i);
+            if (!instr.isGoto()) {
+                continue;
+            }
+
+            for (int j = i + 1; j < code.size() && code.get(j).isLabel(); j++) {
+                if (code.get(j).getLabel().equals(instr.getTarget())) {
+                    code.remove(i--);
+                    fired++;
+                    break;
+                }
+            }
+        }
+
+        return fired;
+    }
+}
@@ -0,0 +1,46 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.PeepholeRule;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Leaves a value on the stack instead of storing it in a local that is only read right away.
+ * <p>
+ * istore n; iload n (or astore n; aload n) is removed when that iload is the only instruction of the method that
+ * reads n, since the value stored is then never read again.
+ */
+public class StoreLoadRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "store-load";
+    }
+
+    @Override
+    public int apply(List<JasminInstruction> code) {
+        var reads = new HashMap<Integer, Integer>();
+        for (var instr : code) {
+            if (instr.isLoad() || instr.is("iinc")) {
+                reads.merge(instr.getLocal().getAsInt(), 1, Integer::sum);
+            }
+        }
+
+        int fired = 0;
+        for (int i = 0; i + 1 < code.size(); i++) {
+            var store = code.get(i);
+            var load = code.get(i + 1);
+
+            if (store.isStore() && load.isLoad() && store.getValueKind() == load.getValueKind()
+                    && store.getLocal().equals(load.getLocal()) && reads.get(load.getLocal().getAsInt()) == 1) {
+                code.subList(i, i + 2).clear();
+                i--;
+                fired++;
+            }
+        }
+
+        return fired;
+    }
+}
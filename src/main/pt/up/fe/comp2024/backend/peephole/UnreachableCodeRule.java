@@ -0,0 +1,35 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.PeepholeRule;
+
+import java.util.List;
+
+/**
+ * Removes the instructions between a goto, a return or an athrow and the next label, which nothing can jump to.
+ */
+public class UnreachableCodeRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "unreachable-code";
+    }
+
+    @Override
+    public int apply(List<JasminInstruction> code) {
+        int fired = 0;
+
+        for (int i = 0; i < code.size(); i++) {
+            if (!code.get(i).endsFlow()) {
+                continue;
+            }
+
+            while (i + 1 < code.size() && !code.get(i + 1).isLabel()) {
+                code.remove(i + 1);
+                fired++;
+            }
+        }
+
+        return fired;
+    }
+}
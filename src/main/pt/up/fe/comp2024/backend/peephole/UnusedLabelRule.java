@@ -0,0 +1,32 @@
+package pt.up.fe.comp2024.backend.peephole;
+
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.PeepholeRule;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Removes labels that no instruction jumps to, so that the code around them can be matched by the other rules.
+ */
+public class UnusedLabelRule implements PeepholeRule {
+
+    @Override
+    public String getName() {
+        return "unused-label";
+    }
+
+    @Override
+    public int apply(List<JasminInstruction> code) {
+        var targets = code.stream()
+                .map(JasminInstruction::getTarget)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        int size = code.size();
+        code.removeIf(instr -> instr.isLabel() && !targets.contains(instr.getLabel()));
+
+        return size - code.size();
+    }
+}
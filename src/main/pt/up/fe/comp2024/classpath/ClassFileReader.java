@@ -0,0 +1,97 @@
+package pt.up.fe.comp2024.classpath;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Reads the name, superclass and methods of a class file, without loading the class. Everything else in the file is
+ * skipped.
+ */
+class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_STATIC = 0x0008;
+
+    private static final int UTF8 = 1;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+
+    private ClassFileReader() {
+    }
+
+    static ClassSignature read(byte[] bytes) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        // Only the strings and the classes, which refer to them, are kept
+        int poolSize = in.readUnsignedShort();
+        var strings = new String[poolSize];
+        var classes = new int[poolSize];
+        for (int i = 1; i < poolSize; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case UTF8 -> strings[i] = in.readUTF();
+                case CLASS -> classes[i] = in.readUnsignedShort();
+                case LONG, DOUBLE -> {
+                    in.skipBytes(8);
+                    // Takes two entries of the pool
+                    i++;
+                }
+                default -> in.skipBytes(getSize(tag));
+            }
+        }
+
+        in.readUnsignedShort();
+        var name = strings[classes[in.readUnsignedShort()]];
+        int superIndex = in.readUnsignedShort();
+        var superName = superIndex == 0 ? null : strings[classes[superIndex]];
+        in.skipBytes(2 * in.readUnsignedShort());
+
+        // Fields
+        for (int count = in.readUnsignedShort(); count > 0; count--) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
+
+        var methods = new ArrayList<MethodSignature>();
+        for (int count = in.readUnsignedShort(); count > 0; count--) {
+            int access = in.readUnsignedShort();
+            var methodName = strings[in.readUnsignedShort()];
+            var descriptor = strings[in.readUnsignedShort()];
+            skipAttributes(in);
+
+            methods.add(new MethodSignature(methodName, descriptor, (access & ACC_STATIC) != 0));
+        }
+
+        return new ClassSignature(name, superName, methods);
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        for (int count = in.readUnsignedShort(); count > 0; count--) {
+            in.readUnsignedShort();
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    /**
+     * @return the size of an entry of the constant pool, after its tag
+     */
+    private static int getSize(int tag) throws IOException {
+        return switch (tag) {
+            // String, MethodType, Module, Package
+            case 8, 16, 19, 20 -> 2;
+            // MethodHandle
+            case 15 -> 3;
+            // Integer, Float, Fieldref, Methodref, InterfaceMethodref, NameAndType, Dynamic, InvokeDynamic
+            case 3, 4, 9, 10, 11, 12, 17, 18 -> 4;
+            default -> throw new IOException("Unknown constant pool tag " + tag);
+        };
+    }
+}
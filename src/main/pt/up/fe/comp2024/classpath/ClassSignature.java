@@ -0,0 +1,12 @@
+package pt.up.fe.comp2024.classpath;
+
+import java.util.List;
+
+/**
+ * The methods a class on the classpath declares.
+ *
+ * @param name      the internal name of the class, e.g. foo/bar/A
+ * @param superName the internal name of the superclass, or null for java/lang/Object
+ */
+public record ClassSignature(String name, String superName, List<MethodSignature> methods) {
+}
@@ -0,0 +1,353 @@
+package pt.up.fe.comp2024.classpath;
+
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipFile;
+
+/**
+ * The methods of the classes in the jars and folders of a classpath, read from their class files, so that calls to
+ * imported classes get the descriptor the class declares instead of one guessed from the call.
+ * <p>
+ * Scanning a classpath reads every class file in it, so the result is kept twice: in memory, for the compilations of
+ * the same process, and in a cache file, memory-mapped by later processes. Each jar or folder in the cache is reused
+ * while its modification time and size are the same. A jar that was only touched is recognised by the CRC32 of its
+ * contents, and not scanned again.
+ */
+public class ClasspathIndex {
+
+    private static final int MAGIC = 0x4A4D4D43;
+    private static final int VERSION = 1;
+
+    private static final ClasspathIndex EMPTY = new ClasspathIndex(List.of());
+
+    private static final Map<String, ClasspathIndex> LOADED = new ConcurrentHashMap<>();
+
+    /**
+     * A jar or folder of the classpath, with the classes in it.
+     *
+     * @param modified the modification time of the jar, or the latest one of a class file in the folder
+     * @param size     the size of the jar, or the total size of the class files in the folder
+     * @param hash     the CRC32 of the jar, or 0 for a folder
+     */
+    private record Entry(String path, long modified, long size, long hash, List<ClassSignature> classes) {
+    }
+
+    private final List<Entry> entries;
+    private final Map<String, ClassSignature> classes = new HashMap<>();
+
+    private ClasspathIndex(List<Entry> entries) {
+        this.entries = entries;
+
+        // The first class of a name on the classpath hides the others, like the JVM does
+        for (var entry : entries) {
+            for (var signature : entry.classes()) {
+                classes.putIfAbsent(signature.name(), signature);
+            }
+        }
+    }
+
+    /**
+     * @return an index without any class, for compiling without a classpath
+     */
+    public static ClasspathIndex empty() {
+        return EMPTY;
+    }
+
+    public static ClasspathIndex fromConfig(Map<String, String> config) {
+        var classpath = CompilerConfig.getClasspath(config);
+        if (classpath.isEmpty()) {
+            return EMPTY;
+        }
+
+        return load(classpath, CompilerConfig.getClasspathCache(config).orElseGet(() -> getDefaultCache(classpath)));
+    }
+
+    /**
+     * @return the index of the classpath, from memory or from the cache file if they are up to date, else scanning the
+     * jars and folders that changed and writing the cache again
+     */
+    public static ClasspathIndex load(List<File> classpath, File cache) {
+        var key = classpath + "@" + cache.getAbsolutePath();
+        var loaded = LOADED.get(key);
+        if (loaded != null && loaded.isCurrent()) {
+            return loaded;
+        }
+
+        synchronized (ClasspathIndex.class) {
+            loaded = LOADED.get(key);
+            if (loaded != null && loaded.isCurrent()) {
+                return loaded;
+            }
+
+            var cached = readCache(cache);
+            var entries = new ArrayList<Entry>();
+            boolean changed = false;
+            for (var file : classpath) {
+                if (!file.exists()) {
+                    continue;
+                }
+
+                var entry = getEntry(file, cached.get(file.getAbsolutePath()));
+                changed |= entry != cached.get(file.getAbsolutePath());
+                entries.add(entry);
+            }
+
+            if (changed || cached.size() != entries.size()) {
+                writeCache(cache, entries);
+            }
+
+            var index = new ClasspathIndex(entries);
+            LOADED.put(key, index);
+            return index;
+        }
+    }
+
+    /**
+     * @param className the internal name of the class, e.g. foo/bar/A
+     */
+    public Optional<ClassSignature> getClass(String className) {
+        return Optional.ofNullable(classes.get(className));
+    }
+
+    /**
+     * Looks the method up in the class and then in its superclasses, for the one with the same parameters as the
+     * arguments. Calls pass their arguments as they are, so a method that would need them converted, or whose
+     * parameters are not all known, is not found.
+     *
+     * @param arguments the descriptor of each argument, e.g. I, or null where it is not known
+     */
+    public Optional<MethodSignature> findMethod(String className, String methodName, List<String> arguments) {
+        for (var current = classes.get(className); current != null; current = classes.get(current.superName())) {
+            for (var method : current.methods()) {
+                if (method.name().equals(methodName) && method.getParameterDescriptors().equals(arguments)) {
+                    return Optional.of(method);
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return true if no jar or folder of the index changed since it was scanned
+     */
+    private boolean isCurrent() {
+        for (var entry : entries) {
+            var file = new File(entry.path());
+            var stamp = getStamp(file);
+            if (stamp[0] != entry.modified() || stamp[1] != entry.size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static File getDefaultCache(List<File> classpath) {
+        var paths = classpath.stream().map(File::getAbsolutePath).toList().toString();
+        return new File(System.getProperty("java.io.tmpdir"),
+                "jmm-classpath-" + Integer.toHexString(paths.hashCode()) + ".idx");
+    }
+
+    /**
+     * @return the cached entry, if the jar or folder did not change, else a new one scanned from it
+     */
+    private static Entry getEntry(File file, Entry cached) {
+        var stamp = getStamp(file);
+        if (cached != null && cached.modified() == stamp[0] && cached.size() == stamp[1]) {
+            return cached;
+        }
+
+        try {
+            if (file.isDirectory()) {
+                return new Entry(file.getAbsolutePath(), stamp[0], stamp[1], 0, scanFolder(file.toPath()));
+            }
+
+            long hash = getHash(file);
+            if (cached != null && cached.size() == stamp[1] && cached.hash() == hash) {
+                return new Entry(cached.path(), stamp[0], stamp[1], hash, cached.classes());
+            }
+            return new Entry(file.getAbsolutePath(), stamp[0], stamp[1], hash, scanJar(file));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not index classpath entry '" + file + "'", e);
+        }
+    }
+
+    /**
+     * @return the modification time and size of the jar, or the latest modification time and total size of the class
+     * files in the folder
+     */
+    private static long[] getStamp(File file) {
+        if (!file.isDirectory()) {
+            return new long[]{file.lastModified(), file.length()};
+        }
+
+        long modified = file.lastModified();
+        long size = 0;
+        try (Stream<Path> paths = Files.walk(file.toPath())) {
+            for (var path : paths.filter(ClasspathIndex::isClassFile).toList()) {
+                modified = Math.max(modified, path.toFile().lastModified());
+                size += path.toFile().length();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read classpath folder '" + file + "'", e);
+        }
+        return new long[]{modified, size};
+    }
+
+    private static long getHash(File file) throws IOException {
+        var crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            var buffer = new byte[64 * 1024];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static boolean isClassFile(Path path) {
+        var name = path.getFileName().toString();
+        return name.endsWith(".class") && !name.equals("module-info.class");
+    }
+
+    private static List<ClassSignature> scanFolder(Path folder) throws IOException {
+        var signatures = new ArrayList<ClassSignature>();
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (var path : paths.filter(ClasspathIndex::isClassFile).sorted().toList()) {
+                signatures.add(ClassFileReader.read(Files.readAllBytes(path)));
+            }
+        }
+        return signatures;
+    }
+
+    private static List<ClassSignature> scanJar(File jar) throws IOException {
+        var signatures = new ArrayList<ClassSignature>();
+        try (var zip = new ZipFile(jar)) {
+            var entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                if (entry.isDirectory() || !isClassFile(Path.of(entry.getName()))) {
+                    continue;
+                }
+
+                try (var in = zip.getInputStream(entry)) {
+                    signatures.add(ClassFileReader.read(in.readAllBytes()));
+                }
+            }
+        }
+        return signatures;
+    }
+
+    /**
+     * @return the entries in the cache file by path, or none if there is no cache or it can not be read
+     */
+    private static Map<String, Entry> readCache(File cache) {
+        var entries = new HashMap<String, Entry>();
+        if (!cache.isFile()) {
+            return entries;
+        }
+
+        try (var channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return entries;
+            }
+
+            for (int entryCount = buffer.getInt(); entryCount > 0; entryCount--) {
+                var path = readString(buffer);
+                long modified = buffer.getLong();
+                long size = buffer.getLong();
+                long hash = buffer.getLong();
+
+                var signatures = new ArrayList<ClassSignature>();
+                for (int classCount = buffer.getInt(); classCount > 0; classCount--) {
+                    var name = readString(buffer);
+                    var superName = readString(buffer);
+                    var methods = new ArrayList<MethodSignature>();
+                    for (int methodCount = buffer.getInt(); methodCount > 0; methodCount--) {
+                        methods.add(new MethodSignature(readString(buffer), readString(buffer), buffer.get() != 0));
+                    }
+                    signatures.add(new ClassSignature(name, superName.isEmpty() ? null : superName, methods));
+                }
+
+                entries.put(path, new Entry(path, modified, size, hash, signatures));
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            // A cache that can not be read is built again
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the cache to a temporary file first, so that other compilations never read it half-written.
+     */
+    private static void writeCache(File cache, List<Entry> entries) {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (var entry : entries) {
+                writeString(out, entry.path());
+                out.writeLong(entry.modified());
+                out.writeLong(entry.size());
+                out.writeLong(entry.hash());
+
+                out.writeInt(entry.classes().size());
+                for (var signature : entry.classes()) {
+                    writeString(out, signature.name());
+                    writeString(out, signature.superName() == null ? "" : signature.superName());
+                    out.writeInt(signature.methods().size());
+                    for (var method : signature.methods()) {
+                        writeString(out, method.name());
+                        writeString(out, method.descriptor());
+                        out.writeByte(method.isStatic() ? 1 : 0);
+                    }
+                }
+            }
+
+            var folder = cache.getAbsoluteFile().getParentFile();
+            var temporary = File.createTempFile(cache.getName(), ".tmp", folder);
+            Files.write(temporary.toPath(), bytes.toByteArray());
+            Files.move(temporary.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write classpath cache '" + cache + "'", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
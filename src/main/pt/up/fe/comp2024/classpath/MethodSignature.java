@@ -0,0 +1,33 @@
+package pt.up.fe.comp2024.classpath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A method of a class on the classpath, as declared in its class file.
+ *
+ * @param descriptor the JVM descriptor, e.g. (Ljava/lang/String;I)V
+ */
+public record MethodSignature(String name, String descriptor, boolean isStatic) {
+
+    /**
+     * @return the descriptor of each parameter, e.g. [Ljava/lang/String;, I] for (Ljava/lang/String;I)V
+     */
+    public List<String> getParameterDescriptors() {
+        var parameters = new ArrayList<String>();
+        int index = 1;
+        while (descriptor.charAt(index) != ')') {
+            int start = index;
+            while (descriptor.charAt(index) == '[') {
+                index++;
+            }
+            index = descriptor.charAt(index) == 'L' ? descriptor.indexOf(';', index) + 1 : index + 1;
+            parameters.add(descriptor.substring(start, index));
+        }
+        return parameters;
+    }
+
+    public String getReturnDescriptor() {
+        return descriptor.substring(descriptor.indexOf(')') + 1);
+    }
+}
@@ -1,27 +1,222 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.optimization.ir.IrBuilder;
+import pt.up.fe.comp2024.optimization.ir.IrClass;
+import pt.up.fe.comp2024.optimization.ir.IrMethod;
+import pt.up.fe.comp2024.optimization.passes.*;
+import pt.up.fe.comp2024.profile.Profile;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
+    private static final int MAX_PIPELINE_ROUNDS = 8;
+
+    private final List<OptimizationPass> optimizationPasses;
+
+    private final SparseConditionalConstantPropagation constantPropagation;
+
+    // The AST each OLLIR result was generated from, since OllirResult does not keep it
+    private final Map<OllirResult, JmmNode> rootNodes = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public JmmOptimizationImpl() {
+
+        this.constantPropagation = new SparseConditionalConstantPropagation();
+
+        this.optimizationPasses = new ArrayList<>();
+        this.optimizationPasses.add(constantPropagation);
+        this.optimizationPasses.add(new CommonSubexpressionElimination());
+        this.optimizationPasses.add(new FieldScalarReplacement());
+        this.optimizationPasses.add(new CopyPropagation());
+        this.optimizationPasses.add(new TailRecursionElimination());
+        this.optimizationPasses.add(new LoopInvariantCodeMotion());
+        this.optimizationPasses.add(new ConstantArrayHoisting());
+        this.optimizationPasses.add(new InductionVariableOptimization());
+        this.optimizationPasses.add(new DeadCodeElimination());
+        this.optimizationPasses.add(new CfgSimplification());
+
+    }
+
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
         var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
         var ollirCode = visitor.visit(semanticsResult.getRootNode());
 
-        return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        var ollirResult = new OllirResult(semanticsResult, ollirCode, visitor.getReports());
+        rootNodes.put(ollirResult, semanticsResult.getRootNode());
+
+        return ollirResult;
     }
 
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
 
-        //TODO: Do your OLLIR-based optimizations here
+        var config = ollirResult.getConfig();
 
-        return ollirResult;
+        // Instrumented code is not optimized, so that its counters name the blocks and calls the optimizer starts from
+        if (!CompilerConfig.getOptimize(config) || CompilerConfig.getProfileOutput(config).isPresent()) {
+            return ollirResult;
+        }
+
+        var profile = CompilerConfig.getProfileInput(config).map(Profile::read).orElse(Profile.none());
+        var irClass = IrBuilder.build(ollirResult.getOllirClass(), profile);
+
+        List<Report> reports = new ArrayList<>();
+        var failures = new Failures(ollirResult.getOllirClass(), profile);
+        optimizeClass(irClass, config, profile, failures, reports);
+
+        // The OLLIR result keeps the AST, the symbol table and the reports of the previous stages
+        var rootNode = rootNodes.get(ollirResult);
+        var semanticsResult = new JmmSemanticsResult(rootNode, ollirResult.getSymbolTable(), ollirResult.getReports(), ollirResult.getConfig());
+
+        reportEliminations(irClass, reports);
+        constantPropagation.clearEliminations();
+
+        var optimizedResult = new OllirResult(semanticsResult, irClass.toOllir(), reports);
+        if (rootNode != null) {
+            rootNodes.put(optimizedResult, rootNode);
+        }
+
+        return optimizedResult;
+    }
+
+    /**
+     * Runs the optimization pipeline over every method, then the passes that grow the code, then the block layout.
+     */
+    private void optimizeClass(IrClass irClass, Map<String, String> config, Profile profile, Failures failures,
+                               List<Report> reports) {
+        for (var method : irClass.getMethods()) {
+            optimizeMethod(method, irClass, failures, reports);
+        }
+
+        // Passes that grow the code run once the methods are optimized (callees are inlined in their final form, and
+        // loops are unrolled after their invariants left them), and a method they change is optimized again
+        var expansionPasses = List.of(
+                new MethodInlining(CompilerConfig.getInlineSize(config), CompilerConfig.getInlineRecursion(config), profile),
+                new LoopUnrolling(CompilerConfig.getUnrollFactor(config), CompilerConfig.getUnrollSize(config), profile)
+        );
+        for (var expansionPass : expansionPasses) {
+            for (var method : irClass.getMethods()) {
+                if (applyPass(expansionPass, method, irClass, failures, reports)) {
+                    optimizeMethod(method, irClass, failures, reports);
+                }
+            }
+        }
+
+        // Blocks are laid out once the code is final, since the passes above add and remove blocks freely
+        var layout = new BlockLayout();
+        for (var method : irClass.getMethods()) {
+            applyPass(layout, method, irClass, failures, reports);
+        }
+    }
+
+    /**
+     * Logs, for each method, the branches whose condition constant propagation found to be constant and the code that
+     * became unreachable.
+     */
+    private void reportEliminations(IrClass irClass, List<Report> reports) {
+        for (var method : irClass.getMethods()) {
+            int branches = constantPropagation.getFoldedBranches(method);
+            int blocks = constantPropagation.getRemovedBlocks(method);
+            if (branches > 0 || blocks > 0) {
+                reports.add(Report.newLog(Stage.OPTIMIZATION, -1, -1, "Method '" + method.getName() + "': folded "
+                        + branches + " branch(es) with a constant condition, eliminated " + blocks
+                        + " unreachable block(s)", null));
+            }
+        }
+    }
+
+    /**
+     * Runs the pipeline over the method until no pass changes it, since each pass may expose opportunities for the
+     * others (e.g. copy propagation makes more expressions look alike to common subexpression elimination).
+     */
+    private void optimizeMethod(IrMethod method, IrClass irClass, Failures failures, List<Report> reports) {
+        for (int round = 0; round < MAX_PIPELINE_ROUNDS; round++) {
+            boolean changed = false;
+
+            for (var optimizationPass : optimizationPasses) {
+                changed |= applyPass(optimizationPass, method, irClass, failures, reports);
+                if (failures.contains(method)) {
+                    return;
+                }
+            }
+
+            if (!changed) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the pass changed the method; a pass that fails is reported as a warning, and the method is put back
+     * as it was before optimizing, since the pass may have left it half transformed
+     */
+    private boolean applyPass(OptimizationPass optimizationPass, IrMethod method, IrClass irClass, Failures failures,
+                              List<Report> reports) {
+        if (failures.contains(method)) {
+            return false;
+        }
+
+        try {
+            return optimizationPass.apply(method, irClass);
+        } catch (Exception e) {
+            reports.add(Report.newWarn(Stage.OPTIMIZATION,
+                    -1,
+                    -1,
+                    "Problem while executing optimization pass '" + optimizationPass.getClass() + "' on method '" + method.getName() + "', the method is not optimized",
+                    e)
+            );
+            failures.restore(irClass, method);
+            return false;
+        }
+    }
+
+    /**
+     * The methods a pass failed on. Each is replaced by the method as it was built from the OLLIR, and no pass runs on
+     * either of them again.
+     */
+    private static class Failures {
+
+        private final ClassUnit classUnit;
+        private final Profile profile;
+        private final Set<IrMethod> methods = Collections.newSetFromMap(new IdentityHashMap<>());
+        private IrClass original;
+
+        Failures(ClassUnit classUnit, Profile profile) {
+            this.classUnit = classUnit;
+            this.profile = profile;
+        }
+
+        boolean contains(IrMethod method) {
+            return methods.contains(method);
+        }
+
+        void restore(IrClass irClass, IrMethod method) {
+            // The IR is built again only if some pass fails, the methods are in the same order
+            if (original == null) {
+                original = IrBuilder.build(classUnit, profile);
+            }
+
+            int index = irClass.getMethods().indexOf(method);
+            var restored = original.getMethods().get(index);
+            irClass.getMethods().set(index, restored);
+            methods.add(method);
+            methods.add(restored);
+        }
     }
 }
@@ -24,13 +24,17 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private final SymbolTable table;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    private final TempNames names;
+
+    public OllirExprGeneratorVisitor(SymbolTable table, TempNames names) {
         this.table = table;
+        this.names = names;
     }
 
     @Override
     protected void buildVisitor() {
         addVisit(IDENTIFIER, this::visitIdentifier);
+        addVisit(THIS, this::visitThis);
         addVisit(BINARY_EXPR, this::visitBinExpr);
         addVisit(INTEGER_LITERAL, this::visitInteger);
         addVisit(BOOL_VALUE, this::visitBoolValue);
@@ -46,31 +50,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     }
 
     private OllirExprResult visitArrayInit(JmmNode jmmNode, Void unused) {
-        int array_size = jmmNode.getChildren().size();
-        StringBuilder computation = new StringBuilder();
-        var temp = OptUtils.getTemp();
-        // TODO - Hard Coded to i32
-        // Add the computation for the new array
-        //tmp2.array.i32 :=.array.i32 new(array, 4.i32).array.i32;
-        computation.append(temp).append(".array.i32 :=.array.i32 new(array, ").append(array_size).append(".i32).array.i32").append(END_STMT);
-        String arrayTemp = array_size > 0 ? OptUtils.getTempArray() : "";
-
-        //       __varargs_array_0.array.i32 :=.array.i32 tmp2.array.i32;
-        //      __varargs_array_0.array.i32[0.i32].i32 :=.i32 1.i32;
-        //      __varargs_array_0.array.i32[1.i32].i32 :=.i32 2.i32;
-        //      __varargs_array_0.array.i32[2.i32].i32 :=.i32 3.i32;
-        //      __varargs_array_0.array.i32[3.i32].i32 :=.i32 4.i32;
-        if (array_size > 0) {
-            computation.append(arrayTemp).append(".array.i32 :=.array.i32 ").append(temp).append(".array.i32").append(END_STMT);
-            for (int i = 0; i < array_size; i++) {
-                var childExprResult = this.visit(jmmNode.getChild(i));
-                computation.append(arrayTemp).append(".array.i32[").append(i).append(".i32].i32 :=.i32 ").append(childExprResult.getCode()).append(END_STMT);
-            }
-        }
-
-        String code = arrayTemp + ".array.i32";
-
-        return new OllirExprResult(code, computation.toString());
+        return computeArray(jmmNode.getChildren(), new Type(TypeUtils.getIntTypeName(), true));
     }
 
     private OllirExprResult visitArrayAccess(JmmNode jmmNode, Void unused) {
@@ -78,10 +58,10 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         StringBuilder computation = new StringBuilder();
         StringBuilder code = new StringBuilder();
 
-        var array_name = jmmNode.getChild(0).get("name");
+        var array = visit(jmmNode.getChild(0));
         var index = visit(jmmNode.getChild(1));
-        String array_type = OptUtils.toOllirType(getExprType(jmmNode.getChild(0), table, methodName));
         // code to compute the children
+        computation.append(array.getComputation());
         computation.append(index.getComputation());
 
         // code to compute self
@@ -93,25 +73,24 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         // If the parent is Assign and the array access is on the right side, we don't need to add computation because it is alone on the right
         // If the parent is Assign and the array access is on the left side, we don't add any computation only the code
         if (jmmNode.getParent().isInstance(ASSIGN_STMT)) {
-            code.append(array_name).append(array_type).append("[").append(index.getCode()).append("]").append(resOllirType);
+            code.append(array.getCode()).append("[").append(index.getCode()).append("]").append(resOllirType);
         }
         // If the parent is BinaryExpr, we need to add computation
         else {
-            String temp = OptUtils.getTemp();
+            String temp = names.getTemp();
             code.append(temp).append(resOllirType);
-            computation.append(temp).append(resOllirType).append(ASSIGN).append(resOllirType).append(SPACE).append(array_name).append(array_type).append("[").append(index.getCode()).append("]").append(resOllirType).append(END_STMT);
+            computation.append(temp).append(resOllirType).append(ASSIGN).append(resOllirType).append(SPACE).append(array.getCode()).append("[").append(index.getCode()).append("]").append(resOllirType).append(END_STMT);
         }
 
         return new OllirExprResult(code.toString(), computation.toString());
     }
 
     private OllirExprResult visitLength(JmmNode jmmNode, Void unused) {
-        // Type of the array that the length is being computed
-        String arrayType = OptUtils.toOllirType(getExprType(jmmNode.getChild(0), table, jmmNode.getAncestor(METHOD_DECL).map(method -> method.get("name")).orElseThrow()));
+        var array = visit(jmmNode.getChild(0));
 
-        var temp = OptUtils.getTemp();
+        var temp = names.getTemp();
         String code = temp + ".i32";
-        String computation = temp + ".i32 :=.i32 arraylength(" + jmmNode.getChild(0).get("name") + arrayType + ").i32" + END_STMT;
+        String computation = array.getComputation() + temp + ".i32 :=.i32 arraylength(" + array.getCode() + ").i32" + END_STMT;
         return new OllirExprResult(code, computation);
     }
 
@@ -150,8 +129,23 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         StringBuilder computatation = new StringBuilder();
         String code;
 
+        // If it is a separate function call
+        boolean isImportedPackage = TypeUtils.isImportedPackage(node.getChild(0).get("name"), table);
+        var imported = TypeUtils.findImportedMethod(node, table, methodName);
+        boolean isStaticOnObject = imported.isPresent() && imported.get().isStatic() && !isImportedPackage;
+
         String callerObject = node.getChild(0).get("name");
-        if (!node.getChild(0).getKind().equals(THIS.toString())) {
+        if (node.getChild(0).isInstance(IDENTIFIER) && OptUtils.isField(callerObject, methodName, table)) {
+            // The object is read from the field before the arguments are evaluated
+            var receiver = visit(node.getChild(0));
+            computatation.append(receiver.getComputation());
+            callerObject = receiver.getCode();
+        }
+        else if (isStaticOnObject) {
+            // The object is not passed to a static method, but its expression is still evaluated first, as in Java
+            computatation.append(visit(node.getChild(0)).getComputation());
+        }
+        else if (!node.getChild(0).getKind().equals(THIS.toString())) {
             // To know if it is a package import
             Type type = getExprType(node.getChild(0), table, methodName);
             callerObject += type.getName().equals("Imported") ? "" : OptUtils.toOllirType(type);
@@ -179,7 +173,8 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
                 if (expected_params_size == 1) {
                     boolean isVarArg = TypeUtils.isVariableVarArg(expected_params.get(expected_params.size()-1).getName(), table, functionName);
                     if (isVarArg) {
-                        var result = computeVarArgParameter(parameters.subList(i, parameters.size()));
+                        var varargsType = expected_params.get(expected_params.size() - 1).getType();
+                        var result = computeVarArgParameter(parameters.subList(i, parameters.size()), varargsType, methodName);
                         computatation.append(result.getComputation());
                         parameters_string.append(", ");
                         parameters_string.append(result.getCode());
@@ -195,14 +190,26 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             }
         }
 
-        // If it is a separate function call
-        boolean isImportedPackage = TypeUtils.isImportedPackage(node.getChild(0).get("name"), table);
+        // Without the class on the classpath, a static call is assumed to return nothing
+        String staticReturnType = ".V";
+        String invocation = isImportedPackage ? "invokestatic" : "invokevirtual";
+        if (imported.isPresent()) {
+            var declaredType = TypeUtils.fromDescriptor(imported.get().getReturnDescriptor()).map(OptUtils::toOllirType);
+            if (declaredType.isPresent()) {
+                returnType = declaredType.get();
+                staticReturnType = declaredType.get();
+            }
+            if (isStaticOnObject) {
+                invocation = "invokestatic";
+                callerObject = getExprType(node.getChild(0), table, methodName).getName();
+            }
+        }
+
         if (parent.getKind().equals(EXPR_STMT.toString())) {
-            if (isImportedPackage) {
+            if (invocation.equals("invokestatic")) {
                 code = "invokestatic(" + callerObject + "," + SPACE + "\"" + functionName+"\"";
                 code += parameters_string.toString();
-                // TODO Hard Coded to void
-                code += ").V" + END_STMT;
+                code += ")" + staticReturnType + END_STMT;
             }
             else {
                 code = String.format("invokevirtual(%s, \"%s\"%s)%s%s", callerObject, functionName, parameters_string, returnType, END_STMT);
@@ -210,36 +217,55 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         }
         else {
             // code to compute self
-            String temp = OptUtils.getTemp();
+            String temp = names.getTemp();
             code = temp + returnType;
 
-            computatation.append(String.format("%s%s :=%s invokevirtual(%s, \"%s\"%s)%s%s", temp, returnType, returnType, callerObject, functionName, parameters_string, returnType, END_STMT));
+            computatation.append(String.format("%s%s :=%s %s(%s, \"%s\"%s)%s%s", temp, returnType, returnType, invocation, callerObject, functionName, parameters_string, returnType, END_STMT));
 
         }
 
         return new OllirExprResult(code, computatation.toString());
     }
 
-    private OllirExprResult computeVarArgParameter(List<JmmNode> parameters) {
-        int array_size = parameters.size();
+    /**
+     * Builds the array passed in place of the arguments of a varargs parameter. A single argument that already is an
+     * array is passed as it is, like javac does.
+     */
+    private OllirExprResult computeVarArgParameter(List<JmmNode> parameters, Type varargsType, String methodName) {
+        // A varargs parameter is typed as its elements, but holds an array already
+        var argument = parameters.get(0);
+        boolean isArray = getExprType(argument, table, methodName).isArray()
+                || argument.isInstance(IDENTIFIER) && TypeUtils.isIdentifierVarArg(argument, table, methodName);
+        if (parameters.size() == 1 && isArray) {
+            return this.visit(argument);
+        }
+
+        return computeArray(parameters, varargsType);
+    }
+
+    /**
+     * Creates an array holding the values of the given expressions, which are evaluated first, in order.
+     */
+    private OllirExprResult computeArray(List<JmmNode> elements, Type arrayType) {
         StringBuilder computation = new StringBuilder();
-        var temp = OptUtils.getTemp();
-        // TODO - Hard Coded to i32
-        // Add the computation for the new array
-        computation.append(temp).append(".array.i32 :=.array.i32 new(array, ").append(array_size).append(".i32).array.i32").append(END_STMT);
-        String arrayTemp = "";
-        String code = "";
-        if (array_size > 0) {
-            arrayTemp = OptUtils.getTempArray();
-            code = arrayTemp + ".array.i32";
+        String arrayOllirType = OptUtils.toOllirType(arrayType);
+        String elementType = OptUtils.toOllirType(new Type(arrayType.getName(), false));
+
+        var values = new ArrayList<OllirExprResult>();
+        for (var element : elements) {
+            var value = this.visit(element);
+            computation.append(value.getComputation());
+            values.add(value);
         }
 
-        if (array_size > 0) {
-            computation.append(arrayTemp).append(".array.i32 :=.array.i32 ").append(temp).append(".array.i32").append(END_STMT);
-            for (int i = 0; i < array_size; i++) {
-                var childExprResult = this.visit(parameters.get(i));
-                computation.append(arrayTemp).append(".array.i32[").append(i).append(".i32].i32 :=.i32 ").append(childExprResult.getCode()).append(END_STMT);
-            }
+        //tmp2.array.i32 :=.array.i32 new(array, 4.i32).array.i32;
+        //tmp2.array.i32[0.i32].i32 :=.i32 1.i32;
+        String code = names.getTemp() + arrayOllirType;
+        computation.append(code).append(SPACE).append(ASSIGN).append(arrayOllirType).append(" new(array, ")
+                .append(values.size()).append(".i32)").append(arrayOllirType).append(END_STMT);
+        for (int i = 0; i < values.size(); i++) {
+            computation.append(code).append("[").append(i).append(".i32]").append(elementType).append(SPACE)
+                    .append(ASSIGN).append(elementType).append(SPACE).append(values.get(i).getCode()).append(END_STMT);
         }
 
         return new OllirExprResult(code, computation);
@@ -253,7 +279,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         String returnType = OptUtils.toOllirType(node);
 
         // code to compute self
-        String temp = OptUtils.getTemp();
+        String temp = names.getTemp();
         code = temp + returnType;
 
         String computatation = String.format("%s :=%s new(%s)%s;\n" +
@@ -288,9 +314,9 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         // Different computation and code for "AND" operator
         if (node.get("op").equals("&&")) {
-            String true_label = OptUtils.getTempTrue();
-            String end_label = OptUtils.getTempEnd();
-            String resultTemp = OptUtils.getTemp();
+            String true_label = names.getTempTrue();
+            String end_label = names.getTempEnd();
+            String resultTemp = names.getTemp();
 //             if (1.bool) goto true_0;
             computation.append(lhs.getComputation());
             computation.append("if(").append(lhs.getCode()).append(") ").append("goto ").append(true_label).append(END_STMT);
@@ -318,7 +344,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
                 code = lhs.getCode() + SPACE + node.get("op") + OptUtils.toOllirType(resType) + SPACE + rhs.getCode();
                 return new OllirExprResult(code, computation);
             }
-            code = OptUtils.getTemp() + resOllirType;
+            code = names.getTemp() + resOllirType;
 
             computation.append(code).append(SPACE)
                     .append(ASSIGN).append(resOllirType).append(SPACE)
@@ -343,11 +369,22 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         Type type = getExprType(node, table, methodName);
         String ollirType = OptUtils.toOllirType(type);
 
+        // tmp0.i32 :=.i32 getfield(this, a.i32).i32;
+        if (OptUtils.isField(id, methodName, table)) {
+            String temp = names.getTemp() + ollirType;
+            String computation = temp + SPACE + ASSIGN + ollirType + " getfield(this, " + id + ollirType + ")" + ollirType + END_STMT;
+            return new OllirExprResult(temp, computation);
+        }
+
         String code = id + ollirType;
 
         return new OllirExprResult(code);
     }
 
+    private OllirExprResult visitThis(JmmNode node, Void unused) {
+        return new OllirExprResult("this" + OptUtils.toOllirType(new Type(table.getClassName(), false)));
+    }
+
     /**
      * Default visitor. Visits every child node and return an empty result.
      *
@@ -4,7 +4,14 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 import static pt.up.fe.comp2024.ast.TypeUtils.getExprType;
@@ -12,6 +19,10 @@ import static pt.up.fe.comp2024.optimization.OptUtils.toOllirType;
 
 /**
  * Generates OLLIR code from JmmNodes that are not expressions.
+ * <p>
+ * Branches whose condition is a boolean literal are resolved here, so that code guarded by a constant flag costs
+ * nothing even without optimizations, and statements that follow a loop that never ends are not generated. Each
+ * elimination is reported as a log.
  */
 public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
@@ -25,11 +36,21 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final SymbolTable table;
 
+    private final TempNames names;
+
     private final OllirExprGeneratorVisitor exprVisitor;
 
+    private final List<Report> reports;
+
     public OllirGeneratorVisitor(SymbolTable table) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        names = new TempNames();
+        exprVisitor = new OllirExprGeneratorVisitor(table, names);
+        reports = new ArrayList<>();
+    }
+
+    public List<Report> getReports() {
+        return reports;
     }
 
 
@@ -53,11 +74,32 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitWhileStmt(JmmNode jmmNode, Void unused) {
         JmmNode condition = jmmNode.getChild(0);
         JmmNode body = jmmNode.getChild(1);
-        var conditionResult = exprVisitor.visit(condition);
+
+        var constant = evaluateCondition(condition);
+        if (constant.isPresent() && !constant.get()) {
+            reports.add(ReportUtils.buildLogReport(Stage.OPTIMIZATION, jmmNode,
+                    "Eliminated while loop whose condition is always false"));
+            return "";
+        }
 
         StringBuilder code = new StringBuilder();
-        String tempWhile = OptUtils.getTempWhile();
-        String tempEndWhile = OptUtils.getTempEndWhile();
+        String tempWhile = names.getTempWhile();
+        String tempEndWhile = names.getTempEndWhile();
+
+        if (constant.isPresent()) {
+            reports.add(ReportUtils.buildLogReport(Stage.OPTIMIZATION, jmmNode,
+                    "Eliminated condition of while loop that is always true"));
+
+//          whilebody_1:
+//          goto whilebody_1;
+            code.append(tempWhile).append(":\n");
+            code.append(visitStatements(body.getChildren()));
+            code.append("goto ").append(tempWhile).append(END_STMT);
+
+            return code.toString();
+        }
+
+        var conditionResult = exprVisitor.visit(condition);
 
 //      if (i.i32 <.bool a.i32) goto whilebody_1;
 //      goto endwhile_1;
@@ -68,13 +110,14 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 //      whilebody_1:
         code.append(tempWhile).append(":\n");
 
-        for (var child : body.getChildren()) {
-            code.append(visit(child));
-        }
+        code.append(visitStatements(body.getChildren()));
 
 //      if (i.i32 <.bool a.i32) goto whilebody_1;
 //      endwhile_1:
-        code.append("if(").append(conditionResult.getCode()).append(") goto ").append(tempWhile).append(END_STMT);
+        // The condition is generated again so that it is re-evaluated with the values written by the body
+        var loopConditionResult = exprVisitor.visit(condition);
+        code.append(loopConditionResult.getComputation());
+        code.append("if(").append(loopConditionResult.getCode()).append(") goto ").append(tempWhile).append(END_STMT);
         code.append(tempEndWhile).append(":\n");
 
 
@@ -86,9 +129,17 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         JmmNode ifBody = jmmNode.getChild(1);
         JmmNode elseBody = jmmNode.getChild(2);
 
+        var constant = evaluateCondition(condition);
+        if (constant.isPresent()) {
+            reports.add(ReportUtils.buildLogReport(Stage.OPTIMIZATION, jmmNode,
+                    "Eliminated " + (constant.get() ? "else" : "if") + " branch of if whose condition is always "
+                            + constant.get()));
+            return visitStatements((constant.get() ? ifBody : elseBody).getChildren());
+        }
+
         StringBuilder code = new StringBuilder();
-        String tempIfBody = OptUtils.getTempIfBody();
-        String tempEndIf = OptUtils.getTempEndIf();
+        String tempIfBody = names.getTempIfBody();
+        String tempEndIf = names.getTempEndIf();
 
         var conditionResult = exprVisitor.visit(condition);
         // tmp0.bool :=.bool a.i32 <.bool b.i32;
@@ -97,17 +148,13 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append("if (").append(conditionResult.getCode()).append(") goto ").append(tempIfBody).append(END_STMT);
 
         // Process the else
-        for (var child : elseBody.getChildren()) {
-            code.append(visit(child));
-        }
+        code.append(visitStatements(elseBody.getChildren()));
 
         code.append("goto ").append(tempEndIf).append(END_STMT);
         code.append(tempIfBody).append(":\n");
 
         // Process the if body
-        for (var child : ifBody.getChildren()) {
-            code.append(visit(child));
-        }
+        code.append(visitStatements(ifBody.getChildren()));
 
         code.append(tempEndIf).append(":\n");
 
@@ -116,6 +163,78 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         return code.toString();
     }
 
+    /**
+     * Generates the statements in order, up to the first one that never completes, since the ones after it never run.
+     */
+    private String visitStatements(List<JmmNode> statements) {
+        StringBuilder code = new StringBuilder();
+
+        for (int i = 0; i < statements.size(); i++) {
+            code.append(visit(statements.get(i)));
+
+            if (i + 1 < statements.size() && !canComplete(statements.get(i))) {
+                reports.add(ReportUtils.buildLogReport(Stage.OPTIMIZATION, statements.get(i + 1),
+                        "Eliminated " + (statements.size() - i - 1) + " unreachable statement(s) after a loop that never ends"));
+                break;
+            }
+        }
+
+        return code.toString();
+    }
+
+    /**
+     * @return false if control never leaves the statement: a loop whose condition is always true, since there are no
+     * breaks, or an if whose branches never complete
+     */
+    private boolean canComplete(JmmNode statement) {
+        if (WHILE_STMT.check(statement)) {
+            return !evaluateCondition(statement.getChild(0)).orElse(false);
+        }
+
+        if (IF_ELSE_STMT.check(statement)) {
+            var constant = evaluateCondition(statement.getChild(0));
+            if (constant.isPresent()) {
+                return canComplete(statement.getChild(constant.get() ? 1 : 2).getChildren());
+            }
+            return canComplete(statement.getChild(1).getChildren()) || canComplete(statement.getChild(2).getChildren());
+        }
+
+        return true;
+    }
+
+    private boolean canComplete(List<JmmNode> statements) {
+        return statements.stream().allMatch(this::canComplete);
+    }
+
+    /**
+     * @return the value of a condition made of boolean literals, or empty if it depends on anything else
+     */
+    private Optional<Boolean> evaluateCondition(JmmNode condition) {
+        if (BOOL_VALUE.check(condition)) {
+            return Optional.of(condition.get("name").equals("true"));
+        }
+
+        if (NEG_OPERATOR.check(condition)) {
+            return evaluateCondition(condition.getChild(0)).map(value -> !value);
+        }
+
+        if (PARENTESIS.check(condition)) {
+            return evaluateCondition(condition.getChild(0));
+        }
+
+        if (BINARY_EXPR.check(condition) && (condition.get("op").equals("&&") || condition.get("op").equals("||"))) {
+            // The right operand is only evaluated when the left one does not decide the result
+            boolean isAnd = condition.get("op").equals("&&");
+            var left = evaluateCondition(condition.getChild(0));
+            if (left.isEmpty()) {
+                return Optional.empty();
+            }
+            return left.get() == isAnd ? evaluateCondition(condition.getChild(1)) : left;
+        }
+
+        return Optional.empty();
+    }
+
     private String visitExprStmt(JmmNode node, Void unused) {
         // Call to the object function without assignment
         var exprResult = exprVisitor.visit(node.getChild(0));
@@ -134,6 +253,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         var dest_node = node.getJmmChild(0);
         var operation_node = node.getJmmChild(1);
 
+        if (dest_node.isInstance(IDENTIFIER) && OptUtils.isField(dest_node.get("name"), methodName, table)) {
+            return visitFieldAssign(dest_node, operation_node, methodName);
+        }
+
         var lhs = exprVisitor.visit(dest_node);
         var rhs = exprVisitor.visit(operation_node);
 
@@ -163,6 +286,28 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         return code.toString();
     }
 
+    private String visitFieldAssign(JmmNode field, JmmNode value, String methodName) {
+        var rhs = exprVisitor.visit(value);
+        String typeString = toOllirType(getExprType(field, table, methodName));
+
+        StringBuilder code = new StringBuilder();
+        code.append(rhs.getComputation());
+
+        // putfield only takes a single operand, so expressions such as a.i32 +.i32 b.i32 are stored in a temporary
+        String valueCode = rhs.getCode();
+        if (valueCode.contains(SPACE) || valueCode.contains("[")) {
+            String temp = names.getTemp() + typeString;
+            code.append(temp).append(SPACE).append(ASSIGN).append(typeString).append(SPACE).append(valueCode).append(END_STMT);
+            valueCode = temp;
+        }
+
+        // putfield(this, a.i32, 10.i32).V;
+        code.append("putfield(this, ").append(field.get("name")).append(typeString).append(", ").append(valueCode)
+                .append(").V").append(END_STMT);
+
+        return code.toString();
+    }
+
     private String visitReturn(JmmNode node, Void unused) {
 
         String methodName = node.getAncestor(METHOD_DECL).map(method -> method.get("name")).orElseThrow();
@@ -255,18 +400,15 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
 
         // rest of its children stmts
-        boolean hasReturn = false;
         var afterParam = 1;
         if (!parameters.isEmpty()) afterParam = 2;
 
+        var statements = node.getChildren().subList(afterParam, node.getNumChildren());
+        boolean hasReturn = statements.stream().anyMatch(RETURN_STMT::check);
 
-        for (int i = afterParam; i < node.getNumChildren(); i++) {
-            var child = node.getJmmChild(i);
-            if (child.getKind().equals(RETURN_STMT.toString())) hasReturn = true;
-            var childCode = visit(child);
-            code.append(childCode);
-        }
-        if (!hasReturn) {code.append("ret.V" + END_STMT);}
+        code.append(visitStatements(statements));
+        // A method that ends in a loop that never ends does not return
+        if (!hasReturn && canComplete(statements)) {code.append("ret.V" + END_STMT);}
 
         code.append(R_BRACKET);
         code.append(NL);
@@ -325,8 +467,6 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
                 .map(this::visit)
                 .forEach(code::append);
 
-        System.out.println("Final Ollir: \n");
-        System.out.println(code);
         return code.toString();
     }
 
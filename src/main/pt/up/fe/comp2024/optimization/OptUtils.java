@@ -1,104 +1,28 @@
 package pt.up.fe.comp2024.optimization;
 
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 
 
 public class OptUtils {
-    private static int tempNumber = -1;
-    private static int tempArrayNumber = -1;
-    private static int tempTrueNumber = -1;
-    private static int tempEndNumber = -1;
-    private static int tempIfBodyNumber = -1;
-    private static int tempEndIfNumber = -1;
-    private static int tempWhileNumber = -1;
-    private static int tempEndWhileNumber = -1;
-
-    public static String getTemp() {
-        return getTemp("tmp");
-    }
-
-    public static String getTemp(String prefix) {
-        return prefix + getNextTempNum();
-    }
-
-    public static int getNextTempNum() {
-        tempNumber += 1;
-        return tempNumber;
-    }
-    public static String getTempArray() {
-        return getTempArray("__varargs_array_");
-    }
-    public static String getTempArray(String prefix) {
-        return prefix + getNextTempArrayNum();
-    }
-    public static int getNextTempArrayNum() {
-        tempArrayNumber += 1;
-        return tempArrayNumber;
-    }
-    public static String getTempTrue() {
-        return getTempTrue("true_");
-    }
-    public static String getTempTrue(String prefix) {
-        return prefix + getNextTempTrueNum();
-    }
-    public static int getNextTempTrueNum() {
-        tempTrueNumber += 1;
-        return tempTrueNumber;
-    }
-    public static String getTempEnd() {
-        return getTempEnd("end_");
-    }
-    public static String getTempEnd(String prefix) {
-        return prefix + getNextTempEndNum();
-    }
-    public static int getNextTempEndNum() {
-        tempEndNumber += 1;
-        return tempEndNumber;
-    }
-    public static String getTempIfBody() {
-        return getTempIfBody("ifbody_");
-    }
-    public static String getTempIfBody(String prefix) {
-        return prefix + getNextTempIfBodyNum();
-    }
-    public static int getNextTempIfBodyNum() {
-        tempIfBodyNumber += 1;
-        return tempIfBodyNumber;
-    }
-    public static String getTempEndIf() {
-        return getTempEndIf("endif_");
-    }
-    public static String getTempEndIf(String prefix) {
-        return prefix + getNextTempEndIfNum();
-    }
-    public static int getNextTempEndIfNum() {
-        tempEndIfNumber += 1;
-        return tempEndIfNumber;
-    }
+    /**
+     * @return true if the name refers to a field of the class inside the given method, i.e. there is no local or
+     * parameter with the same name
+     */
+    public static boolean isField(String name, String methodName, SymbolTable table) {
+        var locals = table.getLocalVariables(methodName);
+        var params = table.getParameters(methodName);
+        if ((locals != null && locals.stream().map(Symbol::getName).anyMatch(name::equals))
+                || (params != null && params.stream().map(Symbol::getName).anyMatch(name::equals))) {
+            return false;
+        }
 
-    public static String getTempWhile() {
-        return getTempWhile("whilebody_");
-    }
-    public static String getTempWhile(String prefix) {
-        return prefix + getNextTempWhileNum();
-    }
-    public static int getNextTempWhileNum() {
-        tempWhileNumber += 1;
-        return tempWhileNumber;
+        return table.getFields().stream().map(Symbol::getName).anyMatch(name::equals);
     }
 
-    public static String getTempEndWhile() {
-        return getTempEndWhile("endwhile_");
-    }
-    public static String getTempEndWhile(String prefix) {
-        return prefix + getNextTempEndWhileNum();
-    }
-    public static int getNextTempEndWhileNum() {
-        tempEndWhileNumber += 1;
-        return tempEndWhileNumber;
-    }
     public static String toOllirType(JmmNode typeNode) {
         String typeName;
         boolean isVarArg = typeNode.getOptional("isVarArg").orElse("false").equals("true");
@@ -0,0 +1,20 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp2024.optimization.ir.IrClass;
+import pt.up.fe.comp2024.optimization.ir.IrMethod;
+
+/**
+ * Represents an optimization pass over the IR.
+ */
+public interface OptimizationPass {
+
+    /**
+     * Optimizes the given method in place.
+     *
+     * @param method  the method to optimize
+     * @param irClass the class the method belongs to
+     * @return true if the method was changed
+     */
+    boolean apply(IrMethod method, IrClass irClass);
+
+}
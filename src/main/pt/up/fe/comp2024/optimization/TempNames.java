@@ -0,0 +1,90 @@
+package pt.up.fe.comp2024.optimization;
+
+/**
+ * Numbers the temporaries and labels of the OLLIR generated for one program. Each generation has its own, so that the
+ * names do not depend on what was compiled before, and compilations can run at the same time.
+ */
+public class TempNames {
+    private int tempNumber = -1;
+    private int tempTrueNumber = -1;
+    private int tempEndNumber = -1;
+    private int tempIfBodyNumber = -1;
+    private int tempEndIfNumber = -1;
+    private int tempWhileNumber = -1;
+    private int tempEndWhileNumber = -1;
+
+    public String getTemp() {
+        return getTemp("tmp");
+    }
+
+    public String getTemp(String prefix) {
+        return prefix + getNextTempNum();
+    }
+
+    public int getNextTempNum() {
+        tempNumber += 1;
+        return tempNumber;
+    }
+    public String getTempTrue() {
+        return getTempTrue("true_");
+    }
+    public String getTempTrue(String prefix) {
+        return prefix + getNextTempTrueNum();
+    }
+    public int getNextTempTrueNum() {
+        tempTrueNumber += 1;
+        return tempTrueNumber;
+    }
+    public String getTempEnd() {
+        return getTempEnd("end_");
+    }
+    public String getTempEnd(String prefix) {
+        return prefix + getNextTempEndNum();
+    }
+    public int getNextTempEndNum() {
+        tempEndNumber += 1;
+        return tempEndNumber;
+    }
+    public String getTempIfBody() {
+        return getTempIfBody("ifbody_");
+    }
+    public String getTempIfBody(String prefix) {
+        return prefix + getNextTempIfBodyNum();
+    }
+    public int getNextTempIfBodyNum() {
+        tempIfBodyNumber += 1;
+        return tempIfBodyNumber;
+    }
+    public String getTempEndIf() {
+        return getTempEndIf("endif_");
+    }
+    public String getTempEndIf(String prefix) {
+        return prefix + getNextTempEndIfNum();
+    }
+    public int getNextTempEndIfNum() {
+        tempEndIfNumber += 1;
+        return tempEndIfNumber;
+    }
+
+    public String getTempWhile() {
+        return getTempWhile("whilebody_");
+    }
+    public String getTempWhile(String prefix) {
+        return prefix + getNextTempWhileNum();
+    }
+    public int getNextTempWhileNum() {
+        tempWhileNumber += 1;
+        return tempWhileNumber;
+    }
+
+    public String getTempEndWhile() {
+        return getTempEndWhile("endwhile_");
+    }
+    public String getTempEndWhile(String prefix) {
+        return prefix + getNextTempEndWhileNum();
+    }
+    public int getNextTempEndWhileNum() {
+        tempEndWhileNumber += 1;
+        return tempEndWhileNumber;
+    }
+}
@@ -0,0 +1,46 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * dest := arraylength(array)
+ */
+public class ArrayLengthInstr extends AssignInstr {
+
+    private Value array;
+
+    public ArrayLengthInstr(Var dest, Value array) {
+        super(dest);
+        this.array = array;
+    }
+
+    public Value getArray() {
+        return array;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(array);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        array = replacement.apply(array);
+    }
+
+    @Override
+    public boolean canThrow() {
+        return true;
+    }
+
+    @Override
+    public ArrayLengthInstr copy() {
+        return new ArrayLengthInstr(getDef(), array);
+    }
+
+    @Override
+    public String toOllir() {
+        return assignPrefix() + "arraylength(" + array.toOllir() + ").i32";
+    }
+}
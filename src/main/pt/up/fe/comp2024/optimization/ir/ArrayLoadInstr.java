@@ -0,0 +1,53 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * dest := array[index]
+ */
+public class ArrayLoadInstr extends AssignInstr {
+
+    private Value array;
+    private Value index;
+
+    public ArrayLoadInstr(Var dest, Value array, Value index) {
+        super(dest);
+        this.array = array;
+        this.index = index;
+    }
+
+    public Value getArray() {
+        return array;
+    }
+
+    public Value getIndex() {
+        return index;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(array, index);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        array = replacement.apply(array);
+        index = replacement.apply(index);
+    }
+
+    @Override
+    public boolean canThrow() {
+        return true;
+    }
+
+    @Override
+    public ArrayLoadInstr copy() {
+        return new ArrayLoadInstr(getDef(), array, index);
+    }
+
+    @Override
+    public String toOllir() {
+        return assignPrefix() + IrPrinter.arrayAccess(array, index);
+    }
+}
@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * array[index] := value
+ */
+public class ArrayStoreInstr extends Instr {
+
+    private Value array;
+    private Value index;
+    private Value value;
+
+    public ArrayStoreInstr(Value array, Value index, Value value) {
+        this.array = array;
+        this.index = index;
+        this.value = value;
+    }
+
+    public Value getArray() {
+        return array;
+    }
+
+    public Value getIndex() {
+        return index;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(array, index, value);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        array = replacement.apply(array);
+        index = replacement.apply(index);
+        value = replacement.apply(value);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return true;
+    }
+
+    @Override
+    public boolean canThrow() {
+        return true;
+    }
+
+    @Override
+    public ArrayStoreInstr copy() {
+        return new ArrayStoreInstr(array, index, value);
+    }
+
+    @Override
+    public String toOllir() {
+        var elementType = array.getType().getElementType();
+        return IrPrinter.arrayAccess(array, index) + " :=" + elementType.toOllir() + " " + value.toOllir();
+    }
+}
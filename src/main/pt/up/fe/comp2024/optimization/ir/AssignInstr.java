@@ -0,0 +1,33 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * Base class for instructions that (may) write their result to a destination variable.
+ */
+public abstract class AssignInstr extends Instr {
+
+    private Var dest;
+
+    protected AssignInstr(Var dest) {
+        this.dest = dest;
+    }
+
+    @Override
+    public Var getDef() {
+        return dest;
+    }
+
+    public void setDest(Var dest) {
+        this.dest = dest;
+    }
+
+    /**
+     * @return the OLLIR prefix "dest.T :=.T " or an empty string if there is no destination
+     */
+    protected String assignPrefix() {
+        if (dest == null) {
+            return "";
+        }
+
+        return dest.toOllir() + " :=" + dest.getType().toOllir() + " ";
+    }
+}
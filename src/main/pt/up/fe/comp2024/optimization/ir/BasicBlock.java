@@ -0,0 +1,94 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A maximal sequence of instructions with a single entry, ending in a {@link TerminatorInstr}.
+ * <p>
+ * Successors are derived from the terminator; predecessors are computed by {@link IrMethod#buildCFG()}.
+ */
+public class BasicBlock {
+
+    private final String label;
+    private final List<Instr> instructions;
+    private final List<BasicBlock> predecessors;
+    private long profileCount = -1;
+
+    public BasicBlock(String label) {
+        this.label = label;
+        this.instructions = new ArrayList<>();
+        this.predecessors = new ArrayList<>();
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the mutable list of instructions, terminator included
+     */
+    public List<Instr> getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * @return a mutable view of the instructions without the terminator
+     */
+    public List<Instr> getBody() {
+        return getTerminator() == null ? instructions : instructions.subList(0, instructions.size() - 1);
+    }
+
+    public TerminatorInstr getTerminator() {
+        if (instructions.isEmpty()) {
+            return null;
+        }
+
+        var last = instructions.get(instructions.size() - 1);
+        return last instanceof TerminatorInstr terminator ? terminator : null;
+    }
+
+    public void setTerminator(TerminatorInstr terminator) {
+        if (getTerminator() != null) {
+            instructions.set(instructions.size() - 1, terminator);
+        } else {
+            instructions.add(terminator);
+        }
+    }
+
+    /**
+     * Adds an instruction at the end of the block, before the terminator.
+     */
+    public void append(Instr instr) {
+        getBody().add(instr);
+    }
+
+    /**
+     * @return how many times the block was entered in the profiled run, or -1 if it is not known
+     */
+    public long getProfileCount() {
+        return profileCount;
+    }
+
+    public void setProfileCount(long profileCount) {
+        this.profileCount = profileCount;
+    }
+
+    public List<BasicBlock> getSuccessors() {
+        var terminator = getTerminator();
+        if (terminator == null) {
+            return List.of();
+        }
+
+        return terminator.getTargets().stream().distinct().toList();
+    }
+
+    public List<BasicBlock> getPredecessors() {
+        return predecessors;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,59 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * dest := lhs op rhs
+ */
+public class BinaryInstr extends AssignInstr {
+
+    private final BinaryOp op;
+    private Value lhs;
+    private Value rhs;
+
+    public BinaryInstr(Var dest, BinaryOp op, Value lhs, Value rhs) {
+        super(dest);
+        this.op = op;
+        this.lhs = lhs;
+        this.rhs = rhs;
+    }
+
+    public BinaryOp getOp() {
+        return op;
+    }
+
+    public Value getLhs() {
+        return lhs;
+    }
+
+    public Value getRhs() {
+        return rhs;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(lhs, rhs);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        lhs = replacement.apply(lhs);
+        rhs = replacement.apply(rhs);
+    }
+
+    @Override
+    public boolean canThrow() {
+        return op.canThrow() && !(rhs instanceof Const constant && constant.getValue() != 0);
+    }
+
+    @Override
+    public BinaryInstr copy() {
+        return new BinaryInstr(getDef(), op, lhs, rhs);
+    }
+
+    @Override
+    public String toOllir() {
+        return assignPrefix() + lhs.toOllir() + " " + op.getSymbol() + op.getResultType().toOllir() + " " + rhs.toOllir();
+    }
+}
@@ -0,0 +1,108 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.OperationType;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+/**
+ * Binary operators supported by the IR, with their OLLIR spelling.
+ */
+public enum BinaryOp {
+    ADD("+", IrType.INT),
+    SUB("-", IrType.INT),
+    MUL("*", IrType.INT),
+    DIV("/", IrType.INT),
+    LTH("<", IrType.BOOL),
+    GTH(">", IrType.BOOL),
+    LTE("<=", IrType.BOOL),
+    GTE(">=", IrType.BOOL),
+    EQ("==", IrType.BOOL),
+    NEQ("!=", IrType.BOOL),
+    AND("&&", IrType.BOOL),
+    OR("||", IrType.BOOL);
+
+    private final String symbol;
+    private final IrType resultType;
+
+    BinaryOp(String symbol, IrType resultType) {
+        this.symbol = symbol;
+        this.resultType = resultType;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public IrType getResultType() {
+        return resultType;
+    }
+
+    public boolean isComparison() {
+        return resultType.equals(IrType.BOOL) && this != AND && this != OR;
+    }
+
+    public boolean isCommutative() {
+        return this == ADD || this == MUL || this == EQ || this == NEQ || this == AND || this == OR;
+    }
+
+    /**
+     * @return the comparison that holds exactly when this one does not
+     */
+    public BinaryOp negate() {
+        return switch (this) {
+            case LTH -> GTE;
+            case GTE -> LTH;
+            case GTH -> LTE;
+            case LTE -> GTH;
+            case EQ -> NEQ;
+            case NEQ -> EQ;
+            default -> throw new IllegalStateException("Operator " + this + " is not a comparison");
+        };
+    }
+
+    /**
+     * @return true if evaluating the operator can throw (integer division by zero)
+     */
+    public boolean canThrow() {
+        return this == DIV;
+    }
+
+    /**
+     * Evaluates the operator over two constant operands, using Java int semantics.
+     *
+     * @return the folded value, or null if the operation cannot be folded (division by zero)
+     */
+    public Const fold(int lhs, int rhs) {
+        return switch (this) {
+            case ADD -> Const.ofInt(lhs + rhs);
+            case SUB -> Const.ofInt(lhs - rhs);
+            case MUL -> Const.ofInt(lhs * rhs);
+            case DIV -> rhs == 0 ? null : Const.ofInt(lhs / rhs);
+            case LTH -> Const.ofBool(lhs < rhs);
+            case GTH -> Const.ofBool(lhs > rhs);
+            case LTE -> Const.ofBool(lhs <= rhs);
+            case GTE -> Const.ofBool(lhs >= rhs);
+            case EQ -> Const.ofBool(lhs == rhs);
+            case NEQ -> Const.ofBool(lhs != rhs);
+            case AND -> Const.ofBool(lhs != 0 && rhs != 0);
+            case OR -> Const.ofBool(lhs != 0 || rhs != 0);
+        };
+    }
+
+    public static BinaryOp fromOllir(OperationType opType) {
+        return switch (opType) {
+            case ADD -> ADD;
+            case SUB -> SUB;
+            case MUL -> MUL;
+            case DIV -> DIV;
+            case LTH -> LTH;
+            case GTH -> GTH;
+            case LTE -> LTE;
+            case GTE -> GTE;
+            case EQ -> EQ;
+            case NEQ -> NEQ;
+            case ANDB -> AND;
+            case ORB -> OR;
+            default -> throw new NotImplementedException(opType);
+        };
+    }
+}
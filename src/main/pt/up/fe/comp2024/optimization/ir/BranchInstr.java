@@ -0,0 +1,136 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * if (lhs op rhs) goto trueTarget else goto falseTarget, or if (lhs) ... when there is no operator.
+ */
+public class BranchInstr extends TerminatorInstr {
+
+    private final BinaryOp op;
+    private Value lhs;
+    private Value rhs;
+    private BasicBlock trueTarget;
+    private BasicBlock falseTarget;
+
+    public BranchInstr(BinaryOp op, Value lhs, Value rhs, BasicBlock trueTarget, BasicBlock falseTarget) {
+        this.op = op;
+        this.lhs = lhs;
+        this.rhs = rhs;
+        this.trueTarget = trueTarget;
+        this.falseTarget = falseTarget;
+    }
+
+    public BranchInstr(Value condition, BasicBlock trueTarget, BasicBlock falseTarget) {
+        this(null, condition, null, trueTarget, falseTarget);
+    }
+
+    /**
+     * @return the comparison operator, or null if the condition is the boolean value {@link #getLhs()}
+     */
+    public BinaryOp getOp() {
+        return op;
+    }
+
+    public Value getLhs() {
+        return lhs;
+    }
+
+    public Value getRhs() {
+        return rhs;
+    }
+
+    public BasicBlock getTrueTarget() {
+        return trueTarget;
+    }
+
+    public BasicBlock getFalseTarget() {
+        return falseTarget;
+    }
+
+    /**
+     * @return the constant outcome of the condition, or null if it is not known at compile time
+     */
+    public Boolean evaluate() {
+        if (op == null) {
+            return lhs instanceof Const constant ? constant.isTrue() : null;
+        }
+
+        if (lhs instanceof Const left && rhs instanceof Const right) {
+            var result = op.fold(left.getValue(), right.getValue());
+            return result == null ? null : result.isTrue();
+        }
+
+        return null;
+    }
+
+    /**
+     * @return true if the condition is a comparison, which {@link #invert()} can negate
+     */
+    public boolean canInvert() {
+        return op != null && op.isComparison();
+    }
+
+    /**
+     * @return the same branch with the negated comparison, which goes to the false target when this one does not
+     */
+    public BranchInstr invert() {
+        return new BranchInstr(op.negate(), lhs, rhs, falseTarget, trueTarget);
+    }
+
+    @Override
+    public List<BasicBlock> getTargets() {
+        return List.of(trueTarget, falseTarget);
+    }
+
+    @Override
+    public void replaceTarget(BasicBlock oldTarget, BasicBlock newTarget) {
+        if (trueTarget == oldTarget) {
+            trueTarget = newTarget;
+        }
+        if (falseTarget == oldTarget) {
+            falseTarget = newTarget;
+        }
+    }
+
+    @Override
+    public List<Value> getUses() {
+        var uses = new ArrayList<Value>();
+        uses.add(lhs);
+        if (rhs != null) {
+            uses.add(rhs);
+        }
+        return uses;
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        lhs = replacement.apply(lhs);
+        if (rhs != null) {
+            rhs = replacement.apply(rhs);
+        }
+    }
+
+    public String conditionToOllir() {
+        if (op == null) {
+            return lhs.toOllir();
+        }
+
+        return lhs.toOllir() + " " + op.getSymbol() + op.getResultType().toOllir() + " " + rhs.toOllir();
+    }
+
+    /**
+     * @return the conditional jump to the true target; the false target is reached by fall-through or an extra goto
+     */
+    @Override
+    public BranchInstr copy() {
+        return new BranchInstr(op, lhs, rhs, trueTarget, falseTarget);
+    }
+
+    @Override
+    public String toOllir() {
+        return "if (" + conditionToOllir() + ") goto " + trueTarget.getLabel();
+    }
+}
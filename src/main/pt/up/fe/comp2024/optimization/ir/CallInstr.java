@@ -0,0 +1,116 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * [dest :=] invokevirtual/invokestatic/invokespecial(receiver, "method", args...)
+ */
+public class CallInstr extends AssignInstr {
+
+    public enum Kind {
+        VIRTUAL("invokevirtual"),
+        STATIC("invokestatic"),
+        SPECIAL("invokespecial");
+
+        private final String ollirName;
+
+        Kind(String ollirName) {
+            this.ollirName = ollirName;
+        }
+
+        public String getOllirName() {
+            return ollirName;
+        }
+    }
+
+    private final Kind kind;
+    private Value receiver;
+    private final String methodName;
+    private final List<Value> arguments;
+    private final IrType returnType;
+    private long profileCount = -1;
+
+    public CallInstr(Var dest, Kind kind, Value receiver, String methodName, List<Value> arguments, IrType returnType) {
+        super(dest);
+        this.kind = kind;
+        this.receiver = receiver;
+        this.methodName = methodName;
+        this.arguments = new ArrayList<>(arguments);
+        this.returnType = returnType;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Value getReceiver() {
+        return receiver;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public List<Value> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * @return how many times the call ran in the profiled run, or -1 if it is not known
+     */
+    public long getProfileCount() {
+        return profileCount;
+    }
+
+    public void setProfileCount(long profileCount) {
+        this.profileCount = profileCount;
+    }
+
+    public IrType getReturnType() {
+        return returnType;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        var uses = new ArrayList<Value>();
+        uses.add(receiver);
+        uses.addAll(arguments);
+        return uses;
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        receiver = replacement.apply(receiver);
+        arguments.replaceAll(replacement);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return true;
+    }
+
+    @Override
+    public boolean canThrow() {
+        return true;
+    }
+
+    @Override
+    public CallInstr copy() {
+        return new CallInstr(getDef(), kind, receiver, methodName, arguments, returnType);
+    }
+
+    @Override
+    public String toOllir() {
+        var code = new StringBuilder(assignPrefix());
+        code.append(kind.getOllirName()).append("(").append(receiver.toOllir());
+        code.append(", \"").append(methodName).append("\"");
+        for (var argument : arguments) {
+            code.append(", ").append(argument.toOllir());
+        }
+        code.append(")").append(returnType.toOllir());
+
+        return code.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * An integer or boolean constant. Booleans are kept as 0/1, like in OLLIR.
+ */
+public class Const extends Value {
+
+    private final int value;
+
+    public Const(int value, IrType type) {
+        super(type);
+        this.value = value;
+    }
+
+    public static Const ofInt(int value) {
+        return new Const(value, IrType.INT);
+    }
+
+    public static Const ofBool(boolean value) {
+        return new Const(value ? 1 : 0, IrType.BOOL);
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public boolean isTrue() {
+        return value != 0;
+    }
+
+    @Override
+    public boolean isConstant() {
+        return true;
+    }
+
+    @Override
+    public String toOllir() {
+        return value + getType().toOllir();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Const other)) return false;
+        return value == other.value && getType().equals(other.getType());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * value + getType().hashCode();
+    }
+}
@@ -0,0 +1,41 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * dest := src
+ */
+public class CopyInstr extends AssignInstr {
+
+    private Value src;
+
+    public CopyInstr(Var dest, Value src) {
+        super(dest);
+        this.src = src;
+    }
+
+    public Value getSrc() {
+        return src;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(src);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        src = replacement.apply(src);
+    }
+
+    @Override
+    public CopyInstr copy() {
+        return new CopyInstr(getDef(), src);
+    }
+
+    @Override
+    public String toOllir() {
+        return assignPrefix() + src.toOllir();
+    }
+}
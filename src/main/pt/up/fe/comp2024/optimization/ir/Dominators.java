@@ -0,0 +1,160 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * Dominator tree of a method, computed with the iterative algorithm of Cooper, Harvey and Kennedy.
+ * <p>
+ * Only blocks reachable from the entry are considered. The result is a snapshot: it must be recomputed after the CFG
+ * changes.
+ */
+public class Dominators {
+
+    private final BasicBlock entry;
+    private final List<BasicBlock> reversePostorder;
+    private final Map<BasicBlock, Integer> rpoIndex;
+    private final Map<BasicBlock, BasicBlock> idom;
+    private final Map<BasicBlock, List<BasicBlock>> children;
+    private Map<BasicBlock, Set<BasicBlock>> frontiers;
+
+    public Dominators(IrMethod method) {
+        method.buildCFG();
+
+        this.entry = method.getEntry();
+        this.reversePostorder = method.getReversePostorder();
+        this.rpoIndex = new HashMap<>();
+        for (int i = 0; i < reversePostorder.size(); i++) {
+            rpoIndex.put(reversePostorder.get(i), i);
+        }
+
+        this.idom = computeIdoms();
+        this.children = new HashMap<>();
+        for (var block : reversePostorder) {
+            children.put(block, new ArrayList<>());
+        }
+        for (var block : reversePostorder) {
+            if (block != entry) {
+                children.get(idom.get(block)).add(block);
+            }
+        }
+    }
+
+    private Map<BasicBlock, BasicBlock> computeIdoms() {
+        var doms = new HashMap<BasicBlock, BasicBlock>();
+        doms.put(entry, entry);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var block : reversePostorder) {
+                if (block == entry) {
+                    continue;
+                }
+
+                BasicBlock newIdom = null;
+                for (var pred : block.getPredecessors()) {
+                    if (!doms.containsKey(pred)) {
+                        continue;
+                    }
+                    newIdom = newIdom == null ? pred : intersect(pred, newIdom, doms);
+                }
+
+                if (doms.get(block) != newIdom) {
+                    doms.put(block, newIdom);
+                    changed = true;
+                }
+            }
+        }
+
+        return doms;
+    }
+
+    private BasicBlock intersect(BasicBlock b1, BasicBlock b2, Map<BasicBlock, BasicBlock> doms) {
+        while (b1 != b2) {
+            while (rpoIndex.get(b1) > rpoIndex.get(b2)) {
+                b1 = doms.get(b1);
+            }
+            while (rpoIndex.get(b2) > rpoIndex.get(b1)) {
+                b2 = doms.get(b2);
+            }
+        }
+        return b1;
+    }
+
+    /**
+     * @return the reachable blocks in reverse postorder
+     */
+    public List<BasicBlock> getReversePostorder() {
+        return reversePostorder;
+    }
+
+    public boolean isReachable(BasicBlock block) {
+        return rpoIndex.containsKey(block);
+    }
+
+    /**
+     * @return the immediate dominator of the block, or null for the entry block
+     */
+    public BasicBlock getImmediateDominator(BasicBlock block) {
+        return block == entry ? null : idom.get(block);
+    }
+
+    /**
+     * @return the blocks immediately dominated by the given block
+     */
+    public List<BasicBlock> getChildren(BasicBlock block) {
+        return children.getOrDefault(block, List.of());
+    }
+
+    /**
+     * @return true if every path from the entry to b goes through a (a block dominates itself)
+     */
+    public boolean dominates(BasicBlock a, BasicBlock b) {
+        if (!isReachable(a) || !isReachable(b)) {
+            return false;
+        }
+
+        var current = b;
+        while (current != a && current != entry) {
+            current = idom.get(current);
+        }
+
+        return current == a;
+    }
+
+    /**
+     * @return the blocks where the dominance of the given block ends, i.e. where phi nodes for its definitions go
+     */
+    public Set<BasicBlock> getDominanceFrontier(BasicBlock block) {
+        if (frontiers == null) {
+            frontiers = computeFrontiers();
+        }
+
+        return frontiers.getOrDefault(block, Set.of());
+    }
+
+    private Map<BasicBlock, Set<BasicBlock>> computeFrontiers() {
+        var result = new HashMap<BasicBlock, Set<BasicBlock>>();
+        for (var block : reversePostorder) {
+            result.put(block, new LinkedHashSet<>());
+        }
+
+        for (var block : reversePostorder) {
+            var reachablePreds = block.getPredecessors().stream().filter(this::isReachable).toList();
+            if (reachablePreds.size() < 2) {
+                continue;
+            }
+
+            // Walk up from each predecessor until the immediate dominator of the join point
+            for (var pred : reachablePreds) {
+                var runner = pred;
+                while (runner != idom.get(block)) {
+                    result.get(runner).add(block);
+                    runner = idom.get(runner);
+                }
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * dest := getfield(object, field)
+ */
+public class GetFieldInstr extends AssignInstr {
+
+    private Value object;
+    private final Var field;
+
+    public GetFieldInstr(Var dest, Value object, Var field) {
+        super(dest);
+        this.object = object;
+        this.field = field;
+    }
+
+    public Value getObject() {
+        return object;
+    }
+
+    public Var getField() {
+        return field;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(object);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        object = replacement.apply(object);
+    }
+
+    @Override
+    public GetFieldInstr copy() {
+        return new GetFieldInstr(getDef(), object, field);
+    }
+
+    @Override
+    public String toOllir() {
+        return assignPrefix() + "getfield(" + object.toOllir() + ", " + field.toOllir() + ")" + field.getType().toOllir();
+    }
+}
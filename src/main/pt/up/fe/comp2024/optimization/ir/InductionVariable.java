@@ -0,0 +1,115 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A basic induction variable of a loop: an integer variable written exactly once in the loop, by i := i + c, i := c + i
+ * or i := i - c with a constant c, or by i := t after t := i + c in the same block (the shape generated for i = i + c
+ * when i + c is also used elsewhere).
+ */
+public class InductionVariable {
+
+    private final Var variable;
+    private final int step;
+    private final Instr update;
+    private final BinaryInstr increment;
+
+    private InductionVariable(Var variable, int step, Instr update, BinaryInstr increment) {
+        this.variable = variable;
+        this.step = step;
+        this.update = update;
+        this.increment = increment;
+    }
+
+    /**
+     * @return the basic induction variables of the loop
+     */
+    public static Map<Var, InductionVariable> findBasic(Loop loop) {
+        var defs = loop.getDefs();
+        var inductions = new HashMap<Var, InductionVariable>();
+
+        for (var entry : defs.entrySet()) {
+            var variable = entry.getKey();
+            if (entry.getValue().size() != 1 || !variable.getType().equals(IrType.INT)) {
+                continue;
+            }
+
+            var update = entry.getValue().get(0);
+            BinaryInstr increment = null;
+            if (update instanceof BinaryInstr binary) {
+                increment = binary;
+            } else if (update instanceof CopyInstr copy && copy.getSrc() instanceof Var temp
+                    && defs.getOrDefault(temp, List.of()).size() == 1
+                    && defs.get(temp).get(0) instanceof BinaryInstr binary) {
+                // t := i + c must come first in the same block, so that i is the only value t is computed from
+                var instructions = loop.getBlockOf(update).getInstructions();
+                int tempIndex = instructions.indexOf(binary);
+                if (tempIndex >= 0 && tempIndex < instructions.indexOf(update)) {
+                    increment = binary;
+                }
+            }
+
+            var step = increment == null ? null : getStep(increment, variable);
+            if (step != null) {
+                inductions.put(variable, new InductionVariable(variable, step, update, increment));
+            }
+        }
+
+        return inductions;
+    }
+
+    /**
+     * @return c if the instruction computes variable + c, variable - c or c + variable, null otherwise
+     */
+    private static Integer getStep(BinaryInstr instr, Var variable) {
+        if (instr.getOp() == BinaryOp.ADD) {
+            if (instr.getLhs().equals(variable) && instr.getRhs() instanceof Const step) {
+                return step.getValue();
+            }
+            if (instr.getRhs().equals(variable) && instr.getLhs() instanceof Const step) {
+                return step.getValue();
+            }
+        }
+
+        if (instr.getOp() == BinaryOp.SUB && instr.getLhs().equals(variable) && instr.getRhs() instanceof Const step) {
+            return -step.getValue();
+        }
+
+        return null;
+    }
+
+    public Var getVariable() {
+        return variable;
+    }
+
+    /**
+     * @return the value added to the variable in each update
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * @return the instruction that writes the variable
+     */
+    public Instr getUpdate() {
+        return update;
+    }
+
+    /**
+     * @return the instruction that computes the new value, which is the update itself unless it goes through a
+     * temporary
+     */
+    public BinaryInstr getIncrement() {
+        return increment;
+    }
+
+    /**
+     * @return the instructions that update the variable, in program order
+     */
+    public List<Instr> getInstructions() {
+        return increment == update ? List.of(update) : List.of(increment, update);
+    }
+}
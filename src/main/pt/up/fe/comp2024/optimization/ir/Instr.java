@@ -0,0 +1,61 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * A three-address instruction of the optimizer IR.
+ */
+public abstract class Instr {
+
+    /**
+     * @return the variable written by this instruction, or null if it does not write any
+     */
+    public Var getDef() {
+        return null;
+    }
+
+    /**
+     * @return the values read by this instruction, in operand order
+     */
+    public abstract List<Value> getUses();
+
+    /**
+     * Replaces every operand read by this instruction with the result of the given function.
+     */
+    public abstract void replaceUses(UnaryOperator<Value> replacement);
+
+    public boolean isTerminator() {
+        return false;
+    }
+
+    /**
+     * @return true if the instruction has effects besides writing its destination (memory writes, calls, control flow)
+     */
+    public boolean hasSideEffects() {
+        return false;
+    }
+
+    /**
+     * @return true if executing the instruction may raise an exception
+     */
+    public boolean canThrow() {
+        return false;
+    }
+
+    /**
+     * @return a new instruction with the same destination, operands and targets, which can then be changed without
+     * affecting this one
+     */
+    public abstract Instr copy();
+
+    /**
+     * @return the OLLIR text of the instruction, without the terminating ';'
+     */
+    public abstract String toOllir();
+
+    @Override
+    public String toString() {
+        return toOllir();
+    }
+}
@@ -0,0 +1,307 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.profile.Profile;
+import pt.up.fe.comp2024.profile.ProfileSites;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.*;
+
+/**
+ * Builds the optimizer IR from the OLLIR class produced by the AST lowering.
+ * <p>
+ * One IrBuilder instance per OLLIR method.
+ */
+public class IrBuilder {
+
+    private final Method method;
+    private final IrMethod irMethod;
+    private final String className;
+    private final Profile profile;
+    private final Map<String, BasicBlock> labelToBlock;
+    private final Map<Instruction, BasicBlock> leaders;
+    private final Map<CallInstruction, Integer> callSites;
+
+    private IrBuilder(Method method, IrMethod irMethod, String className, Profile profile) {
+        this.method = method;
+        this.irMethod = irMethod;
+        this.className = className;
+        this.profile = profile;
+        this.labelToBlock = new HashMap<>();
+        this.leaders = new HashMap<>();
+        this.callSites = new IdentityHashMap<>();
+
+        var calls = ProfileSites.getCallSites(method);
+        for (int i = 0; i < calls.size(); i++) {
+            callSites.put(calls.get(i), i);
+        }
+    }
+
+    public static IrClass build(ClassUnit classUnit) {
+        return build(classUnit, Profile.none());
+    }
+
+    /**
+     * Builds the IR, with the number of times each block and each call ran in the profile.
+     */
+    public static IrClass build(ClassUnit classUnit, Profile profile) {
+        var fields = classUnit.getFields().stream()
+                .map(field -> new IrField(field.getFieldName(), toIrType(field.getFieldType()),
+                        toModifier(field.getFieldAccessModifier()), field.isStaticField(), field.isFinalField()))
+                .toList();
+
+        var methods = new ArrayList<IrMethod>();
+        for (var method : classUnit.getMethods()) {
+            // The default constructor is printed back by IrPrinter
+            if (method.isConstructMethod()) {
+                continue;
+            }
+            methods.add(build(method, classUnit.getClassName(), profile));
+        }
+
+        return new IrClass(classUnit.getClassName(), classUnit.getSuperClass(), new ArrayList<>(classUnit.getImports()),
+                new ArrayList<>(fields), methods);
+    }
+
+    private static IrMethod build(Method method, String className, Profile profile) {
+        var params = new ArrayList<Var>();
+        for (var param : method.getParams()) {
+            params.add(toVar((Operand) param));
+        }
+
+        var irMethod = new IrMethod(method.getMethodName(), toModifier(method.getMethodAccessModifier()),
+                method.isStaticMethod(), method.isVarargs(), params, toIrType(method.getReturnType()));
+
+        new IrBuilder(method, irMethod, className, profile).buildBlocks();
+        irMethod.buildCFG();
+
+        return irMethod;
+    }
+
+    private void buildBlocks() {
+        var instructions = method.getInstructions();
+        var existingLabels = new HashSet<>(method.getLabels().keySet());
+        int nextLabelId = 0;
+
+        // Blocks are numbered as in the profile
+        var blockLeaders = ProfileSites.getBlockLeaders(method);
+        for (int i = 0; i < blockLeaders.size(); i++) {
+            var inst = blockLeaders.get(i);
+            var labels = method.getLabels(inst);
+
+            String label;
+            if (labels.isEmpty()) {
+                do {
+                    label = "block_" + nextLabelId++;
+                } while (existingLabels.contains(label));
+            } else {
+                label = labels.get(0);
+            }
+
+            var block = new BasicBlock(label);
+            block.setProfileCount(profile.getCount(className, ProfileSites.blockKey(method.getMethodName(), i)));
+            labels.forEach(name -> labelToBlock.put(name, block));
+            leaders.put(inst, block);
+            irMethod.getBlocks().add(block);
+        }
+
+        if (irMethod.getBlocks().isEmpty()) {
+            var block = new BasicBlock("block_0");
+            block.getInstructions().add(ReturnInstr.returnVoid());
+            irMethod.getBlocks().add(block);
+            return;
+        }
+
+        irMethod.reserveNames(method.getVarTable().keySet());
+
+        BasicBlock current = null;
+        for (var inst : instructions) {
+            var leader = leaders.get(inst);
+            if (leader != null) {
+                if (current != null && current.getTerminator() == null) {
+                    current.getInstructions().add(new JumpInstr(leader));
+                }
+                current = leader;
+            }
+
+            liftInstruction(inst, current, nextBlock(current));
+        }
+
+        if (current.getTerminator() == null) {
+            current.getInstructions().add(ReturnInstr.returnVoid());
+        }
+    }
+
+    private BasicBlock nextBlock(BasicBlock block) {
+        var blocks = irMethod.getBlocks();
+        int index = blocks.indexOf(block);
+        return index + 1 < blocks.size() ? blocks.get(index + 1) : null;
+    }
+
+    private void liftInstruction(Instruction inst, BasicBlock block, BasicBlock next) {
+        var out = block.getInstructions();
+
+        if (inst instanceof AssignInstruction assign) {
+            if (assign.getDest() instanceof ArrayOperand arrayDest) {
+                var index = toValue(arrayDest.getIndexOperands().get(0), out);
+                var value = liftRhs(assign.getRhs(), toIrType(assign.getTypeOfAssign()), out);
+                out.add(new ArrayStoreInstr(getArrayVar(arrayDest), index, value));
+            } else {
+                liftAssign(toVar((Operand) assign.getDest()), assign.getRhs(), out);
+            }
+        } else if (inst instanceof CallInstruction call) {
+            liftCall(null, call, out);
+        } else if (inst instanceof PutFieldInstruction putField) {
+            var operands = putField.getOperands();
+            out.add(new PutFieldInstr(toValue(operands.get(0), out), toVar((Operand) operands.get(1)), toValue(operands.get(2), out)));
+        } else if (inst instanceof GotoInstruction gotoInst) {
+            out.add(new JumpInstr(getBlock(gotoInst.getLabel())));
+        } else if (inst instanceof CondBranchInstruction branch) {
+            out.add(liftBranch(branch, next, out));
+        } else if (inst instanceof ReturnInstruction ret) {
+            var value = ret.hasReturnValue() ? toValue(ret.getOperand(), out) : null;
+            out.add(new ReturnInstr(value, toIrType(ret.getReturnType())));
+        }
+        // Other instructions used as statements (e.g. a lone getfield) have no effect and are dropped
+    }
+
+    private BranchInstr liftBranch(CondBranchInstruction branch, BasicBlock next, List<Instr> out) {
+        var trueTarget = getBlock(branch.getLabel());
+
+        if (branch instanceof OpCondInstruction opCond && opCond.getCondition() instanceof BinaryOpInstruction binary) {
+            var op = BinaryOp.fromOllir(binary.getOperation().getOpType());
+            return new BranchInstr(op, toValue(binary.getLeftOperand(), out), toValue(binary.getRightOperand(), out), trueTarget, next);
+        }
+
+        var condition = liftRhs(branch.getCondition(), IrType.BOOL, out);
+        return new BranchInstr(condition, trueTarget, next);
+    }
+
+    /**
+     * Lifts the right-hand side of an assignment into a value, using a temporary when it is not a simple operand.
+     */
+    private Value liftRhs(Instruction rhs, IrType type, List<Instr> out) {
+        if (rhs instanceof SingleOpInstruction single && !(single.getSingleOperand() instanceof ArrayOperand)) {
+            return toValue(single.getSingleOperand(), out);
+        }
+
+        var temp = irMethod.newTemp(type);
+        liftAssign(temp, rhs, out);
+        return temp;
+    }
+
+    private void liftAssign(Var dest, Instruction rhs, List<Instr> out) {
+        if (rhs instanceof SingleOpInstruction single) {
+            var operand = single.getSingleOperand();
+            if (operand instanceof ArrayOperand arrayOperand) {
+                var index = toValue(arrayOperand.getIndexOperands().get(0), out);
+                out.add(new ArrayLoadInstr(dest, getArrayVar(arrayOperand), index));
+            } else {
+                out.add(new CopyInstr(dest, toValue(operand, out)));
+            }
+        } else if (rhs instanceof BinaryOpInstruction binary) {
+            var op = BinaryOp.fromOllir(binary.getOperation().getOpType());
+            out.add(new BinaryInstr(dest, op, toValue(binary.getLeftOperand(), out), toValue(binary.getRightOperand(), out)));
+        } else if (rhs instanceof UnaryOpInstruction unary) {
+            out.add(new NotInstr(dest, toValue(unary.getOperand(), out)));
+        } else if (rhs instanceof CallInstruction call) {
+            liftCall(dest, call, out);
+        } else if (rhs instanceof GetFieldInstruction getField) {
+            var operands = getField.getOperands();
+            out.add(new GetFieldInstr(dest, toValue(operands.get(0), out), toVar((Operand) operands.get(1))));
+        } else {
+            throw new NotImplementedException(rhs.getClass());
+        }
+    }
+
+    private void liftCall(Var dest, CallInstruction call, List<Instr> out) {
+        var returnType = toIrType(call.getReturnType());
+
+        switch (call.getInvocationType()) {
+            case NEW -> {
+                var target = dest != null ? dest : irMethod.newTemp(returnType);
+                if (returnType.isArray()) {
+                    out.add(new NewArrayInstr(target, toValue(call.getArguments().get(0), out)));
+                } else {
+                    out.add(new NewObjectInstr(target));
+                }
+            }
+            case arraylength -> {
+                var target = dest != null ? dest : irMethod.newTemp(IrType.INT);
+                out.add(new ArrayLengthInstr(target, toValue(call.getCaller(), out)));
+            }
+            case invokevirtual, invokestatic, invokespecial -> {
+                var kind = switch (call.getInvocationType()) {
+                    case invokestatic -> CallInstr.Kind.STATIC;
+                    case invokespecial -> CallInstr.Kind.SPECIAL;
+                    default -> CallInstr.Kind.VIRTUAL;
+                };
+                var methodName = ((LiteralElement) call.getMethodName()).getLiteral().replace("\"", "");
+                var receiver = toValue(call.getCaller(), out);
+
+                var arguments = new ArrayList<Value>();
+                for (var argument : call.getArguments()) {
+                    arguments.add(toValue(argument, out));
+                }
+
+                var callInstr = new CallInstr(dest, kind, receiver, methodName, arguments, returnType);
+                var site = callSites.get(call);
+                if (site != null) {
+                    callInstr.setProfileCount(profile.getCount(className, ProfileSites.callKey(method.getMethodName(), site)));
+                }
+                out.add(callInstr);
+            }
+            default -> throw new NotImplementedException(call.getInvocationType());
+        }
+    }
+
+    private Value toValue(Element element, List<Instr> out) {
+        if (element instanceof LiteralElement literal) {
+            return new Const(Integer.parseInt(literal.getLiteral()), toIrType(literal.getType()));
+        }
+
+        if (element instanceof ArrayOperand arrayOperand) {
+            var temp = irMethod.newTemp(toIrType(arrayOperand.getType()));
+            var index = toValue(arrayOperand.getIndexOperands().get(0), out);
+            out.add(new ArrayLoadInstr(temp, getArrayVar(arrayOperand), index));
+            return temp;
+        }
+
+        return toVar((Operand) element);
+    }
+
+    private Var getArrayVar(ArrayOperand arrayOperand) {
+        var descriptor = method.getVarTable().get(arrayOperand.getName());
+        return new Var(arrayOperand.getName(), toIrType(descriptor.getVarType()));
+    }
+
+    private BasicBlock getBlock(String label) {
+        var block = labelToBlock.get(label);
+        if (block == null) {
+            throw new RuntimeException("Label '" + label + "' not found in method '" + method.getMethodName() + "'");
+        }
+        return block;
+    }
+
+    private static Var toVar(Operand operand) {
+        var type = toIrType(operand.getType());
+        return new Var(type.getKind() == IrType.Kind.THIS ? "this" : operand.getName(), type);
+    }
+
+    private static String toModifier(AccessModifier accessModifier) {
+        return accessModifier == AccessModifier.DEFAULT ? "" : accessModifier.name().toLowerCase();
+    }
+
+    public static IrType toIrType(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> IrType.INT;
+            case BOOLEAN -> IrType.BOOL;
+            case VOID -> IrType.VOID;
+            case STRING -> IrType.STRING;
+            case ARRAYREF -> IrType.arrayOf(toIrType(((ArrayType) type).getElementType()));
+            case OBJECTREF -> IrType.object(((ClassType) type).getName());
+            case CLASS -> IrType.classRef(((ClassType) type).getName());
+            case THIS -> IrType.thisRef(((ClassType) type).getName());
+        };
+    }
+}
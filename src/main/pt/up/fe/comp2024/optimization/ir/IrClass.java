@@ -0,0 +1,81 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The class being optimized, in IR form. Constructors are not kept, the default one is printed back.
+ */
+public class IrClass {
+
+    private final String name;
+    private final String superName;
+    private final List<String> imports;
+    private final List<IrField> fields;
+    private final List<IrMethod> methods;
+
+    public IrClass(String name, String superName, List<String> imports, List<IrField> fields, List<IrMethod> methods) {
+        this.name = name;
+        this.superName = superName;
+        this.imports = imports;
+        this.fields = fields;
+        this.methods = methods;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the name of the super class, or null if the class does not extend another one
+     */
+    public String getSuperName() {
+        return superName;
+    }
+
+    public List<String> getImports() {
+        return imports;
+    }
+
+    public List<IrField> getFields() {
+        return fields;
+    }
+
+    public List<IrMethod> getMethods() {
+        return methods;
+    }
+
+    public Optional<IrMethod> getMethod(String methodName) {
+        return methods.stream().filter(method -> method.getName().equals(methodName)).findFirst();
+    }
+
+    /**
+     * @return the method of this class that the call runs, if it can be determined at compile time: static calls to
+     * this class, and virtual calls on 'this' from an instance method, to a method whose name is not overloaded
+     */
+    public Optional<IrMethod> getCallee(CallInstr call, IrMethod caller) {
+        boolean known = switch (call.getKind()) {
+            case STATIC -> call.getReceiver() instanceof Var receiver && receiver.getName().equals(name);
+            case VIRTUAL -> !caller.isStatic() && call.getReceiver().getType().getKind() == IrType.Kind.THIS;
+            case SPECIAL -> false;
+        };
+        if (!known) {
+            return Optional.empty();
+        }
+
+        // Overloads would need the argument types to pick the target
+        var candidates = methods.stream()
+                .filter(method -> method.getName().equals(call.getMethodName()))
+                .toList();
+        if (candidates.size() != 1 || candidates.get(0).isStatic() != (call.getKind() == CallInstr.Kind.STATIC)
+                || candidates.get(0).getParams().size() != call.getArguments().size()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(candidates.get(0));
+    }
+
+    public String toOllir() {
+        return IrPrinter.print(this);
+    }
+}
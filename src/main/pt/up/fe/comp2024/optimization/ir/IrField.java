@@ -0,0 +1,41 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * A field declaration of the class being optimized.
+ */
+public class IrField {
+
+    private final String name;
+    private final IrType type;
+    private final String accessModifier;
+    private final boolean isStatic;
+    private final boolean isFinal;
+
+    public IrField(String name, IrType type, String accessModifier, boolean isStatic, boolean isFinal) {
+        this.name = name;
+        this.type = type;
+        this.accessModifier = accessModifier;
+        this.isStatic = isStatic;
+        this.isFinal = isFinal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public IrType getType() {
+        return type;
+    }
+
+    public String getAccessModifier() {
+        return accessModifier;
+    }
+
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    public boolean isFinal() {
+        return isFinal;
+    }
+}
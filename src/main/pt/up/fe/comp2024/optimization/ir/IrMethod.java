@@ -0,0 +1,197 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * A method of the optimizer IR: its signature and a control-flow graph of basic blocks.
+ * <p>
+ * The order of {@link #getBlocks()} is the layout used when printing OLLIR; the first block is the entry.
+ */
+public class IrMethod {
+
+    private final String name;
+    private final String accessModifier;
+    private final boolean isStatic;
+    private final boolean isVarargs;
+    private final List<Var> params;
+    private final IrType returnType;
+    private final List<BasicBlock> blocks;
+
+    private Set<String> reservedNames;
+    private int nextNameId;
+
+    public IrMethod(String name, String accessModifier, boolean isStatic, boolean isVarargs, List<Var> params, IrType returnType) {
+        this.name = name;
+        this.accessModifier = accessModifier;
+        this.isStatic = isStatic;
+        this.isVarargs = isVarargs;
+        this.params = params;
+        this.returnType = returnType;
+        this.blocks = new ArrayList<>();
+        this.reservedNames = null;
+        this.nextNameId = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return "public", "private", "protected" or an empty string for the default access
+     */
+    public String getAccessModifier() {
+        return accessModifier;
+    }
+
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    public boolean isVarargs() {
+        return isVarargs;
+    }
+
+    public List<Var> getParams() {
+        return params;
+    }
+
+    public IrType getReturnType() {
+        return returnType;
+    }
+
+    public List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    public BasicBlock getEntry() {
+        return blocks.get(0);
+    }
+
+    /**
+     * Creates a block with a label that is not used anywhere else in the method. The block is not added to the method.
+     */
+    public BasicBlock newBlock(String prefix) {
+        return new BasicBlock(freshName(prefix));
+    }
+
+    /**
+     * @return a temporary variable whose name is not used anywhere else in the method
+     */
+    public Var newTemp(IrType type) {
+        return newVar("tmp_", type);
+    }
+
+    /**
+     * @return a variable named prefix followed by a number, such that the name is not used anywhere else in the method
+     */
+    public Var newVar(String prefix, IrType type) {
+        return new Var(freshName(prefix), type);
+    }
+
+    /**
+     * Marks names as used, so that {@link #newTemp(IrType)} and {@link #newBlock(String)} never return them.
+     */
+    void reserveNames(Collection<String> names) {
+        getReservedNames().addAll(names);
+    }
+
+    /**
+     * @return prefix followed by a number, such that the result is not used anywhere else in the method
+     */
+    String freshName(String prefix) {
+        var reserved = getReservedNames();
+
+        String candidate;
+        do {
+            candidate = prefix + nextNameId++;
+        } while (!reserved.add(candidate));
+
+        return candidate;
+    }
+
+    private Set<String> getReservedNames() {
+        if (reservedNames == null) {
+            reservedNames = new HashSet<>();
+            params.forEach(param -> reservedNames.add(param.getName()));
+            for (var block : blocks) {
+                reservedNames.add(block.getLabel());
+                for (var instr : block.getInstructions()) {
+                    if (instr.getDef() != null) {
+                        reservedNames.add(instr.getDef().getName());
+                    }
+                    instr.getUses().stream()
+                            .filter(Var.class::isInstance)
+                            .forEach(use -> reservedNames.add(((Var) use).getName()));
+                }
+            }
+        }
+
+        return reservedNames;
+    }
+
+    /**
+     * Recomputes the predecessor lists of every block from the terminators.
+     */
+    public void buildCFG() {
+        blocks.forEach(block -> block.getPredecessors().clear());
+        for (var block : blocks) {
+            for (var succ : block.getSuccessors()) {
+                succ.getPredecessors().add(block);
+            }
+        }
+    }
+
+    /**
+     * @return the blocks reachable from the entry, in reverse postorder
+     */
+    public List<BasicBlock> getReversePostorder() {
+        var postorder = new ArrayList<BasicBlock>();
+        var visited = new HashSet<BasicBlock>();
+        // Iterative DFS, large methods would overflow the stack otherwise
+        var stack = new ArrayDeque<Iterator<BasicBlock>>();
+
+        visited.add(getEntry());
+        var path = new ArrayDeque<BasicBlock>();
+        path.push(getEntry());
+        stack.push(getEntry().getSuccessors().iterator());
+
+        while (!stack.isEmpty()) {
+            var successors = stack.peek();
+            if (successors.hasNext()) {
+                var succ = successors.next();
+                if (visited.add(succ)) {
+                    path.push(succ);
+                    stack.push(succ.getSuccessors().iterator());
+                }
+            } else {
+                stack.pop();
+                postorder.add(path.pop());
+            }
+        }
+
+        Collections.reverse(postorder);
+        return postorder;
+    }
+
+    /**
+     * Removes the blocks that cannot be reached from the entry and rebuilds the CFG.
+     *
+     * @return true if any block was removed
+     */
+    public boolean removeUnreachableBlocks() {
+        var reachable = new HashSet<>(getReversePostorder());
+        boolean changed = blocks.removeIf(block -> !reachable.contains(block));
+        buildCFG();
+
+        return changed;
+    }
+
+    public String toOllir() {
+        return IrPrinter.print(this);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,129 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Prints the IR back to OLLIR text.
+ * <p>
+ * Blocks are printed in layout order. Jumps to the next block become fall-throughs, and only blocks that are the
+ * target of a printed jump get a label.
+ */
+public class IrPrinter {
+
+    private static final String END_STMT = ";\n";
+    private static final String NL = "\n";
+
+    public static String print(IrClass irClass) {
+        var code = new StringBuilder();
+
+        for (var importName : irClass.getImports()) {
+            code.append("import ").append(importName).append(END_STMT);
+        }
+
+        code.append(irClass.getName());
+        if (irClass.getSuperName() != null) {
+            code.append(" extends ").append(irClass.getSuperName());
+        }
+        code.append(" {\n\n");
+
+        for (var field : irClass.getFields()) {
+            code.append(".field ");
+            appendModifier(code, field.getAccessModifier());
+            if (field.isStatic()) code.append("static ");
+            if (field.isFinal()) code.append("final ");
+            code.append(field.getName()).append(field.getType().toOllir()).append(END_STMT);
+        }
+        code.append(NL);
+
+        for (var method : irClass.getMethods()) {
+            code.append(print(method)).append(NL);
+        }
+
+        code.append(".construct ").append(irClass.getName()).append("().V {\n")
+                .append("invokespecial(this, \"<init>\").V;\n")
+                .append("}\n");
+        code.append("}\n");
+
+        return code.toString();
+    }
+
+    public static String print(IrMethod method) {
+        var code = new StringBuilder(".method ");
+        appendModifier(code, method.getAccessModifier());
+        if (method.isStatic()) code.append("static ");
+        if (method.isVarargs()) code.append("varargs ");
+
+        var params = method.getParams().stream().map(Var::toOllir).collect(Collectors.joining(", "));
+        code.append(method.getName()).append("(").append(params).append(")").append(method.getReturnType().toOllir());
+        code.append(" {\n");
+
+        var blocks = method.getBlocks();
+        var labeled = getLabeledBlocks(method);
+
+        for (int i = 0; i < blocks.size(); i++) {
+            var block = blocks.get(i);
+            var next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+
+            if (labeled.contains(block)) {
+                code.append(block.getLabel()).append(":\n");
+            }
+
+            for (var instr : block.getBody()) {
+                code.append(instr.toOllir()).append(END_STMT);
+            }
+
+            var terminator = block.getTerminator();
+            if (terminator instanceof BranchInstr branch) {
+                code.append(branch.toOllir()).append(END_STMT);
+                if (branch.getFalseTarget() != next) {
+                    code.append("goto ").append(branch.getFalseTarget().getLabel()).append(END_STMT);
+                }
+            } else if (terminator instanceof JumpInstr jump) {
+                // A label must be attached to an instruction, so empty labeled blocks keep their jump
+                boolean isEmpty = block.getBody().isEmpty() && labeled.contains(block);
+                if (jump.getTarget() != next || isEmpty) {
+                    code.append(jump.toOllir()).append(END_STMT);
+                }
+            } else if (terminator != null) {
+                code.append(terminator.toOllir()).append(END_STMT);
+            }
+        }
+
+        code.append("}\n");
+        return code.toString();
+    }
+
+    private static Set<BasicBlock> getLabeledBlocks(IrMethod method) {
+        var labeled = new HashSet<BasicBlock>();
+        var blocks = method.getBlocks();
+
+        for (int i = 0; i < blocks.size(); i++) {
+            var next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+            var terminator = blocks.get(i).getTerminator();
+
+            if (terminator instanceof BranchInstr branch) {
+                labeled.add(branch.getTrueTarget());
+                if (branch.getFalseTarget() != next) {
+                    labeled.add(branch.getFalseTarget());
+                }
+            } else if (terminator instanceof JumpInstr jump && jump.getTarget() != next) {
+                labeled.add(jump.getTarget());
+            }
+        }
+
+        return labeled;
+    }
+
+    private static void appendModifier(StringBuilder code, String accessModifier) {
+        if (!accessModifier.isEmpty()) {
+            code.append(accessModifier).append(" ");
+        }
+    }
+
+    static String arrayAccess(Value array, Value index) {
+        var elementType = array.getType().getElementType();
+        return ((Var) array).getName() + array.getType().toOllir() + "[" + index.toOllir() + "]" + elementType.toOllir();
+    }
+}
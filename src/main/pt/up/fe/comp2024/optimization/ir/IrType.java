@@ -0,0 +1,103 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.Objects;
+
+/**
+ * Type of a value in the optimizer IR. Mirrors the OLLIR type suffixes (.i32, .bool, .array.i32, ...).
+ */
+public class IrType {
+
+    public enum Kind {
+        INT,
+        BOOL,
+        VOID,
+        STRING,
+        ARRAY,
+        OBJECT,
+        // Name of a class used as the receiver of a static call
+        CLASS,
+        THIS
+    }
+
+    public static final IrType INT = new IrType(Kind.INT, null, null);
+    public static final IrType BOOL = new IrType(Kind.BOOL, null, null);
+    public static final IrType VOID = new IrType(Kind.VOID, null, null);
+    public static final IrType STRING = new IrType(Kind.STRING, null, null);
+
+    private final Kind kind;
+    private final String className;
+    private final IrType elementType;
+
+    private IrType(Kind kind, String className, IrType elementType) {
+        this.kind = kind;
+        this.className = className;
+        this.elementType = elementType;
+    }
+
+    public static IrType arrayOf(IrType elementType) {
+        return new IrType(Kind.ARRAY, null, elementType);
+    }
+
+    public static IrType object(String className) {
+        return new IrType(Kind.OBJECT, className, null);
+    }
+
+    public static IrType classRef(String className) {
+        return new IrType(Kind.CLASS, className, null);
+    }
+
+    public static IrType thisRef(String className) {
+        return new IrType(Kind.THIS, className, null);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public IrType getElementType() {
+        return elementType;
+    }
+
+    public boolean isArray() {
+        return kind == Kind.ARRAY;
+    }
+
+    /**
+     * @return true if values of this type are held in 32-bit integer slots (int and boolean)
+     */
+    public boolean isPrimitive() {
+        return kind == Kind.INT || kind == Kind.BOOL;
+    }
+
+    public String toOllir() {
+        return "." + switch (kind) {
+            case INT -> "i32";
+            case BOOL -> "bool";
+            case VOID -> "V";
+            case STRING -> "String";
+            case ARRAY -> "array" + elementType.toOllir();
+            case OBJECT, CLASS, THIS -> className;
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IrType other)) return false;
+        return kind == other.kind && Objects.equals(className, other.className) && Objects.equals(elementType, other.elementType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, className, elementType);
+    }
+
+    @Override
+    public String toString() {
+        return toOllir();
+    }
+}
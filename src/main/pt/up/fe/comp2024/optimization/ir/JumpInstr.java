@@ -0,0 +1,51 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * goto target
+ */
+public class JumpInstr extends TerminatorInstr {
+
+    private BasicBlock target;
+
+    public JumpInstr(BasicBlock target) {
+        this.target = target;
+    }
+
+    public BasicBlock getTarget() {
+        return target;
+    }
+
+    @Override
+    public List<BasicBlock> getTargets() {
+        return List.of(target);
+    }
+
+    @Override
+    public void replaceTarget(BasicBlock oldTarget, BasicBlock newTarget) {
+        if (target == oldTarget) {
+            target = newTarget;
+        }
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of();
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+    }
+
+    @Override
+    public JumpInstr copy() {
+        return new JumpInstr(target);
+    }
+
+    @Override
+    public String toOllir() {
+        return "goto " + target.getLabel();
+    }
+}
@@ -0,0 +1,96 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * Live variables at the entry and exit of each block of a method (backward dataflow analysis).
+ * <p>
+ * Only local variables are tracked, 'this' and class names used as static receivers are never live. The result is a
+ * snapshot: it must be recomputed after the method changes.
+ */
+public class Liveness {
+
+    private final Map<BasicBlock, Set<Var>> liveIn;
+    private final Map<BasicBlock, Set<Var>> liveOut;
+
+    public Liveness(IrMethod method) {
+        method.buildCFG();
+
+        this.liveIn = new HashMap<>();
+        this.liveOut = new HashMap<>();
+
+        var uses = new HashMap<BasicBlock, Set<Var>>();
+        var defs = new HashMap<BasicBlock, Set<Var>>();
+        for (var block : method.getBlocks()) {
+            var blockUses = new HashSet<Var>();
+            var blockDefs = new HashSet<Var>();
+            for (var instr : block.getInstructions()) {
+                for (var use : localUses(instr)) {
+                    if (!blockDefs.contains(use)) {
+                        blockUses.add(use);
+                    }
+                }
+                if (instr.getDef() != null) {
+                    blockDefs.add(instr.getDef());
+                }
+            }
+            uses.put(block, blockUses);
+            defs.put(block, blockDefs);
+            liveIn.put(block, new HashSet<>());
+            liveOut.put(block, new HashSet<>());
+        }
+
+        // Visiting the blocks in postorder makes the backward analysis converge in few iterations
+        var order = new ArrayList<>(method.getBlocks());
+        var reversePostorder = method.getReversePostorder();
+        order.removeAll(reversePostorder);
+        order.addAll(reversePostorder);
+        Collections.reverse(order);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var block : order) {
+                var out = liveOut.get(block);
+                for (var succ : block.getSuccessors()) {
+                    out.addAll(liveIn.get(succ));
+                }
+
+                var in = new HashSet<>(out);
+                in.removeAll(defs.get(block));
+                in.addAll(uses.get(block));
+
+                if (!in.equals(liveIn.get(block))) {
+                    liveIn.put(block, in);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the local variables read by the instruction
+     */
+    public static List<Var> localUses(Instr instr) {
+        var locals = new ArrayList<Var>();
+        for (var use : instr.getUses()) {
+            if (use instanceof Var variable && isLocal(variable)) {
+                locals.add(variable);
+            }
+        }
+        return locals;
+    }
+
+    private static boolean isLocal(Var variable) {
+        var kind = variable.getType().getKind();
+        return kind != IrType.Kind.THIS && kind != IrType.Kind.CLASS;
+    }
+
+    public Set<Var> getLiveIn(BasicBlock block) {
+        return liveIn.get(block);
+    }
+
+    public Set<Var> getLiveOut(BasicBlock block) {
+        return liveOut.get(block);
+    }
+}
@@ -0,0 +1,127 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * A natural loop: a header block that dominates the source of a back edge, and every block that can reach that source
+ * without going through the header. Back edges to the same header form a single loop.
+ */
+public class Loop {
+
+    private final BasicBlock header;
+    private final Set<BasicBlock> blocks;
+
+    private Loop(BasicBlock header) {
+        this.header = header;
+        this.blocks = new LinkedHashSet<>();
+        this.blocks.add(header);
+    }
+
+    /**
+     * @return the natural loops of the method, inner loops before the loops that contain them
+     */
+    public static List<Loop> findLoops(IrMethod method, Dominators dominators) {
+        var loops = new LinkedHashMap<BasicBlock, Loop>();
+
+        for (var block : dominators.getReversePostorder()) {
+            for (var succ : block.getSuccessors()) {
+                if (dominators.dominates(succ, block)) {
+                    loops.computeIfAbsent(succ, Loop::new).addBackEdge(block);
+                }
+            }
+        }
+
+        var result = new ArrayList<>(loops.values());
+        result.sort(Comparator.comparingInt(loop -> loop.blocks.size()));
+        return result;
+    }
+
+    private void addBackEdge(BasicBlock source) {
+        var worklist = new ArrayDeque<BasicBlock>();
+        if (blocks.add(source)) {
+            worklist.add(source);
+        }
+
+        while (!worklist.isEmpty()) {
+            for (var pred : worklist.poll().getPredecessors()) {
+                if (blocks.add(pred)) {
+                    worklist.add(pred);
+                }
+            }
+        }
+    }
+
+    public BasicBlock getHeader() {
+        return header;
+    }
+
+    public Set<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    public boolean contains(BasicBlock block) {
+        return blocks.contains(block);
+    }
+
+    /**
+     * @return the block of the loop that contains the instruction
+     */
+    public BasicBlock getBlockOf(Instr instr) {
+        return blocks.stream()
+                .filter(block -> block.getInstructions().contains(instr))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * @return for each variable written in the loop, the instructions that write it
+     */
+    public Map<Var, List<Instr>> getDefs() {
+        var defs = new HashMap<Var, List<Instr>>();
+        for (var block : blocks) {
+            for (var instr : block.getInstructions()) {
+                if (instr.getDef() != null) {
+                    defs.computeIfAbsent(instr.getDef(), def -> new ArrayList<>()).add(instr);
+                }
+            }
+        }
+        return defs;
+    }
+
+    /**
+     * @return the blocks outside the loop that are reached from inside it
+     */
+    public Set<BasicBlock> getExitTargets() {
+        var exits = new LinkedHashSet<BasicBlock>();
+        for (var block : blocks) {
+            for (var succ : block.getSuccessors()) {
+                if (!contains(succ)) {
+                    exits.add(succ);
+                }
+            }
+        }
+        return exits;
+    }
+
+    /**
+     * Returns the block that runs right before the loop is entered, creating one if needed: every edge into the header
+     * from outside the loop is redirected to the new block, which is placed before the header.
+     */
+    public BasicBlock getOrCreatePreheader(IrMethod method) {
+        var outsidePreds = header.getPredecessors().stream().filter(pred -> !contains(pred)).toList();
+
+        if (outsidePreds.size() == 1 && outsidePreds.get(0).getSuccessors().size() == 1) {
+            return outsidePreds.get(0);
+        }
+
+        var preheader = method.newBlock("preheader_");
+        preheader.setTerminator(new JumpInstr(header));
+        for (var pred : outsidePreds) {
+            pred.getTerminator().replaceTarget(header, preheader);
+        }
+        method.getBlocks().add(method.getBlocks().indexOf(header), preheader);
+        method.buildCFG();
+
+        return preheader;
+    }
+}
@@ -0,0 +1,46 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * dest := new(array, size)
+ */
+public class NewArrayInstr extends AssignInstr {
+
+    private Value size;
+
+    public NewArrayInstr(Var dest, Value size) {
+        super(dest);
+        this.size = size;
+    }
+
+    public Value getSize() {
+        return size;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(size);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        size = replacement.apply(size);
+    }
+
+    @Override
+    public boolean canThrow() {
+        return !(size instanceof Const constant && constant.getValue() >= 0);
+    }
+
+    @Override
+    public NewArrayInstr copy() {
+        return new NewArrayInstr(getDef(), size);
+    }
+
+    @Override
+    public String toOllir() {
+        return assignPrefix() + "new(array, " + size.toOllir() + ")" + getDef().getType().toOllir();
+    }
+}
@@ -0,0 +1,38 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * dest := new(Class). The constructor is invoked by a separate invokespecial {@link CallInstr}.
+ */
+public class NewObjectInstr extends AssignInstr {
+
+    public NewObjectInstr(Var dest) {
+        super(dest);
+    }
+
+    public String getClassName() {
+        return getDef().getType().getClassName();
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of();
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+    }
+
+    @Override
+    public NewObjectInstr copy() {
+        return new NewObjectInstr(getDef());
+    }
+
+    @Override
+    public String toOllir() {
+        var type = getDef().getType();
+        return assignPrefix() + "new(" + type.getClassName() + ")" + type.toOllir();
+    }
+}
@@ -0,0 +1,41 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * dest := !operand
+ */
+public class NotInstr extends AssignInstr {
+
+    private Value operand;
+
+    public NotInstr(Var dest, Value operand) {
+        super(dest);
+        this.operand = operand;
+    }
+
+    public Value getOperand() {
+        return operand;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(operand);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        operand = replacement.apply(operand);
+    }
+
+    @Override
+    public NotInstr copy() {
+        return new NotInstr(getDef(), operand);
+    }
+
+    @Override
+    public String toOllir() {
+        return assignPrefix() + "!.bool " + operand.toOllir();
+    }
+}
@@ -0,0 +1,55 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * dest := phi(pred1: v1, pred2: v2, ...)
+ * <p>
+ * Only exists while a method is in SSA form (see {@link SsaForm}); phi instructions are always at the start of a block
+ * and have no OLLIR equivalent.
+ */
+public class PhiInstr extends AssignInstr {
+
+    private final Map<BasicBlock, Value> incoming;
+
+    public PhiInstr(Var dest) {
+        super(dest);
+        this.incoming = new LinkedHashMap<>();
+    }
+
+    /**
+     * @return the value of the phi for each predecessor block
+     */
+    public Map<BasicBlock, Value> getIncoming() {
+        return incoming;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return new ArrayList<>(incoming.values());
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        incoming.replaceAll((pred, value) -> replacement.apply(value));
+    }
+
+    @Override
+    public PhiInstr copy() {
+        var copy = new PhiInstr(getDef());
+        copy.incoming.putAll(incoming);
+        return copy;
+    }
+
+    @Override
+    public String toOllir() {
+        var operands = new ArrayList<String>();
+        incoming.forEach((pred, value) -> operands.add(pred.getLabel() + ": " + value.toOllir()));
+
+        return assignPrefix() + "phi(" + String.join(", ", operands) + ")";
+    }
+}
@@ -0,0 +1,58 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * putfield(object, field, value)
+ */
+public class PutFieldInstr extends Instr {
+
+    private Value object;
+    private final Var field;
+    private Value value;
+
+    public PutFieldInstr(Value object, Var field, Value value) {
+        this.object = object;
+        this.field = field;
+        this.value = value;
+    }
+
+    public Value getObject() {
+        return object;
+    }
+
+    public Var getField() {
+        return field;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return List.of(object, value);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        object = replacement.apply(object);
+        value = replacement.apply(value);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return true;
+    }
+
+    @Override
+    public PutFieldInstr copy() {
+        return new PutFieldInstr(object, field, value);
+    }
+
+    @Override
+    public String toOllir() {
+        return "putfield(" + object.toOllir() + ", " + field.toOllir() + ", " + value.toOllir() + ").V";
+    }
+}
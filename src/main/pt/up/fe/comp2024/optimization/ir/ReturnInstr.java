@@ -0,0 +1,61 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * ret value, or ret.V for void methods.
+ */
+public class ReturnInstr extends TerminatorInstr {
+
+    private Value value;
+    private final IrType type;
+
+    public ReturnInstr(Value value, IrType type) {
+        this.value = value;
+        this.type = type;
+    }
+
+    public static ReturnInstr returnVoid() {
+        return new ReturnInstr(null, IrType.VOID);
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    public IrType getType() {
+        return type;
+    }
+
+    @Override
+    public List<BasicBlock> getTargets() {
+        return List.of();
+    }
+
+    @Override
+    public void replaceTarget(BasicBlock oldTarget, BasicBlock newTarget) {
+    }
+
+    @Override
+    public List<Value> getUses() {
+        return value == null ? List.of() : List.of(value);
+    }
+
+    @Override
+    public void replaceUses(UnaryOperator<Value> replacement) {
+        if (value != null) {
+            value = replacement.apply(value);
+        }
+    }
+
+    @Override
+    public ReturnInstr copy() {
+        return new ReturnInstr(value, type);
+    }
+
+    @Override
+    public String toOllir() {
+        return value == null ? "ret" + type.toOllir() : "ret" + type.toOllir() + " " + value.toOllir();
+    }
+}
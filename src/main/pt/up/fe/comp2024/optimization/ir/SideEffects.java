@@ -0,0 +1,172 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+
+/**
+ * Summary of the memory each call may write, used to decide which array and field reads survive a call, and of the
+ * fields it may read, used to decide which field stores it observes.
+ * <p>
+ * Methods of the class being compiled are summarized from their code (array stores, getfields, putfields and the calls
+ * they make, up to a fixpoint). Code of imported classes is unknown, but it can only reach the memory of this class through
+ * the references it is given: a call whose receiver and arguments are all primitives or strings is assumed not to
+ * write any array or field of this class. Imported code is assumed not to keep references across calls.
+ */
+public class SideEffects {
+
+    private static class Summary {
+        private boolean writesArrays;
+        private boolean writesAllFields;
+        private final Set<String> writtenFields = new HashSet<>();
+        private boolean readsAllFields;
+        private final Set<String> readFields = new HashSet<>();
+
+        private boolean writesField(String field) {
+            return writesAllFields || writtenFields.contains(field);
+        }
+
+        private boolean readsField(String field) {
+            return readsAllFields || readFields.contains(field);
+        }
+
+        private boolean merge(Summary other) {
+            boolean changed = false;
+            if (other.writesArrays && !writesArrays) {
+                writesArrays = true;
+                changed = true;
+            }
+            if (other.writesAllFields && !writesAllFields) {
+                writesAllFields = true;
+                changed = true;
+            }
+            if (other.readsAllFields && !readsAllFields) {
+                readsAllFields = true;
+                changed = true;
+            }
+            changed |= writtenFields.addAll(other.writtenFields);
+            changed |= readFields.addAll(other.readFields);
+            return changed;
+        }
+    }
+
+    private static final Summary NO_EFFECTS = new Summary();
+
+    private final IrClass irClass;
+    private final Map<String, Summary> summaries;
+
+    public SideEffects(IrClass irClass) {
+        this.irClass = irClass;
+        this.summaries = new HashMap<>();
+
+        for (var method : irClass.getMethods()) {
+            summaries.put(method.getName(), new Summary());
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var method : irClass.getMethods()) {
+                var summary = summaries.get(method.getName());
+                for (var block : method.getBlocks()) {
+                    for (var instr : block.getInstructions()) {
+                        changed |= summary.merge(effectsOf(instr));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if executing the instruction may change the contents of some array
+     */
+    public boolean mayWriteArrays(Instr instr) {
+        return effectsOf(instr).writesArrays;
+    }
+
+    /**
+     * @return true if executing the instruction may change the given field, on any object
+     */
+    public boolean mayWriteField(Instr instr, String field) {
+        return effectsOf(instr).writesField(field);
+    }
+
+    /**
+     * @return true if executing the instruction may read the given field, on any object
+     */
+    public boolean mayReadField(Instr instr, String field) {
+        return effectsOf(instr).readsField(field);
+    }
+
+    private Summary effectsOf(Instr instr) {
+        if (instr instanceof ArrayStoreInstr) {
+            var summary = new Summary();
+            summary.writesArrays = true;
+            return summary;
+        }
+
+        if (instr instanceof GetFieldInstr getField) {
+            var summary = new Summary();
+            summary.readFields.add(getField.getField().getName());
+            return summary;
+        }
+
+        if (instr instanceof PutFieldInstr putField) {
+            var summary = new Summary();
+            summary.writtenFields.add(putField.getField().getName());
+            return summary;
+        }
+
+        if (instr instanceof CallInstr call) {
+            return effectsOf(call);
+        }
+
+        return NO_EFFECTS;
+    }
+
+    private Summary effectsOf(CallInstr call) {
+        if (isLocalCall(call)) {
+            var summary = summaries.get(call.getMethodName());
+            if (summary != null) {
+                return summary;
+            }
+        }
+
+        // Constructors of this class are the default one, which writes nothing
+        if (call.getKind() == CallInstr.Kind.SPECIAL && call.getReceiver().getType().getClassName() != null
+                && call.getReceiver().getType().getClassName().equals(irClass.getName()) && irClass.getSuperName() == null) {
+            return NO_EFFECTS;
+        }
+
+        var summary = new Summary();
+        var references = new ArrayList<Value>(call.getArguments());
+        if (call.getKind() != CallInstr.Kind.STATIC) {
+            references.add(call.getReceiver());
+        }
+
+        for (var value : references) {
+            var kind = value.getType().getKind();
+            if (kind == IrType.Kind.ARRAY || kind == IrType.Kind.OBJECT || kind == IrType.Kind.THIS) {
+                summary.writesArrays = true;
+            }
+            if (kind == IrType.Kind.THIS || (kind == IrType.Kind.OBJECT && irClass.getName().equals(value.getType().getClassName()))) {
+                summary.writesAllFields = true;
+                summary.readsAllFields = true;
+            }
+        }
+
+        return summary;
+    }
+
+    /**
+     * @return true if the call runs a method defined in this class
+     */
+    private boolean isLocalCall(CallInstr call) {
+        var receiverType = call.getReceiver().getType();
+
+        return switch (call.getKind()) {
+            case STATIC -> irClass.getName().equals(((Var) call.getReceiver()).getName());
+            case VIRTUAL -> receiverType.getKind() == IrType.Kind.THIS
+                    || irClass.getName().equals(receiverType.getClassName());
+            case SPECIAL -> false;
+        };
+    }
+}
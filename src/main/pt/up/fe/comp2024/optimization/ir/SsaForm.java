@@ -0,0 +1,244 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Converts a method to static single assignment form and back.
+ * <p>
+ * Every definition of a local variable gets a new version (x_1, x_2, ...) and phi instructions are placed at the
+ * dominance frontiers of the definitions (semi-pruned SSA: only for variables live across blocks). Uses that are not
+ * reached by any definition, such as parameters, keep the original variable.
+ * <p>
+ * {@link #destruct()} goes back to normal form by renaming every version to its original variable. This is only
+ * correct while the live ranges of the versions of a variable do not overlap, so passes working on SSA may replace
+ * uses with constants and remove blocks, but must not copy-propagate one variable into another.
+ */
+public class SsaForm {
+
+    private final IrMethod method;
+    private final Map<Var, Var> originals;
+
+    private SsaForm(IrMethod method) {
+        this.method = method;
+        this.originals = new HashMap<>();
+    }
+
+    /**
+     * Converts the method to SSA form, in place.
+     */
+    public static SsaForm construct(IrMethod method) {
+        var ssa = new SsaForm(method);
+
+        ssa.ensureEntryHasNoPredecessors();
+        method.removeUnreachableBlocks();
+
+        var dominators = new Dominators(method);
+        var phiVars = ssa.insertPhis(dominators);
+        ssa.rename(dominators, phiVars);
+
+        return ssa;
+    }
+
+    public IrMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the variable the given SSA version was created from, or the variable itself if it is not a version
+     */
+    public Var getOriginal(Var variable) {
+        return originals.getOrDefault(variable, variable);
+    }
+
+    /**
+     * Leaves SSA form: phi instructions are removed and every version is renamed back to its original variable.
+     */
+    public void destruct() {
+        for (var block : method.getBlocks()) {
+            var phis = getPhis(block);
+            for (var phi : phis) {
+                var original = getOriginal(phi.getDef());
+                phi.getIncoming().forEach((pred, value) -> {
+                    // A constant (or another variable) flowing into the phi becomes a copy at the end of the predecessor
+                    if (!(value instanceof Var variable && getOriginal(variable).equals(original))) {
+                        pred.append(new CopyInstr(original, value instanceof Var variable ? getOriginal(variable) : value));
+                    }
+                });
+            }
+            block.getInstructions().subList(0, phis.size()).clear();
+        }
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstructions()) {
+                instr.replaceUses(value -> value instanceof Var variable ? getOriginal(variable) : value);
+                if (instr.getDef() != null) {
+                    ((AssignInstr) instr).setDest(getOriginal(instr.getDef()));
+                }
+            }
+        }
+
+        originals.clear();
+    }
+
+    /**
+     * @return the phi instructions at the start of the block
+     */
+    public static List<PhiInstr> getPhis(BasicBlock block) {
+        var phis = new ArrayList<PhiInstr>();
+        for (var instr : block.getInstructions()) {
+            if (!(instr instanceof PhiInstr phi)) {
+                break;
+            }
+            phis.add(phi);
+        }
+
+        return phis;
+    }
+
+    /**
+     * Phi instructions at the entry would have no predecessor for the initial values, so loops back to the first
+     * block get a new, empty entry block.
+     */
+    private void ensureEntryHasNoPredecessors() {
+        method.buildCFG();
+
+        var entry = method.getEntry();
+        if (entry.getPredecessors().isEmpty()) {
+            return;
+        }
+
+        var newEntry = method.newBlock("entry_");
+        newEntry.setTerminator(new JumpInstr(entry));
+        method.getBlocks().add(0, newEntry);
+        method.buildCFG();
+    }
+
+    private static boolean isLocal(Value value) {
+        if (!(value instanceof Var variable)) {
+            return false;
+        }
+
+        var kind = variable.getType().getKind();
+        return kind != IrType.Kind.THIS && kind != IrType.Kind.CLASS;
+    }
+
+    private Map<PhiInstr, Var> insertPhis(Dominators dominators) {
+        // Variables read in a block before being written there, the only ones that may need phis
+        var globals = new HashSet<Var>();
+        var defBlocks = new LinkedHashMap<Var, Set<BasicBlock>>();
+
+        for (var block : dominators.getReversePostorder()) {
+            var killed = new HashSet<Var>();
+            for (var instr : block.getInstructions()) {
+                for (var use : instr.getUses()) {
+                    if (isLocal(use) && !killed.contains((Var) use)) {
+                        globals.add((Var) use);
+                    }
+                }
+
+                var def = instr.getDef();
+                if (def != null) {
+                    killed.add(def);
+                    defBlocks.computeIfAbsent(def, unused -> new LinkedHashSet<>()).add(block);
+                }
+            }
+        }
+
+        var phiVars = new HashMap<PhiInstr, Var>();
+        for (var entry : defBlocks.entrySet()) {
+            var variable = entry.getKey();
+            if (!globals.contains(variable)) {
+                continue;
+            }
+
+            var hasPhi = new HashSet<BasicBlock>();
+            var worklist = new ArrayDeque<>(entry.getValue());
+            while (!worklist.isEmpty()) {
+                var block = worklist.poll();
+                for (var frontier : dominators.getDominanceFrontier(block)) {
+                    if (!hasPhi.add(frontier)) {
+                        continue;
+                    }
+
+                    var phi = new PhiInstr(variable);
+                    frontier.getInstructions().add(0, phi);
+                    phiVars.put(phi, variable);
+
+                    // The phi is a new definition of the variable
+                    if (!entry.getValue().contains(frontier)) {
+                        worklist.add(frontier);
+                    }
+                }
+            }
+        }
+
+        return phiVars;
+    }
+
+    private void rename(Dominators dominators, Map<PhiInstr, Var> phiVars) {
+        var versions = new HashMap<Var, Deque<Var>>();
+        UnaryOperator<Value> currentVersion = value -> {
+            if (!isLocal(value)) {
+                return value;
+            }
+            var stack = versions.get((Var) value);
+            return stack == null || stack.isEmpty() ? value : stack.peek();
+        };
+
+        // Iterative walk of the dominator tree, deep trees would overflow the stack otherwise
+        var walk = new ArrayDeque<RenameFrame>();
+        walk.push(new RenameFrame(method.getEntry()));
+
+        while (!walk.isEmpty()) {
+            var frame = walk.peek();
+
+            if (frame.children == null) {
+                var block = frame.block;
+
+                for (var instr : block.getInstructions()) {
+                    if (!(instr instanceof PhiInstr)) {
+                        instr.replaceUses(currentVersion);
+                    }
+
+                    var def = instr.getDef();
+                    if (def != null) {
+                        var version = new Var(method.freshName(def.getName() + "_"), def.getType());
+                        originals.put(version, def);
+                        ((AssignInstr) instr).setDest(version);
+                        versions.computeIfAbsent(def, unused -> new ArrayDeque<>()).push(version);
+                        frame.defined.add(def);
+                    }
+                }
+
+                for (var succ : block.getSuccessors()) {
+                    for (var phi : getPhis(succ)) {
+                        var variable = phiVars.get(phi);
+                        phi.getIncoming().put(block, currentVersion.apply(variable));
+                    }
+                }
+
+                frame.children = dominators.getChildren(block).iterator();
+            }
+
+            if (frame.children.hasNext()) {
+                walk.push(new RenameFrame(frame.children.next()));
+            } else {
+                walk.pop();
+                frame.defined.forEach(variable -> versions.get(variable).pop());
+            }
+        }
+    }
+
+    private static class RenameFrame {
+        private final BasicBlock block;
+        private final List<Var> defined;
+        private Iterator<BasicBlock> children;
+
+        private RenameFrame(BasicBlock block) {
+            this.block = block;
+            this.defined = new ArrayList<>();
+            this.children = null;
+        }
+    }
+}
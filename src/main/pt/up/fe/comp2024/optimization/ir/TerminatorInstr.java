@@ -0,0 +1,29 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+import java.util.List;
+
+/**
+ * An instruction that ends a basic block and transfers control.
+ */
+public abstract class TerminatorInstr extends Instr {
+
+    /**
+     * @return the blocks control may be transferred to, in order
+     */
+    public abstract List<BasicBlock> getTargets();
+
+    /**
+     * Redirects every edge to oldTarget so that it points to newTarget.
+     */
+    public abstract void replaceTarget(BasicBlock oldTarget, BasicBlock newTarget);
+
+    @Override
+    public boolean isTerminator() {
+        return true;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * An operand of an IR instruction: either a variable or a constant.
+ */
+public abstract class Value {
+
+    private final IrType type;
+
+    protected Value(IrType type) {
+        this.type = type;
+    }
+
+    public IrType getType() {
+        return type;
+    }
+
+    public boolean isConstant() {
+        return false;
+    }
+
+    public abstract String toOllir();
+
+    @Override
+    public String toString() {
+        return toOllir();
+    }
+}
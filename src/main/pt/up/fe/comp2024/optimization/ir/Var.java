@@ -0,0 +1,41 @@
+package pt.up.fe.comp2024.optimization.ir;
+
+/**
+ * A named variable (local, parameter, temporary, 'this' or a class name used as a static receiver).
+ * <p>
+ * Variables are identified by their name, since OLLIR does not allow two variables with the same name in a method.
+ */
+public class Var extends Value {
+
+    private final String name;
+
+    public Var(String name, IrType type) {
+        super(type);
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toOllir() {
+        return switch (getType().getKind()) {
+            case THIS -> "this";
+            case CLASS -> name;
+            default -> name + getType().toOllir();
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Var other)) return false;
+        return name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
@@ -0,0 +1,270 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.*;
+
+/**
+ * Orders the blocks of a method so that the likely successor of each block comes right after it, and the jump to it
+ * becomes a fall-through.
+ * <p>
+ * Branches are predicted from the profile, when the counts of the blocks tell how often each side ran, and a side that
+ * never ran is moved out of the way like an unlikely return. Otherwise, static heuristics are tried in order: a branch
+ * inside a loop stays in it, an early return or a call on only one side (printing an error, typically) is unlikely,
+ * entering a loop is likely, and a comparison for equality with a constant, or for being below zero, fails. Each edge
+ * is weighted by the probability of its branch and by the loop depth of its source, and edges are laid out as
+ * fall-throughs from the heaviest down, chaining blocks together (Pettis-Hansen). The chain of the entry goes first,
+ * and chains that start with an unlikely return or call go last, out of the way of the hot code. Ties keep the original
+ * order of the blocks.
+ * <p>
+ * A comparison whose likely target is its true target is inverted, so that it falls through to it. Other conditions
+ * cannot be negated in OLLIR, so only their false target can follow them.
+ */
+public class BlockLayout implements OptimizationPass {
+
+    private static final double LIKELY = 0.8;
+    private static final double LOOP_FREQUENCY = 10;
+
+    private record Edge(BasicBlock from, BasicBlock to, double weight) {
+    }
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        var blocks = method.getBlocks();
+        if (blocks.size() < 2) {
+            return false;
+        }
+
+        method.buildCFG();
+        var loops = Loop.findLoops(method, new Dominators(method));
+
+        var index = new HashMap<BasicBlock, Integer>();
+        for (int i = 0; i < blocks.size(); i++) {
+            index.put(blocks.get(i), i);
+        }
+
+        var edges = new ArrayList<Edge>();
+        var cold = new HashSet<BasicBlock>();
+        for (var block : blocks) {
+            double frequency = Math.pow(LOOP_FREQUENCY, loops.stream().filter(loop -> loop.contains(block)).count());
+
+            var terminator = block.getTerminator();
+            if (terminator instanceof JumpInstr jump) {
+                edges.add(new Edge(block, jump.getTarget(), frequency));
+            } else if (terminator instanceof BranchInstr branch && branch.getTrueTarget() != branch.getFalseTarget()) {
+                var likely = predict(block, branch, loops, cold);
+                double trueProbability = likely == null ? 0.5 : likely == branch.getTrueTarget() ? LIKELY : 1 - LIKELY;
+
+                if (branch.canInvert()) {
+                    edges.add(new Edge(block, branch.getTrueTarget(), frequency * trueProbability));
+                }
+                edges.add(new Edge(block, branch.getFalseTarget(), frequency * (1 - trueProbability)));
+            }
+        }
+
+        // Heaviest first; among equals, edges that already fall through, then in the original order
+        edges.sort(Comparator.comparingDouble((Edge edge) -> -edge.weight())
+                .thenComparing(edge -> index.get(edge.to()) != index.get(edge.from()) + 1)
+                .thenComparing(edge -> index.get(edge.from())));
+
+        var chains = buildChains(method, edges);
+
+        var layout = new ArrayList<BasicBlock>(chains.get(method.getEntry()));
+        chains.values().stream()
+                .distinct()
+                .filter(chain -> chain.get(0) != method.getEntry())
+                .sorted(Comparator.comparing((List<BasicBlock> chain) -> cold.contains(chain.get(0)))
+                        .thenComparing(chain -> index.get(chain.get(0))))
+                .forEach(layout::addAll);
+
+        boolean changed = !layout.equals(blocks);
+        blocks.clear();
+        blocks.addAll(layout);
+
+        changed |= invertBranches(blocks);
+        return changed;
+    }
+
+    /**
+     * Links the blocks along the given edges, in order, whenever the source ends a chain and the target starts another.
+     *
+     * @return for each block, the chain that contains it
+     */
+    private Map<BasicBlock, List<BasicBlock>> buildChains(IrMethod method, List<Edge> edges) {
+        var chains = new LinkedHashMap<BasicBlock, List<BasicBlock>>();
+        for (var block : method.getBlocks()) {
+            chains.put(block, new ArrayList<>(List.of(block)));
+        }
+
+        for (var edge : edges) {
+            var from = chains.get(edge.from());
+            var to = chains.get(edge.to());
+
+            if (from == to || from.get(from.size() - 1) != edge.from() || to.get(0) != edge.to()
+                    || edge.to() == method.getEntry()) {
+                continue;
+            }
+
+            from.addAll(to);
+            to.forEach(block -> chains.put(block, from));
+        }
+
+        return chains;
+    }
+
+    /**
+     * Makes every comparison that is followed by its true target fall through to it instead.
+     */
+    private boolean invertBranches(List<BasicBlock> blocks) {
+        boolean changed = false;
+
+        for (int i = 0; i + 1 < blocks.size(); i++) {
+            var next = blocks.get(i + 1);
+            if (blocks.get(i).getTerminator() instanceof BranchInstr branch && branch.canInvert()
+                    && branch.getTrueTarget() == next && branch.getFalseTarget() != next) {
+                blocks.get(i).setTerminator(branch.invert());
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @param cold receives the target that an early return, a call or the profile makes unlikely
+     * @return the target the branch most likely goes to, or null if no heuristic applies
+     */
+    private BasicBlock predict(BasicBlock block, BranchInstr branch, List<Loop> loops, Set<BasicBlock> cold) {
+        var trueTarget = branch.getTrueTarget();
+        var falseTarget = branch.getFalseTarget();
+
+        var profiled = predictFromProfile(block, branch, cold);
+        if (profiled != null) {
+            return profiled;
+        }
+
+        var unlikely = onlyOne(isRare(trueTarget, block), isRare(falseTarget, block), branch);
+        var likely = unlikely == null ? null : unlikely == trueTarget ? falseTarget : trueTarget;
+
+        // Loops are sorted from the innermost
+        var loop = loops.stream().filter(candidate -> candidate.contains(block)).findFirst();
+        if (loop.isPresent()) {
+            var staysInLoop = onlyOne(loop.get().contains(trueTarget), loop.get().contains(falseTarget), branch);
+            if (staysInLoop != null) {
+                if (unlikely != null && staysInLoop != unlikely) {
+                    cold.add(unlikely);
+                }
+                return staysInLoop;
+            }
+        }
+
+        if (likely != null) {
+            cold.add(unlikely);
+            return likely;
+        }
+
+        var entersLoop = onlyOne(entersLoop(trueTarget, block, loops), entersLoop(falseTarget, block, loops), branch);
+        if (entersLoop != null) {
+            return entersLoop;
+        }
+
+        return predictComparison(branch);
+    }
+
+    /**
+     * @param cold receives the target that never ran
+     * @return the target the branch went to more often in the profile, or null if the counts do not tell
+     */
+    private BasicBlock predictFromProfile(BasicBlock block, BranchInstr branch, Set<BasicBlock> cold) {
+        long trueCount = getEdgeCount(block, branch.getTrueTarget());
+        long falseCount = getEdgeCount(block, branch.getFalseTarget());
+
+        // The count of the block is split between its two targets
+        long blockCount = block.getProfileCount();
+        if (trueCount < 0 && falseCount >= 0 && blockCount >= falseCount) {
+            trueCount = blockCount - falseCount;
+        } else if (falseCount < 0 && trueCount >= 0 && blockCount >= trueCount) {
+            falseCount = blockCount - trueCount;
+        }
+
+        if (trueCount < 0 || falseCount < 0 || trueCount == falseCount) {
+            return null;
+        }
+
+        var likely = trueCount > falseCount ? branch.getTrueTarget() : branch.getFalseTarget();
+        var unlikely = likely == branch.getTrueTarget() ? branch.getFalseTarget() : branch.getTrueTarget();
+        if (Math.min(trueCount, falseCount) == 0) {
+            cold.add(unlikely);
+        }
+
+        return likely;
+    }
+
+    /**
+     * @return how many times the edge ran in the profile, known when the target is only reached from the block
+     */
+    private long getEdgeCount(BasicBlock block, BasicBlock target) {
+        boolean onlyFromBlock = target.getPredecessors().size() == 1 && target.getPredecessors().get(0) == block;
+        return onlyFromBlock ? target.getProfileCount() : -1;
+    }
+
+    /**
+     * @return true if the target is only reached from the block and returns or calls a method
+     */
+    private boolean isRare(BasicBlock target, BasicBlock block) {
+        if (target.getPredecessors().size() != 1 || target.getPredecessors().get(0) != block) {
+            return false;
+        }
+
+        return target.getTerminator() instanceof ReturnInstr
+                || target.getBody().stream().anyMatch(CallInstr.class::isInstance);
+    }
+
+    /**
+     * @return true if the target is the header of a loop that does not contain the block, or jumps straight to one
+     */
+    private boolean entersLoop(BasicBlock target, BasicBlock block, List<Loop> loops) {
+        var header = target;
+        if (target.getBody().isEmpty() && target.getTerminator() instanceof JumpInstr jump) {
+            header = jump.getTarget();
+        }
+
+        for (var loop : loops) {
+            if (loop.getHeader() == header && !loop.contains(block)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the likely target when the branch compares for equality with a constant, or against zero
+     */
+    private BasicBlock predictComparison(BranchInstr branch) {
+        if (branch.getOp() == null || !(branch.getRhs() instanceof Const constant)) {
+            return null;
+        }
+
+        boolean isZero = constant.getValue() == 0;
+        return switch (branch.getOp()) {
+            case EQ -> branch.getFalseTarget();
+            case NEQ -> branch.getTrueTarget();
+            case LTH, LTE -> isZero ? branch.getFalseTarget() : null;
+            case GTH, GTE -> isZero ? branch.getTrueTarget() : null;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the target for which the property holds, if it holds for exactly one of them
+     */
+    private BasicBlock onlyOne(boolean forTrueTarget, boolean forFalseTarget, BranchInstr branch) {
+        if (forTrueTarget == forFalseTarget) {
+            return null;
+        }
+
+        return forTrueTarget ? branch.getTrueTarget() : branch.getFalseTarget();
+    }
+}
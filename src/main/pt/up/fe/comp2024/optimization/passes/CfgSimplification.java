@@ -0,0 +1,104 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashSet;
+
+/**
+ * Cleans up the control-flow graph: removes unreachable blocks, threads jumps through empty blocks, turns branches
+ * with a single destination into jumps and merges blocks that are always executed one after the other.
+ */
+public class CfgSimplification implements OptimizationPass {
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        boolean changed = false;
+
+        boolean iterate = true;
+        while (iterate) {
+            iterate = method.removeUnreachableBlocks();
+            iterate |= simplifyBranches(method);
+            iterate |= threadJumps(method);
+            iterate |= mergeBlocks(method);
+
+            changed |= iterate;
+        }
+
+        return changed;
+    }
+
+    private boolean simplifyBranches(IrMethod method) {
+        boolean changed = false;
+
+        for (var block : method.getBlocks()) {
+            if (block.getTerminator() instanceof BranchInstr branch && branch.getTrueTarget() == branch.getFalseTarget()) {
+                block.setTerminator(new JumpInstr(branch.getTrueTarget()));
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean threadJumps(IrMethod method) {
+        boolean changed = false;
+
+        for (var block : method.getBlocks()) {
+            var terminator = block.getTerminator();
+            for (var target : terminator.getTargets()) {
+                var destination = skipEmptyBlocks(target);
+                if (destination != target) {
+                    terminator.replaceTarget(target, destination);
+                    changed = true;
+                }
+            }
+        }
+
+        if (changed) {
+            method.buildCFG();
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the first block reached from the given one that does more than jumping somewhere else
+     */
+    private BasicBlock skipEmptyBlocks(BasicBlock block) {
+        var visited = new HashSet<BasicBlock>();
+
+        while (block.getBody().isEmpty() && block.getTerminator() instanceof JumpInstr jump && visited.add(block)) {
+            block = jump.getTarget();
+        }
+
+        return block;
+    }
+
+    private boolean mergeBlocks(IrMethod method) {
+        boolean changed = false;
+
+        method.buildCFG();
+        for (int i = 0; i < method.getBlocks().size(); i++) {
+            var block = method.getBlocks().get(i);
+
+            while (block.getTerminator() instanceof JumpInstr jump) {
+                var next = jump.getTarget();
+                if (next == block || next == method.getEntry() || next.getPredecessors().size() != 1) {
+                    break;
+                }
+
+                // The successor only runs after this block, so both become a single block
+                block.getInstructions().remove(block.getInstructions().size() - 1);
+                block.getInstructions().addAll(next.getInstructions());
+                method.getBlocks().remove(next);
+                for (var succ : next.getSuccessors()) {
+                    succ.getPredecessors().replaceAll(pred -> pred == next ? block : pred);
+                }
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+}
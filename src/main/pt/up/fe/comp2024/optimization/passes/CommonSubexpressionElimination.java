@@ -0,0 +1,165 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.*;
+
+/**
+ * Global common subexpression elimination, based on an available expressions analysis.
+ * <p>
+ * An expression (arithmetic, array read, array length or field read) is available at a point if it was computed on
+ * every path reaching it and the variable holding the result was not overwritten since. Recomputing an available
+ * expression is replaced by a copy of that variable; {@link CopyPropagation} and {@link DeadCodeElimination} then
+ * remove the copy.
+ * <p>
+ * Memory reads are invalidated conservatively: any array store kills every array read, a putfield kills the reads of
+ * the same field on any object, and a call kills the reads of whatever it may write according to {@link SideEffects}.
+ */
+public class CommonSubexpressionElimination implements OptimizationPass {
+
+    /**
+     * The operation and operands of an expression, with commutative operands in a canonical order.
+     */
+    private record Expression(String operation, List<Value> operands) {
+
+        private boolean isArrayRead() {
+            return operation.equals("[]");
+        }
+
+        private String getReadField() {
+            return operation.startsWith("getfield ") ? operation.substring("getfield ".length()) : null;
+        }
+    }
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        var sideEffects = new SideEffects(irClass);
+        var availableIn = computeAvailableIn(method, sideEffects);
+
+        boolean changed = false;
+        for (var block : method.getBlocks()) {
+            var available = availableIn.get(block);
+            if (available == null) {
+                continue;
+            }
+            available = new HashMap<>(available);
+
+            var body = block.getBody();
+            for (int i = 0; i < body.size(); i++) {
+                var instr = body.get(i);
+                var expression = toExpression(instr);
+
+                if (expression != null) {
+                    var holder = available.get(expression);
+                    if (holder != null && !holder.equals(instr.getDef())) {
+                        body.set(i, new CopyInstr(instr.getDef(), holder));
+                        changed = true;
+                    }
+                }
+
+                transfer(instr, expression, available, sideEffects);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the expressions available at the start of each reachable block, with the variable holding each one
+     */
+    private Map<BasicBlock, Map<Expression, Var>> computeAvailableIn(IrMethod method, SideEffects sideEffects) {
+        var reversePostorder = new Dominators(method).getReversePostorder();
+
+        // A missing entry stands for "every expression", the starting point of a must analysis
+        var availableIn = new HashMap<BasicBlock, Map<Expression, Var>>();
+        var availableOut = new HashMap<BasicBlock, Map<Expression, Var>>();
+        availableIn.put(method.getEntry(), new HashMap<>());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var block : reversePostorder) {
+                if (block != method.getEntry()) {
+                    Map<Expression, Var> in = null;
+                    for (var pred : block.getPredecessors()) {
+                        var predOut = availableOut.get(pred);
+                        if (predOut == null) {
+                            continue;
+                        }
+                        if (in == null) {
+                            in = new HashMap<>(predOut);
+                        } else {
+                            // Only the expressions held by the same variable on every path are still available
+                            in.entrySet().retainAll(predOut.entrySet());
+                        }
+                    }
+                    availableIn.put(block, in == null ? new HashMap<>() : in);
+                }
+
+                var out = new HashMap<>(availableIn.get(block));
+                for (var instr : block.getInstructions()) {
+                    transfer(instr, toExpression(instr), out, sideEffects);
+                }
+
+                if (!out.equals(availableOut.get(block))) {
+                    availableOut.put(block, out);
+                    changed = true;
+                }
+            }
+        }
+
+        return availableIn;
+    }
+
+    private void transfer(Instr instr, Expression expression, Map<Expression, Var> available, SideEffects sideEffects) {
+        // Memory written by the instruction
+        if (sideEffects.mayWriteArrays(instr)) {
+            available.keySet().removeIf(Expression::isArrayRead);
+        }
+        available.keySet().removeIf(candidate -> candidate.getReadField() != null
+                && sideEffects.mayWriteField(instr, candidate.getReadField()));
+
+        // Expressions that depend on, or are held by, the overwritten variable
+        var def = instr.getDef();
+        if (def != null) {
+            available.entrySet().removeIf(entry -> entry.getValue().equals(def) || entry.getKey().operands().contains(def));
+        }
+
+        if (expression != null && !expression.operands().contains(def)) {
+            available.putIfAbsent(expression, def);
+        }
+    }
+
+    private Expression toExpression(Instr instr) {
+        if (instr.getDef() == null) {
+            return null;
+        }
+
+        if (instr instanceof BinaryInstr binary) {
+            var operands = new ArrayList<>(List.of(binary.getLhs(), binary.getRhs()));
+            if (binary.getOp().isCommutative()) {
+                operands.sort(Comparator.comparing(Value::toOllir));
+            }
+            return new Expression(binary.getOp().name(), operands);
+        }
+
+        if (instr instanceof NotInstr not) {
+            return new Expression("!", List.of(not.getOperand()));
+        }
+
+        if (instr instanceof ArrayLoadInstr arrayLoad) {
+            return new Expression("[]", List.of(arrayLoad.getArray(), arrayLoad.getIndex()));
+        }
+
+        if (instr instanceof ArrayLengthInstr arrayLength) {
+            return new Expression("arraylength", List.of(arrayLength.getArray()));
+        }
+
+        if (instr instanceof GetFieldInstr getField) {
+            return new Expression("getfield " + getField.getField().getName(), List.of(getField.getObject()));
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,142 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.*;
+
+/**
+ * Builds arrays of constants that are only read once, before the loops that use them, instead of on every iteration.
+ * This is the code generated for varargs calls with constant arguments, such as this.sum(1, 2, 3) inside a loop.
+ * <p>
+ * An array qualifies when its variable is written only by new(array, n) with a constant n, followed in the same block
+ * by stores of constants at constant indexes, and is otherwise only read: by array loads and lengths, or as an argument
+ * of a method of this class that only reads the matching parameter. Since the contents never change and no reference
+ * to the array outlives the reads, every iteration can share a single array, built in the preheader of the outermost
+ * loop. Its creation and stores cannot throw, so running them before the loop is always safe.
+ */
+public class ConstantArrayHoisting implements OptimizationPass {
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        var loops = Loop.findLoops(method, new Dominators(method));
+        if (loops.isEmpty()) {
+            return false;
+        }
+
+        var defs = new HashMap<Var, List<Instr>>();
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstructions()) {
+                if (instr.getDef() != null) {
+                    defs.computeIfAbsent(instr.getDef(), def -> new ArrayList<>()).add(instr);
+                }
+            }
+        }
+
+        boolean changed = false;
+        for (var block : List.copyOf(method.getBlocks())) {
+            // Loops are sorted from the innermost, so the last one that contains the block is the outermost
+            var outermost = loops.stream().filter(loop -> loop.contains(block)).reduce((inner, outer) -> outer);
+            if (outermost.isEmpty()) {
+                continue;
+            }
+
+            for (var instr : List.copyOf(block.getInstructions())) {
+                if (!(instr instanceof NewArrayInstr newArray) || defs.get(newArray.getDef()).size() != 1) {
+                    continue;
+                }
+
+                var initialization = getInitialization(newArray, block, method, irClass);
+                if (initialization.isEmpty()) {
+                    continue;
+                }
+
+                var preheader = outermost.get().getOrCreatePreheader(method);
+                block.getInstructions().removeAll(initialization.get());
+                initialization.get().forEach(preheader::append);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the creation of the array followed by the stores that fill it, if the array is constant and only read
+     */
+    private Optional<List<Instr>> getInitialization(NewArrayInstr newArray, BasicBlock block, IrMethod method,
+                                                   IrClass irClass) {
+        if (!(newArray.getSize() instanceof Const size) || size.getValue() < 0) {
+            return Optional.empty();
+        }
+
+        var array = newArray.getDef();
+        var initialization = new ArrayList<Instr>();
+        initialization.add(newArray);
+
+        // The stores must come right after the creation, before anything reads the array
+        var instructions = block.getInstructions();
+        for (var instr : instructions.subList(instructions.indexOf(newArray) + 1, instructions.size())) {
+            if (!(instr instanceof ArrayStoreInstr store) || !store.getArray().equals(array)) {
+                break;
+            }
+            if (!(store.getIndex() instanceof Const index) || index.getValue() < 0 || index.getValue() >= size.getValue()
+                    || !(store.getValue() instanceof Const)) {
+                return Optional.empty();
+            }
+            initialization.add(store);
+        }
+
+        for (var otherBlock : method.getBlocks()) {
+            for (var instr : otherBlock.getInstructions()) {
+                if (!initialization.contains(instr) && instr.getUses().contains(array)
+                        && !onlyReads(instr, array, method, irClass)) {
+                    return Optional.empty();
+                }
+            }
+        }
+
+        return Optional.of(initialization);
+    }
+
+    /**
+     * @return true if the instruction reads the contents of the array, without changing them or keeping a reference
+     */
+    private boolean onlyReads(Instr instr, Var array, IrMethod method, IrClass irClass) {
+        if (instr instanceof ArrayLoadInstr load) {
+            return !load.getIndex().equals(array);
+        }
+
+        if (instr instanceof ArrayLengthInstr) {
+            return true;
+        }
+
+        if (instr instanceof CallInstr call && !call.getReceiver().equals(array)) {
+            var callee = irClass.getCallee(call, method);
+            if (callee.isEmpty()) {
+                return false;
+            }
+
+            var arguments = call.getArguments();
+            for (int i = 0; i < arguments.size(); i++) {
+                if (arguments.get(i).equals(array) && !isReadOnly(callee.get().getParams().get(i), callee.get())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if the method never writes the parameter, nor its contents, nor passes it anywhere
+     */
+    private boolean isReadOnly(Var param, IrMethod method) {
+        return method.getBlocks().stream()
+                .flatMap(block -> block.getInstructions().stream())
+                .allMatch(instr -> !param.equals(instr.getDef()) && (!instr.getUses().contains(param)
+                        || (instr instanceof ArrayLoadInstr load && !load.getIndex().equals(param))
+                        || instr instanceof ArrayLengthInstr));
+    }
+}
@@ -0,0 +1,100 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Global copy propagation, based on an available copies analysis.
+ * <p>
+ * After dest := src, reads of dest are replaced by src for as long as neither variable is written again on every path.
+ * The copies that become useless are left for {@link DeadCodeElimination}.
+ */
+public class CopyPropagation implements OptimizationPass {
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        var copiesIn = computeCopiesIn(method);
+
+        boolean changed = false;
+        for (var block : method.getBlocks()) {
+            var copies = copiesIn.get(block);
+            if (copies == null) {
+                continue;
+            }
+            copies = new HashMap<>(copies);
+
+            for (var instr : block.getInstructions()) {
+                var uses = instr.getUses();
+                var available = copies;
+                instr.replaceUses(value -> value instanceof Var variable ? available.getOrDefault(variable, value) : value);
+                changed |= !uses.equals(instr.getUses());
+
+                transfer(instr, copies);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return for each reachable block, the copies dest := src valid at its start, as a map from dest to src
+     */
+    private Map<BasicBlock, Map<Var, Value>> computeCopiesIn(IrMethod method) {
+        var reversePostorder = new Dominators(method).getReversePostorder();
+
+        var copiesIn = new HashMap<BasicBlock, Map<Var, Value>>();
+        var copiesOut = new HashMap<BasicBlock, Map<Var, Value>>();
+        copiesIn.put(method.getEntry(), new HashMap<>());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (var block : reversePostorder) {
+                if (block != method.getEntry()) {
+                    Map<Var, Value> in = null;
+                    for (var pred : block.getPredecessors()) {
+                        var predOut = copiesOut.get(pred);
+                        if (predOut == null) {
+                            continue;
+                        }
+                        if (in == null) {
+                            in = new HashMap<>(predOut);
+                        } else {
+                            in.entrySet().retainAll(predOut.entrySet());
+                        }
+                    }
+                    copiesIn.put(block, in == null ? new HashMap<>() : in);
+                }
+
+                var out = new HashMap<>(copiesIn.get(block));
+                for (var instr : block.getInstructions()) {
+                    transfer(instr, out);
+                }
+
+                if (!out.equals(copiesOut.get(block))) {
+                    copiesOut.put(block, out);
+                    changed = true;
+                }
+            }
+        }
+
+        return copiesIn;
+    }
+
+    private void transfer(Instr instr, Map<Var, Value> copies) {
+        var def = instr.getDef();
+        if (def == null) {
+            return;
+        }
+
+        copies.entrySet().removeIf(entry -> entry.getKey().equals(def) || entry.getValue().equals(def));
+
+        if (instr instanceof CopyInstr copy && !copy.getSrc().equals(def)) {
+            // The source was already replaced by its own copy source, so chains of copies collapse
+            copies.put(def, copy.getSrc());
+        }
+    }
+}
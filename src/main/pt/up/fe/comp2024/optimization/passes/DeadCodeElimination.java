@@ -0,0 +1,49 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.HashSet;
+
+/**
+ * Removes instructions whose result is never read, as long as they have no side effects and cannot throw.
+ */
+public class DeadCodeElimination implements OptimizationPass {
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        boolean changed = false;
+
+        // Removing an instruction may make the ones computing its operands dead as well
+        boolean iterate = true;
+        while (iterate) {
+            iterate = false;
+
+            var liveness = new Liveness(method);
+            for (var block : method.getBlocks()) {
+                var live = new HashSet<>(liveness.getLiveOut(block));
+                var instructions = block.getInstructions();
+
+                for (int i = instructions.size() - 1; i >= 0; i--) {
+                    var instr = instructions.get(i);
+                    var def = instr.getDef();
+
+                    if (def != null && !live.contains(def) && !instr.hasSideEffects() && !instr.canThrow()) {
+                        instructions.remove(i);
+                        iterate = true;
+                        continue;
+                    }
+
+                    if (def != null) {
+                        live.remove(def);
+                    }
+                    live.addAll(Liveness.localUses(instr));
+                }
+            }
+
+            changed |= iterate;
+        }
+
+        return changed;
+    }
+}
@@ -0,0 +1,217 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.*;
+
+/**
+ * Keeps the fields of this in local variables, so that they are not read from and written to the object every time.
+ * <p>
+ * Inside a block, a read of this.f after a write to it, or after another read, takes the value that was written or
+ * read, and a write followed by another write to the same field, with nothing that may read it in between, is removed.
+ * Calls that may read the field keep the write in front of them, and calls that may write it discard the known value.
+ * <p>
+ * A field that is written in a loop lives in a local variable for the whole loop: it is read once in the preheader,
+ * its reads and writes in the loop become copies, and it is written back when the loop is left. Loops with calls that
+ * may read or write the field, or with accesses to the field through other objects of the class, which may be this,
+ * are left alone. Fields that are only read in a loop are already hoisted by {@link LoopInvariantCodeMotion}.
+ * <p>
+ * Writes are delayed past instructions that may throw. Since Java-- cannot catch exceptions, an exception ends the
+ * program, and the delayed value can never be observed.
+ */
+public class FieldScalarReplacement implements OptimizationPass {
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        if (method.isStatic()) {
+            return false;
+        }
+
+        var sideEffects = new SideEffects(irClass);
+
+        boolean changed = promoteInLoops(method, sideEffects);
+        for (var block : method.getBlocks()) {
+            changed |= forwardInBlock(block, sideEffects);
+        }
+
+        return changed;
+    }
+
+    private boolean promoteInLoops(IrMethod method, SideEffects sideEffects) {
+        boolean changed = false;
+
+        // Each promotion adds blocks, so loops are found again after it
+        boolean found = true;
+        while (found) {
+            found = false;
+            var loops = Loop.findLoops(method, new Dominators(method));
+
+            // Outer loops first, so that a field stays in a local across as many iterations as possible
+            for (int i = loops.size() - 1; i >= 0 && !found; i--) {
+                var loop = loops.get(i);
+                var promotable = getPromotableFields(loop, sideEffects);
+                if (!promotable.isEmpty()) {
+                    promotable.forEach(write -> promote(loop, write.getObject(), write.getField(), method));
+                    found = true;
+                    changed = true;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return for each field of this that can be kept in a local variable during the loop, one of its writes
+     */
+    private Collection<PutFieldInstr> getPromotableFields(Loop loop, SideEffects sideEffects) {
+        var instructions = loop.getBlocks().stream()
+                .flatMap(block -> block.getInstructions().stream())
+                .toList();
+        if (instructions.stream().anyMatch(PhiInstr.class::isInstance)) {
+            return List.of();
+        }
+
+        var writes = new LinkedHashMap<String, PutFieldInstr>();
+        for (var instr : instructions) {
+            if (instr instanceof PutFieldInstr putField && isThis(putField.getObject())) {
+                writes.putIfAbsent(putField.getField().getName(), putField);
+            }
+        }
+
+        writes.keySet().removeIf(field -> instructions.stream()
+                .anyMatch(instr -> blocksPromotion(instr, field, sideEffects)));
+
+        return writes.values();
+    }
+
+    /**
+     * @return true if the instruction may access the field other than through this
+     */
+    private boolean blocksPromotion(Instr instr, String field, SideEffects sideEffects) {
+        if (instr instanceof GetFieldInstr getField) {
+            return getField.getField().getName().equals(field) && !isThis(getField.getObject());
+        }
+        if (instr instanceof PutFieldInstr putField) {
+            return putField.getField().getName().equals(field) && !isThis(putField.getObject());
+        }
+        if (instr instanceof CallInstr call) {
+            return sideEffects.mayReadField(call, field) || sideEffects.mayWriteField(call, field);
+        }
+        return false;
+    }
+
+    private void promote(Loop loop, Value self, Var field, IrMethod method) {
+        var cache = method.newTemp(field.getType());
+        loop.getOrCreatePreheader(method).append(new GetFieldInstr(cache, self, field));
+
+        for (var block : loop.getBlocks()) {
+            var instructions = block.getInstructions();
+            for (int i = 0; i < instructions.size(); i++) {
+                var instr = instructions.get(i);
+                if (instr instanceof GetFieldInstr getField && getField.getField().equals(field)) {
+                    instructions.set(i, new CopyInstr(getField.getDef(), cache));
+                } else if (instr instanceof PutFieldInstr putField && putField.getField().equals(field)) {
+                    instructions.set(i, new CopyInstr(cache, putField.getValue()));
+                } else if (instr instanceof ReturnInstr) {
+                    instructions.add(i++, new PutFieldInstr(self, field, cache));
+                }
+            }
+        }
+
+        writeBackAtExits(loop, new PutFieldInstr(self, field, cache), method);
+    }
+
+    /**
+     * Adds the write to every edge that leaves the loop: at the start of its target when every edge into the target
+     * leaves the loop, and in a new block on the edge otherwise.
+     */
+    private void writeBackAtExits(Loop loop, PutFieldInstr writeBack, IrMethod method) {
+        var blocks = method.getBlocks();
+
+        for (var exit : loop.getExitTargets()) {
+            var sources = exit.getPredecessors().stream().filter(loop::contains).toList();
+            if (sources.size() == exit.getPredecessors().size()) {
+                exit.getInstructions().add(0, writeBack.copy());
+                continue;
+            }
+
+            for (var source : sources) {
+                var edge = method.newBlock("writeback_");
+                edge.append(writeBack.copy());
+                edge.setTerminator(new JumpInstr(exit));
+                source.getTerminator().replaceTarget(exit, edge);
+                blocks.add(blocks.indexOf(exit), edge);
+            }
+        }
+
+        method.buildCFG();
+    }
+
+    /**
+     * Replaces reads of fields of this whose value is known in the block by copies, and removes writes that are
+     * overwritten before anything may read them.
+     */
+    private boolean forwardInBlock(BasicBlock block, SideEffects sideEffects) {
+        boolean changed = false;
+
+        // For each field, the value it holds and the last write that nothing may have read yet
+        var known = new HashMap<String, Value>();
+        var pending = new HashMap<String, PutFieldInstr>();
+
+        var instructions = block.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            var instr = instructions.get(i);
+
+            if (instr instanceof GetFieldInstr getField) {
+                var field = getField.getField().getName();
+                if (!isThis(getField.getObject())) {
+                    pending.remove(field);
+                } else if (known.containsKey(field)) {
+                    instr = new CopyInstr(getField.getDef(), known.get(field));
+                    instructions.set(i, instr);
+                    changed = true;
+                } else {
+                    // The value is recorded once the destination is written, below
+                    pending.remove(field);
+                }
+            } else if (instr instanceof PutFieldInstr putField) {
+                var field = putField.getField().getName();
+                if (!isThis(putField.getObject())) {
+                    known.remove(field);
+                    pending.remove(field);
+                    continue;
+                }
+
+                var overwritten = pending.put(field, putField);
+                if (overwritten != null) {
+                    instructions.remove(overwritten);
+                    i--;
+                    changed = true;
+                }
+                known.put(field, putField.getValue());
+                continue;
+            } else if (instr instanceof CallInstr call) {
+                known.keySet().removeIf(field -> sideEffects.mayWriteField(call, field));
+                pending.keySet().removeIf(field -> sideEffects.mayReadField(call, field)
+                        || sideEffects.mayWriteField(call, field));
+            }
+
+            // A value held in a variable is no longer known once the variable changes
+            var def = instr.getDef();
+            if (def != null) {
+                known.values().removeIf(def::equals);
+                if (instr instanceof GetFieldInstr getField && isThis(getField.getObject())) {
+                    known.put(getField.getField().getName(), def);
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean isThis(Value value) {
+        return value.getType().getKind() == IrType.Kind.THIS;
+    }
+}
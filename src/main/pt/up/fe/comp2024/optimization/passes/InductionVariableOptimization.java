@@ -0,0 +1,147 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.*;
+
+/**
+ * Strength reduction of induction variables, and removal of the ones that are no longer read.
+ * <p>
+ * A basic induction variable i is written exactly once in the loop, by i := i + c (or i := t after t := i + c, the
+ * shape generated for i = i + c when i + c is also used elsewhere), with c a constant. A multiplication j := i * k by a
+ * loop invariant k then follows i with a new variable s: s := i * k is computed in the preheader, s := s + c * k is
+ * added right after every update of i, and the multiplication becomes the copy j := s. The equality s == i * k also
+ * holds when the values overflow, since both sides wrap around in the same way.
+ * <p>
+ * Basic induction variables that are only read by their own updates and are dead once the loop exits are removed,
+ * which {@link DeadCodeElimination} cannot do because each update keeps the previous one live.
+ */
+public class InductionVariableOptimization implements OptimizationPass {
+
+    /**
+     * A multiplication of a basic induction variable by a loop invariant factor.
+     */
+    private record Product(Var variable, Value factor) {
+    }
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        var loops = Loop.findLoops(method, new Dominators(method));
+
+        boolean changed = false;
+        for (var loop : loops) {
+            changed |= reduceMultiplications(loop, loops, method);
+        }
+        for (var loop : loops) {
+            changed |= removeDeadInductions(loop, method);
+        }
+
+        return changed;
+    }
+
+    private boolean reduceMultiplications(Loop loop, List<Loop> loops, IrMethod method) {
+        var defs = loop.getDefs();
+        var inductions = InductionVariable.findBasic(loop);
+        if (inductions.isEmpty()) {
+            return false;
+        }
+
+        var products = new LinkedHashMap<Product, List<BinaryInstr>>();
+        for (var block : loop.getBlocks()) {
+            for (var instr : block.getBody()) {
+                if (!(instr instanceof BinaryInstr binary) || binary.getOp() != BinaryOp.MUL) {
+                    continue;
+                }
+
+                if (binary.getLhs() instanceof Var lhs && inductions.containsKey(lhs) && isInvariant(binary.getRhs(), defs)) {
+                    products.computeIfAbsent(new Product(lhs, binary.getRhs()), product -> new ArrayList<>()).add(binary);
+                } else if (binary.getRhs() instanceof Var rhs && inductions.containsKey(rhs) && isInvariant(binary.getLhs(), defs)) {
+                    products.computeIfAbsent(new Product(rhs, binary.getLhs()), product -> new ArrayList<>()).add(binary);
+                }
+            }
+        }
+
+        if (products.isEmpty()) {
+            return false;
+        }
+
+        var preheader = loop.getOrCreatePreheader(method);
+        for (var outer : loops) {
+            if (outer != loop && outer.contains(loop.getHeader())) {
+                outer.getBlocks().add(preheader);
+            }
+        }
+
+        for (var entry : products.entrySet()) {
+            var product = entry.getKey();
+            var induction = inductions.get(product.variable());
+
+            var reduced = method.newTemp(IrType.INT);
+            preheader.append(new BinaryInstr(reduced, BinaryOp.MUL, product.variable(), product.factor()));
+
+            Value step;
+            if (product.factor() instanceof Const factor) {
+                step = Const.ofInt(induction.getStep() * factor.getValue());
+            } else if (induction.getStep() == 1) {
+                step = product.factor();
+            } else {
+                step = method.newTemp(IrType.INT);
+                preheader.append(new BinaryInstr((Var) step, BinaryOp.MUL, product.factor(), Const.ofInt(induction.getStep())));
+            }
+
+            var updateBlock = loop.getBlockOf(induction.getUpdate());
+            var updateInstructions = updateBlock.getInstructions();
+            updateInstructions.add(updateInstructions.indexOf(induction.getUpdate()) + 1,
+                    new BinaryInstr(reduced, BinaryOp.ADD, reduced, step));
+
+            for (var multiplication : entry.getValue()) {
+                var instructions = loop.getBlockOf(multiplication).getInstructions();
+                instructions.set(instructions.indexOf(multiplication), new CopyInstr(multiplication.getDef(), reduced));
+            }
+        }
+
+        return true;
+    }
+
+    private boolean removeDeadInductions(Loop loop, IrMethod method) {
+        var defs = loop.getDefs();
+        var inductions = InductionVariable.findBasic(loop);
+        if (inductions.isEmpty()) {
+            return false;
+        }
+
+        var liveness = new Liveness(method);
+        var liveAtExits = new HashSet<Var>();
+        loop.getExitTargets().forEach(exit -> liveAtExits.addAll(liveness.getLiveIn(exit)));
+
+        boolean changed = false;
+        for (var induction : inductions.values()) {
+            var own = induction.getInstructions();
+            var written = own.stream().map(Instr::getDef).toList();
+
+            if (written.stream().anyMatch(liveAtExits::contains)) {
+                continue;
+            }
+
+            boolean readElsewhere = loop.getBlocks().stream()
+                    .flatMap(block -> block.getInstructions().stream())
+                    .filter(instr -> !own.contains(instr))
+                    .anyMatch(instr -> Liveness.localUses(instr).stream().anyMatch(written::contains));
+            if (readElsewhere) {
+                continue;
+            }
+
+            for (var instr : own) {
+                loop.getBlockOf(instr).getInstructions().remove(instr);
+            }
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private boolean isInvariant(Value value, Map<Var, List<Instr>> defs) {
+        return value instanceof Const || (value instanceof Var variable && !defs.containsKey(variable));
+    }
+}
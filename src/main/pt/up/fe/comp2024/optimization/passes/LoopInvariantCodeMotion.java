@@ -0,0 +1,140 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.*;
+
+/**
+ * Moves computations whose operands do not change inside a loop to a preheader, so they run once instead of once per
+ * iteration.
+ * <p>
+ * An instruction x := e is hoisted when e is invariant (its operands are constants, variables not written in the loop,
+ * or variables written only by hoisted instructions), x is written only there and is not live at the loop entry, and
+ * moving it cannot change the behaviour of the program:
+ * <ul>
+ *     <li>instructions that may throw must be at the start of the loop header, so they would run first anyway;</li>
+ *     <li>other instructions must run on every iteration that leaves the loop, or write a variable that is dead once
+ *     the loop exits;</li>
+ *     <li>array reads need a loop without array writes, and field reads a loop that does not write that field, taking
+ *     into account the effects of the calls in the loop ({@link SideEffects}).</li>
+ * </ul>
+ */
+public class LoopInvariantCodeMotion implements OptimizationPass {
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        var sideEffects = new SideEffects(irClass);
+        var loops = Loop.findLoops(method, new Dominators(method));
+
+        boolean changed = false;
+        for (var loop : loops) {
+            changed |= hoist(loop, loops, method, sideEffects);
+        }
+
+        return changed;
+    }
+
+    private boolean hoist(Loop loop, List<Loop> loops, IrMethod method, SideEffects sideEffects) {
+        var dominators = new Dominators(method);
+        var liveness = new Liveness(method);
+        var header = loop.getHeader();
+
+        var defCounts = new HashMap<Var, Integer>();
+        boolean writesArrays = false;
+        var loopInstrs = new ArrayList<Instr>();
+        for (var block : loop.getBlocks()) {
+            for (var instr : block.getInstructions()) {
+                loopInstrs.add(instr);
+                if (instr.getDef() != null) {
+                    defCounts.merge(instr.getDef(), 1, Integer::sum);
+                }
+                writesArrays |= sideEffects.mayWriteArrays(instr);
+            }
+        }
+
+        // Blocks that run on every iteration leaving the loop
+        var exitingBlocks = loop.getBlocks().stream()
+                .filter(block -> block.getSuccessors().stream().anyMatch(succ -> !loop.contains(succ)))
+                .toList();
+        var liveAtExits = new HashSet<Var>();
+        loop.getExitTargets().forEach(exit -> liveAtExits.addAll(liveness.getLiveIn(exit)));
+
+        var hoisted = new LinkedHashSet<Instr>();
+        var hoistedDefs = new HashSet<Var>();
+
+        boolean found = true;
+        while (found) {
+            found = false;
+            for (var block : dominators.getReversePostorder()) {
+                if (!loop.contains(block)) {
+                    continue;
+                }
+
+                for (var instr : block.getBody()) {
+                    if (hoisted.contains(instr) || !isCandidate(instr, writesArrays, loopInstrs, sideEffects)) {
+                        continue;
+                    }
+
+                    var def = instr.getDef();
+                    boolean operandsInvariant = instr.getUses().stream().allMatch(use -> !(use instanceof Var variable)
+                            || !defCounts.containsKey(variable) || hoistedDefs.contains(variable));
+                    if (!operandsInvariant || defCounts.get(def) != 1 || liveness.getLiveIn(header).contains(def)) {
+                        continue;
+                    }
+
+                    boolean safe;
+                    if (instr.canThrow()) {
+                        safe = block == header && header.getBody().stream()
+                                .takeWhile(previous -> previous != instr)
+                                .allMatch(previous -> hoisted.contains(previous) || (!previous.hasSideEffects() && !previous.canThrow()));
+                    } else {
+                        safe = !liveAtExits.contains(def)
+                                || exitingBlocks.stream().allMatch(exiting -> dominators.dominates(block, exiting));
+                    }
+
+                    if (safe) {
+                        hoisted.add(instr);
+                        hoistedDefs.add(def);
+                        found = true;
+                    }
+                }
+            }
+        }
+
+        if (hoisted.isEmpty()) {
+            return false;
+        }
+
+        var preheader = loop.getOrCreatePreheader(method);
+        for (var outer : loops) {
+            if (outer != loop && outer.contains(header)) {
+                outer.getBlocks().add(preheader);
+            }
+        }
+
+        for (var block : loop.getBlocks()) {
+            block.getInstructions().removeAll(hoisted);
+        }
+        hoisted.forEach(preheader::append);
+
+        return true;
+    }
+
+    private boolean isCandidate(Instr instr, boolean loopWritesArrays, List<Instr> loopInstrs, SideEffects sideEffects) {
+        if (instr instanceof BinaryInstr || instr instanceof NotInstr || instr instanceof CopyInstr || instr instanceof ArrayLengthInstr) {
+            return true;
+        }
+
+        if (instr instanceof ArrayLoadInstr) {
+            return !loopWritesArrays;
+        }
+
+        if (instr instanceof GetFieldInstr getField) {
+            var field = getField.getField().getName();
+            return loopInstrs.stream().noneMatch(other -> sideEffects.mayWriteField(other, field));
+        }
+
+        return false;
+    }
+}
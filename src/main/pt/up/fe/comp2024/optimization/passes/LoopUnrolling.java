@@ -0,0 +1,296 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+import pt.up.fe.comp2024.profile.Profile;
+
+import java.util.*;
+
+/**
+ * Unrolls innermost loops whose number of iterations is known at compile time.
+ * <p>
+ * A loop qualifies when the only block that leaves it is also the only block that jumps back to the header (the shape
+ * generated for while loops), and its branch compares a basic induction variable, updated in that block before the
+ * comparison, with a constant. The variable must be set to a constant right before the loop, which gives the trip
+ * count by running the updates and comparisons on constants. Loops that do nothing but count are left alone.
+ * <p>
+ * Loops whose copies all fit in the size budget are replaced by that many copies of the body, one after the other.
+ * Larger loops get a body of factor copies, where only the last one keeps the branch; since the trip count is known,
+ * the iterations that do not fill a whole unrolled body run as straight-line copies in front of the loop, and no
+ * remainder loop or extra test is needed.
+ * <p>
+ * With a profile, loops that never ran are left alone, and hot loops get a size budget several times larger.
+ */
+public class LoopUnrolling implements OptimizationPass {
+
+    /**
+     * Loops that run more iterations than this are not simulated to the end, and are left as they are.
+     */
+    private static final int MAX_SIMULATED_ITERATIONS = 100_000;
+
+    /**
+     * How many times larger the budget of hot loops is
+     */
+    private static final int HOT_SIZE_FACTOR = 4;
+
+    private final int factor;
+    private final int maxSize;
+    private final Profile profile;
+
+    public LoopUnrolling(int factor, int maxSize, Profile profile) {
+        this.factor = factor;
+        this.maxSize = maxSize;
+        this.profile = profile;
+    }
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        boolean changed = false;
+
+        // Each unrolling changes the blocks, so loops are found again after it
+        var unrolled = new HashSet<BasicBlock>();
+        boolean found = true;
+        while (found) {
+            found = false;
+            var loops = Loop.findLoops(method, new Dominators(method));
+            for (var loop : loops) {
+                if (unrolled.contains(loop.getHeader()) || isOuterLoop(loop, loops)) {
+                    continue;
+                }
+
+                unrolled.add(loop.getHeader());
+                if (unroll(loop, method)) {
+                    found = true;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean isOuterLoop(Loop loop, List<Loop> loops) {
+        return loops.stream().anyMatch(other -> other != loop && loop.contains(other.getHeader()));
+    }
+
+    private boolean unroll(Loop loop, IrMethod method) {
+        var header = loop.getHeader();
+        if (profile.isCold(header.getProfileCount())) {
+            return false;
+        }
+
+        var latches = header.getPredecessors().stream().filter(loop::contains).toList();
+        if (latches.size() != 1 || !(latches.get(0).getTerminator() instanceof BranchInstr branch)) {
+            return false;
+        }
+        var latch = latches.get(0);
+        boolean exitsOnlyFromLatch = loop.getBlocks().stream()
+                .filter(block -> block != latch)
+                .allMatch(block -> block.getSuccessors().stream().allMatch(loop::contains));
+        boolean continuesOnTrue = branch.getTrueTarget() == header;
+        var exit = continuesOnTrue ? branch.getFalseTarget() : branch.getTrueTarget();
+        if (!exitsOnlyFromLatch || loop.contains(exit) || loop.getBlocks().stream()
+                .anyMatch(block -> block.getInstructions().stream().anyMatch(PhiInstr.class::isInstance))) {
+            return false;
+        }
+
+        var outsidePreds = header.getPredecessors().stream().filter(pred -> !loop.contains(pred)).toList();
+        if (outsidePreds.size() != 1) {
+            return false;
+        }
+
+        var tripCount = getTripCount(loop, latch, branch, continuesOnTrue, outsidePreds.get(0));
+        if (tripCount.isEmpty()) {
+            return false;
+        }
+
+        int size = loop.getBlocks().stream().mapToInt(block -> block.getInstructions().size()).sum();
+        int trips = tripCount.getAsInt();
+        int budget = profile.isHot(header.getProfileCount()) ? maxSize * HOT_SIZE_FACTOR : maxSize;
+        if ((long) trips * size <= budget) {
+            unrollFully(loop, latch, exit, outsidePreds.get(0), trips, method);
+            return true;
+        }
+
+        if (factor > 1 && trips >= factor && (long) factor * size <= budget) {
+            unrollByFactor(loop, latch, outsidePreds.get(0), trips % factor, method);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the number of times the body runs once the header is entered, if it is known at compile time
+     */
+    private OptionalInt getTripCount(Loop loop, BasicBlock latch, BranchInstr branch, boolean continuesOnTrue,
+                                     BasicBlock preheader) {
+        var latchInstructions = latch.getInstructions();
+
+        // The condition is either in the branch itself, or a comparison stored in the variable the branch tests
+        BinaryOp op = branch.getOp();
+        Value lhs = branch.getLhs();
+        Value rhs = branch.getRhs();
+        int conditionIndex = latchInstructions.size() - 1;
+        var control = new HashSet<Instr>();
+        control.add(branch);
+        if (op == null) {
+            var defs = loop.getDefs().getOrDefault(lhs instanceof Var condition ? condition : null, List.of());
+            if (defs.size() != 1 || !(defs.get(0) instanceof BinaryInstr comparison)
+                    || !comparison.getOp().isComparison() || !latchInstructions.contains(comparison)) {
+                return OptionalInt.empty();
+            }
+            op = comparison.getOp();
+            lhs = comparison.getLhs();
+            rhs = comparison.getRhs();
+            conditionIndex = latchInstructions.indexOf(comparison);
+            control.add(comparison);
+        }
+
+        var inductions = InductionVariable.findBasic(loop);
+        var induction = inductions.get(lhs instanceof Var variable ? variable : null);
+        var bound = rhs;
+        boolean inductionOnLeft = induction != null;
+        if (!inductionOnLeft) {
+            induction = inductions.get(rhs instanceof Var variable ? variable : null);
+            bound = lhs;
+        }
+        if (induction == null || !op.isComparison() || !(bound instanceof Const limit)
+                || latchInstructions.indexOf(induction.getUpdate()) < 0
+                || latchInstructions.indexOf(induction.getUpdate()) > conditionIndex) {
+            return OptionalInt.empty();
+        }
+
+        // A loop that only advances its counter has no work to spread over the copies
+        control.addAll(induction.getInstructions());
+        boolean onlyCounts = loop.getBlocks().stream()
+                .flatMap(block -> block.getInstructions().stream())
+                .allMatch(instr -> control.contains(instr) || instr instanceof JumpInstr);
+        if (onlyCounts) {
+            return OptionalInt.empty();
+        }
+
+        var initial = getInitialValue(induction.getVariable(), preheader);
+        if (initial.isEmpty()) {
+            return OptionalInt.empty();
+        }
+
+        int value = initial.getAsInt();
+        for (int trips = 1; trips <= MAX_SIMULATED_ITERATIONS; trips++) {
+            value += induction.getStep();
+            var condition = inductionOnLeft ? op.fold(value, limit.getValue()) : op.fold(limit.getValue(), value);
+            if (condition.isTrue() != continuesOnTrue) {
+                return OptionalInt.of(trips);
+            }
+        }
+
+        return OptionalInt.empty();
+    }
+
+    /**
+     * @return the constant the variable holds when control leaves the block, looking back through blocks with a single
+     * predecessor
+     */
+    private OptionalInt getInitialValue(Var variable, BasicBlock block) {
+        var visited = new HashSet<BasicBlock>();
+        while (visited.add(block)) {
+            var instructions = block.getInstructions();
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                var instr = instructions.get(i);
+                if (variable.equals(instr.getDef())) {
+                    return instr instanceof CopyInstr copy && copy.getSrc() instanceof Const initial
+                            ? OptionalInt.of(initial.getValue())
+                            : OptionalInt.empty();
+                }
+            }
+
+            if (block.getPredecessors().size() != 1) {
+                return OptionalInt.empty();
+            }
+            block = block.getPredecessors().get(0);
+        }
+
+        return OptionalInt.empty();
+    }
+
+    /**
+     * Replaces the loop by one copy of the body per iteration.
+     */
+    private void unrollFully(Loop loop, BasicBlock latch, BasicBlock exit, BasicBlock preheader, int trips,
+                             IrMethod method) {
+        var header = loop.getHeader();
+        var layout = new ArrayList<BasicBlock>();
+
+        BasicBlock next = exit;
+        for (int i = 0; i < trips; i++) {
+            var copy = copyBody(loop, method);
+            copy.get(latch).setTerminator(new JumpInstr(next));
+            next = copy.get(header);
+            layout.addAll(0, copy.values());
+        }
+        preheader.getTerminator().replaceTarget(header, next);
+
+        method.getBlocks().addAll(method.getBlocks().indexOf(header), layout);
+        method.buildCFG();
+        method.removeUnreachableBlocks();
+    }
+
+    /**
+     * Makes the body of the loop run factor iterations, and runs the first iterations in front of the loop when the
+     * trip count is not a multiple of the factor.
+     */
+    private void unrollByFactor(Loop loop, BasicBlock latch, BasicBlock preheader, int remainder, IrMethod method) {
+        var header = loop.getHeader();
+        var blocks = method.getBlocks();
+
+        // Copies 1 to factor - 1 follow the original body, and the last one keeps the branch back to the header
+        var originalBranch = latch.getTerminator();
+        var lastLatch = latch;
+        var bodyLayout = new ArrayList<BasicBlock>();
+        for (int i = 1; i < factor; i++) {
+            var copy = copyBody(loop, method);
+            lastLatch.setTerminator(new JumpInstr(copy.get(header)));
+            lastLatch = copy.get(latch);
+            bodyLayout.addAll(copy.values());
+        }
+        lastLatch.setTerminator(originalBranch);
+        int lastLoopBlock = loop.getBlocks().stream().mapToInt(blocks::indexOf).max().orElseThrow();
+        blocks.addAll(lastLoopBlock + 1, bodyLayout);
+
+        BasicBlock next = header;
+        var prologue = new ArrayList<BasicBlock>();
+        for (int i = 0; i < remainder; i++) {
+            var copy = copyBody(loop, method);
+            copy.get(latch).setTerminator(new JumpInstr(next));
+            next = copy.get(header);
+            prologue.addAll(0, copy.values());
+        }
+        preheader.getTerminator().replaceTarget(header, next);
+        blocks.addAll(blocks.indexOf(header), prologue);
+
+        method.buildCFG();
+    }
+
+    /**
+     * @return a copy of each block of the loop, whose jumps between blocks of the loop stay inside the copy
+     */
+    private Map<BasicBlock, BasicBlock> copyBody(Loop loop, IrMethod method) {
+        var copies = new LinkedHashMap<BasicBlock, BasicBlock>();
+        method.getBlocks().stream()
+                .filter(loop::contains)
+                .forEach(block -> copies.put(block, method.newBlock(block.getLabel() + "_")));
+
+        copies.forEach((block, copy) -> {
+            for (var instr : block.getInstructions()) {
+                var instrCopy = instr.copy();
+                if (instrCopy instanceof TerminatorInstr terminator) {
+                    copies.forEach(terminator::replaceTarget);
+                }
+                copy.getInstructions().add(instrCopy);
+            }
+        });
+
+        return copies;
+    }
+}
@@ -0,0 +1,198 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+import pt.up.fe.comp2024.profile.Profile;
+
+import java.util.*;
+
+/**
+ * Replaces calls to small methods of the class being compiled by a copy of their body.
+ * <p>
+ * Only calls whose target is known are inlined: static calls to this class, and virtual calls on 'this'. A class is
+ * compiled on its own, so no subclass in the compilation set can override the callee. The copied blocks and variables
+ * get fresh names, the arguments are copied into the renamed parameters, and each return becomes a copy to the
+ * destination of the call followed by a jump to the code after the call.
+ * <p>
+ * Calls that come from an inlined body are inlined as well, up to the recursion budget: a method is never inlined into
+ * a copy of itself more than the given number of times.
+ * <p>
+ * With a profile, calls that never ran are not inlined, and hot calls inline callees several times larger.
+ */
+public class MethodInlining implements OptimizationPass {
+
+    /**
+     * A call to inline, and the methods whose copies it is nested in (the caller first).
+     */
+    private record CallSite(CallInstr call, List<String> chain) {
+    }
+
+    /**
+     * How many times larger the callees of hot calls may be
+     */
+    private static final int HOT_SIZE_FACTOR = 4;
+
+    private final int maxSize;
+    private final int maxRecursion;
+    private final Profile profile;
+
+    public MethodInlining(int maxSize, int maxRecursion, Profile profile) {
+        this.maxSize = maxSize;
+        this.maxRecursion = maxRecursion;
+        this.profile = profile;
+    }
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        var worklist = new ArrayDeque<CallSite>();
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstructions()) {
+                if (instr instanceof CallInstr call) {
+                    worklist.add(new CallSite(call, List.of(method.getName())));
+                }
+            }
+        }
+
+        boolean changed = false;
+        while (!worklist.isEmpty()) {
+            var site = worklist.poll();
+            var callee = getCallee(site.call(), method, irClass);
+            if (callee.isEmpty() || size(callee.get()) > getMaxSize(site.call())
+                    || Collections.frequency(site.chain(), callee.get().getName()) > maxRecursion) {
+                continue;
+            }
+
+            var chain = new ArrayList<>(site.chain());
+            chain.add(callee.get().getName());
+            for (var nestedCall : inline(site.call(), callee.get(), method)) {
+                worklist.add(new CallSite(nestedCall, chain));
+            }
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the method the call runs, if it is known and its body can be copied into the caller
+     */
+    private Optional<IrMethod> getCallee(CallInstr call, IrMethod caller, IrClass irClass) {
+        return irClass.getCallee(call, caller)
+                .filter(callee -> !callee.isVarargs() && !callee.getBlocks().isEmpty() && !readsUndefinedLocals(callee));
+    }
+
+    /**
+     * @return true if the method reads a local variable that is neither a parameter nor written in the method, whose
+     * value would come from the caller once the body is copied
+     */
+    private boolean readsUndefinedLocals(IrMethod method) {
+        var defined = new HashSet<>(method.getParams());
+        method.getBlocks().forEach(block -> block.getInstructions().stream()
+                .map(Instr::getDef)
+                .filter(Objects::nonNull)
+                .forEach(defined::add));
+
+        return method.getBlocks().stream()
+                .flatMap(block -> block.getInstructions().stream())
+                .flatMap(instr -> Liveness.localUses(instr).stream())
+                .anyMatch(use -> !defined.contains(use));
+    }
+
+    /**
+     * @return the size of the largest callee inlined at the call
+     */
+    private int getMaxSize(CallInstr call) {
+        var count = call.getProfileCount();
+        if (profile.isCold(count)) {
+            return 0;
+        }
+
+        return profile.isHot(count) ? maxSize * HOT_SIZE_FACTOR : maxSize;
+    }
+
+    private int size(IrMethod method) {
+        return method.getBlocks().stream().mapToInt(block -> block.getInstructions().size()).sum();
+    }
+
+    /**
+     * Replaces the call by a renamed copy of the body of the callee.
+     *
+     * @return the calls in the copied body
+     */
+    private List<CallInstr> inline(CallInstr call, IrMethod callee, IrMethod caller) {
+        // Copied before any change, in case the callee is the caller itself
+        var calleeCode = new LinkedHashMap<BasicBlock, List<Instr>>();
+        callee.getBlocks().forEach(calleeBlock -> calleeCode.put(calleeBlock,
+                calleeBlock.getInstructions().stream().map(Instr::copy).toList()));
+        var calleeEntry = callee.getEntry();
+
+        var variables = new HashMap<Var, Var>();
+        for (var param : callee.getParams()) {
+            variables.put(param, caller.newVar(param.getName() + "_", param.getType()));
+        }
+        var blocks = new LinkedHashMap<BasicBlock, BasicBlock>();
+        var copies = new LinkedHashMap<BasicBlock, List<Instr>>();
+        calleeCode.forEach((calleeBlock, copiedInstructions) -> {
+            var copy = caller.newBlock(callee.getName() + "_");
+            blocks.put(calleeBlock, copy);
+            copies.put(copy, copiedInstructions);
+            for (var instr : copiedInstructions) {
+                var def = instr.getDef();
+                if (def != null && !variables.containsKey(def)) {
+                    variables.put(def, caller.newVar(def.getName() + "_", def.getType()));
+                }
+            }
+        });
+
+        var block = caller.getBlocks().stream()
+                .filter(candidate -> candidate.getInstructions().contains(call))
+                .findFirst()
+                .orElseThrow();
+
+        // The code after the call moves to a new block, which the returns of the copy jump to
+        var instructions = block.getInstructions();
+        int callIndex = instructions.indexOf(call);
+        var continuation = caller.newBlock(callee.getName() + "_end_");
+        continuation.setProfileCount(block.getProfileCount());
+        continuation.getInstructions().addAll(instructions.subList(callIndex + 1, instructions.size()));
+        instructions.subList(callIndex, instructions.size()).clear();
+
+        var nestedCalls = new ArrayList<CallInstr>();
+        copies.forEach((copy, copiedInstructions) -> {
+            for (var instr : copiedInstructions) {
+                instr.replaceUses(value -> value instanceof Var variable ? variables.getOrDefault(variable, variable) : value);
+                if (instr instanceof AssignInstr assign && assign.getDef() != null) {
+                    assign.setDest(variables.get(assign.getDef()));
+                }
+
+                if (instr instanceof ReturnInstr ret) {
+                    if (call.getDef() != null && ret.getValue() != null) {
+                        copy.getInstructions().add(new CopyInstr(call.getDef(), ret.getValue()));
+                    }
+                    copy.getInstructions().add(new JumpInstr(continuation));
+                    continue;
+                }
+
+                if (instr instanceof TerminatorInstr terminator) {
+                    blocks.forEach(terminator::replaceTarget);
+                }
+                if (instr instanceof CallInstr nestedCall) {
+                    nestedCalls.add(nestedCall);
+                }
+                copy.getInstructions().add(instr);
+            }
+        });
+
+        for (int i = 0; i < call.getArguments().size(); i++) {
+            block.append(new CopyInstr(variables.get(callee.getParams().get(i)), call.getArguments().get(i)));
+        }
+        block.setTerminator(new JumpInstr(blocks.get(calleeEntry)));
+
+        var layout = new ArrayList<>(copies.keySet());
+        layout.add(continuation);
+        caller.getBlocks().addAll(caller.getBlocks().indexOf(block) + 1, layout);
+        caller.buildCFG();
+
+        return nestedCalls;
+    }
+}
@@ -0,0 +1,340 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.*;
+
+/**
+ * Sparse conditional constant propagation (Wegman and Zadeck) over the SSA form of a method.
+ * <p>
+ * Variables and CFG edges are only considered once they are found to be reachable, so constants are propagated through
+ * branches whose condition is known and code guarded by constant conditions is removed. Uses of constant variables are
+ * replaced by the constant, the definitions that become useless are removed, and branches with a constant condition
+ * become jumps.
+ * <p>
+ * The branches folded and the blocks removed in each method are counted, for reporting.
+ */
+public class SparseConditionalConstantPropagation implements OptimizationPass {
+
+    private enum Kind {
+        UNDEFINED, CONSTANT, OVERDEFINED
+    }
+
+    /**
+     * Lattice value of a variable: not known yet, a single constant, or more than one possible value.
+     */
+    private record LatticeValue(Kind kind, Const constant) {
+
+        private static final LatticeValue UNDEFINED = new LatticeValue(Kind.UNDEFINED, null);
+        private static final LatticeValue OVERDEFINED = new LatticeValue(Kind.OVERDEFINED, null);
+
+        private static LatticeValue of(Const constant) {
+            return new LatticeValue(Kind.CONSTANT, constant);
+        }
+
+        private boolean isConstant() {
+            return kind == Kind.CONSTANT;
+        }
+
+        private LatticeValue meet(LatticeValue other) {
+            if (kind == Kind.UNDEFINED) {
+                return other;
+            }
+            if (other.kind == Kind.UNDEFINED) {
+                return this;
+            }
+            if (kind == Kind.CONSTANT && other.kind == Kind.CONSTANT && constant.equals(other.constant)) {
+                return this;
+            }
+            return OVERDEFINED;
+        }
+    }
+
+    private record Edge(BasicBlock from, BasicBlock to) {
+    }
+
+    private Map<Var, LatticeValue> values;
+    private Map<Var, List<Instr>> users;
+    private Map<Instr, BasicBlock> blockOf;
+    private Set<Var> defined;
+    private Set<Edge> executableEdges;
+    private Set<BasicBlock> executableBlocks;
+    private Deque<Edge> flowWorklist;
+    private Deque<Instr> ssaWorklist;
+
+    private final Map<IrMethod, Integer> foldedBranches = new HashMap<>();
+    private final Map<IrMethod, Integer> removedBlocks = new HashMap<>();
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        var ssa = SsaForm.construct(method);
+
+        initialize(method);
+        solve(method);
+        boolean changed = rewrite(method);
+
+        ssa.destruct();
+
+        int blocks = method.getBlocks().size();
+        if (method.removeUnreachableBlocks()) {
+            removedBlocks.merge(method, blocks - method.getBlocks().size(), Integer::sum);
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return how many branches of the method became jumps since the counts were cleared
+     */
+    public int getFoldedBranches(IrMethod method) {
+        return foldedBranches.getOrDefault(method, 0);
+    }
+
+    /**
+     * @return how many unreachable blocks were removed from the method since the counts were cleared
+     */
+    public int getRemovedBlocks(IrMethod method) {
+        return removedBlocks.getOrDefault(method, 0);
+    }
+
+    public void clearEliminations() {
+        foldedBranches.clear();
+        removedBlocks.clear();
+    }
+
+    private void initialize(IrMethod method) {
+        values = new HashMap<>();
+        users = new HashMap<>();
+        blockOf = new HashMap<>();
+        defined = new HashSet<>();
+        executableEdges = new HashSet<>();
+        executableBlocks = new HashSet<>();
+        flowWorklist = new ArrayDeque<>();
+        ssaWorklist = new ArrayDeque<>();
+
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getInstructions()) {
+                blockOf.put(instr, block);
+                if (instr.getDef() != null) {
+                    defined.add(instr.getDef());
+                }
+                for (var use : instr.getUses()) {
+                    if (use instanceof Var variable) {
+                        users.computeIfAbsent(variable, unused -> new ArrayList<>()).add(instr);
+                    }
+                }
+            }
+        }
+    }
+
+    private void solve(IrMethod method) {
+        markExecutable(method.getEntry());
+
+        while (!flowWorklist.isEmpty() || !ssaWorklist.isEmpty()) {
+            while (!flowWorklist.isEmpty()) {
+                var edge = flowWorklist.poll();
+                if (!executableEdges.add(edge)) {
+                    continue;
+                }
+
+                // A new incoming edge only changes the phis, unless the block is reached for the first time
+                if (executableBlocks.contains(edge.to())) {
+                    SsaForm.getPhis(edge.to()).forEach(this::visit);
+                } else {
+                    markExecutable(edge.to());
+                }
+            }
+
+            while (!ssaWorklist.isEmpty()) {
+                var instr = ssaWorklist.poll();
+                if (executableBlocks.contains(blockOf.get(instr))) {
+                    visit(instr);
+                }
+            }
+        }
+    }
+
+    private void markExecutable(BasicBlock block) {
+        executableBlocks.add(block);
+        block.getInstructions().forEach(this::visit);
+    }
+
+    private void visit(Instr instr) {
+        if (instr instanceof TerminatorInstr terminator) {
+            visitTerminator(terminator, blockOf.get(instr));
+            return;
+        }
+
+        var def = instr.getDef();
+        if (def == null) {
+            return;
+        }
+
+        var oldValue = getValue(def);
+        if (oldValue.kind() == Kind.OVERDEFINED) {
+            return;
+        }
+
+        var newValue = evaluate(instr);
+        if (!newValue.equals(oldValue)) {
+            values.put(def, newValue);
+            ssaWorklist.addAll(users.getOrDefault(def, List.of()));
+        }
+    }
+
+    private void visitTerminator(TerminatorInstr terminator, BasicBlock block) {
+        if (terminator instanceof BranchInstr branch) {
+            var condition = branch.getOp() == null
+                    ? getValue(branch.getLhs())
+                    : evaluate(branch.getOp(), getValue(branch.getLhs()), getValue(branch.getRhs()));
+
+            switch (condition.kind()) {
+                case UNDEFINED -> {
+                }
+                case CONSTANT -> flowWorklist.add(new Edge(block, condition.constant().isTrue()
+                        ? branch.getTrueTarget()
+                        : branch.getFalseTarget()));
+                case OVERDEFINED -> {
+                    flowWorklist.add(new Edge(block, branch.getTrueTarget()));
+                    flowWorklist.add(new Edge(block, branch.getFalseTarget()));
+                }
+            }
+            return;
+        }
+
+        for (var target : terminator.getTargets()) {
+            flowWorklist.add(new Edge(block, target));
+        }
+    }
+
+    private LatticeValue getValue(Value value) {
+        if (value instanceof Const constant) {
+            return LatticeValue.of(constant);
+        }
+
+        var variable = (Var) value;
+        // Parameters, 'this' and variables read before being written can hold anything
+        if (!defined.contains(variable)) {
+            return LatticeValue.OVERDEFINED;
+        }
+
+        return values.getOrDefault(variable, LatticeValue.UNDEFINED);
+    }
+
+    private LatticeValue evaluate(Instr instr) {
+        if (instr instanceof PhiInstr phi) {
+            var block = blockOf.get(phi);
+            var result = LatticeValue.UNDEFINED;
+            for (var incoming : phi.getIncoming().entrySet()) {
+                if (executableEdges.contains(new Edge(incoming.getKey(), block))) {
+                    result = result.meet(getValue(incoming.getValue()));
+                }
+            }
+            return result;
+        }
+
+        if (instr instanceof CopyInstr copy) {
+            return getValue(copy.getSrc());
+        }
+
+        if (instr instanceof BinaryInstr binary) {
+            return evaluate(binary.getOp(), getValue(binary.getLhs()), getValue(binary.getRhs()));
+        }
+
+        if (instr instanceof NotInstr not) {
+            var operand = getValue(not.getOperand());
+            return operand.isConstant() ? LatticeValue.of(Const.ofBool(!operand.constant().isTrue())) : operand;
+        }
+
+        // Memory reads, calls and allocations are not tracked
+        return LatticeValue.OVERDEFINED;
+    }
+
+    private LatticeValue evaluate(BinaryOp op, LatticeValue lhs, LatticeValue rhs) {
+        if (lhs.isConstant() && rhs.isConstant()) {
+            var result = op.fold(lhs.constant().getValue(), rhs.constant().getValue());
+            return result == null ? LatticeValue.OVERDEFINED : LatticeValue.of(result);
+        }
+
+        // A single operand is enough to decide some operations
+        for (var operand : List.of(lhs, rhs)) {
+            if (!operand.isConstant()) {
+                continue;
+            }
+
+            int value = operand.constant().getValue();
+            if (op == BinaryOp.AND && value == 0) {
+                return LatticeValue.of(Const.ofBool(false));
+            }
+            if (op == BinaryOp.OR && value != 0) {
+                return LatticeValue.of(Const.ofBool(true));
+            }
+            if (op == BinaryOp.MUL && value == 0) {
+                return LatticeValue.of(Const.ofInt(0));
+            }
+        }
+
+        if (lhs.kind() == Kind.UNDEFINED || rhs.kind() == Kind.UNDEFINED) {
+            return LatticeValue.UNDEFINED;
+        }
+
+        return LatticeValue.OVERDEFINED;
+    }
+
+    private boolean rewrite(IrMethod method) {
+        boolean changed = false;
+
+        for (var block : method.getBlocks()) {
+            if (!executableBlocks.contains(block)) {
+                continue;
+            }
+
+            // Values coming from edges that are never taken are dropped, those blocks are removed below
+            for (var phi : SsaForm.getPhis(block)) {
+                changed |= phi.getIncoming().keySet().removeIf(pred -> !executableEdges.contains(new Edge(pred, block)));
+            }
+
+            var iterator = block.getInstructions().iterator();
+            while (iterator.hasNext()) {
+                var instr = iterator.next();
+
+                var def = instr.getDef();
+                if (def != null && getValue(def).isConstant() && !instr.hasSideEffects()) {
+                    iterator.remove();
+                    changed = true;
+                    continue;
+                }
+
+                var uses = instr.getUses();
+                instr.replaceUses(this::toConstant);
+                changed |= !uses.equals(instr.getUses());
+            }
+
+            if (block.getTerminator() instanceof BranchInstr branch) {
+                boolean takesTrue = executableEdges.contains(new Edge(block, branch.getTrueTarget()));
+                boolean takesFalse = executableEdges.contains(new Edge(block, branch.getFalseTarget()));
+
+                if (takesTrue != takesFalse) {
+                    block.setTerminator(new JumpInstr(takesTrue ? branch.getTrueTarget() : branch.getFalseTarget()));
+                    foldedBranches.merge(method, 1, Integer::sum);
+                    changed = true;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    private Value toConstant(Value value) {
+        if (value instanceof Var variable) {
+            var latticeValue = getValue(variable);
+            if (latticeValue.isConstant()) {
+                return latticeValue.constant();
+            }
+        }
+
+        return value;
+    }
+}
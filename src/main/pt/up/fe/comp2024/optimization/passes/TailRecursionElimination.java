@@ -0,0 +1,107 @@
+package pt.up.fe.comp2024.optimization.passes;
+
+import pt.up.fe.comp2024.optimization.OptimizationPass;
+import pt.up.fe.comp2024.optimization.ir.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Turns self-calls in tail position into a jump back to the start of the method, so that deep recursion runs in a
+ * single frame.
+ * <p>
+ * A call this.f(args) inside f is in tail position when its result, possibly through a chain of copies and jumps, is
+ * returned right away (or nothing is done after it, for void methods). The call and the code after it are replaced by
+ * the assignment of the arguments to the parameters, through temporaries since the arguments may read the parameters,
+ * and a jump to the old entry block. A new entry block is added in front of it, so the entry keeps no predecessors.
+ */
+public class TailRecursionElimination implements OptimizationPass {
+
+    @Override
+    public boolean apply(IrMethod method, IrClass irClass) {
+        if (method.isStatic() || method.isVarargs()) {
+            return false;
+        }
+
+        var tailCalls = new ArrayList<CallInstr>();
+        for (var block : method.getBlocks()) {
+            for (var instr : block.getBody()) {
+                if (instr instanceof CallInstr call && isSelfCall(call, method) && isInTailPosition(call, block)) {
+                    tailCalls.add(call);
+                }
+            }
+        }
+
+        if (tailCalls.isEmpty()) {
+            return false;
+        }
+
+        var start = method.getEntry();
+        var entry = method.newBlock("entry_");
+        entry.setTerminator(new JumpInstr(start));
+        method.getBlocks().add(0, entry);
+
+        for (var call : tailCalls) {
+            var block = method.getBlocks().stream()
+                    .filter(candidate -> candidate.getInstructions().contains(call))
+                    .findFirst()
+                    .orElseThrow();
+
+            var instructions = block.getInstructions();
+            instructions.subList(instructions.indexOf(call), instructions.size()).clear();
+
+            var params = method.getParams();
+            var arguments = new ArrayList<Var>();
+            for (int i = 0; i < params.size(); i++) {
+                var argument = method.newTemp(params.get(i).getType());
+                block.append(new CopyInstr(argument, call.getArguments().get(i)));
+                arguments.add(argument);
+            }
+            for (int i = 0; i < params.size(); i++) {
+                block.append(new CopyInstr(params.get(i), arguments.get(i)));
+            }
+            block.setTerminator(new JumpInstr(start));
+        }
+
+        method.removeUnreachableBlocks();
+
+        return true;
+    }
+
+    private boolean isSelfCall(CallInstr call, IrMethod method) {
+        return call.getKind() == CallInstr.Kind.VIRTUAL
+                && call.getReceiver().getType().getKind() == IrType.Kind.THIS
+                && call.getMethodName().equals(method.getName())
+                && call.getArguments().size() == method.getParams().size();
+    }
+
+    /**
+     * @return true if the only thing done after the call is returning its result, through copies and jumps
+     */
+    private boolean isInTailPosition(CallInstr call, BasicBlock block) {
+        Value result = call.getDef();
+        var instructions = block.getInstructions();
+        var following = instructions.subList(instructions.indexOf(call) + 1, instructions.size());
+
+        Set<BasicBlock> visited = new HashSet<>();
+        while (following != null) {
+            var next = following;
+            following = null;
+
+            for (var instr : next) {
+                if (instr instanceof CopyInstr copy && result != null && copy.getSrc().equals(result)) {
+                    result = copy.getDef();
+                } else if (instr instanceof ReturnInstr ret) {
+                    return ret.getValue() == null || ret.getValue().equals(result);
+                } else if (instr instanceof JumpInstr jump && visited.add(jump.getTarget())) {
+                    following = jump.getTarget().getInstructions();
+                } else {
+                    return false;
+                }
+            }
+        }
+
+        return false;
+    }
+}
@@ -1,13 +1,17 @@
 package pt.up.fe.comp2024.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.utils.Diagnostics;
+import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.Map;
 
@@ -26,6 +30,14 @@ import java.util.Map;
 
 public class JmmParserImpl implements JmmParser {
 
+    // AntlrParser finds the starting rule through a cache of methods that is not thread-safe. It is filled with every
+    // rule here, once, so that parsers running at the same time only read from it
+    static {
+        for (var rule : pt.up.fe.comp2024.JavammParser.ruleNames) {
+            SpecsSystem.getMethod(pt.up.fe.comp2024.JavammParser.class, rule);
+        }
+    }
+
     @Override
     public String getDefaultRule() {
         return "program";
@@ -33,10 +45,27 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        // Convert code string into a character stream
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
+
+    /**
+     * Parses the code in a file, without reading it into a String first.
+     */
+    public JmmParserResult parse(File file, Map<String, String> config) {
+        CharStream input;
+        try {
+            input = new MappedCharStream(file);
+        } catch (RuntimeException e) {
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, e.getMessage(), e), config);
+        }
+
+        return parse(input, getDefaultRule(), config);
+    }
+
+    public JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
 
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
             // Transform characters into tokens using the lexer
             var lex = new pt.up.fe.comp2024.JavammLexer(input);
             // Wrap lexer around a token stream
@@ -46,7 +75,15 @@ public class JmmParserImpl implements JmmParser {
 
 
             // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+            var result = AntlrParser.parse(lex, parser, startingRule, config);
+
+            // The parser recovers from errors, and may report many for a single mistake
+            var diagnostics = Diagnostics.fromConfig(config);
+            diagnostics.addAll(result.getReports());
+            if (diagnostics.getReports().size() == result.getReports().size()) {
+                return result;
+            }
+            return new JmmParserResult(result.getRootNode(), diagnostics.getReportsWithDropped(Stage.SYNTATIC), config);
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
@@ -0,0 +1,79 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The characters of a UTF-8 source file, for the lexer to read.
+ * <p>
+ * Reading the file into a String and giving it to an {@link ANTLRInputStream} keeps two copies of the code, or three
+ * while the stream copies the String. Instead, the file is memory-mapped and decoded straight into the array the lexer
+ * reads, so the only copy on the heap is that array. The file is mapped a chunk at a time, so that a large file does
+ * not need a mapping of its whole size.
+ */
+public class MappedCharStream extends ANTLRInputStream {
+
+    /**
+     * The longest sequence of bytes of a single character in UTF-8
+     */
+    private static final int MAX_CHAR_BYTES = 4;
+
+    private static final int DEFAULT_CHUNK_BYTES = 64 * 1024 * 1024;
+
+    public MappedCharStream(File file) {
+        this(file, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * @param chunkBytes how many bytes of the file are mapped at a time
+     */
+    public MappedCharStream(File file, int chunkBytes) {
+        if (chunkBytes < MAX_CHAR_BYTES) {
+            throw new IllegalArgumentException("Expected chunks of at least " + MAX_CHAR_BYTES + " bytes, got "
+                    + chunkBytes);
+        }
+
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new RuntimeException("File '" + file + "' is too large to compile, it has " + size + " bytes");
+            }
+
+            // UTF-8 never decodes into more characters than bytes, not even when replacing malformed ones
+            var chars = CharBuffer.allocate((int) size);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            long position = 0;
+            while (position < size) {
+                var bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkBytes, size - position));
+                boolean last = position + bytes.limit() == size;
+                decoder.decode(bytes, chars, last);
+
+                // A character split between chunks is left in the buffer, and decoded with the next chunk
+                position += bytes.position();
+            }
+            if (size > 0) {
+                decoder.flush(chars);
+            }
+
+            data = chars.array();
+            n = chars.position();
+            name = file.getPath();
+        } catch (CharacterCodingException e) {
+            throw new RuntimeException("Could not decode file '" + file + "'", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read file '" + file + "'", e);
+        }
+    }
+}
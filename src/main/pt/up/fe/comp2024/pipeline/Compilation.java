@@ -0,0 +1,82 @@
+package pt.up.fe.comp2024.pipeline;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.utils.Diagnostics;
+import pt.up.fe.comp2024.utils.Dump;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A file going through the {@link CompilationPipeline}, with the result of each stage it went through and the reports
+ * of all of them, bounded as the configuration asks.
+ */
+public class Compilation {
+
+    private final File file;
+    private final Map<String, String> config;
+    private final Diagnostics diagnostics;
+    final Dump dump;
+
+    JmmParserResult parserResult;
+    JmmSemanticsResult semanticsResult;
+    OllirResult ollirResult;
+    JasminResult jasminResult;
+
+    /**
+     * @param config the configuration of the compilation, with the file as the input file
+     */
+    public Compilation(File file, Map<String, String> config) {
+        this.file = file;
+        this.config = config;
+        this.diagnostics = Diagnostics.fromConfig(config);
+        this.dump = Dump.fromConfig(config);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public Map<String, String> getConfig() {
+        return config;
+    }
+
+    /**
+     * @return the reports of every stage the file went through, in order, within the limits of the configuration
+     */
+    public List<Report> getReports() {
+        return diagnostics.getReports();
+    }
+
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    public boolean hasErrors() {
+        return diagnostics.hasErrors();
+    }
+
+    /**
+     * @return the Jasmin code of the file, or null if some stage had errors
+     */
+    public JasminResult getJasminResult() {
+        return jasminResult;
+    }
+
+    public OllirResult getOllirResult() {
+        return ollirResult;
+    }
+
+    void addReports(List<Report> stageReports) {
+        diagnostics.addAll(stageReports);
+    }
+
+    void addResultReports(List<Report> stageResultReports) {
+        diagnostics.addResultReports(stageResultReports);
+    }
+}
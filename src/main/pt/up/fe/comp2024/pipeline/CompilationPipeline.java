@@ -0,0 +1,243 @@
+package pt.up.fe.comp2024.pipeline;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Compiles many files with the stages of the compiler running at the same time, each on a thread of its own, so that
+ * one file is parsed while the previous one is analysed and the one before it is turned into Jasmin.
+ * <p>
+ * The stages are connected by queues of a fixed capacity: a stage that gets ahead of the next one waits for room in its
+ * queue, instead of keeping the intermediate results of every file in memory. A file with errors skips the stages after
+ * the one that reported them.
+ * <p>
+ * The stage with the highest utilisation, usually the one with a full queue in front of it, limits the throughput.
+ */
+public class CompilationPipeline {
+
+    /**
+     * Follows the last file, telling each stage to end.
+     */
+    private static final Compilation END = new Compilation(null, Map.of());
+
+    private record Step(String name, Function<Compilation, List<Report>> run) {
+    }
+
+    private final int queueCapacity;
+    private final List<Step> steps = new ArrayList<>();
+    private final List<StageStats> stats = new ArrayList<>();
+    private long elapsedNanos;
+
+    /**
+     * @param queueCapacity how many files can wait for each stage
+     */
+    public CompilationPipeline(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Expected a positive queue capacity, got " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+
+        var parser = new JmmParserImpl();
+        var analysis = new JmmAnalysisImpl();
+        var optimization = new JmmOptimizationImpl();
+        var backend = new JasminBackendImpl();
+
+        steps.add(new Step("parser", compilation -> {
+            compilation.parserResult = parser.parse(compilation.getFile(), compilation.getConfig());
+            if (compilation.parserResult.getRootNode() != null) {
+                compilation.dump.ast(compilation.parserResult.getRootNode());
+            }
+            return compilation.parserResult.getReports();
+        }));
+        steps.add(new Step("analysis", compilation -> {
+            compilation.semanticsResult = analysis.semanticAnalysis(compilation.parserResult);
+            return compilation.semanticsResult.getReports();
+        }));
+        steps.add(new Step("ollir", compilation -> {
+            compilation.ollirResult = optimization.toOllir(compilation.semanticsResult);
+            return compilation.ollirResult.getReports();
+        }));
+        steps.add(new Step("optimization", compilation -> {
+            compilation.ollirResult = optimization.optimize(compilation.ollirResult);
+            compilation.dump.ollir(compilation.ollirResult.getOllirCode());
+            return compilation.ollirResult.getReports();
+        }));
+        steps.add(new Step("jasmin", compilation -> {
+            compilation.jasminResult = backend.toJasmin(compilation.ollirResult);
+            compilation.dump.jasmin(compilation.jasminResult.getJasminCode());
+            return compilation.jasminResult.getReports();
+        }));
+    }
+
+    /**
+     * Compiles each file with the configuration given, and the file as the input file.
+     *
+     * @return the compilation of each file, in the order of the files
+     */
+    public List<Compilation> run(List<File> files, Map<String, String> config) {
+        var compilations = new ArrayList<Compilation>();
+        for (var file : files) {
+            var fileConfig = new HashMap<>(config);
+            fileConfig.put("inputFile", file.getAbsolutePath());
+            compilations.add(new Compilation(file, fileConfig));
+        }
+
+        var queues = new ArrayList<BlockingQueue<Compilation>>();
+        stats.clear();
+        for (var step : steps) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+            stats.add(new StageStats(step.name(), queueCapacity));
+        }
+
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < steps.size(); i++) {
+            int stage = i;
+            var thread = new Thread(() -> runStage(stage, queues), "pipeline-" + steps.get(stage).name());
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        try {
+            for (var compilation : compilations) {
+                put(queues, 0, compilation);
+            }
+            put(queues, 0, END);
+
+            for (var thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while compiling", e);
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        return compilations;
+    }
+
+    /**
+     * @return what each stage did during the last run, in the order the stages run
+     */
+    public List<StageStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * @return how long the last run took, from the first file entering the pipeline to the last one leaving it
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return a table with a line for each stage: the files it compiled, the fraction of the run it was busy, idle and
+     * blocked, and the mean and maximum number of files in its queue
+     */
+    public String formatStats() {
+        var table = new StringBuilder(String.format("%-14s %6s %8s %8s %8s %11s %10s%n", "stage", "files", "busy",
+                "idle", "blocked", "mean queue", "max queue"));
+        for (var stage : stats) {
+            table.append(String.format("%-14s %6d %7.1f%% %7.1f%% %7.1f%% %11.2f %8d/%d%n", stage.getName(),
+                    stage.getProcessed(), 100 * stage.getUtilisation(elapsedNanos), percent(stage.getIdleNanos()),
+                    percent(stage.getBlockedNanos()), stage.getMeanQueueDepth(), stage.getMaxQueueDepth(),
+                    stage.getQueueCapacity()));
+        }
+        table.append(String.format("%.1f ms in total%n", elapsedNanos / 1e6));
+        return table.toString();
+    }
+
+    private double percent(long nanos) {
+        return elapsedNanos == 0 ? 0 : 100.0 * nanos / elapsedNanos;
+    }
+
+    /**
+     * Takes the files from the queue of the stage until the end, compiling the ones without errors, and passes them to
+     * the next stage. A stage that fails on a file, even with an error such as a stack overflow, reports it for that
+     * file and goes on with the next one; the end is always passed on, so that the later stages finish.
+     */
+    private void runStage(int stage, List<BlockingQueue<Compilation>> queues) {
+        var step = steps.get(stage);
+        var stageStats = stats.get(stage);
+
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                var compilation = queues.get(stage).take();
+                stageStats.addIdle(System.nanoTime() - waitStart);
+
+                if (compilation == END) {
+                    return;
+                }
+
+                if (!compilation.hasErrors()) {
+                    long start = System.nanoTime();
+                    try {
+                        compilation.addResultReports(step.run().apply(compilation));
+                    } catch (Throwable e) {
+                        // Reports only take exceptions, so errors such as a stack overflow are wrapped in one
+                        var exception = e instanceof Exception ? (Exception) e : new RuntimeException(e);
+                        compilation.addReports(List.of(Report.newError(Stage.OTHER, -1, -1,
+                                "Exception during stage '" + step.name() + "': " + e, exception)));
+                    }
+                    stageStats.addBusy(System.nanoTime() - start);
+                }
+
+                if (stage + 1 < queues.size()) {
+                    put(queues, stage + 1, compilation);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (stage + 1 < queues.size()) {
+                endNextStage(stage, queues);
+            }
+        }
+    }
+
+    /**
+     * Tells the stage after this one to end. If the pipeline was interrupted, every stage is, and there is no need to.
+     */
+    private void endNextStage(int stage, List<BlockingQueue<Compilation>> queues) {
+        try {
+            put(queues, stage + 1, END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds the compilation to the queue of the stage, waiting for room in it. The wait counts as time the previous
+     * stage was blocked.
+     */
+    private void put(List<BlockingQueue<Compilation>> queues, int stage, Compilation compilation)
+            throws InterruptedException {
+        var queue = queues.get(stage);
+
+        long start = System.nanoTime();
+        queue.put(compilation);
+        if (stage > 0) {
+            stats.get(stage - 1).addBlocked(System.nanoTime() - start);
+        }
+
+        if (compilation != END) {
+            stats.get(stage).sampleQueue(queue.size());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package pt.up.fe.comp2024.pipeline;
+
+/**
+ * What a stage of the {@link CompilationPipeline} did during a run: how many files it compiled, how long it spent
+ * compiling them, waiting for the previous stage and waiting for the next one, and how many files were waiting for it.
+ */
+public class StageStats {
+
+    private final String name;
+    private final int queueCapacity;
+
+    private int processed;
+    private long busyNanos;
+    private long idleNanos;
+    private long blockedNanos;
+
+    private int maxQueueDepth;
+    private long queueDepthSum;
+    private int queueSamples;
+
+    StageStats(String name, int queueCapacity) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+    }
+
+    void addBusy(long nanos) {
+        processed++;
+        busyNanos += nanos;
+    }
+
+    void addIdle(long nanos) {
+        idleNanos += nanos;
+    }
+
+    void addBlocked(long nanos) {
+        blockedNanos += nanos;
+    }
+
+    /**
+     * Records the number of files in the queue of the stage, right after one was added to it.
+     */
+    void sampleQueue(int depth) {
+        maxQueueDepth = Math.max(maxQueueDepth, depth);
+        queueDepthSum += depth;
+        queueSamples++;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of files the stage compiled, which skips the ones with errors in a previous stage
+     */
+    public int getProcessed() {
+        return processed;
+    }
+
+    /**
+     * @return the time spent compiling files
+     */
+    public long getBusyNanos() {
+        return busyNanos;
+    }
+
+    /**
+     * @return the time spent waiting for the previous stage
+     */
+    public long getIdleNanos() {
+        return idleNanos;
+    }
+
+    /**
+     * @return the time spent waiting for room in the queue of the next stage
+     */
+    public long getBlockedNanos() {
+        return blockedNanos;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public double getMeanQueueDepth() {
+        return queueSamples == 0 ? 0 : (double) queueDepthSum / queueSamples;
+    }
+
+    /**
+     * @return the fraction of the run the stage spent compiling; the stage closest to 1 limits the throughput
+     */
+    public double getUtilisation(long elapsedNanos) {
+        return elapsedNanos == 0 ? 0 : (double) busyNanos / elapsedNanos;
+    }
+}
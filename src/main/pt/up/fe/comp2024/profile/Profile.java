@@ -0,0 +1,77 @@
+package pt.up.fe.comp2024.profile;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The counters written by a run of code compiled with -profile: how many times each block was entered and each call
+ * site was executed, under the names given by {@link ProfileSites}.
+ */
+public class Profile {
+
+    /**
+     * Counts of at least this fraction of the largest count in the profile are hot
+     */
+    private static final double HOT_FRACTION = 0.01;
+
+    private final Map<String, Long> counts;
+    private final long maxCount;
+
+    private Profile(Map<String, Long> counts) {
+        this.counts = counts;
+        this.maxCount = counts.values().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    /**
+     * @return a profile without any counter, for compiling without profile data
+     */
+    public static Profile none() {
+        return new Profile(Map.of());
+    }
+
+    public static Profile read(File file) {
+        if (!file.isFile()) {
+            throw new RuntimeException("Could not find profile '" + file + "'");
+        }
+
+        var counts = new HashMap<String, Long>();
+        for (var line : SpecsIo.read(file).split("\n")) {
+            var parts = line.trim().split(" ");
+            if (parts.length != 2) {
+                continue;
+            }
+
+            try {
+                counts.put(parts[0], Long.parseLong(parts[1]));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid count in profile '" + file + "': " + line, e);
+            }
+        }
+
+        return new Profile(counts);
+    }
+
+    /**
+     * @return the value of the counter of the class, or -1 if the profile does not have it
+     */
+    public long getCount(String className, String key) {
+        return counts.getOrDefault(className + "." + key, -1L);
+    }
+
+    /**
+     * @return true if the count is a large share of the work done in the profiled run
+     */
+    public boolean isHot(long count) {
+        return count > 0 && count >= HOT_FRACTION * maxCount;
+    }
+
+    /**
+     * @return true if the code never ran in the profiled run
+     */
+    public boolean isCold(long count) {
+        return count == 0;
+    }
+}
@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.profile;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Numbers the blocks and the call sites of an OLLIR method. The instrumented code counts them under these numbers,
+ * and the optimizer finds its blocks and calls under the same ones, since both number the same OLLIR code.
+ */
+public class ProfileSites {
+
+    private ProfileSites() {
+    }
+
+    /**
+     * @return the first instruction of each block, in order: the first instruction of the method, the labeled ones and
+     * the ones right after a jump or a return
+     */
+    public static List<Instruction> getBlockLeaders(Method method) {
+        var leaders = new ArrayList<Instruction>();
+        var instructions = method.getInstructions();
+
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+            boolean afterTerminator = i > 0 && isTerminator(instructions.get(i - 1));
+
+            if (i == 0 || !method.getLabels(inst).isEmpty() || afterTerminator) {
+                leaders.add(inst);
+            }
+        }
+
+        return leaders;
+    }
+
+    /**
+     * @return the calls to methods, made as a statement or assigned to a variable, in order
+     */
+    public static List<CallInstruction> getCallSites(Method method) {
+        var calls = new ArrayList<CallInstruction>();
+
+        for (var inst : method.getInstructions()) {
+            var call = inst instanceof AssignInstruction assign ? assign.getRhs() : inst;
+            if (call instanceof CallInstruction callInst && (callInst.getInvocationType() == CallType.invokevirtual
+                    || callInst.getInvocationType() == CallType.invokestatic)) {
+                calls.add(callInst);
+            }
+        }
+
+        return calls;
+    }
+
+    public static String blockKey(String methodName, int index) {
+        return methodName + ":b" + index;
+    }
+
+    public static String callKey(String methodName, int index) {
+        return methodName + ":c" + index;
+    }
+
+    private static boolean isTerminator(Instruction inst) {
+        return inst instanceof GotoInstruction || inst instanceof CondBranchInstruction || inst instanceof ReturnInstruction;
+    }
+}
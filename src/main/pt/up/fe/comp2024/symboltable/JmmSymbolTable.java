@@ -3,6 +3,7 @@ package pt.up.fe.comp2024.symboltable;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.classpath.ClasspathIndex;
 
 import java.util.Collections;
 import java.util.List;
@@ -20,6 +21,8 @@ public class JmmSymbolTable implements SymbolTable {
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
 
+    private ClasspathIndex classpath = ClasspathIndex.empty();
+
     public JmmSymbolTable(String className,
                           List<String> methods,
                           Map<String, Type> returnTypes,
@@ -42,6 +45,17 @@ public class JmmSymbolTable implements SymbolTable {
     @Override
     public List<String> getImports() { return imports; }
 
+    /**
+     * @return the classes that can be imported, for the types of the methods called on them
+     */
+    public ClasspathIndex getClasspath() {
+        return classpath;
+    }
+
+    public void setClasspath(ClasspathIndex classpath) {
+        this.classpath = classpath;
+    }
+
     @Override
     public String getClassName() {
         return className;
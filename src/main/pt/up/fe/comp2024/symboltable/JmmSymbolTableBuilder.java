@@ -54,7 +54,7 @@ public class JmmSymbolTableBuilder {
             JmmNode typeNode = variable.getChildren("Type").get(0);
             String name;
             Type variableType;
-            if (Objects.equals(typeNode.toString(), "ArrayType")) {
+            if (Objects.equals(typeNode.toString().split(" ")[0], "ArrayType")) {
                 variableType = new Type(typeNode.getChildren("Type").get(0).get("name"), true);
                 variableType.putObject("isVarArg", false);
             }
@@ -0,0 +1,235 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Writes a symbol table in a compact binary form, and reads it back, so that the interface of a compiled class can be
+ * kept next to it and loaded without parsing its source again.
+ * <p>
+ * The form starts with a magic number and a version, followed by every distinct name in the table, each written once,
+ * and then the table itself, which refers to the names by their position. Numbers are written as variable-length
+ * integers, 7 bits per byte, so that most take a single byte:
+ * <pre>
+ * magic version
+ * names:   count (length utf8-bytes)*
+ * class:   name super(0 if none, else name + 1)
+ * imports: count name*
+ * fields:  count symbol*
+ * methods: count (name type params:(count symbol*) locals:(count symbol*))*
+ * symbol:  type name
+ * type:    name flags(1 = array, 2 = has isVarArg, 4 = isVarArg)
+ * </pre>
+ * Reading works from a {@link ByteBuffer}, so that the file can be memory-mapped.
+ */
+public class SymbolTableFormat {
+
+    public static final String EXTENSION = "sym";
+
+    private static final int MAGIC = 0x4A4D4D53;
+    private static final int VERSION = 1;
+
+    private static final int ARRAY = 1;
+    private static final int HAS_VAR_ARG = 2;
+    private static final int VAR_ARG = 4;
+
+    private static final String IS_VAR_ARG = "isVarArg";
+
+    private SymbolTableFormat() {
+    }
+
+    public static byte[] write(SymbolTable table) {
+        var names = new LinkedHashMap<String, Integer>();
+        var body = new ByteArrayOutputStream();
+
+        writeInt(body, index(names, table.getClassName()));
+        writeInt(body, table.getSuper() == null ? 0 : index(names, table.getSuper()) + 1);
+
+        writeInt(body, table.getImports().size());
+        for (var importName : table.getImports()) {
+            writeInt(body, index(names, importName));
+        }
+
+        writeSymbols(body, table.getFields(), names);
+
+        writeInt(body, table.getMethods().size());
+        for (var method : table.getMethods()) {
+            writeInt(body, index(names, method));
+            writeType(body, table.getReturnType(method), names);
+            writeSymbols(body, table.getParameters(method), names);
+            writeSymbols(body, table.getLocalVariables(method), names);
+        }
+
+        var out = new ByteArrayOutputStream();
+        var magic = ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).array();
+        out.writeBytes(magic);
+        writeInt(out, VERSION);
+
+        writeInt(out, names.size());
+        for (var name : names.keySet()) {
+            var bytes = name.getBytes(StandardCharsets.UTF_8);
+            writeInt(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    public static JmmSymbolTable read(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new RuntimeException("Not a symbol table");
+            }
+            int version = readInt(buffer);
+            if (version != VERSION) {
+                throw new RuntimeException("Symbol table of version " + version + ", expected " + VERSION);
+            }
+
+            var names = new String[readCount(buffer)];
+            for (int i = 0; i < names.length; i++) {
+                var bytes = new byte[readCount(buffer)];
+                buffer.get(bytes);
+                names[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            var className = names[readInt(buffer)];
+            int superIndex = readInt(buffer);
+            var superName = superIndex == 0 ? null : names[superIndex - 1];
+
+            var imports = new ArrayList<String>();
+            for (int count = readCount(buffer); count > 0; count--) {
+                imports.add(names[readInt(buffer)]);
+            }
+
+            var fields = readSymbols(buffer, names);
+
+            var methods = new ArrayList<String>();
+            var returnTypes = new HashMap<String, Type>();
+            var params = new HashMap<String, List<Symbol>>();
+            var locals = new HashMap<String, List<Symbol>>();
+            for (int count = readCount(buffer); count > 0; count--) {
+                var method = names[readInt(buffer)];
+                methods.add(method);
+                returnTypes.put(method, readType(buffer, names));
+                params.put(method, readSymbols(buffer, names));
+                locals.put(method, readSymbols(buffer, names));
+            }
+
+            return new JmmSymbolTable(className, methods, returnTypes, params, locals, imports, fields, superName);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("Truncated or corrupted symbol table", e);
+        }
+    }
+
+    /**
+     * Writes the table to the folder, as the class name with the extension {@value #EXTENSION}.
+     *
+     * @return the file written
+     */
+    public static File save(SymbolTable table, File folder) {
+        var file = new File(folder, table.getClassName() + "." + EXTENSION);
+        try {
+            Files.write(file.toPath(), write(table));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write symbol table '" + file + "'", e);
+        }
+        return file;
+    }
+
+    public static JmmSymbolTable load(File file) {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read symbol table '" + file + "'", e);
+        }
+    }
+
+    private static int index(Map<String, Integer> names, String name) {
+        return names.computeIfAbsent(name, key -> names.size());
+    }
+
+    private static void writeSymbols(ByteArrayOutputStream out, List<Symbol> symbols, Map<String, Integer> names) {
+        writeInt(out, symbols.size());
+        for (var symbol : symbols) {
+            writeType(out, symbol.getType(), names);
+            writeInt(out, index(names, symbol.getName()));
+        }
+    }
+
+    private static void writeType(ByteArrayOutputStream out, Type type, Map<String, Integer> names) {
+        writeInt(out, index(names, type.getName()));
+
+        int flags = type.isArray() ? ARRAY : 0;
+        if (type.getAttributes().contains(IS_VAR_ARG)) {
+            flags |= HAS_VAR_ARG;
+            if (Boolean.TRUE.equals(type.getObject(IS_VAR_ARG))) {
+                flags |= VAR_ARG;
+            }
+        }
+        out.write(flags);
+    }
+
+    private static List<Symbol> readSymbols(ByteBuffer buffer, String[] names) {
+        var symbols = new ArrayList<Symbol>();
+        for (int count = readCount(buffer); count > 0; count--) {
+            var type = readType(buffer, names);
+            symbols.add(new Symbol(type, names[readInt(buffer)]));
+        }
+        return symbols;
+    }
+
+    private static Type readType(ByteBuffer buffer, String[] names) {
+        var name = names[readInt(buffer)];
+        int flags = buffer.get();
+
+        var type = new Type(name, (flags & ARRAY) != 0);
+        if ((flags & HAS_VAR_ARG) != 0) {
+            type.putObject(IS_VAR_ARG, (flags & VAR_ARG) != 0);
+        }
+        return type;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Reads the number of items that follow, each of which takes at least a byte.
+     */
+    private static int readCount(ByteBuffer buffer) {
+        int count = readInt(buffer);
+        if (count < 0 || count > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private static int readInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new RuntimeException("Invalid number in symbol table");
+    }
+}
@@ -0,0 +1,156 @@
+package pt.up.fe.comp2024.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.util.*;
+
+/**
+ * Collects the reports of a compilation, keeping a bounded number of them: at most a maximum in total, and in each
+ * stage, and a message reported more than once at the same place only once. The first error is always kept, so that
+ * dropping reports never hides that the compilation failed.
+ * <p>
+ * With a maximum number of errors, the stages stop as soon as that many were reported, instead of looking for more in a
+ * program that is known to be wrong.
+ */
+public class Diagnostics {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final int maxReports;
+    private final int maxStageReports;
+    private final int maxErrors;
+
+    private final List<Report> reports = new ArrayList<>();
+    private final Set<String> kept = new HashSet<>();
+    private final Map<Stage, Integer> stageReports = new EnumMap<>(Stage.class);
+    private int errors = 0;
+    private int keptErrors = 0;
+    private int dropped = 0;
+    private int resultReports = 0;
+
+    /**
+     * @param maxErrors the number of errors after which the compilation stops
+     */
+    public Diagnostics(int maxReports, int maxStageReports, int maxErrors) {
+        this.maxReports = maxReports;
+        this.maxStageReports = maxStageReports;
+        this.maxErrors = maxErrors;
+    }
+
+    public static Diagnostics fromConfig(Map<String, String> config) {
+        return new Diagnostics(CompilerConfig.getMaxReports(config), CompilerConfig.getMaxStageReports(config),
+                CompilerConfig.getMaxErrors(config));
+    }
+
+    /**
+     * @return true if the report was kept, false if it repeats one that was, or there are already too many
+     */
+    public boolean add(Report report) {
+        if (kept.contains(getKey(report))) {
+            return false;
+        }
+
+        boolean isError = report.getType() == ReportType.ERROR;
+        if (isError) {
+            errors++;
+        }
+
+        int inStage = stageReports.merge(report.getStage(), 1, Integer::sum);
+        boolean overLimit = reports.size() >= maxReports || inStage > maxStageReports;
+        if (overLimit && !(isError && keptErrors == 0)) {
+            dropped++;
+            return false;
+        }
+
+        reports.add(report);
+        kept.add(getKey(report));
+        if (isError) {
+            keptErrors++;
+        }
+        return true;
+    }
+
+    public void addAll(List<Report> reports) {
+        for (var report : reports) {
+            add(report);
+        }
+    }
+
+    /**
+     * Adds the reports of the result of a stage. Each result carries the reports of the results before it, followed by
+     * its own, so only the ones past those of the previous result are new.
+     */
+    public void addResultReports(List<Report> stageResultReports) {
+        int previous = Math.min(resultReports, stageResultReports.size());
+        addAll(stageResultReports.subList(previous, stageResultReports.size()));
+        resultReports = stageResultReports.size();
+    }
+
+    /**
+     * @return true once the maximum number of errors was reported, kept or not
+     */
+    public boolean shouldStop() {
+        return errors >= maxErrors;
+    }
+
+    public boolean hasErrors() {
+        return errors > 0;
+    }
+
+    /**
+     * @return the reports kept, in the order they were added
+     */
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    /**
+     * @return the reports kept, followed by a log of the stage with how many were dropped, if any
+     */
+    public List<Report> getReportsWithDropped(Stage stage) {
+        if (dropped == 0) {
+            return reports;
+        }
+
+        var withDropped = new ArrayList<>(reports);
+        withDropped.add(Report.newLog(stage, -1, -1, dropped + " more reports were dropped", null));
+        return withDropped;
+    }
+
+    /**
+     * @return how many reports were over the limits, not counting repeated ones
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the reports kept, one JSON object per line, with the fields type, stage, line, column and message
+     */
+    public String toJsonLines() {
+        var lines = new StringBuilder();
+        for (var report : reports) {
+            var json = new JsonObject();
+            json.addProperty("type", report.getType().name());
+            json.addProperty("stage", report.getStage().name());
+            json.addProperty("line", report.getLine());
+            json.addProperty("column", report.getColumn());
+            json.addProperty("message", report.getMessage());
+            lines.append(GSON.toJson(json)).append("\n");
+        }
+        return lines.toString();
+    }
+
+    private static String getKey(Report report) {
+        return report.getType() + "@" + report.getStage() + ":" + report.getLine() + ":" + report.getColumn() + ":"
+                + report.getMessage();
+    }
+}
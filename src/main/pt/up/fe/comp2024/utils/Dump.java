@@ -0,0 +1,140 @@
+package pt.up.fe.comp2024.utils;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes what the stages produce, when asked to with -dump=ast,ollir,jasmin: to stdout, or with -dumpDir=folder to a
+ * file in the folder named after the input file, e.g. Simple.ast, Simple.ollir and Simple.j.
+ * <p>
+ * Nothing is rendered unless it is dumped, and the AST is written a node at a time instead of being built into a
+ * single String first.
+ */
+public class Dump {
+
+    public enum Kind {
+        AST("ast"),
+        OLLIR("ollir"),
+        JASMIN("j");
+
+        private final String extension;
+
+        Kind(String extension) {
+            this.extension = extension;
+        }
+
+        public static Kind fromName(String name) {
+            for (var kind : values()) {
+                if (kind.name().equalsIgnoreCase(name)) {
+                    return kind;
+                }
+            }
+            throw new RuntimeException("Unknown dump '" + name + "', expected one of ast, ollir or jasmin");
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Set<Kind> kinds;
+    private final File folder;
+    private final String name;
+
+    /**
+     * @param folder where the dumps are written, or null for stdout
+     * @param name   the name of the files, without extension
+     */
+    public Dump(Set<Kind> kinds, File folder, String name) {
+        this.kinds = kinds;
+        this.folder = folder;
+        this.name = name;
+    }
+
+    public static Dump fromConfig(Map<String, String> config) {
+        var name = CompilerConfig.getInputFile(config)
+                .map(file -> file.getName().replaceFirst("\\.jmm$", ""))
+                .orElse("Main");
+        return new Dump(CompilerConfig.getDumps(config), CompilerConfig.getDumpFolder(config).orElse(null), name);
+    }
+
+    public boolean isEnabled(Kind kind) {
+        return kinds.contains(kind);
+    }
+
+    /**
+     * Writes the tree in the format of {@link JmmNode#toTree()}.
+     */
+    public void ast(JmmNode root) {
+        if (!isEnabled(Kind.AST)) {
+            return;
+        }
+
+        write(Kind.AST, writer -> {
+            var pending = new ArrayDeque<JmmNode>();
+            var depths = new ArrayDeque<Integer>();
+            pending.push(root);
+            depths.push(0);
+
+            while (!pending.isEmpty()) {
+                var node = pending.pop();
+                int depth = depths.pop();
+                for (int i = 0; i < depth; i++) {
+                    writer.write("   ");
+                }
+                writer.write(node.toString());
+                writer.write('\n');
+
+                var children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                    depths.push(depth + 1);
+                }
+            }
+        });
+    }
+
+    public void ollir(String ollirCode) {
+        if (isEnabled(Kind.OLLIR)) {
+            write(Kind.OLLIR, writer -> writer.write(ollirCode));
+        }
+    }
+
+    public void jasmin(String jasminCode) {
+        if (isEnabled(Kind.JASMIN)) {
+            write(Kind.JASMIN, writer -> writer.write(jasminCode));
+        }
+    }
+
+    private interface Render {
+        void to(Writer writer) throws IOException;
+    }
+
+    private void write(Kind kind, Render render) {
+        if (folder != null) {
+            var file = new File(folder, name + "." + kind.extension);
+            try (var writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                    StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                render.to(writer);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not write dump '" + file + "'", e);
+            }
+            return;
+        }
+
+        // Dumps of files compiled at the same time do not interleave
+        synchronized (System.out) {
+            try {
+                var writer = new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_SIZE);
+                render.to(writer);
+                writer.flush();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not write dump to stdout", e);
+            }
+        }
+    }
+}
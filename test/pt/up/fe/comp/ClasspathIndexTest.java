@@ -0,0 +1,196 @@
+package pt.up.fe.comp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.classpath.ClasspathIndex;
+import utils.JasminRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ClasspathIndexTest {
+
+    private static final File LIBS = new File("libs-jmm/compiled");
+
+    private static final String SORT = """
+            import Quicksort;
+            class Sort {
+                public static void main(String[] args) {
+                    Quicksort q;
+                    int[] a;
+                    q = new Quicksort();
+                    a = new int[3];
+                    a[0] = 3;
+                    a[1] = 1;
+                    a[2] = 2;
+                    q.quicksort(a);
+                    q.printL(a);
+                }
+            }
+            """;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ClasspathIndex load(File... classpath) {
+        return ClasspathIndex.load(List.of(classpath), new File(folder.getRoot(), "classpath.idx"));
+    }
+
+    @Test
+    public void readsMethodsOfClassFiles() {
+        var index = load(LIBS);
+
+        var read = index.findMethod("io", "read", List.of()).orElseThrow();
+        assertEquals("()I", read.descriptor());
+        assertTrue(read.isStatic());
+
+        var sort = index.findMethod("Quicksort", "quicksort", List.of("[I")).orElseThrow();
+        assertEquals("([I)Z", sort.descriptor());
+        assertFalse(sort.isStatic());
+
+        assertEquals("([III)Z", index.findMethod("Quicksort", "quicksort", List.of("[I", "I", "I"))
+                .orElseThrow().descriptor());
+        assertTrue(index.getClass("foo/bar/A").isPresent());
+    }
+
+    @Test
+    public void overloadChosenByArguments() {
+        var index = load(LIBS);
+
+        assertEquals("(I)V", index.findMethod("io", "print", List.of("I")).orElseThrow().descriptor());
+        assertEquals("(Z)V", index.findMethod("io", "print", List.of("Z")).orElseThrow().descriptor());
+        assertTrue(index.findMethod("io", "missing", List.of()).isEmpty());
+    }
+
+    /**
+     * A method whose parameters differ from the arguments is not chosen, even if it is the only one of that arity: the
+     * call would name a descriptor the class does not have.
+     */
+    @Test
+    public void onlyExactOverloadIsFound() {
+        var index = load(LIBS);
+
+        assertTrue(index.findMethod("MathUtils", "random", List.of("Z", "Z")).isEmpty());
+        assertTrue(index.findMethod("MathUtils", "random", Arrays.asList("I", null)).isEmpty());
+        assertEquals("(II)I", index.findMethod("MathUtils", "random", List.of("I", "I")).orElseThrow().descriptor());
+    }
+
+    /**
+     * Classes in a jar are indexed, and a jar that changes is indexed again.
+     */
+    @Test
+    public void jarChangesAreSeen() throws Exception {
+        var jar = new File(folder.getRoot(), "libs.jar");
+        writeJar(jar, "io.class");
+        assertTrue(load(jar).getClass("io").isPresent());
+        assertTrue(load(jar).getClass("Quicksort").isEmpty());
+
+        writeJar(jar, "io.class", "Quicksort.class");
+        jar.setLastModified(jar.lastModified() + 2000);
+        assertTrue(load(jar).getClass("Quicksort").isPresent());
+    }
+
+    @Test
+    public void corruptedCacheIsRebuilt() throws Exception {
+        var cache = new File(folder.getRoot(), "corrupted.idx");
+        Files.write(cache.toPath(), new byte[]{0x4A, 0x4D, 0x4D, 0x43, 0, 0, 0, 1, 0x7F, 0x7F});
+
+        var index = ClasspathIndex.load(List.of(LIBS), cache);
+
+        assertTrue(index.getClass("io").isPresent());
+        assertTrue(cache.length() > 10);
+    }
+
+    /**
+     * Without the classpath, the calls are assumed to return nothing, and the methods are not found when run.
+     */
+    @Test
+    public void importedCallsGetDeclaredDescriptors() {
+        var result = TestUtils.backend(SORT, classpathConfig());
+        assertTrue(result.getJasminCode().contains("invokevirtual Quicksort/quicksort([I)Z"));
+        assertEquals("1\n2\n3", TestUtils.runJasmin(result.getJasminCode()).replace("\r\n", "\n").trim());
+
+        var guessed = TestUtils.backend(SORT);
+        assertTrue(guessed.getJasminCode().contains("invokevirtual Quicksort/quicksort([I)V"));
+    }
+
+    /**
+     * With the classpath, the value of an imported call has the type the method declares, and can be assigned.
+     */
+    @Test
+    public void importedCallsAreTyped() {
+        var code = """
+                import io;
+                import MathUtils;
+                class Typed {
+                    public static void main(String[] args) {
+                        MathUtils m;
+                        int a;
+                        int b;
+                        m = new MathUtils();
+                        a = io.read();
+                        b = m.random(3, 3);
+                        io.println(a + b);
+                    }
+                }
+                """;
+
+        TestUtils.mustFail(TestUtils.analyse(code).getReports());
+
+        var result = TestUtils.backend(code, classpathConfig());
+        TestUtils.noErrors(result.getReports());
+        assertTrue(result.getJasminCode().contains("invokestatic MathUtils/random(II)I"));
+        assertEquals("7", JasminRunner.run(result, "4").getOutput().trim());
+    }
+
+    /**
+     * A static method called on an object is invoked with invokestatic, but the object is still computed before it.
+     */
+    @Test
+    public void staticCallEvaluatesObject() {
+        var code = """
+                import MathUtils;
+                class Chain {
+                    public MathUtils make() {
+                        return new MathUtils();
+                    }
+                    public static void main(String[] args) {
+                        Chain c;
+                        c = new Chain();
+                        c.make().random(1, 2);
+                    }
+                }
+                """;
+
+        var ollirCode = TestUtils.optimize(code, classpathConfig()).getOllirCode();
+        int make = ollirCode.indexOf("\"make\").MathUtils;");
+        int random = ollirCode.indexOf("invokestatic(MathUtils, \"random\", 1.i32, 2.i32).i32;");
+        assertTrue(ollirCode, make >= 0 && random > make);
+    }
+
+    private Map<String, String> classpathConfig() {
+        Map<String, String> config = new HashMap<>();
+        config.put("classpath", LIBS.getPath());
+        config.put("classpathCache", new File(folder.getRoot(), "classpath.idx").getPath());
+        return config;
+    }
+
+    private static void writeJar(File jar, String... classFiles) throws Exception {
+        try (var out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            for (var classFile : classFiles) {
+                out.putNextEntry(new JarEntry(classFile));
+                out.write(Files.readAllBytes(new File(LIBS, classFile).toPath()));
+                out.closeEntry();
+            }
+        }
+    }
+}
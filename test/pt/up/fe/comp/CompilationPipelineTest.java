@@ -0,0 +1,141 @@
+package pt.up.fe.comp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.pipeline.CompilationPipeline;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.WorkloadGenerator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompilationPipelineTest {
+
+    private static final int FILES = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<File> writeWorkload(int count) throws Exception {
+        var files = new ArrayList<File>();
+        for (int i = 0; i < count; i++) {
+            var className = "Workload" + i;
+            var file = folder.newFile(className + ".jmm");
+            SpecsIo.write(file, WorkloadGenerator.generate(className, WorkloadGenerator.Shape.small(), i));
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Each file gets the same code it would when compiled on its own.
+     */
+    @Test
+    public void sameCodeAsSequential() throws Exception {
+        var files = writeWorkload(FILES);
+
+        var compilations = new CompilationPipeline(2).run(files, new HashMap<>());
+
+        assertEquals(FILES, compilations.size());
+        for (int i = 0; i < FILES; i++) {
+            var compilation = compilations.get(i);
+            assertEquals(files.get(i), compilation.getFile());
+            TestUtils.noErrors(compilation.getReports());
+
+            var expected = TestUtils.backend(SpecsIo.read(files.get(i)), new HashMap<>());
+            assertEquals(expected.getJasminCode(), compilation.getJasminResult().getJasminCode());
+        }
+    }
+
+    /**
+     * A file with errors stops at the stage that reported them, and the other files are still compiled.
+     */
+    @Test
+    public void failureSkipsLaterStages() throws Exception {
+        var files = writeWorkload(4);
+        var broken = folder.newFile("Broken.jmm");
+        SpecsIo.write(broken, "class Broken {\n    public int m() {\n        return undeclared;\n    }\n}\n");
+        files.add(1, broken);
+
+        var pipeline = new CompilationPipeline(1);
+        var compilations = pipeline.run(files, new HashMap<>());
+
+        var failed = compilations.get(1);
+        TestUtils.mustFail(failed.getReports());
+        assertNull(failed.getOllirResult());
+        assertNull(failed.getJasminResult());
+
+        for (int i = 0; i < files.size(); i++) {
+            if (i != 1) {
+                TestUtils.noErrors(compilations.get(i).getReports());
+                assertNotNull(compilations.get(i).getJasminResult());
+            }
+        }
+
+        var stats = pipeline.getStats();
+        assertEquals(5, stats.get(0).getProcessed());
+        assertEquals(5, stats.get(1).getProcessed());
+        assertEquals(4, stats.get(2).getProcessed());
+        assertEquals(4, stats.get(stats.size() - 1).getProcessed());
+    }
+
+    @Test
+    public void queuesStayWithinCapacity() throws Exception {
+        var files = writeWorkload(FILES);
+
+        var pipeline = new CompilationPipeline(2);
+        pipeline.run(files, new HashMap<>());
+
+        for (var stage : pipeline.getStats()) {
+            assertEquals(FILES, stage.getProcessed());
+            assertTrue(stage.getMaxQueueDepth() <= 2);
+            assertTrue(stage.getUtilisation(pipeline.getElapsedNanos()) <= 1);
+        }
+        assertTrue(pipeline.formatStats().contains("analysis"));
+    }
+
+    /**
+     * Each report is kept once, although the result of every stage carries the reports of the previous ones.
+     */
+    @Test
+    public void reportsOfEachStageOnce() throws Exception {
+        var file = folder.newFile("Folded.jmm");
+        SpecsIo.write(file, "class Folded {\n    public int m() {\n        int a;\n        if (true) {\n            a = 1;\n"
+                + "        } else {\n            a = 2;\n        }\n        return a;\n    }\n}\n");
+
+        var compilation = new CompilationPipeline(1).run(List.of(file), new HashMap<>()).get(0);
+
+        TestUtils.noErrors(compilation.getReports());
+        var expected = TestUtils.backend(SpecsIo.read(file), new HashMap<>()).getReports();
+        assertEquals(expected.size(), compilation.getReports().size());
+        assertEquals(1, compilation.getReports().stream()
+                .filter(report -> report.getMessage().startsWith("Eliminated else branch"))
+                .count());
+    }
+
+    /**
+     * A stage that fails with an error, not an exception, fails that file only, and the pipeline still ends.
+     */
+    @Test(timeout = 60000)
+    public void stackOverflowFailsOnlyThatFile() throws Exception {
+        var files = writeWorkload(2);
+        var deep = folder.newFile("Deep.jmm");
+        SpecsIo.write(deep, "class Deep {\n    public int m() {\n        return 1" + "+1".repeat(100000)
+                + ";\n    }\n}\n");
+        files.add(1, deep);
+
+        var compilations = new CompilationPipeline(1).run(files, new HashMap<>());
+
+        // The sum is parsed in a loop, but its tree is as deep as it is long
+        TestUtils.mustFail(compilations.get(1).getReports());
+        assertTrue(compilations.get(1).getReports().get(0).getMessage().contains("StackOverflowError"));
+        TestUtils.noErrors(compilations.get(0).getReports());
+        TestUtils.noErrors(compilations.get(2).getReports());
+        assertNotNull(compilations.get(2).getJasminResult());
+    }
+}
@@ -0,0 +1,101 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * The compiler keeps no state between compilations, so the suites can compile their programs at the same time.
+ */
+public class ConcurrentCompilationTest {
+
+    private static final Path PROGRAMS = Paths.get("test/pt/up/fe/comp");
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int COPIES = 2;
+
+    private static List<Path> getPrograms() {
+        try (var files = Files.walk(PROGRAMS)) {
+            return files.filter(file -> file.toString().endsWith(".jmm")).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return everything the compiler produces for the program, reports included, or the exception it threw
+     */
+    private static String compile(Path program) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+
+        var output = new StringBuilder();
+        try {
+            var semanticsResult = TestUtils.analyse(SpecsIo.read(program.toFile()), config);
+            output.append(semanticsResult.getReports()).append("\n");
+            if (semanticsResult.getRootNode() == null || ReportUtils.anyError(semanticsResult.getReports())) {
+                return output.toString();
+            }
+
+            var ollirResult = TestUtils.optimize(semanticsResult);
+            output.append(ollirResult.getReports()).append("\n").append(ollirResult.getOllirCode()).append("\n");
+            if (ReportUtils.anyError(ollirResult.getReports())) {
+                return output.toString();
+            }
+
+            var jasminResult = TestUtils.backend(ollirResult);
+            output.append(jasminResult.getReports()).append("\n").append(jasminResult.getJasminCode());
+        } catch (RuntimeException e) {
+            output.append(e);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Every program is compiled once by itself, and then several times at once, in the same JVM. Each of the concurrent
+     * compilations must produce exactly what the serial one did: temporaries, labels and types must not depend on what
+     * else was compiled before or at the same time.
+     */
+    @Test
+    public void concurrentOutputIsSameAsSerial() {
+        var programs = getPrograms();
+        assertFalse("No programs found in " + PROGRAMS.toAbsolutePath(), programs.isEmpty());
+
+        var serial = new LinkedHashMap<Path, String>();
+        for (var program : programs) {
+            serial.put(program, compile(program));
+        }
+
+        var executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            var concurrent = new ArrayList<Map.Entry<Path, Future<String>>>();
+            for (int copy = 0; copy < COPIES; copy++) {
+                for (var program : programs) {
+                    concurrent.add(Map.entry(program, executor.submit(() -> compile(program))));
+                }
+            }
+
+            for (var compilation : concurrent) {
+                assertEquals("Output of " + compilation.getKey() + " changed when compiled concurrently",
+                        serial.get(compilation.getKey()), compilation.getValue().get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package pt.up.fe.comp;
+
+import com.google.gson.JsonParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.Launcher;
+import pt.up.fe.comp2024.pipeline.CompilationPipeline;
+import pt.up.fe.comp2024.utils.Diagnostics;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DiagnosticsTest {
+
+    private static final int UNLIMITED = Diagnostics.UNLIMITED;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Report error(Stage stage, int line, String message) {
+        return Report.newError(stage, line, 1, message, null);
+    }
+
+    /**
+     * A method that uses as many undeclared variables as given.
+     */
+    private static String getUndeclaredVariables(int count) {
+        var code = new StringBuilder("class Flood {\n    public int flood() {\n        int sum;\n        sum = 0;\n");
+        for (int i = 0; i < count; i++) {
+            code.append("        sum = sum + undeclared").append(i).append(";\n");
+        }
+        return code.append("        return sum;\n    }\n}\n").toString();
+    }
+
+    /**
+     * A program that compiles with reports from the OLLIR generation, the optimizations and the code generation.
+     */
+    private File getReportingProgram() {
+        var file = new File(folder.getRoot(), "Branches.jmm");
+        SpecsIo.write(file, SpecsIo.getResource("pt/up/fe/comp/optimizations/peephole/Branches.jmm"));
+        return file;
+    }
+
+    private String[] launch(File input, File reports, String maxReports) {
+        Launcher.main(new String[]{"-i=" + input.getPath(), "-o", "-reports=" + reports.getPath(),
+                "-maxReports=" + maxReports});
+        return SpecsIo.read(reports).split("\n");
+    }
+
+    @Test
+    public void sameMessageAtSamePlaceKeptOnce() {
+        var diagnostics = new Diagnostics(UNLIMITED, UNLIMITED, UNLIMITED);
+
+        assertTrue(diagnostics.add(error(Stage.SEMANTIC, 3, "Variable 'a' does not exist.")));
+        assertFalse(diagnostics.add(error(Stage.SEMANTIC, 3, "Variable 'a' does not exist.")));
+        assertTrue(diagnostics.add(error(Stage.SEMANTIC, 4, "Variable 'a' does not exist.")));
+
+        assertEquals(2, diagnostics.getReports().size());
+        assertEquals(0, diagnostics.getDropped());
+    }
+
+    @Test
+    public void limitsEachStage() {
+        var diagnostics = new Diagnostics(UNLIMITED, 3, UNLIMITED);
+
+        for (int line = 0; line < 10; line++) {
+            diagnostics.add(error(Stage.SEMANTIC, line, "Semantic"));
+        }
+        diagnostics.add(error(Stage.OPTIMIZATION, 1, "Optimization"));
+
+        assertEquals(4, diagnostics.getReports().size());
+        assertEquals(7, diagnostics.getDropped());
+        assertEquals(Stage.OPTIMIZATION, diagnostics.getReports().get(3).getStage());
+    }
+
+    @Test
+    public void firstErrorKeptWhenFull() {
+        var diagnostics = new Diagnostics(2, UNLIMITED, UNLIMITED);
+
+        for (int line = 0; line < 5; line++) {
+            diagnostics.add(Report.newWarn(Stage.SEMANTIC, line, 1, "Warning", null));
+        }
+        diagnostics.add(error(Stage.SEMANTIC, 10, "First error"));
+        diagnostics.add(error(Stage.SEMANTIC, 11, "Second error"));
+
+        assertTrue(diagnostics.hasErrors());
+        assertEquals(3, diagnostics.getReports().size());
+        assertEquals("First error", diagnostics.getReports().get(2).getMessage());
+    }
+
+    /**
+     * The analysis stops looking for errors once there are as many as allowed.
+     */
+    @Test
+    public void analysisStopsAfterMaxErrors() {
+        var code = getUndeclaredVariables(200);
+
+        var all = TestUtils.analyse(code).getReports(ReportType.ERROR);
+        assertEquals(200, all.size());
+
+        Map<String, String> config = new HashMap<>();
+        config.put("maxErrors", "5");
+        var failFast = TestUtils.analyse(code, config).getReports(ReportType.ERROR);
+        assertEquals(5, failFast.size());
+        assertEquals(all.subList(0, 5).toString(), failFast.toString());
+    }
+
+    /**
+     * Errors from different passes are all reported, unless the first ones already reach the maximum.
+     */
+    @Test
+    public void passesStopAfterMaxErrors() {
+        var code = "class Passes {\n    public int passes() {\n        int a;\n        a = undeclared;\n"
+                + "        a = true;\n        return a;\n    }\n}\n";
+
+        assertEquals(2, TestUtils.analyse(code).getReports(ReportType.ERROR).size());
+
+        Map<String, String> config = new HashMap<>();
+        config.put("maxErrors", "1");
+        var failFast = TestUtils.analyse(code, config).getReports(ReportType.ERROR);
+        assertEquals(1, failFast.size());
+        assertEquals("Variable 'undeclared' does not exist.", failFast.get(0).getMessage());
+    }
+
+    @Test
+    public void analysisKeepsAtMostMaxReports() {
+        Map<String, String> config = new HashMap<>();
+        config.put("maxReports", "10");
+
+        assertEquals(10, TestUtils.analyse(getUndeclaredVariables(200), config).getReports(ReportType.ERROR).size());
+    }
+
+    /**
+     * The limits hold for the reports of all the stages together, not for each stage on its own.
+     */
+    @Test
+    public void launcherKeepsAtMostMaxReports() {
+        var input = getReportingProgram();
+        var reports = new File(folder.getRoot(), "reports.jsonl");
+
+        assertTrue(launch(input, reports, "1000").length > 1);
+        assertEquals(1, launch(input, reports, "1").length);
+    }
+
+    @Test
+    public void pipelineKeepsAtMostMaxReports() {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        config.put("maxReports", "1");
+
+        var compilation = new CompilationPipeline(1).run(List.of(getReportingProgram()), config).get(0);
+
+        assertFalse(compilation.hasErrors());
+        assertEquals(1, compilation.getReports().size());
+    }
+
+    @Test
+    public void jsonLines() {
+        var diagnostics = new Diagnostics(UNLIMITED, UNLIMITED, UNLIMITED);
+        diagnostics.add(error(Stage.SEMANTIC, 3, "Variable \"a\" does not exist."));
+        diagnostics.add(Report.newWarn(Stage.OPTIMIZATION, 5, 2, "Unused", null));
+
+        var lines = diagnostics.toJsonLines().split("\n");
+        assertEquals(2, lines.length);
+
+        var first = JsonParser.parseString(lines[0]).getAsJsonObject();
+        assertEquals("ERROR", first.get("type").getAsString());
+        assertEquals("SEMANTIC", first.get("stage").getAsString());
+        assertEquals(3, first.get("line").getAsInt());
+        assertEquals(1, first.get("column").getAsInt());
+        assertEquals("Variable \"a\" does not exist.", first.get("message").getAsString());
+
+        assertEquals("WARNING", JsonParser.parseString(lines[1]).getAsJsonObject().get("type").getAsString());
+    }
+}
@@ -0,0 +1,57 @@
+package pt.up.fe.comp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.utils.Dump;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.WorkloadGenerator;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DumpTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, String> getConfig(String dumps) {
+        Map<String, String> config = new HashMap<>();
+        config.put("inputFile", new File(folder.getRoot(), "Dumped.jmm").getPath());
+        config.put("dump", dumps);
+        config.put("dumpDir", folder.getRoot().getPath());
+        return config;
+    }
+
+    @Test
+    public void astSameAsToTree() {
+        var root = TestUtils.parse(WorkloadGenerator.generate("Dumped", WorkloadGenerator.Shape.small(), 3))
+                .getRootNode();
+
+        Dump.fromConfig(getConfig("ast")).ast(root);
+
+        assertEquals(root.toTree(), SpecsIo.read(new File(folder.getRoot(), "Dumped.ast")));
+    }
+
+    @Test
+    public void onlyWhatIsAskedFor() {
+        var dump = Dump.fromConfig(getConfig("jasmin"));
+        dump.ollir("ollir code");
+        dump.jasmin("jasmin code");
+
+        assertFalse(new File(folder.getRoot(), "Dumped.ollir").exists());
+        assertEquals("jasmin code", SpecsIo.read(new File(folder.getRoot(), "Dumped.j")));
+    }
+
+    @Test
+    public void nothingByDefault() {
+        var dump = Dump.fromConfig(new HashMap<>());
+
+        for (var kind : Dump.Kind.values()) {
+            assertFalse(dump.isEnabled(kind));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package pt.up.fe.comp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.MappedCharStream;
+import utils.WorkloadGenerator;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class MappedCharStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String code) throws Exception {
+        var file = folder.newFile();
+        Files.writeString(file.toPath(), code, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String getText(MappedCharStream stream) {
+        var text = new StringBuilder();
+        while (stream.LA(1) != MappedCharStream.EOF) {
+            text.append((char) stream.LA(1));
+            stream.consume();
+        }
+        return text.toString();
+    }
+
+    /**
+     * Characters of more than one byte are decoded whole, also when split between chunks.
+     */
+    @Test
+    public void decodesAcrossChunks() throws Exception {
+        var code = "class A\u00e7\u00e3o { // \u20ac\ud834\udd1e \u00e7\n}\n".repeat(10);
+        var file = write(code);
+
+        for (int chunkBytes : new int[]{4, 5, 7, 64}) {
+            var stream = new MappedCharStream(file, chunkBytes);
+            assertEquals(code.length(), stream.size());
+            assertEquals(code, getText(stream));
+        }
+    }
+
+    @Test
+    public void emptyFile() throws Exception {
+        assertEquals(0, new MappedCharStream(write("")).size());
+    }
+
+    /**
+     * Parsing a file gives the same tree as parsing its code.
+     */
+    @Test
+    public void sameTreeAsString() throws Exception {
+        var code = WorkloadGenerator.generate("Mapped", WorkloadGenerator.Shape.small(), 7);
+        var file = write(code);
+        var parser = new JmmParserImpl();
+
+        var fromString = parser.parse(code, new HashMap<>());
+        var fromFile = parser.parse(file, new HashMap<>());
+
+        TestUtils.noErrors(fromFile);
+        assertEquals(fromString.getRootNode().toTree(), fromFile.getRootNode().toTree());
+    }
+
+    @Test
+    public void missingFileIsReported() {
+        var result = new JmmParserImpl().parse(new File(folder.getRoot(), "Missing.jmm"), new HashMap<>());
+
+        TestUtils.mustFail(result);
+        assertNull(result.getRootNode());
+    }
+}
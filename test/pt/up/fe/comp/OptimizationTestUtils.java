@@ -0,0 +1,71 @@
+package pt.up.fe.comp;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the resources of the optimization tests, given by their path in pt/up/fe/comp/optimizations, and finds
+ * what the tests look for in the generated code.
+ */
+public class OptimizationTestUtils {
+
+    private static final String RESOURCES = "pt/up/fe/comp/optimizations/";
+
+    /**
+     * @return a configuration with the optimizations enabled, that the caller may add options to
+     */
+    public static Map<String, String> optimizeConfig() {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        return config;
+    }
+
+    public static OllirResult getOllirResult(String resource, Map<String, String> config) {
+        return TestUtils.optimize(SpecsIo.getResource(RESOURCES + resource), config);
+    }
+
+    public static OllirResult getOllirResultOpt(String resource) {
+        return getOllirResult(resource, optimizeConfig());
+    }
+
+    public static JasminResult getJasminResult(String resource, Map<String, String> config) {
+        return TestUtils.backend(SpecsIo.getResource(RESOURCES + resource), config);
+    }
+
+    public static JasminResult getJasminResultOpt(String resource) {
+        return getJasminResult(resource, optimizeConfig());
+    }
+
+    /**
+     * @return the OLLIR code from the signature of the method to the end of the class
+     */
+    public static String getMethod(String ollirCode, String methodName) {
+        int start = ollirCode.indexOf(" " + methodName + "(");
+        return ollirCode.substring(start, ollirCode.indexOf("\n}", start));
+    }
+
+    /**
+     * @return the Jasmin code of the method, from its signature to its .end method
+     */
+    public static String getJasminMethod(String jasminCode, String methodName) {
+        int start = jasminCode.indexOf(" " + methodName + "(");
+        return jasminCode.substring(start, jasminCode.indexOf(".end method", start));
+    }
+
+    /**
+     * @return how many times the regex is found in the code
+     */
+    public static int count(String regex, String code) {
+        var matcher = Pattern.compile(regex).matcher(code);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,97 @@
+package pt.up.fe.comp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp2024.symboltable.SymbolTableFormat;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.WorkloadGenerator;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableFormatTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertSameTable(SymbolTable expected, SymbolTable actual) {
+        assertEquals(expected.getClassName(), actual.getClassName());
+        assertEquals(expected.getSuper(), actual.getSuper());
+        assertEquals(expected.getImports(), actual.getImports());
+        assertEquals(expected.getFields(), actual.getFields());
+        assertEquals(expected.getMethods(), actual.getMethods());
+
+        for (var method : expected.getMethods()) {
+            assertEquals(expected.getReturnType(method), actual.getReturnType(method));
+            assertEquals(expected.getParameters(method), actual.getParameters(method));
+            assertEquals(expected.getLocalVariables(method), actual.getLocalVariables(method));
+
+            for (int i = 0; i < expected.getParameters(method).size(); i++) {
+                var expectedType = expected.getParameters(method).get(i).getType();
+                var actualType = actual.getParameters(method).get(i).getType();
+                assertEquals(expectedType.getOptionalObject("isVarArg"), actualType.getOptionalObject("isVarArg"));
+            }
+        }
+    }
+
+    @Test
+    public void roundTrip() {
+        var table = TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/SymbolTable.jmm"))
+                .getSymbolTable();
+
+        assertSameTable(table, SymbolTableFormat.read(ByteBuffer.wrap(SymbolTableFormat.write(table))));
+    }
+
+    @Test
+    public void roundTripVarargs() {
+        var table = TestUtils.analyse(WorkloadGenerator.generate("Varargs", WorkloadGenerator.Shape.small(), 5))
+                .getSymbolTable();
+
+        assertSameTable(table, SymbolTableFormat.read(ByteBuffer.wrap(SymbolTableFormat.write(table))));
+    }
+
+    /**
+     * Each name is written once, however often the table uses it.
+     */
+    @Test
+    public void compact() {
+        var table = TestUtils.analyse(WorkloadGenerator.generate("Compact", WorkloadGenerator.Shape.small()
+                .withMethods(40), 1)).getSymbolTable();
+
+        var bytes = SymbolTableFormat.write(table);
+        assertTrue(bytes.length + " bytes", bytes.length < table.print().length() / 3);
+    }
+
+    @Test
+    public void writtenNextToCompiledClass() {
+        Map<String, String> config = new HashMap<>();
+        config.put("symbols", folder.getRoot().getPath());
+        var table = TestUtils.analyse(WorkloadGenerator.generate("Written", WorkloadGenerator.Shape.small(), 2),
+                config).getSymbolTable();
+
+        var file = new File(folder.getRoot(), "Written." + SymbolTableFormat.EXTENSION);
+        assertTrue(file.isFile());
+        assertSameTable(table, SymbolTableFormat.load(file));
+    }
+
+    @Test
+    public void truncatedIsRejected() {
+        var table = TestUtils.analyse(WorkloadGenerator.generate("Truncated", WorkloadGenerator.Shape.small(), 4))
+                .getSymbolTable();
+        var bytes = SymbolTableFormat.write(table);
+
+        try {
+            SymbolTableFormat.read(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length / 2)));
+            fail("Expected a truncated symbol table to be rejected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("symbol table"));
+        }
+    }
+}
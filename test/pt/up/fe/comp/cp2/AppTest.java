@@ -3,6 +3,7 @@ package pt.up.fe.comp.cp2;
 import org.junit.Test;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.specs.util.SpecsIo;
+import utils.JasminRunner;
 
 import java.util.Collections;
 
@@ -15,7 +16,7 @@ public class AppTest {
         var code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/HelloWorld.jmm");
         var jasminResult = TestUtils.backend(code, Collections.emptyMap());
         System.out.println(jasminResult.getJasminCode());
-        var result = TestUtils.runJasmin(jasminResult.getJasminCode(), Collections.emptyMap());
+        var result = JasminRunner.run(jasminResult).getOutput();
         assertEquals("Hello, World!", result.strip());
     }
 
@@ -24,7 +25,7 @@ public class AppTest {
         var code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm");
         var jasminResult = TestUtils.backend(code, Collections.emptyMap());
         System.out.println(jasminResult.getJasminCode());
-        var result = TestUtils.runJasmin(jasminResult.getJasminCode(), Collections.emptyMap());
+        var result = JasminRunner.run(jasminResult).getOutput();
         assertEquals("30", result.strip());
     }
 
@@ -4,6 +4,7 @@ import org.junit.Test;
 import org.specs.comp.ollir.*;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.specs.util.SpecsIo;
+import utils.JasminRunner;
 
 import java.io.File;
 import java.util.Arrays;
@@ -46,7 +47,7 @@ public class OllirTest {
 
             var testName = new File(resource).getName();
             System.out.println(testName + ":\n" + result.getJasminCode());
-            var runOutput = result.runWithFullOutput();
+            var runOutput = JasminRunner.run(result);
             assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput(), 0,
                     runOutput.getReturnValue());
             System.out.println("\n Result: " + runOutput.getOutput());
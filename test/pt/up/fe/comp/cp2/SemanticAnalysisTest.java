@@ -4,6 +4,8 @@ import org.junit.Test;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.specs.util.SpecsIo;
 
+import static org.junit.Assert.assertEquals;
+
 public class SemanticAnalysisTest {
 
     @Test
@@ -190,4 +192,13 @@ public class SemanticAnalysisTest {
         TestUtils.mustFail(result);
         System.out.println(result.getReports());
     }
+
+    @Test
+    public void undeclaredReportedOnce() {
+        var result = TestUtils
+                .analyse(SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/UndeclaredInExpression.jmm"));
+        TestUtils.mustFail(result);
+        System.out.println(result.getReports());
+        assertEquals(1L, TestUtils.getNumErrors(result.getReports()));
+    }
 }
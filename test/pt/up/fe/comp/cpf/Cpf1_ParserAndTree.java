@@ -19,6 +19,7 @@ import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
+import utils.JasminRunner;
 
 public class Cpf1_ParserAndTree {
 
@@ -30,8 +31,8 @@ public class Cpf1_ParserAndTree {
     public void section1_OpPrecedence_1_AddMultConstants() {
         var result = getJmmResult("AddMultConstants.jmm");
         TestUtils.noErrors(result.getReports());
-        CpUtils.assertEquals("Wrong results", "7\n12\n9", SpecsStrings.normalizeFileContents(result.run(), true),
-                result);
+        CpUtils.assertEquals("Wrong results", "7\n12\n9",
+                SpecsStrings.normalizeFileContents(JasminRunner.run(result).getOutput(), true), result);
     }
 
 }
@@ -19,6 +19,7 @@ import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.specs.util.SpecsIo;
+import utils.JasminRunner;
 
 import static org.junit.Assert.assertEquals;
 
@@ -110,7 +111,7 @@ public class Cpf2_SemanticAnalysis {
     public void section2_Lookup_VarLookup_Local() {
         var jasminResult = getJasminResult("lookup/VarLookup_Local.jmm");
 
-        assertEquals("10", jasminResult.run().trim());
+        assertEquals("10", JasminRunner.run(jasminResult).getOutput().trim());
     }
 
     /**
@@ -120,7 +121,7 @@ public class Cpf2_SemanticAnalysis {
     public void section2_Lookup_VarLookup_Field() {
         var jasminResult = getJasminResult("lookup/VarLookup_Field.jmm");
 
-        CpUtils.assertEquals("Lookup of field", "10", jasminResult.run().trim(), jasminResult);
+        CpUtils.assertEquals("Lookup of field", "10", JasminRunner.run(jasminResult).getOutput().trim(), jasminResult);
     }
 
 
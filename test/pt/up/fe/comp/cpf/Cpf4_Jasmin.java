@@ -21,6 +21,7 @@ import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
+import utils.JasminRunner;
 import utils.ProjectTestUtils;
 
 import java.util.Collections;
@@ -152,6 +153,12 @@ public class Cpf4_Jasmin {
         CpUtils.runJasmin(getJasminResult("control_flow/SimpleIfElseNot.ollir"), "10\n200");
     }
 
+    /*checks comparisons whose operands are so far apart that their difference overflows */
+    @Test
+    public void section3_ControlFlow_Compare_Far_Apart() {
+        CpUtils.runJasmin(getJasminResult("control_flow/CompareFarApart.ollir"), "Result: 1\nResult: 1\nResult: 1");
+    }
+
     /*checks if the code of a simple WHILE statement is well executed */
     @Test
     public void section3_ControlFlow_While_Simple() {
@@ -252,7 +259,7 @@ public class Cpf4_Jasmin {
         assertTrue("limit locals should be less than 99:\n" + methodCode, numLocals >= 0 && numLocals < 99);
 
         // Make sure the code compiles
-        jasminResult.compile();
+        JasminRunner.assemble(jasminResult);
     }
 
     /*checks if the .limits locals is the expected value (with a tolerance of 2) */
@@ -268,7 +275,7 @@ public class Cpf4_Jasmin {
         CpUtils.matches(methodCode, regex);
 
         // Makes sure the code compiles
-        jasminResult.compile();
+        JasminRunner.assemble(jasminResult);
     }
 
     /*checks if the .limits stack is not a const 99 value */
@@ -280,7 +287,7 @@ public class Cpf4_Jasmin {
         assertTrue("limit stack should be less than 99:\n" + methodCode, numStack >= 0 && numStack < 99);
 
         // Make sure the code compiles
-        jasminResult.compile();
+        JasminRunner.assemble(jasminResult);
     }
 
     /*checks if the .limits stack is the expected value (with a tolerance of 2) */
@@ -301,6 +308,6 @@ public class Cpf4_Jasmin {
                 numStack <= upperLimit && numStack >= expectedLimit);
 
         // Make sure the code compiles
-        jasminResult.compile();
+        JasminRunner.assemble(jasminResult);
     }
 }
@@ -5,6 +5,7 @@ import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.specs.util.SpecsIo;
+import utils.JasminRunner;
 
 import java.io.File;
 import java.util.Collections;
@@ -44,7 +45,7 @@ public class JasminTest {
 
         var testName = new File(resource).getName();
         System.out.println(testName + ":\n" + result.getJasminCode());
-        result.compile();
+        JasminRunner.assemble(result);
     }
 
     public static void testOllirToJasmin(String resource) {
@@ -0,0 +1,59 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import java.util.HashMap;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class ArrayInitializationTest {
+
+    private static boolean find(String code, String regex) {
+        return Pattern.compile(regex).matcher(code).find();
+    }
+
+    /**
+     * Each element is stored through a copy of the reference left on the stack, instead of reloading the array.
+     */
+    @Test
+    public void smallLiteralUsesDupChain() {
+        var small = getJasminMethod(getJasminResult("arrayinit/Tables.jmm", new HashMap<>()).getJasminCode(), "small");
+
+        assertTrue("No dup chain in:\n" + small, find(small, "newarray int\\s+dup"));
+        assertFalse("Array reloaded between stores in:\n" + small, find(small, "iastore\\s+aload"));
+    }
+
+    /**
+     * Varargs arguments are stored in the same way.
+     */
+    @Test
+    public void varargsArrayUsesDupChain() {
+        var small = getJasminMethod(getJasminResult("arrayinit/Tables.jmm", new HashMap<>()).getJasminCode(), "small");
+
+        assertTrue("Varargs array not filled with a dup chain in:\n" + small,
+                find(small, "iconst_4\\s+newarray int(\\s+dup\\s+\\S+\\s+\\S+\\s+iastore){4}"));
+    }
+
+    /**
+     * A large constant literal is copied from a static array, built once from a packed string.
+     */
+    @Test
+    public void largeLiteralIsClonedFromStaticArray() {
+        var code = getJasminResult("arrayinit/Tables.jmm", new HashMap<>()).getJasminCode();
+        var lookup = getJasminMethod(code, "lookup");
+
+        assertTrue("Static array not read in:\n" + lookup, lookup.contains("getstatic Tables/$array0 [I"));
+        assertTrue("Static array not cloned in:\n" + lookup, lookup.contains("clone"));
+        assertFalse("Literal stored element by element in:\n" + lookup, find(lookup, "(iastore[\\s\\S]*){8}"));
+        assertTrue("No static initializer in:\n" + code, code.contains(".method static <clinit>()V"));
+    }
+
+    @Test
+    public void tablesExecute() {
+        CpUtils.runJasmin(getJasminResult("arrayinit/Tables.jmm", new HashMap<>()), "Result: 30\nResult: 1000036\nResult: -2147483609\nResult: 6");
+    }
+}
@@ -0,0 +1,56 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class BlockLayoutTest {
+
+    /**
+     * Without optimizations, the else branch follows the condition and the if branch is reached by a jump.
+     */
+    @Test
+    public void elseBranchFollowsCondition() {
+        var scale = getMethod(getOllirResult("layout/Layout.jmm", new HashMap<>()).getOllirCode(), "scale");
+
+        assertTrue("Error path not right after the condition in:\n" + scale,
+                scale.indexOf("println") < scale.indexOf("*.i32"));
+    }
+
+    /**
+     * The else branch prints, so it is unlikely: the condition is inverted to fall through to the if branch, and the
+     * else branch is moved after the return.
+     */
+    @Test
+    public void unlikelyBranchIsMovedOut() {
+        var scale = getMethod(getOllirResult("layout/Layout.jmm", optimizeConfig()).getOllirCode(), "scale");
+
+        assertTrue("Likely path does not follow the condition in:\n" + scale,
+                scale.indexOf("*.i32") < scale.indexOf("ret.i32"));
+        assertTrue("Error path not after the return in:\n" + scale,
+                scale.indexOf("ret.i32") < scale.indexOf("println"));
+    }
+
+    /**
+     * The likely path of the loop runs from its first block to the branch back to it without any jump.
+     */
+    @Test
+    public void loopBodyFallsThrough() {
+        var sum = getMethod(getOllirResult("layout/Layout.jmm", optimizeConfig()).getOllirCode(), "sumPositive");
+        int body = sum.indexOf("\nwhilebody_");
+        var loop = sum.substring(body, sum.indexOf("goto whilebody_", body));
+
+        assertFalse("Jump on the likely path of the loop:\n" + sum, loop.contains("\ngoto "));
+        assertFalse("Error path inside the loop:\n" + sum, loop.contains("println"));
+    }
+
+    @Test
+    public void layoutExecutes() {
+        CpUtils.runJasmin(getJasminResultOpt("layout/Layout.jmm"), "42\n500\n0\n1\n12");
+    }
+}
@@ -0,0 +1,32 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class CfgSimplificationTest {
+
+    /**
+     * Jumps to blocks that only jump again should be redirected to the final target.
+     */
+    @Test
+    public void jumpsAreThreaded() {
+        var ollirResult = getOllirResultOpt("cfg/NestedIfElse.jmm");
+
+        var jumpToJump = Pattern.compile("\\w+:\\s*goto\\s+\\w+;");
+        assertFalse("Expected no label followed by a goto in:\n" + ollirResult.getOllirCode(),
+                jumpToJump.matcher(ollirResult.getOllirCode()).find());
+    }
+
+    /**
+     * Nested if-else statements whose end labels coincide should still execute correctly once simplified.
+     */
+    @Test
+    public void nestedIfElseExecutes() {
+        CpUtils.runJasmin(getJasminResultOpt("cfg/NestedIfElse.jmm"), "Result: 1\nResult: 2\nResult: 3\nResult: 4");
+    }
+}
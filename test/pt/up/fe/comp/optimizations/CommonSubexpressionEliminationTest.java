@@ -0,0 +1,37 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import static org.junit.Assert.assertEquals;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class CommonSubexpressionEliminationTest {
+
+    /**
+     * The index i * n + j is computed once per iteration, instead of once per occurrence. The multiplication itself is
+     * later replaced by an addition in the outer loop ({@link InductionVariableOptimizationTest}).
+     */
+    @Test
+    public void indexArithmeticIsReused() {
+        var kernel = getMethod(getOllirResultOpt("cse/RepeatedIndex.jmm").getOllirCode(), "kernel");
+
+        assertEquals("Multiplications in:\n" + kernel, 0, count("\\*\\.i32 n\\.i32", kernel));
+        assertEquals("Index additions in:\n" + kernel, 1, count("\\+\\.i32 j\\.i32", kernel));
+    }
+
+    /**
+     * Array reads are reused until the array is written, then read again.
+     */
+    @Test
+    public void arrayReadsAreInvalidatedByStores() {
+        var kernel = getMethod(getOllirResultOpt("cse/RepeatedIndex.jmm").getOllirCode(), "kernel");
+
+        assertEquals("Array reads in:\n" + kernel, 2, count(":=\\.i32 m\\.array\\.i32\\[", kernel));
+    }
+
+    @Test
+    public void repeatedIndexExecutes() {
+        CpUtils.runJasmin(getJasminResultOpt("cse/RepeatedIndex.jmm"), "Result: 108\nResult: 24");
+    }
+}
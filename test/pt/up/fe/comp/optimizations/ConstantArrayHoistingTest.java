@@ -0,0 +1,74 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class ConstantArrayHoistingTest {
+
+    /**
+     * Inlining is disabled, so that the varargs calls stay visible.
+     */
+    private static Map<String, String> noInliningConfig() {
+        var config = optimizeConfig();
+        config.put("inlineSize", "0");
+        return config;
+    }
+
+    /**
+     * An array given to a varargs parameter is passed as it is, and the other calls fill a new array directly.
+     */
+    @Test
+    public void varargsArgumentsAreLowered() {
+        var run = getMethod(getOllirResult("hoist/Varargs.jmm", new HashMap<>()).getOllirCode(), "run");
+
+        assertTrue("Array not passed as it is in:\n" + run, run.contains("\"sum\", data.array.i32)"));
+        assertFalse("Copy of the varargs array in:\n" + run, run.contains("__varargs_array_"));
+    }
+
+    /**
+     * A varargs parameter given to another varargs method is an array already, and is passed as it is.
+     */
+    @Test
+    public void varargsParameterIsForwarded() {
+        var pass = getMethod(getOllirResult("hoist/ForwardVarargs.jmm", new HashMap<>()).getOllirCode(), "pass");
+
+        assertTrue("Parameter not passed as it is in:\n" + pass, pass.contains("\"sum\", values.array.i32)"));
+        CpUtils.runJasmin(TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/optimizations/hoist/ForwardVarargs.jmm")),
+                "Result: 6");
+    }
+
+    @Test
+    public void constantArrayIsBuiltBeforeLoop() {
+        var run = getMethod(getOllirResult("hoist/Varargs.jmm", noInliningConfig()).getOllirCode(), "run");
+        var loop = run.substring(run.indexOf("\nwhilebody_"));
+
+        assertTrue("Constant array not built in:\n" + run, run.contains("new(array, 4.i32)"));
+        assertFalse("Constant array built in the loop:\n" + run, loop.contains("new(array, 4.i32)"));
+    }
+
+    /**
+     * Arrays with values that change, or given to a method that writes them, are built on every iteration.
+     */
+    @Test
+    public void otherArraysStayInLoop() {
+        var run = getMethod(getOllirResult("hoist/Varargs.jmm", noInliningConfig()).getOllirCode(), "run");
+        var loop = run.substring(run.indexOf("\nwhilebody_"));
+
+        assertTrue("Array of the loop counter hoisted:\n" + run, loop.contains("new(array, 2.i32)"));
+        assertTrue("Array written by bump hoisted:\n" + run, loop.contains("new(array, 1.i32)"));
+    }
+
+    @Test
+    public void varargsExecute() {
+        CpUtils.runJasmin(getJasminResult("hoist/Varargs.jmm", noInliningConfig()), "Result: 246");
+    }
+}
@@ -0,0 +1,75 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class ConstantConditionEliminationTest {
+
+    private static String getCode() {
+        return SpecsIo.getResource("pt/up/fe/comp/optimizations/deadcode/ConstantBranches.jmm");
+    }
+
+    private static boolean hasLog(OllirResult result, String regex) {
+        return result.getReports().stream()
+                .anyMatch(report -> report.getType() == ReportType.LOG && report.getMessage().matches(regex));
+    }
+
+    /**
+     * Conditions made of literals are resolved when the OLLIR is generated, even without optimizations.
+     */
+    @Test
+    public void literalConditionsAreFolded() {
+        var result = TestUtils.optimize(getCode(), new HashMap<>());
+        var flagged = getMethod(result.getOllirCode(), "flagged");
+
+        assertFalse("Branch left in:\n" + flagged, flagged.contains("goto"));
+        assertFalse("Dead code left in:\n" + flagged, flagged.contains("println"));
+        assertTrue("Taken branch missing in:\n" + flagged, flagged.contains("+.i32 1.i32") && flagged.contains("*.i32 2.i32"));
+
+        assertTrue("Else branch not reported", hasLog(result, "Eliminated else branch .*always true"));
+        assertTrue("If branch not reported", hasLog(result, "Eliminated if branch .*always false"));
+        assertTrue("Loop not reported", hasLog(result, "Eliminated while loop .*always false"));
+    }
+
+    @Test
+    public void statementsAfterInfiniteLoopAreEliminated() {
+        var result = TestUtils.optimize(getCode(), new HashMap<>());
+        var spin = getMethod(result.getOllirCode(), "spin");
+
+        assertFalse("Unreachable call left in:\n" + spin, spin.contains("println"));
+        assertFalse("Unreachable return left in:\n" + spin, spin.contains("ret."));
+        assertTrue("Statements not reported", hasLog(result, "Eliminated 2 unreachable statement\\(s\\).*"));
+    }
+
+    /**
+     * The condition only becomes constant once the value of the variable is propagated.
+     */
+    @Test
+    public void propagatedConditionsAreFolded() {
+        var propagated = getMethod(TestUtils.optimize(getCode(), new HashMap<>()).getOllirCode(), "propagated");
+        assertTrue(propagated.contains("println"));
+
+        var result = TestUtils.optimize(getCode(), optimizeConfig());
+        propagated = getMethod(result.getOllirCode(), "propagated");
+
+        assertFalse("Dead code left in:\n" + propagated, propagated.contains("println"));
+        assertTrue("Folding not reported",
+                hasLog(result, "Method 'propagated': folded 1 branch\\(es\\).*eliminated [1-9]\\d* unreachable block\\(s\\)"));
+    }
+
+    @Test
+    public void constantBranchesExecute() {
+        CpUtils.runJasmin(TestUtils.backend(getCode()), "10\n6");
+        CpUtils.runJasmin(TestUtils.backend(getCode(), optimizeConfig()), "10\n6");
+    }
+}
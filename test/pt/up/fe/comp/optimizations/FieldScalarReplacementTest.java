@@ -0,0 +1,78 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class FieldScalarReplacementTest {
+
+    /**
+     * Inlining is disabled, so that the call in the loop of observed stays.
+     */
+    private static Map<String, String> noInliningConfig() {
+        var config = optimizeConfig();
+        config.put("inlineSize", "0");
+        return config;
+    }
+
+    private static String getLoop(String method) {
+        int start = method.indexOf("\nwhilebody_");
+        return method.substring(start, method.indexOf("goto whilebody_", start));
+    }
+
+    /**
+     * Without optimizations, every access to a field reads or writes the object.
+     */
+    @Test
+    public void fieldsAreAccessedThroughThis() {
+        var count = getMethod(getOllirResult("fields/Counter.jmm", new HashMap<>()).getOllirCode(), "count");
+
+        assertTrue("No read of the field in:\n" + count, count.contains("getfield(this, total.i32).i32"));
+        assertTrue("No write of the field in:\n" + count, count.contains("putfield(this, total.i32, "));
+    }
+
+    @Test
+    public void fieldIsKeptInLocalDuringLoop() {
+        var count = getMethod(getOllirResult("fields/Counter.jmm", noInliningConfig()).getOllirCode(), "count");
+        var loop = getLoop(count);
+
+        assertFalse("Field accessed in the loop:\n" + count, loop.contains("getfield") || loop.contains("putfield"));
+        assertEquals("Field not written back once in:\n" + count, 1, count("putfield\\(this, total\\.i32", count));
+    }
+
+    /**
+     * peek reads total, so each of its calls must see the value written before it.
+     */
+    @Test
+    public void fieldIsWrittenBeforeCallThatReadsIt() {
+        var observed = getMethod(getOllirResult("fields/Counter.jmm", noInliningConfig()).getOllirCode(), "observed");
+        var loop = getLoop(observed);
+
+        assertTrue("Field not written in the loop:\n" + observed,
+                Pattern.compile("putfield\\(this, total\\.i32[^\\n]*\\n[^\\n]*\"peek\"").matcher(loop).find());
+    }
+
+    /**
+     * The first write is overwritten before anything reads it, and the reads take the value of the second one.
+     */
+    @Test
+    public void straightLineWritesAndReadsAreForwarded() {
+        var straight = getMethod(getOllirResult("fields/Counter.jmm", noInliningConfig()).getOllirCode(), "straight");
+
+        assertEquals("Dead write kept in:\n" + straight, 1, count("putfield\\(this, total\\.i32", straight));
+        assertFalse("Field read again in:\n" + straight, straight.contains("getfield"));
+    }
+
+    @Test
+    public void counterExecutes() {
+        CpUtils.runJasmin(getJasminResult("fields/Counter.jmm", noInliningConfig()), "45\n48\n12\n147");
+    }
+}
@@ -0,0 +1,49 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class InductionVariableOptimizationTest {
+
+    /**
+     * The index i * 3 becomes a variable that is incremented by 3 in each iteration.
+     */
+    @Test
+    public void multiplicationIsReduced() {
+        var sumColumn = getMethod(getOllirResultOpt("iv/StridedSum.jmm").getOllirCode(), "sumColumn");
+        var body = sumColumn.substring(sumColumn.indexOf("\nwhilebody_"));
+
+        assertFalse("Multiplication still in the loop:\n" + sumColumn, body.contains("*.i32"));
+        assertTrue("No increment by 3 in the loop:\n" + sumColumn, body.contains("+.i32 3.i32"));
+    }
+
+    /**
+     * The counter 'visited' is only read by its own increment.
+     */
+    @Test
+    public void deadInductionVariableIsRemoved() {
+        var sumColumn = getMethod(getOllirResultOpt("iv/StridedSum.jmm").getOllirCode(), "sumColumn");
+
+        assertFalse("Dead counter still computed:\n" + sumColumn, sumColumn.contains("visited"));
+    }
+
+    @Test
+    public void multiplicationByPowerOfTwoIsShift() {
+        var jasminCode = getJasminResultOpt("iv/StridedSum.jmm").getJasminCode();
+        var scale = jasminCode.substring(jasminCode.indexOf(".method public scale"));
+        scale = scale.substring(0, scale.indexOf(".end method"));
+
+        CpUtils.matches(scale, "iconst_3\\s+ishl");
+        assertFalse("Multiplication instruction in:\n" + scale, scale.contains("imul"));
+        assertTrue("Division is not kept as idiv in:\n" + scale, scale.contains("idiv"));
+    }
+
+    @Test
+    public void stridedSumExecutes() {
+        CpUtils.runJasmin(getJasminResultOpt("iv/StridedSum.jmm"), "Result: 22\nResult: 17\nResult: -17");
+    }
+}
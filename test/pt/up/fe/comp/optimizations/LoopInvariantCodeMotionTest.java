@@ -0,0 +1,59 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class LoopInvariantCodeMotionTest {
+
+    /**
+     * @return the code of the method that comes after the label of the loop body
+     */
+    private static String getLoopBody(String method) {
+        return method.substring(method.indexOf("\nwhilebody_"));
+    }
+
+    /**
+     * The weight scale * scale + values.length and the bound values.length - 1 are computed once, before the loop.
+     */
+    @Test
+    public void invariantArithmeticIsHoisted() {
+        var checksum = getMethod(getOllirResultOpt("licm/Quicksort.jmm").getOllirCode(), "checksum");
+        var body = getLoopBody(checksum);
+
+        assertTrue("Multiplication still in the loop:\n" + checksum, !body.contains("scale.i32 *.i32 scale.i32"));
+        assertTrue("Array length still in the loop:\n" + checksum, !body.contains("arraylength"));
+    }
+
+    /**
+     * A call to an imported method that only receives integers cannot change the array, so the read is hoisted.
+     */
+    @Test
+    public void arrayReadIsHoistedOverPrimitiveCall() {
+        var printFirst = getMethod(getOllirResultOpt("licm/CallsInLoop.jmm").getOllirCode(), "printFirst");
+
+        assertTrue("Array read still in the loop:\n" + printFirst, !getLoopBody(printFirst).contains("values.array.i32[0.i32]"));
+    }
+
+    /**
+     * A call to a method of the class that writes arrays keeps the read inside the loop.
+     */
+    @Test
+    public void arrayReadStaysWhenCallWritesArrays() {
+        var bumpFirst = getMethod(getOllirResultOpt("licm/CallsInLoop.jmm").getOllirCode(), "bumpFirst");
+
+        assertTrue("Array read was hoisted:\n" + bumpFirst, getLoopBody(bumpFirst).contains("values.array.i32[0.i32]"));
+    }
+
+    @Test
+    public void quicksortExecutes() {
+        CpUtils.runJasmin(getJasminResultOpt("licm/Quicksort.jmm"), "Result: 1\nResult: 911108539");
+    }
+
+    @Test
+    public void callsInLoopExecutes() {
+        CpUtils.runJasmin(getJasminResultOpt("licm/CallsInLoop.jmm"), "Result: 5\nResult: 5\nResult: 7");
+    }
+}
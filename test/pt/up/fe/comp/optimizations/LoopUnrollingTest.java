@@ -0,0 +1,54 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class LoopUnrollingTest {
+
+    /**
+     * The 8 iterations of the dot product fit in the size budget, so no branch is left, and the index of each copy is a
+     * constant.
+     */
+    @Test
+    public void smallLoopIsFullyUnrolled() {
+        var dot = getMethod(getOllirResult("unroll/FixedLoops.jmm", optimizeConfig()).getOllirCode(), "dot");
+
+        assertFalse("Branch left in:\n" + dot, dot.contains("goto"));
+        for (int i = 0; i < 8; i++) {
+            assertTrue("No load of a[" + i + "] in:\n" + dot, dot.contains("a.array.i32[" + i + ".i32]"));
+        }
+    }
+
+    /**
+     * The loop of countDown runs 34 times: the body holds 4 iterations, and the first 2 iterations run before the loop.
+     */
+    @Test
+    public void largeLoopIsUnrolledByFactor() {
+        var countDown = getMethod(getOllirResult("unroll/FixedLoops.jmm", optimizeConfig()).getOllirCode(), "countDown");
+        var body = countDown.substring(countDown.indexOf("\nwhilebody_"));
+
+        assertEquals("Wrong number of branches in:\n" + countDown, 1, count("goto", countDown));
+        assertEquals("Wrong number of iterations in the body:\n" + countDown, 4,
+                count("-\\.i32 3\\.i32", body));
+        assertTrue("Peeled iterations not folded in:\n" + countDown, countDown.contains("i.i32 :=.i32 94.i32"));
+    }
+
+    @Test
+    public void unrollingFollowsConfig() {
+        var config = optimizeConfig();
+        config.put("unrollSize", "0");
+        var dot = getMethod(getOllirResult("unroll/FixedLoops.jmm", config).getOllirCode(), "dot");
+
+        assertEquals("Loop was unrolled:\n" + dot, 1, count("\\+\\.i32 1\\.i32", dot));
+    }
+
+    @Test
+    public void fixedLoopsExecute() {
+        CpUtils.runJasmin(getJasminResultOpt("unroll/FixedLoops.jmm"), "Result: 140\nResult: 471272268\nResult: 1722");
+    }
+}
@@ -0,0 +1,54 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class MethodInliningTest {
+
+    @Test
+    public void smallHelpersAreInlined() {
+        var run = getMethod(getOllirResult("inline/Helpers.jmm", optimizeConfig()).getOllirCode(), "run");
+
+        assertFalse("Call to square in:\n" + run, run.contains("\"square\""));
+        assertFalse("Call to clamp in:\n" + run, run.contains("\"clamp\""));
+        assertFalse("Call to getScale in:\n" + run, run.contains("\"getScale\""));
+    }
+
+    /**
+     * With the default budget, a recursive method is inlined once into its caller, but not into its own copy.
+     */
+    @Test
+    public void recursionIsBounded() {
+        var ollirCode = getOllirResult("inline/Helpers.jmm", optimizeConfig()).getOllirCode();
+
+        assertTrue("Recursive call removed:\n" + ollirCode, getMethod(ollirCode, "run").contains("\"factorial\""));
+        assertTrue("Recursive call removed:\n" + ollirCode, getMethod(ollirCode, "factorial").contains("\"factorial\""));
+    }
+
+    @Test
+    public void sizeBudgetIsConfigurable() {
+        var config = optimizeConfig();
+        config.put("inlineSize", "2");
+        var run = getMethod(getOllirResult("inline/Helpers.jmm", config).getOllirCode(), "run");
+
+        assertFalse("Call to getScale in:\n" + run, run.contains("\"getScale\""));
+        assertTrue("Call to clamp removed:\n" + run, run.contains("\"clamp\""));
+    }
+
+    @Test
+    public void helpersExecute() {
+        CpUtils.runJasmin(getJasminResult("inline/Helpers.jmm", optimizeConfig()), "Result: 840");
+    }
+
+    @Test
+    public void unrolledRecursionExecutes() {
+        var config = optimizeConfig();
+        config.put("inlineRecursion", "2");
+
+        CpUtils.runJasmin(getJasminResult("inline/Helpers.jmm", config), "Result: 840");
+    }
+}
@@ -0,0 +1,98 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class PeepholeOptimizerTest {
+
+    private static Map<String, String> peepholeConfig(String rules) {
+        var config = optimizeConfig();
+        config.put("peephole", rules);
+        return config;
+    }
+
+    private static String getLoop(String code, String methodName) {
+        int start = code.indexOf(" " + methodName + "(");
+        int body = code.indexOf("\nwhilebody_", start);
+        return code.substring(body, code.indexOf("\nendwhile_", body));
+    }
+
+    private static boolean hasLog(JasminResult result, String regex) {
+        return result.getReports().stream()
+                .anyMatch(report -> report.getType() == ReportType.LOG
+                        && Pattern.compile(regex).matcher(report.getMessage()).find());
+    }
+
+    /**
+     * Without the rules, the condition of the loop is pushed as 0 or 1, stored, loaded and tested again.
+     */
+    @Test
+    public void loopConditionIsMaterializedWithoutRules() {
+        var loop = getLoop(getJasminResult("peephole/Branches.jmm", peepholeConfig("none")).getJasminCode(), "sum");
+
+        assertTrue("Condition not materialized in:\n" + loop, loop.contains("cmp_true_"));
+    }
+
+    @Test
+    public void loopBranchesOnComparison() {
+        var loop = getLoop(getJasminResult("peephole/Branches.jmm", peepholeConfig("all")).getJasminCode(), "sum");
+
+        assertFalse("Condition materialized in:\n" + loop, loop.contains("cmp_true_"));
+        assertTrue("Loop does not branch on the comparison in:\n" + loop,
+                Pattern.compile("if_icmplt whilebody_\\d+\\s*$").matcher(loop).find());
+    }
+
+    /**
+     * Only the selected rules run: the temporary is no longer stored, but the condition is still materialized.
+     */
+    @Test
+    public void onlySelectedRulesRun() {
+        var result = getJasminResult("peephole/Branches.jmm", peepholeConfig("store-load"));
+        var loop = getLoop(result.getJasminCode(), "sum");
+
+        assertTrue("Condition not materialized in:\n" + loop, loop.contains("cmp_true_"));
+        assertFalse("Temporary stored in:\n" + loop, Pattern.compile("cmp_end_\\d+:\\s+istore").matcher(loop).find());
+        assertFalse("Unselected rule reported", hasLog(result, "'compare-branch'"));
+    }
+
+    @Test
+    public void fireCountsAreReported() {
+        var result = getJasminResult("peephole/Branches.jmm", peepholeConfig("all"));
+
+        assertTrue("No count for compare-branch", hasLog(result, "Peephole rule 'compare-branch' fired [1-9]\\d* times"));
+        assertTrue("No count for store-load", hasLog(result, "Peephole rule 'store-load' fired [1-9]\\d* times"));
+    }
+
+    @Test
+    public void rulesThatDidNotFireAreNotReported() {
+        var result = getJasminResult("peephole/Branches.jmm", peepholeConfig("all"));
+
+        assertFalse("Rule that did not fire reported", hasLog(result, "fired 0 times"));
+    }
+
+    @Test
+    public void unknownRuleIsRejected() {
+        try {
+            getJasminResult("peephole/Branches.jmm", peepholeConfig("compare-branch,no-such-rule"));
+        } catch (RuntimeException e) {
+            return;
+        }
+
+        fail("Unknown rule accepted");
+    }
+
+    @Test
+    public void branchesExecute() {
+        CpUtils.runJasmin(getJasminResult("peephole/Branches.jmm", peepholeConfig("all")), "45\n3\n4");
+    }
+}
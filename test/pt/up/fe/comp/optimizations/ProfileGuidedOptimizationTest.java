@@ -0,0 +1,139 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class ProfileGuidedOptimizationTest {
+
+    private static final String EXPECTED_OUTPUT = "1847058116\n7\n0\n1\n2\n3";
+
+    private static String getCode() {
+        return SpecsIo.getResource("pt/up/fe/comp/optimizations/profile/Profiled.jmm");
+    }
+
+    /**
+     * Compiles the class with counters and runs it once.
+     *
+     * @return the profile written by the run
+     */
+    private static File profile() {
+        File file;
+        try {
+            file = File.createTempFile("jmm", ".profile");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        file.deleteOnExit();
+
+        Map<String, String> config = new HashMap<>();
+        config.put("profile", file.getAbsolutePath());
+        CpUtils.runJasmin(TestUtils.backend(getCode(), config), EXPECTED_OUTPUT);
+
+        return file;
+    }
+
+    private static String optimize(File profile) {
+        var config = optimizeConfig();
+        config.put("inlineSize", "8");
+        if (profile != null) {
+            config.put("profileUse", profile.getAbsolutePath());
+        }
+        return TestUtils.optimize(getCode(), config).getOllirCode();
+    }
+
+    @Test
+    public void runWritesCounters() {
+        var profile = SpecsIo.read(profile());
+
+        assertTrue("Missing loop body count in:\n" + profile, profile.contains("Profiled.hot:b2 200\n"));
+        assertTrue("Missing call site count in:\n" + profile, profile.contains("Profiled.hot:c0 200\n"));
+        assertTrue("Missing count of a cold block in:\n" + profile, profile.contains("Profiled.cold:b2 0\n"));
+    }
+
+    @Test
+    public void runsAccumulate() {
+        var file = profile();
+        Map<String, String> config = new HashMap<>();
+        config.put("profile", file.getAbsolutePath());
+        CpUtils.runJasmin(TestUtils.backend(getCode(), config), EXPECTED_OUTPUT);
+
+        var profile = SpecsIo.read(file);
+        assertTrue("Counts not added in:\n" + profile, profile.contains("Profiled.hot:b2 400\n"));
+    }
+
+    /**
+     * work is too large to inline with a budget of 8 instructions, but the call runs on every iteration of the loop.
+     */
+    @Test
+    public void hotCallIsInlined() {
+        assertTrue(getMethod(optimize(null), "hot").contains("\"work\""));
+
+        var hot = getMethod(optimize(profile()), "hot");
+        assertFalse("Hot call not inlined in:\n" + hot, hot.contains("\"work\""));
+    }
+
+    /**
+     * small is inlined by default, but never ran.
+     */
+    @Test
+    public void coldCallIsNotInlined() {
+        assertFalse(getMethod(optimize(null), "cold").contains("\"small\""));
+
+        var cold = getMethod(optimize(profile()), "cold");
+        assertTrue("Cold call inlined in:\n" + cold, cold.contains("\"small\""));
+    }
+
+    /**
+     * The branch that prints is unlikely by default, but it is the one that ran.
+     */
+    @Test
+    public void profiledBranchFallsThrough() {
+        var pick = getMethod(optimize(null), "pick");
+        assertTrue(pick.indexOf("-.i32") < pick.indexOf("println"));
+
+        pick = getMethod(optimize(profile()), "pick");
+        assertTrue("Hot branch does not follow the condition in:\n" + pick,
+                pick.indexOf("println") < pick.indexOf("ret.i32"));
+        assertTrue("Cold branch not after the return in:\n" + pick,
+                pick.indexOf("ret.i32") < pick.indexOf("-.i32"));
+    }
+
+    @Test
+    public void coldLoopIsNotUnrolled() {
+        assertFalse(getMethod(optimize(null), "unused").contains("goto"));
+
+        var unused = getMethod(optimize(profile()), "unused");
+        assertTrue("Cold loop unrolled in:\n" + unused, unused.contains("goto whilebody_"));
+    }
+
+    @Test
+    public void optimizedWithProfileExecutes() {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        config.put("profileUse", profile().getAbsolutePath());
+        CpUtils.runJasmin(TestUtils.backend(getCode(), config), EXPECTED_OUTPUT);
+    }
+
+    @Test
+    public void missingProfileFails() {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        config.put("profileUse", new File("does/not/exist.profile").getAbsolutePath());
+        try {
+            TestUtils.optimize(getCode(), config);
+            fail("Expected an error for a missing profile");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("exist.profile"));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class SparseConditionalConstantPropagationTest {
+
+    /**
+     * Code guarded by a constant false condition, inside and outside loops, should be removed.
+     */
+    @Test
+    public void constantGuardsAreRemoved() {
+        var ollirCode = getOllirResultOpt("sccp/ConstantGuards.jmm").getOllirCode();
+
+        assertFalse("Expected the guarded calls to be removed:\n" + ollirCode, ollirCode.contains("printResult\", i.i32"));
+        assertFalse("Expected the guarded calls to be removed:\n" + ollirCode, ollirCode.contains("debug.bool"));
+        assertTrue("Expected 'scale' to be propagated as 6:\n" + ollirCode, ollirCode.contains("+.i32 6.i32"));
+    }
+
+    @Test
+    public void constantGuardsExecute() {
+        CpUtils.runJasmin(getJasminResultOpt("sccp/ConstantGuards.jmm"), "Result: 24");
+    }
+
+    /**
+     * A variable redefined with the same constant inside a loop is still a constant after the loop.
+     */
+    @Test
+    public void loopCarriedConstant() {
+        var ollirCode = getOllirResultOpt("sccp/LoopCarried.jmm").getOllirCode();
+
+        assertTrue("Expected 'a' to be propagated as 10:\n" + ollirCode, ollirCode.contains("*.i32 10.i32"));
+        CpUtils.runJasmin(getJasminResultOpt("sccp/LoopCarried.jmm"), "Result: 100");
+    }
+}
@@ -0,0 +1,40 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp.OptimizationTestUtils.*;
+
+public class TailRecursionEliminationTest {
+
+    @Test
+    public void tailCallsBecomeJumps() {
+        var ollirCode = getOllirResultOpt("tre/Recursion.jmm").getOllirCode();
+
+        var sum = getMethod(ollirCode, "sum");
+        assertFalse("Recursive call in:\n" + sum, sum.contains("invokevirtual"));
+
+        var gcd = getMethod(ollirCode, "gcd");
+        assertFalse("Recursive call in:\n" + gcd, gcd.contains("invokevirtual"));
+    }
+
+    /**
+     * The result of the recursive call of factorial is multiplied before it is returned.
+     */
+    @Test
+    public void otherCallsAreKept() {
+        var factorial = getMethod(getOllirResultOpt("tre/Recursion.jmm").getOllirCode(), "factorial");
+
+        assertTrue("Recursive call removed from:\n" + factorial, factorial.contains("\"factorial\""));
+    }
+
+    /**
+     * A million nested calls would overflow the stack.
+     */
+    @Test
+    public void deepRecursionExecutes() {
+        CpUtils.runJasmin(getJasminResultOpt("tre/Recursion.jmm"), "Result: 1784293664\nResult: 21\nResult: 3628800");
+    }
+}
@@ -0,0 +1,447 @@
+package utils;
+
+import jasmin.ClassFile;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsSystem;
+import pt.up.fe.specs.util.system.OutputType;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+import pt.up.fe.specs.util.system.StreamToString;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Runs compiled Jasmin programs inside the JVM of the tests, instead of forking a java process for each one as
+ * {@link JasminResult#runWithFullOutput()} does.
+ * <p>
+ * The code is assembled in memory and its class is defined in a class loader of its own, which also loads the classes
+ * in libs-jmm, so that the static state of a program (e.g. the input buffer of io) does not leak into the next one.
+ * The standard streams are per thread: a program prints to its own buffers and reads its own input, so many programs
+ * can run at once. The output is returned as the forked process would return it, each line ending in a line separator.
+ * <p>
+ * A program that does not finish within the timeout is abandoned, since its thread cannot be stopped safely. It keeps
+ * running, so every program after it is forked, as if the system property jmm.fork was true, which forks every run.
+ * A program that calls System.exit, or Runtime.exit or halt, would end the tests too, and is always forked; the call
+ * is found in its code, so the classes in libs-jmm must not make it (io only does if reading System.in fails). Tests
+ * that compile while programs run must fork them too: the test utilities replace System.out on every compilation, and
+ * a program running at that moment would print to the new stream.
+ * <p>
+ * A forked program runs from a folder of its own, unlike {@link JasminResult#runWithFullOutput()}, whose folder is
+ * shared and cleaned by every run.
+ */
+public class JasminRunner {
+
+    private static final String FORK_PROPERTY = "jmm.fork";
+    private static final long TIMEOUT_MS = 5000;
+    private static final long TYPING_DELAY_MS = 250;
+    private static final int TIMEOUT_RETURN_VALUE = -1;
+    private static final String NEW_LINE = System.getProperty("line.separator");
+    private static final Pattern EXIT_CALL = Pattern.compile("invoke\\w+\\s+java/lang/(System/exit|Runtime/(exit|halt))\\(");
+
+    /**
+     * Set when a program times out, since its thread is still running.
+     */
+    private static volatile boolean timedOut;
+
+    private static final ThreadOutputStream stdout = new ThreadOutputStream();
+    private static final ThreadOutputStream stderr = new ThreadOutputStream();
+    private static final ThreadInputStream stdin = new ThreadInputStream();
+    private static PrintStream out;
+    private static PrintStream err;
+
+    /**
+     * Defines the assembled class, and loads the classes in libs-jmm itself instead of delegating them to the loader
+     * of the tests.
+     */
+    private static class ProgramClassLoader extends URLClassLoader {
+
+        private final String className;
+        private final byte[] bytes;
+
+        private ProgramClassLoader(String className, byte[] bytes) {
+            super(new URL[]{getLibsUrl()}, ClassLoader.getPlatformClassLoader());
+            this.className = className;
+            this.bytes = bytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (name.equals(className)) {
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+            return super.findClass(name);
+        }
+
+        private Class<?> getLoaded(String name) {
+            return findLoadedClass(name);
+        }
+    }
+
+    /**
+     * Writes to the stream of the current thread, or to the original one for threads that are not running a program.
+     */
+    private static class ThreadOutputStream extends OutputStream {
+
+        private final InheritableThreadLocal<OutputStream> target = new InheritableThreadLocal<>();
+        private OutputStream original;
+
+        private OutputStream current() {
+            var stream = target.get();
+            return stream != null ? stream : original;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            current().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            current().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            current().flush();
+        }
+    }
+
+    /**
+     * Reads from the input of the current thread, at most a line at a time, as if typed: io.read opens a new reader on
+     * each call, which would otherwise buffer the lines meant for the next calls.
+     */
+    private static class ThreadInputStream extends InputStream {
+
+        private final InheritableThreadLocal<InputStream> source = new InheritableThreadLocal<>();
+        private InputStream original;
+
+        private InputStream current() {
+            var stream = source.get();
+            return stream != null ? stream : original;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return current().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var input = current();
+            if (input == original) {
+                return input.read(b, off, len);
+            }
+
+            int count = 0;
+            while (count < len) {
+                int value = input.read();
+                if (value < 0) {
+                    return count == 0 ? -1 : count;
+                }
+                b[off + count++] = (byte) value;
+                if (value == '\n') {
+                    break;
+                }
+            }
+            return count;
+        }
+    }
+
+    private JasminRunner() {
+    }
+
+    /**
+     * @return true if programs run in a process of their own, because jmm.fork is true or a program timed out
+     */
+    public static boolean isForking() {
+        return timedOut || Boolean.getBoolean(FORK_PROPERTY);
+    }
+
+    /**
+     * Runs programs in the JVM of the tests again, once the one that timed out finished.
+     */
+    static void clearTimedOut() {
+        timedOut = false;
+    }
+
+    public static ProcessOutputAsString run(JasminResult result) {
+        return run(result, new ArrayList<>(), null);
+    }
+
+    public static ProcessOutputAsString run(JasminResult result, String input) {
+        return run(result, new ArrayList<>(), input);
+    }
+
+    /**
+     * Assembles and runs the program.
+     *
+     * @param args  arguments for the program
+     * @param input input to give to the program, or null
+     * @return what the program printed and how it ended, with -1 as the return value if it timed out
+     */
+    public static ProcessOutputAsString run(JasminResult result, List<String> args, String input) {
+        return run(result, args, input, TIMEOUT_MS);
+    }
+
+    static ProcessOutputAsString run(JasminResult result, List<String> args, String input, long timeoutMs) {
+        var classFile = assemble(result.getJasminCode());
+        var className = classFile.getClassName().replace('/', '.');
+
+        if (isForking() || EXIT_CALL.matcher(result.getJasminCode()).find()) {
+            return fork(className, toBytes(classFile), args, input, timeoutMs);
+        }
+
+        return runMain(new ProgramClassLoader(className, toBytes(classFile)), args, input, timeoutMs);
+    }
+
+    /**
+     * Assembles the code in memory, as {@link JasminResult#compile()} would, without writing to the folder all compiled
+     * classes share.
+     *
+     * @throws RuntimeException if the code does not assemble
+     */
+    public static void assemble(JasminResult result) {
+        toBytes(assemble(result.getJasminCode()));
+    }
+
+    /**
+     * Assembles the code and defines its class in a class loader of its own, as a run would, so that its methods can be
+     * called directly.
+     */
+    public static Class<?> load(JasminResult result) {
+        var classFile = assemble(result.getJasminCode());
+        var className = classFile.getClassName().replace('/', '.');
+
+        try {
+            return new ProgramClassLoader(className, toBytes(classFile)).loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Could not load class " + className, e);
+        }
+    }
+
+    /**
+     * Runs the programs concurrently, one per available processor.
+     *
+     * @return the output of each program, in the same order
+     */
+    public static List<ProcessOutputAsString> runAll(List<JasminResult> results) {
+        var executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+            var thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            var futures = new ArrayList<Future<ProcessOutputAsString>>();
+            for (var result : results) {
+                futures.add(executor.submit(() -> run(result)));
+            }
+
+            var outputs = new ArrayList<ProcessOutputAsString>();
+            for (var future : futures) {
+                outputs.add(future.get());
+            }
+            return outputs;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Could not run the programs", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ProcessOutputAsString runMain(ProgramClassLoader loader, List<String> args, String input,
+                                                 long timeoutMs) {
+        installStreams();
+
+        var programOut = new ByteArrayOutputStream();
+        var programErr = new ByteArrayOutputStream();
+        var programIn = new ByteArrayInputStream(input == null ? new byte[0] : input.getBytes());
+        var returnValue = new int[]{0};
+
+        var thread = new Thread(() -> {
+            stdout.target.set(programOut);
+            stderr.target.set(programErr);
+            stdin.source.set(programIn);
+
+            try {
+                loader.loadClass(loader.className).getMethod("main", String[].class)
+                        .invoke(null, (Object) args.toArray(new String[0]));
+            } catch (InvocationTargetException e) {
+                System.err.print("Exception in thread \"main\" ");
+                e.getCause().printStackTrace();
+                returnValue[0] = 1;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Error: Could not run main class " + loader.className);
+                e.printStackTrace();
+                returnValue[0] = 1;
+            } finally {
+                writeProfile(loader);
+                System.out.flush();
+                System.err.flush();
+            }
+        }, "main");
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            thread.interrupt();
+            timedOut = true;
+            return new ProcessOutputAsString(TIMEOUT_RETURN_VALUE, toLines(programOut),
+                    toLines(programErr) + "Timed out after " + timeoutMs + " ms" + NEW_LINE);
+        }
+
+        return new ProcessOutputAsString(returnValue[0], toLines(programOut), toLines(programErr));
+    }
+
+    private static ProcessOutputAsString fork(String className, byte[] bytes, List<String> args, String input,
+                                              long timeoutMs) {
+        File folder;
+        try {
+            folder = Files.createTempDirectory("jmm").toFile();
+            Files.write(new File(folder, className + ".class").toPath(), bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            var command = new ArrayList<String>();
+            command.add("java");
+            command.add("-cp");
+            command.add(folder.getAbsolutePath() + File.pathSeparator + new File(TestUtils.getLibsClasspath()).getAbsolutePath());
+            command.add(className);
+            command.addAll(args);
+
+            var builder = new ProcessBuilder(command);
+            builder.directory(SpecsIo.getWorkingDir());
+
+            // As in a forked run of JasminResult, the lines are typed with a delay between them
+            Consumer<OutputStream> stdin = input == null || input.isEmpty() ? null : stream -> {
+                try (var writer = new PrintWriter(new OutputStreamWriter(stream))) {
+                    for (var line : input.split("\\R")) {
+                        SpecsSystem.sleep(TYPING_DELAY_MS);
+                        writer.println(line);
+                        writer.flush();
+                    }
+                }
+            };
+
+            var output = SpecsSystem.runProcess(builder, new StreamToString(false, true, OutputType.StdOut),
+                    new StreamToString(false, true, OutputType.StdErr), stdin, TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+            return new ProcessOutputAsString(output.getReturnValue(), output.getStdOut(), output.getStdErr());
+        } finally {
+            SpecsIo.deleteFolder(folder);
+        }
+    }
+
+    /**
+     * Code compiled with -profile writes its counters when the JVM exits, which would only happen once the tests end.
+     */
+    private static void writeProfile(ProgramClassLoader loader) {
+        var profile = loader.getLoaded("JmmProfile");
+        if (profile == null) {
+            return;
+        }
+
+        try {
+            profile.getMethod("flush").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not write the profile", e);
+        }
+    }
+
+    /**
+     * Replaces the standard streams by the ones of each thread, again if something replaced them in the meantime.
+     */
+    private static synchronized void installStreams() {
+        if (System.out != out) {
+            stdout.original = System.out;
+            out = new PrintStream(stdout, true);
+            System.setOut(out);
+        }
+
+        if (System.err != err) {
+            stderr.original = System.err;
+            err = new PrintStream(stderr, true);
+            System.setErr(err);
+        }
+
+        if (System.in != stdin) {
+            stdin.original = System.in;
+            System.setIn(stdin);
+        }
+    }
+
+    /**
+     * The assembler is not known to be thread-safe, so programs are assembled one at a time.
+     */
+    private static synchronized ClassFile assemble(String jasminCode) {
+        var classFile = new ClassFile();
+        try {
+            classFile.readJasmin(new StringReader(jasminCode), "Program.j", true);
+        } catch (Exception e) {
+            throw new RuntimeException("Exception while assembling Jasmin code: " + e.getMessage() + "\nCode: "
+                    + jasminCode, e);
+        }
+
+        if (classFile.errorCount() > 0) {
+            throw new RuntimeException("Found " + classFile.errorCount() + " errors while compiling Jasmin code.");
+        }
+
+        return classFile;
+    }
+
+    private static byte[] toBytes(ClassFile classFile) {
+        var bytes = new ByteArrayOutputStream();
+        try {
+            classFile.write(bytes);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not write class " + classFile.getClassName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the output split into lines, each followed by a line separator, as the output of a forked process
+     */
+    private static String toLines(ByteArrayOutputStream output) {
+        var lines = new StringBuilder();
+        try (var reader = new BufferedReader(new StringReader(output.toString(Charset.defaultCharset())))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.append(line).append(NEW_LINE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines.toString();
+    }
+
+    private static URL getLibsUrl() {
+        try {
+            return new File(TestUtils.getLibsClasspath()).getAbsoluteFile().toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
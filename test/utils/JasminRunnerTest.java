@@ -0,0 +1,108 @@
+package utils;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JasminRunnerTest {
+
+    private static JasminResult compile(String filename) {
+        return TestUtils.backend(SpecsIo.getResource("utils/runner/" + filename));
+    }
+
+    /**
+     * The output is the same as the one of a forked process, including the line separator added to the last line.
+     */
+    @Test
+    public void sameOutputAsForkedProcess() {
+        var result = compile("Count.jmm");
+
+        var inProcess = JasminRunner.run(result);
+        var forked = result.runWithFullOutput();
+
+        assertEquals("0\n1\n2\n", inProcess.getOutput());
+        assertEquals(forked.getOutput(), inProcess.getOutput());
+        assertEquals(forked.getReturnValue(), inProcess.getReturnValue());
+    }
+
+    /**
+     * Each run reads its own input, a line at a time, and starts with the state of io cleared.
+     */
+    @Test
+    public void readsInput() {
+        var ollirResult = new OllirResult(SpecsIo.getResource("utils/runner/Echo.ollir"), Collections.emptyMap());
+        var result = TestUtils.backend(ollirResult);
+
+        assertEquals("3\n4\n", JasminRunner.run(result, "3\n4\n").getOutput());
+        assertEquals("10\n20\n", JasminRunner.run(result, "10\n20\n").getOutput());
+    }
+
+    @Test
+    public void uncaughtExceptionFails() {
+        var output = JasminRunner.run(compile("OutOfBounds.jmm"));
+
+        assertEquals(1, output.getReturnValue());
+        assertEquals("1\n", output.getStdOut());
+        assertTrue(output.getStdErr(), output.getStdErr().startsWith("Exception in thread \"main\" "
+                + "java.lang.ArrayIndexOutOfBoundsException"));
+    }
+
+    @Test
+    public void runsConcurrently() {
+        var results = new ArrayList<JasminResult>();
+        for (int i = 0; i < 8; i++) {
+            results.add(compile(i % 2 == 0 ? "Count.jmm" : "OutOfBounds.jmm"));
+        }
+
+        var outputs = JasminRunner.runAll(results);
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i % 2 == 0 ? "0\n1\n2\n" : "1\n", outputs.get(i).getStdOut());
+        }
+    }
+
+    @Test
+    public void isolatesOutputFromTests() {
+        var outputs = JasminRunner.runAll(List.of(compile("Count.jmm")));
+        System.out.println("Printed by the test");
+
+        assertEquals("0\n1\n2\n", outputs.get(0).getOutput());
+    }
+
+    /**
+     * A program that calls System.exit is forked, instead of ending the tests.
+     */
+    @Test
+    public void exitIsForked() {
+        var ollirResult = new OllirResult(SpecsIo.getResource("utils/runner/Exit.ollir"), Collections.emptyMap());
+        var output = JasminRunner.run(TestUtils.backend(ollirResult));
+
+        assertEquals(3, output.getReturnValue());
+        assertEquals("1\n", output.getStdOut());
+    }
+
+    /**
+     * The thread of a program that timed out keeps running, so the programs after it are forked.
+     */
+    @Test
+    public void timeoutForksLaterRuns() {
+        try {
+            var output = JasminRunner.run(compile("Spin.jmm"), new ArrayList<>(), null, 1);
+
+            assertEquals(-1, output.getReturnValue());
+            assertTrue(JasminRunner.isForking());
+            assertEquals("0\n1\n2\n", JasminRunner.run(compile("Count.jmm")).getOutput());
+        } finally {
+            JasminRunner.clearTimedOut();
+        }
+    }
+}
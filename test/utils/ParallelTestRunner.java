@@ -0,0 +1,176 @@
+package utils;
+
+import org.junit.Test;
+import org.junit.runner.Computer;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runners.ParentRunner;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.junit.runners.model.RunnerScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the tests in a single JVM, the test classes and their methods at the same time, on a thread per available
+ * processor. This is what the parallelTest task of Gradle does, while the test task runs them one at a time.
+ * <p>
+ * Classes are run by one pool, and their methods by another, since a class waits for its methods to end.
+ * <p>
+ * Usage: ParallelTestRunner &lt;directory of the compiled tests&gt; [package or class name prefix]...
+ */
+public class ParallelTestRunner {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Schedules the children of a runner in a pool, and waits for them to end.
+     */
+    private static class PoolScheduler implements RunnerScheduler {
+
+        private final ExecutorService pool;
+        private final List<Future<?>> children = new ArrayList<>();
+
+        private PoolScheduler(ExecutorService pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public synchronized void schedule(Runnable childStatement) {
+            children.add(pool.submit(childStatement));
+        }
+
+        @Override
+        public void finished() {
+            List<Future<?>> scheduled;
+            synchronized (this) {
+                scheduled = new ArrayList<>(children);
+            }
+
+            for (var child : scheduled) {
+                try {
+                    child.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        }
+    }
+
+    private static class ParallelComputer extends Computer {
+
+        private final ExecutorService classPool = newPool("classes");
+        private final ExecutorService methodPool = newPool("methods");
+
+        @Override
+        public Runner getSuite(RunnerBuilder builder, Class<?>[] classes) throws InitializationError {
+            return schedule(super.getSuite(builder, classes), classPool);
+        }
+
+        @Override
+        protected Runner getRunner(RunnerBuilder builder, Class<?> testClass) throws Throwable {
+            return schedule(super.getRunner(builder, testClass), methodPool);
+        }
+
+        private Runner schedule(Runner runner, ExecutorService pool) {
+            if (runner instanceof ParentRunner) {
+                ((ParentRunner<?>) runner).setScheduler(new PoolScheduler(pool));
+            }
+            return runner;
+        }
+
+        private void shutdown() {
+            classPool.shutdownNow();
+            methodPool.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: ParallelTestRunner <directory of the compiled tests> [package or class name prefix]...");
+            System.exit(2);
+        }
+
+        var prefixes = Arrays.asList(args).subList(1, args.length);
+        var testClasses = findTestClasses(Paths.get(args[0]), prefixes);
+
+        var computer = new ParallelComputer();
+        long start = System.currentTimeMillis();
+        var result = new JUnitCore().run(Request.classes(computer, testClasses.toArray(new Class<?>[0])));
+        long elapsed = System.currentTimeMillis() - start;
+        computer.shutdown();
+
+        for (Failure failure : result.getFailures()) {
+            System.out.println(failure.getTestHeader());
+            System.out.println(failure.getTrace());
+        }
+
+        System.out.printf("%d test classes, %d tests, %d failures, %d ignored, in %.1f s on %d threads%n",
+                testClasses.size(), result.getRunCount(), result.getFailureCount(), result.getIgnoreCount(),
+                elapsed / 1000.0, THREADS);
+
+        System.exit(result.wasSuccessful() ? 0 : 1);
+    }
+
+    /**
+     * @return the concrete classes with test methods, sorted by name, whose names start with one of the prefixes
+     */
+    private static List<Class<?>> findTestClasses(Path directory, List<String> prefixes) {
+        List<String> names;
+        try (var files = Files.walk(directory)) {
+            names = files.map(file -> directory.relativize(file).toString())
+                    .filter(file -> file.endsWith(".class") && !file.contains("$"))
+                    .map(file -> file.substring(0, file.length() - ".class".length()).replace(File.separatorChar, '.'))
+                    .filter(name -> prefixes.isEmpty() || prefixes.stream().anyMatch(name::startsWith))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var testClasses = new ArrayList<Class<?>>();
+        for (var name : names) {
+            Class<?> testClass;
+            try {
+                testClass = Class.forName(name, false, ParallelTestRunner.class.getClassLoader());
+            } catch (ClassNotFoundException | LinkageError e) {
+                continue;
+            }
+
+            boolean hasTests = Arrays.stream(testClass.getMethods()).anyMatch(method -> method.isAnnotationPresent(Test.class));
+            if (hasTests && !Modifier.isAbstract(testClass.getModifiers())) {
+                testClasses.add(testClass);
+            }
+        }
+        return testClasses;
+    }
+
+    private static ExecutorService newPool(String name) {
+        return Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable task) {
+                var thread = new Thread(task, name + "-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
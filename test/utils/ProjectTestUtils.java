@@ -324,7 +324,7 @@ public class ProjectTestUtils {
     }
 
     public static void runJasmin(JasminResult jasminResult, String expected) {
-        var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+        var output = SpecsStrings.normalizeFileContents(JasminRunner.run(jasminResult).getOutput(), true);
 
         // No expected output, just run test
         if (expected == null) {
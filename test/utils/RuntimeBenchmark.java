@@ -0,0 +1,197 @@
+package utils;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Measures how fast the code generated by the compiler runs, compared with the same code compiled by javac.
+ * <p>
+ * Each kernel in utils/benchmark is a Java-- class with a method 'int run(int n)', next to a Java class with the same
+ * code. The Java-- class is compiled with each set of flags, and every version runs in this JVM: it is called until the
+ * warmup time passes, so that the JIT compiles it, and then for a few rounds of fixed time, the median of which is the
+ * time of a call. Every version must return what the javac one does, and the results are kept in a field so that the
+ * calls are not optimized away.
+ * <p>
+ * Usage: RuntimeBenchmark [-maxSlowdown=ratio] [kernel name]...
+ * <p>
+ * With -maxSlowdown, it exits with an error if some version is slower than javac by more than the ratio.
+ */
+public class RuntimeBenchmark {
+
+    private static final long WARMUP_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final long ROUND_NS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final int ROUNDS = 5;
+    private static final String MAX_SLOWDOWN = "-maxSlowdown=";
+
+    /**
+     * @param size the argument given to run
+     */
+    record Kernel(String name, int size) {
+
+        String getCode() {
+            return SpecsIo.getResource("utils/benchmark/" + name + ".jmm");
+        }
+    }
+
+    static final List<Kernel> KERNELS = List.of(
+            new Kernel("QuicksortKernel", 100_000),
+            new Kernel("ArraySumKernel", 100_000),
+            new Kernel("RecursionKernel", 25),
+            new Kernel("NestedLoopsKernel", 60));
+
+    /**
+     * The flags of the launcher, with the configuration they give.
+     */
+    static final Map<String, Map<String, String>> FLAGS = new LinkedHashMap<>();
+
+    static {
+        FLAGS.put("none", Map.of());
+        FLAGS.put("-o", Map.of("optimize", "true"));
+    }
+
+    private static int sink;
+
+    /**
+     * @return the run method of the kernel compiled by javac
+     */
+    static IntUnaryOperator javac(Kernel kernel) {
+        try {
+            return bind(Class.forName("utils.benchmark." + kernel.name()));
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("No Java version of kernel " + kernel.name(), e);
+        }
+    }
+
+    /**
+     * @return the run method of the kernel compiled by this compiler, with the configuration of the flags
+     */
+    static IntUnaryOperator compile(Kernel kernel, String flags) {
+        return bind(JasminRunner.load(TestUtils.backend(kernel.getCode(), new HashMap<>(FLAGS.get(flags)))));
+    }
+
+    private static IntUnaryOperator bind(Class<?> kernelClass) {
+        try {
+            var run = MethodHandles.publicLookup()
+                    .findVirtual(kernelClass, "run", MethodType.methodType(int.class, int.class))
+                    .bindTo(kernelClass.getConstructor().newInstance());
+
+            return n -> {
+                try {
+                    return (int) run.invokeExact(n);
+                } catch (Throwable e) {
+                    throw new RuntimeException("Kernel " + kernelClass.getName() + " failed", e);
+                }
+            };
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not call run of " + kernelClass.getName(), e);
+        }
+    }
+
+    public static void main(String[] args) {
+        double maxSlowdown = Double.POSITIVE_INFINITY;
+        var names = new ArrayList<String>();
+        for (var arg : args) {
+            if (arg.startsWith(MAX_SLOWDOWN)) {
+                maxSlowdown = Double.parseDouble(arg.substring(MAX_SLOWDOWN.length()));
+            } else {
+                names.add(arg);
+            }
+        }
+
+        var kernels = KERNELS.stream()
+                .filter(kernel -> names.isEmpty() || names.contains(kernel.name()))
+                .toList();
+
+        // Everything is compiled before the table is printed, so that the compiler does not run between measurements
+        var compiled = new HashMap<Kernel, Map<String, IntUnaryOperator>>();
+        for (var kernel : kernels) {
+            var versions = new LinkedHashMap<String, IntUnaryOperator>();
+            for (var flags : FLAGS.keySet()) {
+                versions.put(flags, compile(kernel, flags));
+            }
+            compiled.put(kernel, versions);
+        }
+
+        System.out.printf("%n%-20s %12s", "kernel", "javac");
+        for (var flags : FLAGS.keySet()) {
+            System.out.printf(" %20s", flags);
+        }
+        System.out.println();
+
+        boolean passed = true;
+        for (var kernel : kernels) {
+            var javac = javac(kernel);
+            int expected = javac.applyAsInt(kernel.size());
+            double javacTime = measure(javac, kernel.size());
+            var row = new StringBuilder(String.format("%-20s %12s", kernel.name(), formatTime(javacTime)));
+            var problems = new ArrayList<String>();
+
+            for (var version : compiled.get(kernel).entrySet()) {
+                var flags = version.getKey();
+                int result = version.getValue().applyAsInt(kernel.size());
+                if (result != expected) {
+                    problems.add("with " + flags + " returns " + result + " instead of " + expected);
+                    row.append(String.format(" %20s", "wrong result"));
+                    continue;
+                }
+
+                double time = measure(version.getValue(), kernel.size());
+                double slowdown = time / javacTime;
+                if (slowdown > maxSlowdown) {
+                    problems.add(String.format("with %s takes %.2fx the time of javac, over the limit", flags, slowdown));
+                }
+                row.append(String.format(" %12s %6.2fx", formatTime(time), slowdown));
+            }
+
+            System.out.println(row);
+            for (var problem : problems) {
+                System.out.println("  " + kernel.name() + " " + problem);
+            }
+            passed &= problems.isEmpty();
+        }
+
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * @return the median time of a call, in nanoseconds
+     */
+    private static double measure(IntUnaryOperator kernel, int size) {
+        callFor(kernel, size, WARMUP_NS);
+
+        var times = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            times[round] = callFor(kernel, size, ROUND_NS);
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2];
+    }
+
+    /**
+     * Calls the kernel until the time passes, at least once.
+     *
+     * @return the average time of a call, in nanoseconds
+     */
+    private static double callFor(IntUnaryOperator kernel, int size, long durationNs) {
+        long start = System.nanoTime();
+        long calls = 0;
+        long elapsed;
+        do {
+            sink += kernel.applyAsInt(size);
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < durationNs);
+
+        return (double) elapsed / calls;
+    }
+
+    private static String formatTime(double ns) {
+        return String.format("%.1f us", ns / 1000);
+    }
+}
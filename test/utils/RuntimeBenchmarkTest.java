@@ -0,0 +1,23 @@
+package utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RuntimeBenchmarkTest {
+
+    /**
+     * The timings of the benchmark only mean something if every version computes the same as the one of javac.
+     */
+    @Test
+    public void kernelsReturnSameAsJavac() {
+        for (var kernel : RuntimeBenchmark.KERNELS) {
+            int expected = RuntimeBenchmark.javac(kernel).applyAsInt(kernel.size());
+
+            for (var flags : RuntimeBenchmark.FLAGS.keySet()) {
+                assertEquals(kernel.name() + " with " + flags, expected,
+                        RuntimeBenchmark.compile(kernel, flags).applyAsInt(kernel.size()));
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package utils;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates valid Java-- programs of a given shape, to stress the compiler and to measure how it scales.
+ * <p>
+ * The same seed and shape always give the same program. Each axis of the {@link Shape} scales one thing: the methods
+ * of the class, the statements of each method (nested ones included), the depth of expressions, the int locals of each
+ * method, the calls each method makes, whether odd methods take varargs, and how deep ifs and whiles nest.
+ * <p>
+ * Programs only use what the frontend accepts: expressions have no parentheses, so precedence decides their shape, '<'
+ * is the only comparison and is never mixed with '&&' or '||', and calls to io are statements. They also run to
+ * completion: locals are assigned before being read, loops count to a constant, array indices are constants in
+ * bounds, and there is no division. A method only calls the ones after it, and only while the depth it is given is
+ * positive, so a run makes at most fanOut^{@value #CALL_DEPTH} calls per call site of main.
+ * <p>
+ * Usage: WorkloadGenerator &lt;output folder&gt; &lt;number of programs&gt; [seed] [axis=value]...
+ */
+public class WorkloadGenerator {
+
+    private static final int CALL_DEPTH = 3;
+    private static final int ARRAY_SIZE = 4;
+    private static final int LOOP_TRIPS = 2;
+    private static final int MAX_LITERAL = 100;
+    private static final String INDENT = "    ";
+
+    /**
+     * The size of a program along each axis.
+     */
+    public record Shape(int methods, int statements, int expressionDepth, int locals, int fanOut, boolean varargs,
+                        int nesting) {
+
+        public static Shape small() {
+            return new Shape(3, 8, 2, 3, 2, true, 2);
+        }
+
+        public Shape withMethods(int methods) {
+            return new Shape(methods, statements, expressionDepth, locals, fanOut, varargs, nesting);
+        }
+
+        public Shape withStatements(int statements) {
+            return new Shape(methods, statements, expressionDepth, locals, fanOut, varargs, nesting);
+        }
+
+        public Shape withExpressionDepth(int expressionDepth) {
+            return new Shape(methods, statements, expressionDepth, locals, fanOut, varargs, nesting);
+        }
+
+        public Shape withLocals(int locals) {
+            return new Shape(methods, statements, expressionDepth, locals, fanOut, varargs, nesting);
+        }
+
+        public Shape withFanOut(int fanOut) {
+            return new Shape(methods, statements, expressionDepth, locals, fanOut, varargs, nesting);
+        }
+
+        public Shape withVarargs(boolean varargs) {
+            return new Shape(methods, statements, expressionDepth, locals, fanOut, varargs, nesting);
+        }
+
+        public Shape withNesting(int nesting) {
+            return new Shape(methods, statements, expressionDepth, locals, fanOut, varargs, nesting);
+        }
+
+        /**
+         * @param axis the name of a component, e.g. "methods"
+         */
+        public Shape with(String axis, String value) {
+            return switch (axis) {
+                case "methods" -> withMethods(Integer.parseInt(value));
+                case "statements" -> withStatements(Integer.parseInt(value));
+                case "expressionDepth" -> withExpressionDepth(Integer.parseInt(value));
+                case "locals" -> withLocals(Integer.parseInt(value));
+                case "fanOut" -> withFanOut(Integer.parseInt(value));
+                case "varargs" -> withVarargs(Boolean.parseBoolean(value));
+                case "nesting" -> withNesting(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown axis '" + axis + "'");
+            };
+        }
+    }
+
+    private final Shape shape;
+    private final Random random;
+    private final StringBuilder code;
+
+    // Of the method being generated
+    private int indentation;
+    private int remainingStatements;
+    private List<String> intValues;
+    private boolean takesVarargs;
+    private List<Integer> pendingCalls;
+
+    private WorkloadGenerator(Shape shape, long seed) {
+        if (shape.methods() < 1 || shape.statements() < 0 || shape.expressionDepth() < 0 || shape.locals() < 1
+                || shape.fanOut() < 0 || shape.nesting() < 0) {
+            throw new IllegalArgumentException("Invalid shape: " + shape);
+        }
+
+        this.shape = shape;
+        this.random = new Random(seed);
+        this.code = new StringBuilder();
+    }
+
+    /**
+     * @return the code of a class with the given name, whose main prints the result of calling the first method
+     */
+    public static String generate(String className, Shape shape, long seed) {
+        return new WorkloadGenerator(shape, seed).generateClass(className);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: WorkloadGenerator <output folder> <number of programs> [seed] [axis=value]...");
+            System.exit(2);
+        }
+
+        var folder = new File(args[0]);
+        int count = Integer.parseInt(args[1]);
+        long seed = 0;
+        var shape = Shape.small();
+        for (int i = 2; i < args.length; i++) {
+            int separator = args[i].indexOf('=');
+            if (separator < 0) {
+                seed = Long.parseLong(args[i]);
+            } else {
+                shape = shape.with(args[i].substring(0, separator), args[i].substring(separator + 1));
+            }
+        }
+
+        SpecsIo.mkdir(folder);
+        for (int i = 0; i < count; i++) {
+            var className = "Workload" + i;
+            var program = generate(className, shape, seed + i);
+
+            // A program the compiler rejects would measure the wrong thing
+            var reports = TestUtils.analyse(program).getReports();
+            if (ReportUtils.anyError(reports)) {
+                throw new RuntimeException("Generated an invalid program with seed " + (seed + i) + ": " + reports);
+            }
+
+            SpecsIo.write(new File(folder, className + ".jmm"), program);
+        }
+
+        System.out.println("Wrote " + count + " programs of shape " + shape + " to " + folder.getAbsolutePath());
+    }
+
+    private String generateClass(String className) {
+        line("import io;");
+        line("");
+        line("class " + className + " {");
+        indentation++;
+
+        for (int method = 0; method < shape.methods(); method++) {
+            line("");
+            generateMethod(method);
+        }
+
+        // The arguments of main's call are literals
+        intValues = List.of();
+
+        line("");
+        line("public static void main(String[] args) {");
+        indentation++;
+        line(className + " program;");
+        line("int result;");
+        line("program = new " + className + "();");
+        line("result = program." + call(0, String.valueOf(CALL_DEPTH)) + ";");
+        line("io.println(result);");
+        indentation--;
+        line("}");
+
+        indentation--;
+        line("}");
+        return code.toString();
+    }
+
+    private void generateMethod(int method) {
+        takesVarargs = isVarargs(method);
+        line("public int m" + method + "(int depth, int a, " + (takesVarargs ? "int... values" : "int b") + ") {");
+        indentation++;
+
+        intValues = new ArrayList<>(List.of("a", "arr[0]", "arr.length"));
+        intValues.add(takesVarargs ? "values[0]" : "b");
+        if (takesVarargs) {
+            intValues.add("values.length");
+        }
+
+        // Declarations, then every local is given a value
+        for (int i = 0; i < shape.locals(); i++) {
+            line("int v" + i + ";");
+            intValues.add("v" + i);
+        }
+        line("boolean f0;");
+        line("boolean f1;");
+        line("int[] arr;");
+        for (int i = 0; i < shape.nesting(); i++) {
+            line("int i" + i + ";");
+        }
+
+        for (int i = 0; i < shape.locals(); i++) {
+            line("v" + i + " = " + random.nextInt(MAX_LITERAL) + ";");
+        }
+        line("f0 = true;");
+        line("f1 = false;");
+        line("arr = new int[" + ARRAY_SIZE + "];");
+        for (int i = 0; i < shape.nesting(); i++) {
+            line("i" + i + " = 0;");
+        }
+
+        // Calls go to distinct methods after this one, and are placed among the other statements
+        pendingCalls = new ArrayList<>();
+        for (int target = method + 1; target < shape.methods(); target++) {
+            pendingCalls.add(target);
+        }
+        while (pendingCalls.size() > shape.fanOut()) {
+            pendingCalls.remove(random.nextInt(pendingCalls.size()));
+        }
+
+        remainingStatements = shape.statements();
+        while (remainingStatements > 0) {
+            generateStatement(0);
+        }
+        while (!pendingCalls.isEmpty()) {
+            generateCall();
+        }
+
+        line("return " + intExpr(shape.expressionDepth()) + ";");
+        indentation--;
+        line("}");
+    }
+
+    /**
+     * @param loopDepth how many loops contain the statement
+     */
+    private void generateStatement(int loopDepth) {
+        remainingStatements--;
+
+        int nesting = indentation - 2;
+        boolean canNest = nesting < shape.nesting() && remainingStatements > 0;
+        int choice = random.nextInt(canNest ? 10 : 7);
+
+        if (!pendingCalls.isEmpty() && random.nextInt(4) == 0) {
+            generateCall();
+        } else if (choice < 4) {
+            line("v" + random.nextInt(shape.locals()) + " = " + intExpr(shape.expressionDepth()) + ";");
+        } else if (choice < 5) {
+            line("f" + random.nextInt(2) + " = " + comparison() + ";");
+        } else if (choice < 7) {
+            line("arr[" + random.nextInt(ARRAY_SIZE) + "] = " + intExpr(shape.expressionDepth()) + ";");
+        } else if (choice < 8 || loopDepth >= shape.nesting()) {
+            line("if (" + condition() + ") {");
+            generateBlock(loopDepth);
+            line("} else {");
+            generateBlock(loopDepth);
+            line("}");
+        } else {
+            var counter = "i" + loopDepth;
+            line(counter + " = 0;");
+            line("while (" + counter + " < " + LOOP_TRIPS + ") {");
+            generateBlock(loopDepth + 1);
+            indentation++;
+            line(counter + " = " + counter + " + 1;");
+            indentation--;
+            line("}");
+        }
+    }
+
+    private void generateBlock(int loopDepth) {
+        indentation++;
+        int statements = 1 + random.nextInt(Math.max(1, Math.min(3, remainingStatements)));
+        for (int i = 0; i < statements && remainingStatements > 0; i++) {
+            generateStatement(loopDepth);
+        }
+        indentation--;
+    }
+
+    private void generateCall() {
+        int target = pendingCalls.remove(0);
+        var result = "v" + random.nextInt(shape.locals());
+
+        line("if (0 < depth) {");
+        indentation++;
+        line(result + " = this." + call(target, "depth - 1") + ";");
+        indentation--;
+        line("} else {");
+        indentation++;
+        line(result + " = " + intExpr(0) + ";");
+        indentation--;
+        line("}");
+    }
+
+    private String call(int target, String depth) {
+        var args = new StringBuilder("m" + target + "(" + depth);
+        int count = isVarargs(target) ? 2 + random.nextInt(3) : 2;
+        for (int i = 0; i < count; i++) {
+            args.append(", ").append(intExpr(0));
+        }
+        return args.append(")").toString();
+    }
+
+    private boolean isVarargs(int method) {
+        return shape.varargs() && method % 2 == 1;
+    }
+
+    /**
+     * @return an int expression with the given depth of binary operations
+     */
+    private String intExpr(int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            return intValues.isEmpty() || random.nextInt(3) == 0 ? String.valueOf(random.nextInt(MAX_LITERAL))
+                    : intValues.get(random.nextInt(intValues.size()));
+        }
+
+        var op = switch (random.nextInt(3)) {
+            case 0 -> " + ";
+            case 1 -> " - ";
+            default -> " * ";
+        };
+        return intExpr(depth - 1) + op + intExpr(depth - 1);
+    }
+
+    private String comparison() {
+        int depth = Math.max(0, shape.expressionDepth() - 1);
+        return intExpr(depth) + " < " + intExpr(depth);
+    }
+
+    private String condition() {
+        return switch (random.nextInt(5)) {
+            case 0 -> "f" + random.nextInt(2);
+            case 1 -> "!f" + random.nextInt(2);
+            case 2 -> "f0 && f1";
+            case 3 -> "f0 || f1";
+            default -> comparison();
+        };
+    }
+
+    private void line(String text) {
+        if (!text.isEmpty()) {
+            code.append(INDENT.repeat(indentation)).append(text);
+        }
+        code.append("\n");
+    }
+}
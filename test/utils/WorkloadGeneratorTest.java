@@ -0,0 +1,79 @@
+package utils;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import utils.WorkloadGenerator.Shape;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WorkloadGeneratorTest {
+
+    private static final int SEEDS = 5;
+
+    private static void assertValid(Shape shape) {
+        for (long seed = 0; seed < SEEDS; seed++) {
+            var code = WorkloadGenerator.generate("Workload", shape, seed);
+            var reports = TestUtils.analyse(code).getReports();
+            assertFalse("Seed " + seed + " of " + shape + " is invalid: " + reports + "\n" + code,
+                    ReportUtils.anyError(reports));
+        }
+    }
+
+    @Test
+    public void sameSeedSameProgram() {
+        var shape = Shape.small();
+
+        assertEquals(WorkloadGenerator.generate("Workload", shape, 42), WorkloadGenerator.generate("Workload", shape, 42));
+        assertNotEquals(WorkloadGenerator.generate("Workload", shape, 42), WorkloadGenerator.generate("Workload", shape, 43));
+    }
+
+    /**
+     * Each axis is scaled by itself, starting from the small shape.
+     */
+    @Test
+    public void validAlongEachAxis() {
+        var small = Shape.small();
+
+        for (var shape : List.of(small, small.withMethods(1), small.withMethods(12), small.withStatements(0),
+                small.withStatements(60), small.withExpressionDepth(0), small.withExpressionDepth(5),
+                small.withLocals(1), small.withLocals(20), small.withFanOut(0), small.withFanOut(6),
+                small.withVarargs(false), small.withNesting(0), small.withNesting(4))) {
+            assertValid(shape);
+        }
+    }
+
+    @Test
+    public void sizeGrowsAlongEachAxis() {
+        var small = Shape.small();
+        int size = WorkloadGenerator.generate("Workload", small, 0).length();
+
+        for (var shape : List.of(small.withMethods(30), small.withStatements(80), small.withLocals(60),
+                small.withExpressionDepth(8))) {
+            assertTrue(shape.toString(), WorkloadGenerator.generate("Workload", shape, 0).length() > 2 * size);
+        }
+    }
+
+    /**
+     * The programs run to completion, and print the same with and without optimizations.
+     */
+    @Test
+    public void runs() {
+        Map<String, String> optimized = new HashMap<>();
+        optimized.put("optimize", "true");
+
+        for (long seed = 0; seed < 3; seed++) {
+            var code = WorkloadGenerator.generate("Workload", Shape.small().withMethods(4), seed);
+
+            var output = JasminRunner.run(TestUtils.backend(code));
+            assertEquals(output.getStdErr(), 0, output.getReturnValue());
+            assertTrue(output.getOutput(), output.getOutput().strip().matches("-?\\d+"));
+
+            assertEquals(output.getOutput(), JasminRunner.run(TestUtils.backend(code, optimized)).getOutput());
+        }
+    }
+}
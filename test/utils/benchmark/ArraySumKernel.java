@@ -0,0 +1,34 @@
+package utils.benchmark;
+
+/**
+ * The same code as ArraySumKernel.jmm, compiled by javac.
+ */
+public class ArraySumKernel {
+
+    public int run(int n) {
+        int[] values;
+        int i;
+        int pass;
+        int sum;
+
+        values = new int[n];
+        i = 0;
+        while (i < n) {
+            values[i] = i;
+            i = i + 1;
+        }
+
+        sum = 0;
+        pass = 0;
+        while (pass < 10) {
+            i = 0;
+            while (i < n) {
+                sum = sum + values[i];
+                i = i + 1;
+            }
+            pass = pass + 1;
+        }
+
+        return sum;
+    }
+}
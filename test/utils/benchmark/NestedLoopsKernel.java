@@ -0,0 +1,52 @@
+package utils.benchmark;
+
+/**
+ * The same code as NestedLoopsKernel.jmm, compiled by javac.
+ */
+public class NestedLoopsKernel {
+
+    public int run(int n) {
+        int[] a;
+        int[] b;
+        int[] c;
+        int i;
+        int j;
+        int k;
+        int sum;
+
+        a = new int[n * n];
+        b = new int[n * n];
+        c = new int[n * n];
+        i = 0;
+        while (i < n * n) {
+            a[i] = i;
+            b[i] = n * n - i;
+            i = i + 1;
+        }
+
+        i = 0;
+        while (i < n) {
+            j = 0;
+            while (j < n) {
+                sum = 0;
+                k = 0;
+                while (k < n) {
+                    sum = sum + a[i * n + k] * b[k * n + j];
+                    k = k + 1;
+                }
+                c[i * n + j] = sum;
+                j = j + 1;
+            }
+            i = i + 1;
+        }
+
+        sum = 0;
+        i = 0;
+        while (i < n * n) {
+            sum = sum + c[i];
+            i = i + 1;
+        }
+
+        return sum;
+    }
+}
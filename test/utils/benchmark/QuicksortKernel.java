@@ -0,0 +1,74 @@
+package utils.benchmark;
+
+/**
+ * The same code as QuicksortKernel.jmm, compiled by javac.
+ */
+public class QuicksortKernel {
+
+    public int run(int n) {
+        int[] values;
+        int seed;
+        int i;
+        int checksum;
+
+        values = new int[n];
+        seed = 12345;
+        i = 0;
+        while (i < n) {
+            seed = seed * 1103515245 + 12345;
+            values[i] = seed;
+            i = i + 1;
+        }
+
+        this.sort(values, 0, n - 1);
+
+        checksum = 0;
+        i = 0;
+        while (i < n) {
+            checksum = checksum * 31 + values[i];
+            i = i + 1;
+        }
+
+        return checksum;
+    }
+
+    public boolean sort(int[] values, int lo, int hi) {
+        int p;
+
+        if (lo < hi) {
+            p = this.partition(values, lo, hi);
+            this.sort(values, lo, p - 1);
+            this.sort(values, p + 1, hi);
+        } else {
+        }
+
+        return true;
+    }
+
+    public int partition(int[] values, int lo, int hi) {
+        int p;
+        int i;
+        int j;
+        int tmp;
+
+        p = values[hi];
+        i = lo;
+        j = lo;
+        while (j < hi) {
+            if (values[j] < p) {
+                tmp = values[i];
+                values[i] = values[j];
+                values[j] = tmp;
+                i = i + 1;
+            } else {
+            }
+            j = j + 1;
+        }
+
+        tmp = values[i];
+        values[i] = values[hi];
+        values[hi] = tmp;
+
+        return i;
+    }
+}
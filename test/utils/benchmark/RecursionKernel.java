@@ -0,0 +1,23 @@
+package utils.benchmark;
+
+/**
+ * The same code as RecursionKernel.jmm, compiled by javac.
+ */
+public class RecursionKernel {
+
+    public int run(int n) {
+        return this.fib(n);
+    }
+
+    public int fib(int n) {
+        int result;
+
+        if (n < 2) {
+            result = n;
+        } else {
+            result = this.fib(n - 1) + this.fib(n - 2);
+        }
+
+        return result;
+    }
+}